@@ -71,6 +71,17 @@ public class Bearing {
      */
     private static final double R = 1.0 - F;
 
+    /**
+     * first eccentricity squared
+     */
+    private static final double E2 = F * (2.0 - F);
+
+    /**
+     * segments with smaller differences of latitude and longitude in radians are
+     * short enough for the mid-latitude approximation to stay within 0.1 millimeters
+     */
+    private static final double SHORT_SEGMENT = 1.0E-4;
+
     /**
      * conversion for degrees to radians
      */
@@ -143,8 +154,86 @@ public class Bearing {
      */
     public static Bearing calculateBearing(double longitude1, double latitude1,
                                            double longitude2, double latitude2) {
-        if ((latitude1 == latitude2) && (longitude1 == longitude2))
-            return new Bearing(0, 0, 0);
+        double[] result = new double[3];
+        inverse(longitude1, latitude1, longitude2, latitude2, result);
+        return new Bearing(result[0], result[1], result[2]);
+    }
+
+    /**
+     * Computes the distances (in meters) and azimuths (degrees, 0 = north, clockwise positive)
+     * between all adjacent positions of the given arrays without creating objects.
+     * The element i of the distances and azimuths receives the values from position i to i + 1.
+     * Short segments, which are the vast majority in tracks, are computed with the mid-latitude
+     * approximation on the ellipsoid that differs from {@link #calculateBearing} by less than
+     * 0.1 millimeters and 0.0001 degrees, longer segments with Vincenty's formula.
+     *
+     * @param longitudes the longitudes of the positions
+     * @param latitudes the latitudes of the positions
+     * @param distances receives the distances, at least one element shorter than the positions
+     * @param azimuths receives the azimuths, at least one element shorter than the positions or null
+     */
+    public static void calculateBearings(double[] longitudes, double[] latitudes,
+                                         double[] distances, double[] azimuths) {
+        int segments = longitudes.length - 1;
+        if (latitudes.length != longitudes.length)
+            throw new IllegalArgumentException("Got " + longitudes.length + " longitudes but " + latitudes.length + " latitudes");
+        if (segments > 0 && distances.length < segments || azimuths != null && azimuths.length < segments)
+            throw new IllegalArgumentException("Need " + segments + " elements to store distances and azimuths");
+
+        double[] result = null;
+        for (int i = 0; i < segments; i++) {
+            double longitude1 = longitudes[i], latitude1 = latitudes[i];
+            double longitude2 = longitudes[i + 1], latitude2 = latitudes[i + 1];
+            double deltaLatitude = rad * (latitude2 - latitude1);
+            double deltaLongitude = rad * (longitude2 - longitude1);
+
+            if (abs(deltaLatitude) < SHORT_SEGMENT && abs(deltaLongitude) < SHORT_SEGMENT) {
+                if (deltaLatitude == 0.0 && deltaLongitude == 0.0) {
+                    distances[i] = 0.0;
+                    if (azimuths != null)
+                        azimuths[i] = 0.0;
+                    continue;
+                }
+
+                // radii of curvature in the meridian and in the prime vertical at the middle latitude
+                double middleLatitude = rad * (latitude1 + latitude2) / 2.0;
+                double sinMiddleLatitude = sin(middleLatitude);
+                double cosMiddleLatitude = cos(middleLatitude);
+                double W = 1.0 - E2 * sinMiddleLatitude * sinMiddleLatitude;
+                double N = EARTH_RADIUS / sqrt(W);
+                double M = N * (1.0 - E2) / W;
+                double north = M * deltaLatitude;
+                double east = N * cosMiddleLatitude * deltaLongitude;
+                distances[i] = roundMeterToMillimeterPrecision(sqrt(north * north + east * east));
+
+                if (azimuths != null) {
+                    // from the middle of the segment back to its start by half the meridian convergence
+                    double azimuth = (atan2(east, north) - deltaLongitude * sinMiddleLatitude / 2.0) * deg;
+                    azimuths[i] = azimuth < 0.0 ? azimuth + 360.0 : azimuth;
+                }
+            } else {
+                if (result == null)
+                    result = new double[3];
+                inverse(longitude1, latitude1, longitude2, latitude2, result);
+                distances[i] = result[2];
+                if (azimuths != null)
+                    azimuths[i] = result[0];
+            }
+        }
+    }
+
+    /**
+     * Computes the azimuth, back azimuth and distance like {@link #calculateBearing}
+     * into the elements 0, 1 and 2 of the given result array.
+     */
+    private static void inverse(double longitude1, double latitude1,
+                                double longitude2, double latitude2, double[] result) {
+        if ((latitude1 == latitude2) && (longitude1 == longitude2)) {
+            result[0] = 0;
+            result[1] = 0;
+            result[2] = 0;
+            return;
+        }
 
         // Algorithm from National Geodetic Survey, FORTRAN program "inverse,"
         // subroutine "INVER1," by L. PFEIFER and JOHN G. GERGEN.
@@ -210,8 +299,12 @@ public class Bearing {
             D = X;
             X = ((E * CY * C + CZ) * SY * C + Y) * SA;
             X = (1. - C) * X * F + GLON2 - GLON1;
-            if(count++ > 100000)
-                return new Bearing(0, 0, 0);
+            if(count++ > 100000) {
+                result[0] = 0;
+                result[1] = 0;
+                result[2] = 0;
+                return;
+            }
             //IF(DABS(D-X).GT.EPS) GO TO 100
         } while (abs(D - X) > EPS);
 
@@ -231,7 +324,9 @@ public class Bearing {
             azimuth += 360.0;  // reset azs from -180 to 180 to 0 to 360
         }
         double backazimuth = BAZ * deg;  // radians to degrees; already in 0 to 360 range
-        return new Bearing(azimuth, backazimuth, roundMeterToMillimeterPrecision(S));
+        result[0] = azimuth;
+        result[1] = backazimuth;
+        result[2] = roundMeterToMillimeterPrecision(S);
     }
 }
 
@@ -3,114 +3,235 @@ package slash.navigation.common;
 import javax.swing.event.EventListenerList;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+import static java.lang.Double.isNaN;
 import static java.lang.Integer.MAX_VALUE;
-import static slash.common.io.Transfer.isEmpty;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.util.Arrays.copyOf;
+import static java.util.Arrays.fill;
 import static slash.navigation.common.DistanceAndTime.ZERO;
 
 /**
  * Aggregates {@link DistanceAndTime}s
  *
+ * The relative distances and times are kept in primitive arrays and summed up
+ * in Fenwick trees, so that updates and distances and times from the start are
+ * calculated in logarithmic time. Readers share a read lock and are not blocked
+ * by each other.
+ *
  * @author Christian Pesch
  */
 
 public class DistanceAndTimeAggregator {
-    private final Map<Integer, DistanceAndTime> relativeDistancesAndTimes = new TreeMap<>();
-    private final Map<Integer, DistanceAndTime> absoluteDistancesAndTimes = new TreeMap<>();
+    private static final byte PRESENT = 1, WITH_DISTANCE = 2, WITH_TIME = 4;
+    private static final int UPDATES_BEFORE_REBUILD = 64;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
     private final EventListenerList listenerList = new EventListenerList();
 
+    // element i is the relative distance and time of index i, flags tell which parts are present
+    private byte[] flags = new byte[16];
+    private double[] distances = new double[16];
+    private long[] times = new long[16];
+    // one based Fenwick trees over the distances and times that count for the aggregation
+    private double[] distanceTree = new double[17];
+    private long[] timeTree = new long[17];
+    private int size;
+
     public DistanceAndTimeAggregator() {
         initialize();
     }
 
     private void initialize() {
-        relativeDistancesAndTimes.clear();
-        relativeDistancesAndTimes.put(0, ZERO);
-        absoluteDistancesAndTimes.clear();
-        absoluteDistancesAndTimes.put(0, ZERO);
+        size = 0;
+        fill(flags, (byte) 0);
+        ensureSize(1);
+        set(0, ZERO);
+        rebuild();
     }
 
-    public synchronized void addDistancesAndTimes(Map<Integer, DistanceAndTime> indexToDistanceAndTime) {
+    public void addDistancesAndTimes(Map<Integer, DistanceAndTime> indexToDistanceAndTime) {
         FirstAndLastIndex firstAndLastIndex = calculateFirstAndLastIndex(indexToDistanceAndTime);
-        if(firstAndLastIndex == null)
+        if (firstAndLastIndex == null)
             return;
 
-        int diff = firstAndLastIndex.lastIndex - firstAndLastIndex.firstIndex + 1;
-        for (int i = relativeDistancesAndTimes.size() - 1; i >= firstAndLastIndex.lastIndex - 1; i--) {
-            DistanceAndTime move = relativeDistancesAndTimes.get(i);
-            int moveIndex = i + diff;
-            relativeDistancesAndTimes.put(moveIndex, new DistanceAndTime(move.distance(), move.timeInMillis()));
+        int lastIndexForEvents;
+        lock.writeLock().lock();
+        try {
+            int first = firstAndLastIndex.firstIndex, last = firstAndLastIndex.lastIndex;
+            int diff = last - first + 1;
+            if (first < size) {
+                int previousSize = size;
+                ensureSize(size + diff);
+                System.arraycopy(flags, first, flags, first + diff, previousSize - first);
+                System.arraycopy(distances, first, distances, first + diff, previousSize - first);
+                System.arraycopy(times, first, times, first + diff, previousSize - first);
+                fill(flags, first, first + diff, (byte) 0);
+            } else
+                ensureSize(last + 1);
+            setAll(indexToDistanceAndTime);
+            rebuild();
+            lastIndexForEvents = getLastIndexForEvents();
+        } finally {
+            lock.writeLock().unlock();
         }
-        relativeDistancesAndTimes.putAll(indexToDistanceAndTime);
-        updateAbsoluteDistancesAndTimes(firstAndLastIndex.firstIndex);
-        fireDistancesAndTimesChanged(firstAndLastIndex.firstIndex, getLastIndexForEvents());
+        fireDistancesAndTimesChanged(firstAndLastIndex.firstIndex, lastIndexForEvents);
     }
 
     // everything after lastIndex must be updated, too, for distance and time
     // avoiding to use Integer.MAX_VALUE since JTable clears the selection
     private int getLastIndexForEvents() {
-        return absoluteDistancesAndTimes.size() - 1;
+        return size - 1;
     }
 
-    public synchronized void updateDistancesAndTimes(Map<Integer, DistanceAndTime> indexToDistanceAndTime) {
+    public void updateDistancesAndTimes(Map<Integer, DistanceAndTime> indexToDistanceAndTime) {
         FirstAndLastIndex firstAndLastIndex = calculateFirstAndLastIndex(indexToDistanceAndTime);
-        if(firstAndLastIndex == null)
+        if (firstAndLastIndex == null)
             return;
 
-        relativeDistancesAndTimes.putAll(indexToDistanceAndTime);
-        updateAbsoluteDistancesAndTimes(firstAndLastIndex.firstIndex);
-        fireDistancesAndTimesChanged(firstAndLastIndex.firstIndex, getLastIndexForEvents());
+        int lastIndexForEvents;
+        lock.writeLock().lock();
+        try {
+            int previousSize = size;
+            ensureSize(firstAndLastIndex.lastIndex + 1);
+            setAll(indexToDistanceAndTime);
+            if (size != previousSize || indexToDistanceAndTime.size() > UPDATES_BEFORE_REBUILD)
+                rebuild();
+            else
+                for (Integer index : indexToDistanceAndTime.keySet())
+                    updateTrees(index);
+            lastIndexForEvents = getLastIndexForEvents();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        fireDistancesAndTimesChanged(firstAndLastIndex.firstIndex, lastIndexForEvents);
     }
 
-    public synchronized void removeDistancesAndTimes(Map<Integer, DistanceAndTime> indexToDistanceAndTime) {
+    public void removeDistancesAndTimes(Map<Integer, DistanceAndTime> indexToDistanceAndTime) {
         FirstAndLastIndex firstAndLastIndex = calculateFirstAndLastIndex(indexToDistanceAndTime);
-        if(firstAndLastIndex == null)
+        if (firstAndLastIndex == null)
             return;
 
-        int sizeBeforeRemoval = relativeDistancesAndTimes.size();
-        for (int i = firstAndLastIndex.firstIndex; i <= firstAndLastIndex.lastIndex; i++) {
-            relativeDistancesAndTimes.remove(i);
-            absoluteDistancesAndTimes.remove(i);
+        int lastIndexForEvents;
+        lock.writeLock().lock();
+        try {
+            int first = firstAndLastIndex.firstIndex;
+            int last = min(firstAndLastIndex.lastIndex, size - 1);
+            if (first <= last) {
+                int diff = last - first + 1;
+                System.arraycopy(flags, last + 1, flags, first, size - last - 1);
+                System.arraycopy(distances, last + 1, distances, first, size - last - 1);
+                System.arraycopy(times, last + 1, times, first, size - last - 1);
+                size -= diff;
+                fill(flags, size, size + diff, (byte) 0);
+                rebuild();
+            }
+            lastIndexForEvents = getLastIndexForEvents();
+        } finally {
+            lock.writeLock().unlock();
         }
-        for (int i = firstAndLastIndex.lastIndex + 1; i < sizeBeforeRemoval; i++) {
-            DistanceAndTime move = relativeDistancesAndTimes.remove(i);
-            int moveIndex = firstAndLastIndex.firstIndex + i - (firstAndLastIndex.lastIndex + 1);
-            // avoid NullPointerException since move could be null
-            relativeDistancesAndTimes.put(moveIndex, move != null ? new DistanceAndTime(move.distance(), move.timeInMillis()) : new DistanceAndTime(0.0, 0L));
-            absoluteDistancesAndTimes.remove(i);
+        fireDistancesAndTimesChanged(firstAndLastIndex.firstIndex, lastIndexForEvents);
+    }
+
+    public void clearDistancesAndTimes() {
+        lock.writeLock().lock();
+        try {
+            initialize();
+        } finally {
+            lock.writeLock().unlock();
         }
+        fireDistancesAndTimesChanged(0, MAX_VALUE);
+    }
 
-        updateAbsoluteDistancesAndTimes(firstAndLastIndex.firstIndex);
-        fireDistancesAndTimesChanged(firstAndLastIndex.firstIndex, getLastIndexForEvents());
+    private void ensureSize(int newSize) {
+        if (newSize > flags.length) {
+            int length = max(newSize, flags.length + (flags.length >> 1));
+            flags = copyOf(flags, length);
+            distances = copyOf(distances, length);
+            times = copyOf(times, length);
+            distanceTree = new double[length + 1];
+            timeTree = new long[length + 1];
+        }
+        size = max(size, newSize);
     }
 
-    public synchronized void clearDistancesAndTimes() {
-        initialize();
-        fireDistancesAndTimesChanged(0, MAX_VALUE);
+    private void setAll(Map<Integer, DistanceAndTime> indexToDistanceAndTime) {
+        for (Map.Entry<Integer, DistanceAndTime> entry : indexToDistanceAndTime.entrySet())
+            set(entry.getKey(), entry.getValue());
     }
 
-    private void updateAbsoluteDistancesAndTimes(int startIndex) {
-        DistanceAndTime firstPosition = absoluteDistancesAndTimes.get(startIndex - 1);
-        if(firstPosition == null)
+    private void set(int index, DistanceAndTime distanceAndTime) {
+        if (distanceAndTime == null) {
+            flags[index] = 0;
             return;
-        int endIndex = relativeDistancesAndTimes.size();
+        }
+        byte flag = PRESENT;
+        Double distance = distanceAndTime.distance();
+        if (distance != null) {
+            flag |= WITH_DISTANCE;
+            distances[index] = distance;
+        }
+        Long time = distanceAndTime.timeInMillis();
+        if (time != null) {
+            flag |= WITH_TIME;
+            times[index] = time;
+        }
+        flags[index] = flag;
+    }
+
+    private double getAggregatedDistance(int index) {
+        if ((flags[index] & WITH_DISTANCE) == 0)
+            return 0.0;
+        double distance = distances[index];
+        return !isNaN(distance) ? distance : 0.0;
+    }
+
+    private long getAggregatedTime(int index) {
+        return (flags[index] & WITH_TIME) != 0 ? times[index] : 0L;
+    }
+
+    private void rebuild() {
+        for (int i = 1; i <= size; i++) {
+            distanceTree[i] = getAggregatedDistance(i - 1);
+            timeTree[i] = getAggregatedTime(i - 1);
+        }
+        for (int i = 1; i <= size; i++) {
+            int parent = i + (i & -i);
+            if (parent <= size) {
+                distanceTree[parent] += distanceTree[i];
+                timeTree[parent] += timeTree[i];
+            }
+        }
+    }
 
-        double aggregatedDistance = firstPosition.distance();
-        long aggregatedTime = firstPosition.timeInMillis();
-        for (int index = startIndex; index < endIndex; index++) {
-            DistanceAndTime distanceAndTime = relativeDistancesAndTimes.get(index);
-            if(distanceAndTime == null)
-                continue;
-            Double distance = distanceAndTime.distance();
-            if (!isEmpty(distance))
-                aggregatedDistance += distance;
-            Long time = distanceAndTime.timeInMillis();
-            if (!isEmpty(time))
-                aggregatedTime += time;
-            absoluteDistancesAndTimes.put(index, new DistanceAndTime(aggregatedDistance, aggregatedTime));
+    // sums up every tree node covering the index again instead of adding differences
+    // which would accumulate rounding errors over many updates
+    private void updateTrees(int index) {
+        for (int node = index + 1; node <= size; node += node & -node) {
+            double distance = getAggregatedDistance(node - 1);
+            long time = getAggregatedTime(node - 1);
+            for (int child = 1; child < (node & -node); child <<= 1) {
+                distance += distanceTree[node - child];
+                time += timeTree[node - child];
+            }
+            distanceTree[node] = distance;
+            timeTree[node] = time;
         }
     }
 
+    private DistanceAndTime getSum(int index) {
+        double distance = 0.0;
+        long time = 0L;
+        for (int node = index + 1; node > 0; node -= node & -node) {
+            distance += distanceTree[node];
+            time += timeTree[node];
+        }
+        return new DistanceAndTime(distance, time);
+    }
+
     private static class FirstAndLastIndex {
         public int firstIndex;
         public int lastIndex;
@@ -133,17 +254,84 @@ public class DistanceAndTimeAggregator {
         return firstIndex != MAX_VALUE ? new FirstAndLastIndex(firstIndex, lastIndex): null;
     }
 
+    public int getSize() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the distance and time from the start to the given index or
+     * <code>null</code> if the index is not aggregated.
+     */
+    public DistanceAndTime getAbsoluteDistanceAndTime(int index) {
+        lock.readLock().lock();
+        try {
+            return index >= 0 && index < size ? getSum(index) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the distance and time from the previous index to the given index or
+     * <code>null</code> if the index is not aggregated.
+     */
+    public DistanceAndTime getRelativeDistanceAndTime(int index) {
+        lock.readLock().lock();
+        try {
+            return index >= 0 && index < size ? getRelative(index) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private DistanceAndTime getRelative(int index) {
+        byte flag = flags[index];
+        if ((flag & PRESENT) == 0)
+            return null;
+        return new DistanceAndTime((flag & WITH_DISTANCE) != 0 ? distances[index] : null,
+                (flag & WITH_TIME) != 0 ? times[index] : null);
+    }
+
     public Map<Integer, DistanceAndTime> getAbsoluteDistancesAndTimes() {
-        return absoluteDistancesAndTimes;
+        lock.readLock().lock();
+        try {
+            Map<Integer, DistanceAndTime> result = new TreeMap<>();
+            for (int i = 0; i < size; i++)
+                if ((flags[i] & PRESENT) != 0)
+                    result.put(i, getSum(i));
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     public Map<Integer, DistanceAndTime> getRelativeDistancesAndTimes() {
-        return relativeDistancesAndTimes;
+        lock.readLock().lock();
+        try {
+            Map<Integer, DistanceAndTime> result = new TreeMap<>();
+            for (int i = 0; i < size; i++) {
+                DistanceAndTime relative = getRelative(i);
+                if (relative != null)
+                    result.put(i, relative);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     public DistanceAndTime getTotalDistanceAndTime() {
-        DistanceAndTime total = absoluteDistancesAndTimes.get(absoluteDistancesAndTimes.size() - 1);
-        return total != null ? total : ZERO;
+        lock.readLock().lock();
+        try {
+            return size > 0 ? getSum(size - 1) : ZERO;
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     private void fireDistancesAndTimesChanged(int firstIndex, int lastIndex) {
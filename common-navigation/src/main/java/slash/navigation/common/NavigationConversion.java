@@ -92,6 +92,30 @@ public class NavigationConversion {
         return roundMercator(latitude, y);
     }
 
+    /**
+     * Converts the Mercator x and y coordinates of many positions at once. The results are
+     * the same as the ones of {@link #mercatorXToWgs84Longitude(long)} and
+     * {@link #mercatorYToWgs84Latitude(long)} since they are rounded.
+     */
+    public static void mercatorXYToWgs84LongitudeLatitude(long[] xs, long[] ys, double[] longitudes, double[] latitudes) {
+        for (int i = 0; i < xs.length; i++) {
+            longitudes[i] = mercatorXToWgs84Longitude(xs[i]);
+            latitudes[i] = mercatorYToWgs84Latitude(ys[i]);
+        }
+    }
+
+    /**
+     * Converts the WGS84 longitudes and latitudes of many positions at once. The results are
+     * the same as the ones of {@link #wgs84LongitudeToMercatorX(double)} and
+     * {@link #wgs84LatitudeToMercatorY(double)} since they are rounded.
+     */
+    public static void wgs84LongitudeLatitudeToMercatorXY(double[] longitudes, double[] latitudes, long[] xs, long[] ys) {
+        for (int i = 0; i < longitudes.length; i++) {
+            xs[i] = wgs84LongitudeToMercatorX(longitudes[i]);
+            ys[i] = wgs84LatitudeToMercatorY(latitudes[i]);
+        }
+    }
+
     // see http://de.wikipedia.org/wiki/Gau%C3%9F-Kr%C3%BCger-Koordinatensystem
 
     private static final double aBessel = 6377397.155;
@@ -278,6 +302,128 @@ public class NavigationConversion {
         return new double[]{right, height};
     }
 
+    // constants of the batch conversions which avoid pow() and compute trigonometric functions once
+    private static final double DEGREE_TO_RADIAN = PI / 180;
+    private static final double RADIAN_TO_DEGREE = 180 / PI;
+    private static final double HELMERT_HEIGHT = 4.21;
+    private static final double aBessel2ToBBessel2 = (aBessel * aBessel) / (bBessel * bBessel);
+    private static final double bBessel2ToABessel2 = (bBessel * bBessel) / (aBessel * aBessel);
+    private static final double bWgs842ToAWgs842 = (bWgs84 * bWgs84) / (aWgs84 * aWgs84);
+    private static final double e2BesselABessel = e2Bessel * aBessel;
+    private static final double e2BesselABessel2ToBBessel = e2Bessel * aBessel * aBessel / bBessel;
+    private static final double e2Wgs84AWgs84 = e2Wgs84 * aWgs84;
+    private static final double e2Wgs84AWgs842ToBWgs84 = e2Wgs84 * aWgs84 * aWgs84 / bWgs84;
+
+    /**
+     * Converts the Gauss-Krueger right and height values of many positions at once. The results
+     * differ from the ones of {@link #gaussKruegerRightHeightToWgs84LongitudeLatitude(double, double)}
+     * only by rounding errors far below the precision of the transformation.
+     */
+    public static void gaussKruegerRightHeightToWgs84LongitudeLatitude(double[] rights, double[] heights,
+                                                                       double[] longitudes, double[] latitudes) {
+        for (int i = 0; i < rights.length; i++) {
+            double right = rights[i];
+
+            // Umrechnung GK nach B, L
+            int y0 = (int) (right / 1000000);
+            int yInt = (int) (right - y0 * 1000000 - 500000);
+            double y1 = yInt, y2 = y1 * y1;
+            double B0 = heights[i] / alphaGk2Wgs84;
+            double sin2B0 = sin(2 * B0), cos2B0 = cos(2 * B0);
+            double sin4B0 = 2 * sin2B0 * cos2B0, cos4B0 = 1 - 2 * sin2B0 * sin2B0;
+            double sin6B0 = sin4B0 * cos2B0 + cos4B0 * sin2B0, sin8B0 = 2 * sin4B0 * cos4B0;
+            double Bf = B0 + betaGk2Wgs84 * sin2B0 + gammaGk2Wgs84 * sin4B0 + deltaGk2Wgs84 * sin6B0 + epsilonGk2Wgs84 * sin8B0;
+            double sinBf = sin(Bf), cosBf = cos(Bf);
+            double Nf = aBessel / sqrt(1 - e2Bessel * sinBf * sinBf), Nf2 = Nf * Nf;
+            double pif2 = aBessel2ToBBessel2 * e2Bessel * cosBf * cosBf;
+            double tf = sinBf / cosBf, tf2 = tf * tf;
+            double tf1 = tf / 2 / Nf2 * (-1 - pif2) * y2;
+            double tf4 = tf / 24 / (Nf2 * Nf2) * (5 + 3 * tf2 + 6 * pif2 - 6 * tf2 * pif2 - 4 * pif2 * pif2 - 9 * tf2 * pif2 * pif2) * y2 * y2;
+            double B = Bf + tf1 + tf4;
+            double l1 = 1 / Nf / cosBf * y1;
+            double l2 = (1 / (Nf2 * Nf) / 6 / cosBf) * (-1 - 2 * tf2 - pif2) * y2 * y1;
+            double L = y0 * 3 * DEGREE_TO_RADIAN + l1 + l2;
+
+            // Ell. Koordinaten auf dem Bessel-Ellipsoid
+            double sinB = sin(B), cosB = cos(B);
+            double N = aBessel / sqrt(1 - e2Bessel * sinB * sinB);
+            double x1 = (N + HELMERT_HEIGHT) * cosB * cos(L);
+            double z1 = (N * bBessel2ToABessel2 + HELMERT_HEIGHT) * sinB;
+            y1 = (N + HELMERT_HEIGHT) * cosB * sin(L);
+
+            // Rotierte Vektoren, Translationen anbringen
+            double x = (x1 + y1 * 0.0000119021759 + z1 * 0.000000218166156) * 0.9999933 + 598.095;
+            double y = (x1 * -0.0000119021759 + y1 + z1 * -0.000000979323636) * 0.9999933 + 73.707;
+            double z = (x1 * -0.000000218166156 + y1 * 0.0000009793236 + z1) * 0.9999933 + 418.197;
+
+            // Vektoren (in ETRF89)
+            double s = sqrt(x * x + y * y);
+            double tanT = z * aWgs84 / (s * bWgs84);
+            double cosT = 1 / sqrt(1 + tanT * tanT), sinT = tanT * cosT;
+            double B2 = atan((z + e2Wgs84AWgs842ToBWgs84 * sinT * sinT * sinT) / (s - e2Wgs84AWgs84 * cosT * cosT * cosT));
+            double L2 = atan(y / x);
+            latitudes[i] = B2 * RADIAN_TO_DEGREE;
+            longitudes[i] = L2 * RADIAN_TO_DEGREE;
+        }
+    }
+
+    /**
+     * Converts the WGS84 longitudes and latitudes of many positions at once. The results differ
+     * from the ones of {@link #wgs84LongitudeLatitudeToGaussKruegerRightHeight(double, double)}
+     * only by rounding errors far below the precision of the transformation.
+     */
+    public static void wgs84LongitudeLatitudeToGaussKruegerRightHeight(double[] longitudes, double[] latitudes,
+                                                                       double[] rights, double[] heights) {
+        for (int i = 0; i < longitudes.length; i++) {
+            double latitude = latitudes[i] * DEGREE_TO_RADIAN, longitude = longitudes[i] * DEGREE_TO_RADIAN;
+
+            // Ell. Koordinaten auf dem WGS-Ellipsoid
+            double sinLatitude = sin(latitude), cosLatitude = cos(latitude);
+            double nWgs84 = aWgs84 / sqrt(1 - e2Wgs84 * sinLatitude * sinLatitude);
+            double x1 = (nWgs84 + HELMERT_HEIGHT) * cosLatitude * cos(longitude);
+            double y1 = (nWgs84 + HELMERT_HEIGHT) * cosLatitude * sin(longitude);
+            double z1 = (nWgs84 * bWgs842ToAWgs842 + HELMERT_HEIGHT) * sinLatitude;
+
+            // Rotierte Vektoren, Translationen anbringen
+            double x = (x1 + y1 * -0.0000119021759 + z1 * -0.000000218166156) * 0.9999933 - 598.095;
+            double y = (x1 * 0.0000119021759 + y1 + z1 * 0.000000979323636) * 0.9999933 - 73.707;
+            double z = (x1 * 0.000000218166156 + y1 * -0.0000009793236 + z1) * 0.9999933 - 418.197;
+
+            // Vektoren (in ETRF89)
+            double s = sqrt(x * x + y * y);
+            double tanT = z * aBessel / (s * bBessel);
+            double cosT = 1 / sqrt(1 + tanT * tanT), sinT = tanT * cosT;
+            double B = atan((z + e2BesselABessel2ToBBessel * sinT * sinT * sinT) / (s - e2BesselABessel * cosT * cosT * cosT));
+            double L1 = atan(y / x) * RADIAN_TO_DEGREE;
+            double sinB = sin(B), cosB = cos(B), cosB2 = cosB * cosB;
+            double N = aBessel / sqrt(1 - e2Bessel * sinB * sinB);
+
+            // Umrechnung B,L in GK
+            int L0;
+            if (abs(L1 - 6) < 1.5)
+                L0 = 6;
+            else if (abs(L1 - 9) < 1.5)
+                L0 = 9;
+            else if (abs(L1 - 12) < 1.5)
+                L0 = 12;
+            else
+                L0 = 15;
+            double I = (L1 - L0) * DEGREE_TO_RADIAN, I2 = I * I;
+            double pi2 = aBessel2ToBBessel2 * e2Bessel * cosB2;
+            double t = sinB / cosB, t2 = t * t;
+            double sin2B = 2 * sinB * cosB, cos2B = cosB2 - sinB * sinB;
+            double sin4B = 2 * sin2B * cos2B, cos4B = 1 - 2 * sin2B * sin2B;
+            double sin6B = sin4B * cos2B + cos4B * sin2B, sin8B = 2 * sin4B * cos4B;
+            double Bogenlaenge = alphaWgs842Gk * (B + betaWgs842Gk * sin2B + gammaWgs842Gk * sin4B + deltaWgs842Gk * sin6B + epsilonWgs842Gk * sin8B);
+            double BL1 = t / 2 * nWgs84 * cosB2 * I2;
+            double BL2 = t / 24 * nWgs84 * cosB2 * cosB2 * (5 - t2 + 9 * pi2 + 4 * pi2 * pi2) * I2 * I2;
+            double RW1 = N * cosB * I;
+            double RW2 = N / 6 * cosB2 * cosB * (1 - t2 + pi2) * I2 * I;
+            heights[i] = Bogenlaenge + BL1 + BL2;
+            rights[i] = RW1 + RW2 + 500000 + L0 / 3 * 1000000;
+        }
+    }
+
     public static Double semiCircleToDegree(Integer integer) {
         if(integer == null)
             return null;
@@ -385,6 +531,11 @@ public class NavigationConversion {
         return formatBigDecimal(speed, maximumFractionDigits);
     }
 
+    public static Double formatElevationAsDouble(Double elevation) {
+        int maximumFractionDigits = preferences.getInt(ELEVATION_MAXIMUM_FRACTION_DIGITS, 1);
+        return formatDouble(elevation, maximumFractionDigits);
+    }
+
     public static Double formatSpeedAsDouble(Double speed) {
         int maximumFractionDigits = preferences.getInt(SPEED_MAXIMUM_FRACTION_DIGITS, 1);
         return formatDouble(speed, maximumFractionDigits);
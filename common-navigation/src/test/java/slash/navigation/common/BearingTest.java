@@ -22,6 +22,12 @@ package slash.navigation.common;
 
 import org.junit.Test;
 
+import java.util.Random;
+
+import static java.lang.Math.abs;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static org.junit.Assert.assertEquals;
 import static slash.common.TestCase.assertDoubleEquals;
 import static slash.common.io.Transfer.roundMeterToMillimeterPrecision;
 
@@ -116,4 +122,49 @@ public class BearingTest {
         assertDoubleEquals(144472.5478, bearing.getDistance());
         assertDoubleEquals(vincentyDistance(01.5040, 53.0902, 00.0833, 52.1219), bearing.getDistance());
     }
+
+    @Test
+    public void testCalculateBearingsAgainstCalculateBearing() {
+        Random random = new Random(42);
+        int count = 100000;
+        double[] longitudes = new double[count], latitudes = new double[count];
+        longitudes[0] = 10.03200;
+        latitudes[0] = 53.56948;
+        for (int i = 1; i < count; i++) {
+            // mostly track points a few meters apart, sometimes jumps, duplicates and far away positions
+            double step = i % 1000 == 0 ? 1.0 : i % 97 == 0 ? 0.0 : 0.0001 * random.nextGaussian();
+            longitudes[i] = i % 5000 == 0 ? -180.0 + 360.0 * random.nextDouble() : longitudes[i - 1] + step;
+            latitudes[i] = i % 5000 == 0 ? -89.0 + 178.0 * random.nextDouble() : max(-89.9, min(89.9, latitudes[i - 1] + step / 2));
+        }
+        double[] distances = new double[count - 1], azimuths = new double[count - 1];
+        Bearing.calculateBearings(longitudes, latitudes, distances, azimuths);
+
+        for (int i = 0; i < count - 1; i++) {
+            Bearing bearing = Bearing.calculateBearing(longitudes[i], latitudes[i], longitudes[i + 1], latitudes[i + 1]);
+            assertEquals(bearing.getDistance(), distances[i], 0.0001 + 1.0E-9);
+            if (bearing.getDistance() > 0.5) {
+                double azimuthDifference = abs(bearing.getAngle() - azimuths[i]);
+                assertEquals(0.0, min(azimuthDifference, 360.0 - azimuthDifference), 0.0001);
+            }
+        }
+    }
+
+    @Test
+    public void testCalculateBearingsWithoutAzimuths() {
+        double[] distances = new double[2];
+        Bearing.calculateBearings(new double[]{10.03200, 10.03200, 00.0833}, new double[]{53.56948, 53.569481, 52.1219},
+                distances, null);
+        assertDoubleEquals(0.1112, distances[0]);
+        assertDoubleEquals(Bearing.calculateBearing(10.03200, 53.569481, 00.0833, 52.1219).getDistance(), distances[1]);
+    }
+
+    @Test
+    public void testCalculateBearingsForSinglePosition() {
+        Bearing.calculateBearings(new double[]{10.0}, new double[]{53.0}, new double[0], new double[0]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCalculateBearingsWithTooShortDistances() {
+        Bearing.calculateBearings(new double[]{10.0, 11.0}, new double[]{53.0, 54.0}, new double[0], null);
+    }
 }
@@ -2,10 +2,14 @@ package slash.navigation.common;
 
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.mockito.Mockito.*;
 
 public class DistanceAndTimeAggregatorTest {
@@ -94,4 +98,62 @@ public class DistanceAndTimeAggregatorTest {
         assertEquals(populate(0, 15), aggregator.getRelativeDistancesAndTimes());
         verify(listener, times(1)).distancesAndTimesChanged(1, 1);
     }
+
+    @Test
+    public void testDistanceAndTimeAtIndex() {
+        aggregator.updateDistancesAndTimes(populateAt(1, 5, 10, 15));
+        aggregator.updateDistancesAndTimes(Map.of(4, new DistanceAndTime(null, 7L)));
+        assertEquals(new DistanceAndTime(15.0, 30L), aggregator.getAbsoluteDistanceAndTime(2));
+        assertEquals(new DistanceAndTime(30.0, 67L), aggregator.getAbsoluteDistanceAndTime(4));
+        assertEquals(new DistanceAndTime(10.0, 20L), aggregator.getRelativeDistanceAndTime(2));
+        assertEquals(new DistanceAndTime(null, 7L), aggregator.getRelativeDistanceAndTime(4));
+        assertNull(aggregator.getAbsoluteDistanceAndTime(5));
+        assertNull(aggregator.getRelativeDistanceAndTime(-1));
+        assertEquals(5, aggregator.getSize());
+
+        aggregator.clearDistancesAndTimes();
+        assertEquals(1, aggregator.getSize());
+        assertEquals(DistanceAndTime.ZERO, aggregator.getTotalDistanceAndTime());
+    }
+
+    @Test
+    public void testFollowsModifications() {
+        Random random = new Random(42);
+        List<DistanceAndTime> expected = new ArrayList<>();
+        expected.add(DistanceAndTime.ZERO);
+
+        for (int i = 0; i < 2000; i++) {
+            int index = 1 + random.nextInt(expected.size());
+            DistanceAndTime distanceAndTime = new DistanceAndTime((double) random.nextInt(1000), (long) random.nextInt(1000));
+            switch (random.nextInt(3)) {
+                case 0 -> {
+                    expected.add(index, distanceAndTime);
+                    aggregator.addDistancesAndTimes(Map.of(index, distanceAndTime));
+                }
+                case 1 -> {
+                    if (index < expected.size())
+                        expected.set(index, distanceAndTime);
+                    else
+                        expected.add(distanceAndTime);
+                    aggregator.updateDistancesAndTimes(Map.of(index, distanceAndTime));
+                }
+                case 2 -> {
+                    if (index < expected.size()) {
+                        expected.remove(index);
+                        aggregator.removeDistancesAndTimes(Map.of(index, distanceAndTime));
+                    }
+                }
+            }
+
+            double distance = 0.0;
+            long time = 0L;
+            for (int j = 0; j < expected.size(); j++) {
+                distance += expected.get(j).distance();
+                time += expected.get(j).timeInMillis();
+                assertEquals(expected.get(j), aggregator.getRelativeDistanceAndTime(j));
+                assertEquals(new DistanceAndTime(distance, time), aggregator.getAbsoluteDistanceAndTime(j));
+            }
+            assertEquals(expected.size(), aggregator.getSize());
+        }
+    }
 }
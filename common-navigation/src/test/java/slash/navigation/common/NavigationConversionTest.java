@@ -23,8 +23,11 @@ package slash.navigation.common;
 import org.junit.Test;
 
 import java.math.BigDecimal;
+import java.util.Random;
 
+import static java.lang.Math.abs;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static slash.common.TestCase.assertDoubleEquals;
 import static slash.common.TestCase.assertNearBy;
 import static slash.navigation.common.NavigationConversion.*;
@@ -89,6 +92,90 @@ public class NavigationConversionTest {
         assertNearBy(5826585, wgs84LongitudeLatitudeToGaussKruegerRightHeight(13.53667, 52.56332)[1]);
     }
 
+    private static void assertCloseTo(double expected, double actual, double delta) {
+        assertTrue("expected " + expected + " but was " + actual, abs(expected - actual) <= delta);
+    }
+
+    @Test
+    public void testBatchMercatorConversion() {
+        Random random = new Random(42);
+        int count = 10000;
+        double[] longitudes = new double[count], latitudes = new double[count];
+        for (int i = 0; i < count; i++) {
+            longitudes[i] = -180.0 + random.nextDouble() * 360.0;
+            latitudes[i] = -80.0 + random.nextDouble() * 160.0;
+        }
+
+        long[] xs = new long[count], ys = new long[count];
+        wgs84LongitudeLatitudeToMercatorXY(longitudes, latitudes, xs, ys);
+        double[] convertedLongitudes = new double[count], convertedLatitudes = new double[count];
+        mercatorXYToWgs84LongitudeLatitude(xs, ys, convertedLongitudes, convertedLatitudes);
+
+        for (int i = 0; i < count; i++) {
+            assertEquals(wgs84LongitudeToMercatorX(longitudes[i]), xs[i]);
+            assertEquals(wgs84LatitudeToMercatorY(latitudes[i]), ys[i]);
+            assertDoubleEquals(mercatorXToWgs84Longitude(xs[i]), convertedLongitudes[i]);
+            assertDoubleEquals(mercatorYToWgs84Latitude(ys[i]), convertedLatitudes[i]);
+        }
+    }
+
+    @Test
+    public void testBatchWgs84ToGaussKrueger() {
+        Random random = new Random(42);
+        int count = 10000;
+        double[] longitudes = new double[count], latitudes = new double[count];
+        for (int i = 0; i < count; i++) {
+            longitudes[i] = 5.0 + random.nextDouble() * 11.0;
+            latitudes[i] = 47.0 + random.nextDouble() * 8.0;
+        }
+
+        double[] rights = new double[count], heights = new double[count];
+        wgs84LongitudeLatitudeToGaussKruegerRightHeight(longitudes, latitudes, rights, heights);
+
+        for (int i = 0; i < count; i++) {
+            double[] expected = wgs84LongitudeLatitudeToGaussKruegerRightHeight(longitudes[i], latitudes[i]);
+            assertCloseTo(expected[0], rights[i], 0.000001);
+            assertCloseTo(expected[1], heights[i], 0.000001);
+        }
+    }
+
+    @Test
+    public void testBatchGaussKruegerToWgs84() {
+        Random random = new Random(42);
+        int count = 10000;
+        double[] rights = new double[count], heights = new double[count];
+        for (int i = 0; i < count; i++) {
+            rights[i] = (2 + random.nextInt(4)) * 1000000 + 300000 + random.nextDouble() * 400000;
+            heights[i] = 5200000 + random.nextDouble() * 900000;
+        }
+
+        double[] longitudes = new double[count], latitudes = new double[count];
+        gaussKruegerRightHeightToWgs84LongitudeLatitude(rights, heights, longitudes, latitudes);
+
+        for (int i = 0; i < count; i++) {
+            double[] expected = gaussKruegerRightHeightToWgs84LongitudeLatitude(rights[i], heights[i]);
+            assertCloseTo(expected[0], longitudes[i], 0.00000000001);
+            assertCloseTo(expected[1], latitudes[i], 0.00000000001);
+        }
+    }
+
+    @Test
+    public void testBatchGaussKruegerWithKnownPositions() {
+        double[] longitudes = new double[2], latitudes = new double[2];
+        gaussKruegerRightHeightToWgs84LongitudeLatitude(new double[]{4592172, 5400904}, new double[]{5819212, 5826585}, longitudes, latitudes);
+        assertNearBy(13.35573, longitudes[0]);
+        assertNearBy(52.49830, latitudes[0]);
+        assertNearBy(13.53667, longitudes[1]);
+        assertNearBy(52.56332, latitudes[1]);
+
+        double[] rights = new double[2], heights = new double[2];
+        wgs84LongitudeLatitudeToGaussKruegerRightHeight(new double[]{13.35573, 13.53667}, new double[]{52.49830, 52.56332}, rights, heights);
+        assertNearBy(4592172, rights[0]);
+        assertNearBy(5819212, heights[0]);
+        assertNearBy(5400904, rights[1]);
+        assertNearBy(5826585, heights[1]);
+    }
+
     @Test
     public void testSemiCircleToDegree() {
         assertDoubleEquals(11.346305720508099, semiCircleToDegree(135366700));
@@ -47,6 +47,10 @@ public class JAXBHelper {
         JAXBHelper.cacheContexts = cacheContexts;
     }
 
+    public static boolean isFormattedOutput() {
+        return preferences.getBoolean("prettyPrintXml", true);
+    }
+
     public static JAXBContext newContext(Class<?>... classes) {
         List<Class<?>> key = asList(classes);
         JAXBContext context = classesToContext.get(key);
@@ -66,7 +70,7 @@ public class JAXBHelper {
         Marshaller result;
         try {
             result = context.createMarshaller();
-            result.setProperty(JAXB_FORMATTED_OUTPUT, preferences.getBoolean("prettyPrintXml", true));
+            result.setProperty(JAXB_FORMATTED_OUTPUT, isFormattedOutput());
         } catch (JAXBException e) {
             throw new RuntimeException(e);
         }
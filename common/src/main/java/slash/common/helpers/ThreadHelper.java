@@ -22,9 +22,12 @@ package slash.common.helpers;
 
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 
 import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static javax.swing.SwingUtilities.invokeLater;
 import static javax.swing.SwingUtilities.isEventDispatchThread;
 
@@ -53,19 +56,34 @@ public class ThreadHelper {
     }
 
     public static ExecutorService createSingleThreadExecutor(String namePrefix) {
-        return Executors.newSingleThreadExecutor(new NamedThreadFactory(namePrefix));
+        return Executors.newSingleThreadExecutor(new NamedThreadFactory(namePrefix, false));
+    }
+
+    /**
+     * Creates a pool of at most the given number of daemon threads which
+     * terminate when idle, so the pool needs no shutdown.
+     */
+    public static ExecutorService createDaemonThreadPool(String namePrefix, int threads) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, SECONDS,
+                new LinkedBlockingQueue<>(), new NamedThreadFactory(namePrefix, true));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
     }
 
     private static class NamedThreadFactory implements ThreadFactory {
         private final String namePrefix;
+        private final boolean daemon;
         private int number = 1;
 
-        private NamedThreadFactory(String namePrefix) {
+        private NamedThreadFactory(String namePrefix, boolean daemon) {
             this.namePrefix = namePrefix;
+            this.daemon = daemon;
         }
 
-        public Thread newThread(Runnable runnable) {
-            return new Thread(runnable, format("%s-%d", namePrefix, number++));
+        public synchronized Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, format("%s-%d", namePrefix, number++));
+            thread.setDaemon(daemon);
+            return thread;
         }
     }
 }
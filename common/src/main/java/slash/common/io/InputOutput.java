@@ -50,6 +50,14 @@ public class InputOutput {
         }
     }
 
+    /**
+     * Lets a reader that is busy parsing stop when its thread has been interrupted.
+     */
+    public static void checkInterrupted() throws InterruptedIOException {
+        if (Thread.interrupted())
+            throw new InterruptedIOException("Interrupted while reading");
+    }
+
     public static byte[] readBytes(InputStream input) throws IOException {
         ByteArrayOutputStream output = new ByteArrayOutputStream();
         copyAndClose(input, output);
@@ -415,6 +415,17 @@ public class Transfer {
         return datatypeFactory;
     }
 
+    public static XMLGregorianCalendar parseXMLGregorianCalendar(String string) {
+        String trimmed = trim(string);
+        if (trimmed == null)
+            return null;
+        try {
+            return getDataTypeFactory().newXMLGregorianCalendar(trimmed);
+        } catch (DatatypeConfigurationException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
     public static XMLGregorianCalendar formatXMLTime(CompactCalendar time) {
         return formatXMLTime(time, preferences.getBoolean(REDUCE_TIME_TO_SECOND_PRECISION_PREFERENCE, false));
     }
@@ -66,6 +66,33 @@ public class CompactCalendar {
         return simpleDateFormat;
     }
 
+    private record DateFormatKey(String pattern, Locale locale) {
+    }
+
+    // SimpleDateFormat is not thread-safe, thus every thread parses with its own instances
+    private static final ThreadLocal<Map<DateFormatKey, DateFormat>> dateFormats = ThreadLocal.withInitial(HashMap::new);
+
+    private static DateFormat getDateFormat(String pattern, Locale locale) {
+        DateFormat dateFormat = dateFormats.get().computeIfAbsent(new DateFormatKey(pattern, locale),
+                key -> createDateFormat(key.pattern(), key.locale()));
+        // parsing a time zone name changes the time zone of the format
+        dateFormat.setTimeZone(UTC);
+        return dateFormat;
+    }
+
+    /**
+     * Parses the given string with a {@link #createDateFormat(String) date format} for the pattern
+     * that is reused by the current thread.
+     */
+    public static CompactCalendar parse(String dateString, String dateFormatString) throws ParseException {
+        return parse(dateString, dateFormatString, Locale.getDefault(Locale.Category.FORMAT));
+    }
+
+    public static CompactCalendar parse(String dateString, String dateFormatString, Locale locale) throws ParseException {
+        Date parsed = getDateFormat(dateFormatString, locale).parse(dateString);
+        return fromMillis(parsed.getTime());
+    }
+
     public static CompactCalendar parseDate(String dateString, String dateFormatString) {
         return parseDate(dateString, dateFormatString, true);
     }
@@ -74,9 +101,7 @@ public class CompactCalendar {
         if (dateString == null)
             return null;
         try {
-            DateFormat dateFormat = createDateFormat(dateFormatString);
-            Date parsed = dateFormat.parse(dateString);
-            return fromDate(parsed);
+            return parse(dateString, dateFormatString);
         } catch (ParseException e) {
             log.log(logError ? Level.SEVERE : Level.FINE,
                     "Could not parse '" + dateString + "' with format '" + dateFormatString + "'");
@@ -97,9 +122,7 @@ public class CompactCalendar {
     }
 
     public static CompactCalendar fromDate(Date date) {
-        Calendar calendar = Calendar.getInstance(UTC);
-        calendar.setTime(date);
-        return fromCalendar(calendar);
+        return fromMillis(date.getTime());
     }
 
     public static CompactCalendar now() {
@@ -130,7 +153,7 @@ public class CompactCalendar {
     }
 
     public Date getTime() {
-        return getCalendar().getTime();
+        return new Date(getTimeInMillis());
     }
 
     private static volatile Map<String, TimeZone> timeZones = emptyMap();
@@ -22,13 +22,23 @@ package slash.common.type;
 
 import org.junit.Test;
 
+import java.text.ParseException;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.List;
+import java.util.Locale;
 import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.Assert.*;
 import static slash.common.TestCase.assertCalendarEquals;
 import static slash.common.type.CompactCalendar.UTC;
+import static slash.common.type.CompactCalendar.createDateFormat;
 import static slash.common.type.CompactCalendar.fromMillis;
+import static slash.common.type.CompactCalendar.parse;
+import static slash.common.type.CompactCalendar.parseDate;
 
 public class CompactCalendarTest {
 
@@ -87,4 +97,47 @@ public class CompactCalendarTest {
         assertFalse(today.sameDay(yesterday));
         assertFalse(today.sameDay(tomorrow));
     }
+
+    @Test
+    public void testParseLikeDateFormat() throws ParseException {
+        String[][] examples = {
+                {"130441.89", "HHmmss.SS"},
+                {"160607 130441", "ddMMyy HHmmss"},
+                {"320607 250000", "ddMMyy HHmmss"},
+                {"2007-06-16 13:04:41 trailing", "yyyy-MM-dd HH:mm:ss"},
+                {"16.6.7 1:4:41", "dd.MM.yy HH:mm:ss"}
+        };
+        for (String[] example : examples) {
+            long expected = createDateFormat(example[1]).parse(example[0]).getTime();
+            assertEquals(fromMillis(expected), parse(example[0], example[1]));
+            assertEquals(fromMillis(expected), parse(example[0], example[1]));
+        }
+        assertEquals(fromMillis(createDateFormat("dd-MMMMM-yy HH:mm:ss", Locale.ENGLISH).parse("16-June-07 13:04:41").getTime()),
+                parse("16-June-07 13:04:41", "dd-MMMMM-yy HH:mm:ss", Locale.ENGLISH));
+        assertNull(parseDate("garbage", "HHmmss", false));
+    }
+
+    @Test
+    public void testParseFromParallelThreads() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                int hour = i;
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 1000; j++) {
+                        String time = String.format("0%d%02d%02d", hour, j % 60, (j / 60) % 60);
+                        CompactCalendar parsed = parse(time, "HHmmss");
+                        if (parsed.getTimeInMillis() != ((hour * 60L + j % 60) * 60 + (j / 60) % 60) * 1000)
+                            return false;
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> future : futures)
+                assertTrue(future.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
 }
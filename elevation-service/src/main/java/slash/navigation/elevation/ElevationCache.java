@@ -0,0 +1,223 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.elevation;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.logging.Logger;
+import java.util.prefs.Preferences;
+
+import static java.lang.Integer.highestOneBit;
+import static java.lang.Math.abs;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.Math.round;
+import static java.lang.String.format;
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+
+/**
+ * Caches the elevations of {@link ElevationService}s in a memory mapped file which survives restarts.
+ * The coordinates are quantised to a grid of the resolution of the elevation data. The file has a fixed
+ * number of sets with four entries each and a new entry replaces the least recently used one of its set.
+ * Every entry remembers the priority of the service which answered so that elevations of services with
+ * a lower priority can be ignored once a service with a higher priority is available.
+ *
+ * @author Christian Pesch
+ */
+
+public class ElevationCache implements Closeable {
+    private static final Logger log = Logger.getLogger(ElevationCache.class.getName());
+    private static final Preferences preferences = Preferences.userNodeForPackage(ElevationCache.class);
+    private static final String MAXIMUM_ENTRY_COUNT_PREFERENCE = "maximumElevationCacheEntryCount";
+
+    /**
+     * Half an arc second, the resolution of the finest elevation data
+     */
+    public static final int DEFAULT_INTERVALS_PER_DEGREE = 7200;
+
+    private static final int MAGIC = 0x52434543;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 16;
+    private static final int WAYS = 4;
+    private static final int ENTRY_SIZE = 16; // long key and double elevation
+    private static final int PRIORITY_SHIFT = 56; // the highest byte of the key holds the priority
+    private static final long COORDINATES_MASK = (1L << PRIORITY_SHIFT) - 1;
+    private static final int MAXIMUM_PRIORITY = 0xFF;
+    private static final int SET_SIZE = WAYS * ENTRY_SIZE;
+
+    private final int intervalsPerDegree;
+    private final int setCount;
+    private final FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long hits, misses;
+
+    public ElevationCache(File file) throws IOException {
+        this(file, preferences.getInt(MAXIMUM_ENTRY_COUNT_PREFERENCE, 1 << 20), DEFAULT_INTERVALS_PER_DEGREE);
+    }
+
+    public ElevationCache(File file, int maximumEntryCount, int intervalsPerDegree) throws IOException {
+        if ((180L * intervalsPerDegree + 1) << 32 > COORDINATES_MASK)
+            throw new IllegalArgumentException("Too many intervals per degree: " + intervalsPerDegree);
+        this.intervalsPerDegree = intervalsPerDegree;
+        this.setCount = highestOneBit(max(maximumEntryCount / WAYS, 1));
+
+        long length = HEADER_SIZE + (long) setCount * SET_SIZE;
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            if (!hasHeader(randomAccessFile, length)) {
+                log.info(format("Creating elevation cache %s with %d entries", file, setCount * WAYS));
+                randomAccessFile.setLength(0);
+                randomAccessFile.setLength(length);
+                randomAccessFile.writeInt(MAGIC);
+                randomAccessFile.writeInt(VERSION);
+                randomAccessFile.writeInt(setCount);
+                randomAccessFile.writeInt(intervalsPerDegree);
+            }
+            this.channel = randomAccessFile.getChannel();
+            this.buffer = channel.map(READ_WRITE, 0, length);
+        } catch (IOException e) {
+            randomAccessFile.close();
+            throw e;
+        }
+    }
+
+    private boolean hasHeader(RandomAccessFile file, long length) throws IOException {
+        if (file.length() != length)
+            return false;
+        file.seek(0);
+        boolean valid = file.readInt() == MAGIC && file.readInt() == VERSION &&
+                file.readInt() == setCount && file.readInt() == intervalsPerDegree;
+        file.seek(0);
+        return valid;
+    }
+
+    long createKey(double longitude, double latitude) {
+        if (abs(longitude) > 180.0 || abs(latitude) > 90.0)
+            return 0;
+        long longitudeIndex = round(longitude * intervalsPerDegree) + 180L * intervalsPerDegree;
+        long latitudeIndex = round(latitude * intervalsPerDegree) + 90L * intervalsPerDegree;
+        // 0 marks an empty entry
+        return (latitudeIndex << 32 | longitudeIndex) + 1;
+    }
+
+    private int getSetOffset(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        int set = (int) (hash ^ (hash >>> 32)) & (setCount - 1);
+        return HEADER_SIZE + set * SET_SIZE;
+    }
+
+    /**
+     * Returns the cached elevation for the given coordinates or <code>null</code> if it is not cached.
+     */
+    public Double get(double longitude, double latitude) {
+        return get(longitude, latitude, MAXIMUM_PRIORITY);
+    }
+
+    /**
+     * Returns the cached elevation for the given coordinates or <code>null</code> if it is not cached
+     * or if it was answered by a service with a lower priority, i.e. a higher number, than the given one.
+     */
+    public synchronized Double get(double longitude, double latitude, int maximumPriority) {
+        long key = createKey(longitude, latitude);
+        if (key != 0 && buffer != null) {
+            int setOffset = getSetOffset(key);
+            for (int way = 0; way < WAYS; way++) {
+                int offset = setOffset + way * ENTRY_SIZE;
+                long entryKey = buffer.getLong(offset);
+                if (entryKey == 0)
+                    break;
+                if ((entryKey & COORDINATES_MASK) == key) {
+                    if (entryKey >>> PRIORITY_SHIFT > maximumPriority)
+                        break;
+                    double elevation = buffer.getDouble(offset + 8);
+                    moveToFront(setOffset, way, entryKey, elevation);
+                    hits++;
+                    return elevation;
+                }
+            }
+        }
+        misses++;
+        return null;
+    }
+
+    public void put(double longitude, double latitude, double elevation) {
+        put(longitude, latitude, elevation, MAXIMUM_PRIORITY);
+    }
+
+    /**
+     * Caches the elevation for the given coordinates together with the priority of the service
+     * which answered, where 0 is the highest priority.
+     */
+    public synchronized void put(double longitude, double latitude, double elevation, int priority) {
+        long key = createKey(longitude, latitude);
+        if (key == 0 || buffer == null)
+            return;
+
+        int setOffset = getSetOffset(key);
+        int way = 0;
+        // stop at the same key, an empty entry or the least recently used entry
+        for (; way < WAYS - 1; way++) {
+            long entryKey = buffer.getLong(setOffset + way * ENTRY_SIZE);
+            if ((entryKey & COORDINATES_MASK) == key || entryKey == 0)
+                break;
+        }
+        long entryKey = key | (long) max(0, min(priority, MAXIMUM_PRIORITY)) << PRIORITY_SHIFT;
+        moveToFront(setOffset, way, entryKey, elevation);
+    }
+
+    private void moveToFront(int setOffset, int way, long entryKey, double elevation) {
+        for (int i = way; i > 0; i--) {
+            int offset = setOffset + i * ENTRY_SIZE;
+            buffer.putLong(offset, buffer.getLong(offset - ENTRY_SIZE));
+            buffer.putDouble(offset + 8, buffer.getDouble(offset - ENTRY_SIZE + 8));
+        }
+        buffer.putLong(setOffset, entryKey);
+        buffer.putDouble(setOffset + 8, elevation);
+    }
+
+    public synchronized void clear() {
+        if (buffer == null)
+            return;
+        for (int offset = HEADER_SIZE; offset < buffer.capacity(); offset += ENTRY_SIZE)
+            buffer.putLong(offset, 0);
+    }
+
+    synchronized long getHitCount() {
+        return hits;
+    }
+
+    synchronized long getMissCount() {
+        return misses;
+    }
+
+    public synchronized void close() throws IOException {
+        if (buffer == null)
+            return;
+        log.fine(format("Elevation cache had %d hits and %d misses", hits, misses));
+        buffer.force();
+        buffer = null;
+        channel.close();
+    }
+}
@@ -43,6 +43,17 @@ public interface ElevationService {
 
     Double getElevationFor(double longitude, double latitude) throws IOException;
 
+    /**
+     * Returns the elevations for the positions with the given longitudes and latitudes
+     * in the same order, <code>null</code> for positions without elevation.
+     */
+    default Double[] getElevationsFor(double[] longitudes, double[] latitudes) throws IOException {
+        Double[] elevations = new Double[longitudes.length];
+        for (int i = 0; i < longitudes.length; i++)
+            elevations[i] = getElevationFor(longitudes[i], latitudes[i]);
+        return elevations;
+    }
+
     void downloadElevationDataFor(List<LongitudeAndLatitude> longitudeAndLatitudes, boolean waitForDownload);
     long calculateRemainingDownloadSize(List<MapDescriptor> mapDescriptors);
     void downloadElevationData(List<MapDescriptor> mapDescriptors);
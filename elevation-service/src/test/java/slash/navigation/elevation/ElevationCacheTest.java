@@ -0,0 +1,180 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.elevation;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static java.io.File.createTempFile;
+import static org.junit.Assert.*;
+
+public class ElevationCacheTest {
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = createTempFile("elevationcache", ".bin");
+    }
+
+    @After
+    public void tearDown() {
+        // mapped files cannot be deleted on Windows until the mapping is garbage collected
+        if (!file.delete())
+            file.deleteOnExit();
+    }
+
+    @Test
+    public void testQuantisesCoordinates() throws IOException {
+        try (ElevationCache cache = new ElevationCache(file, 1024, 1200)) {
+            cache.put(11.5, 47.5, 1234.5);
+            assertEquals(1234.5, cache.get(11.5, 47.5), 0.0);
+            assertEquals(1234.5, cache.get(11.5 + 0.4 / 1200, 47.5 - 0.4 / 1200), 0.0);
+            assertNull(cache.get(11.5 + 1.0 / 1200, 47.5));
+            assertNull(cache.get(-11.5, -47.5));
+            assertEquals(2, cache.getHitCount());
+            assertEquals(2, cache.getMissCount());
+        }
+    }
+
+    @Test
+    public void testDistinguishesNegativeCoordinates() throws IOException {
+        try (ElevationCache cache = new ElevationCache(file, 1024, 7200)) {
+            cache.put(11.5, 47.5, 1.0);
+            cache.put(-11.5, 47.5, 2.0);
+            cache.put(11.5, -47.5, 3.0);
+            cache.put(-11.5, -47.5, 4.0);
+            cache.put(-180.0, -90.0, 5.0);
+            cache.put(180.0, 90.0, 6.0);
+            assertEquals(1.0, cache.get(11.5, 47.5), 0.0);
+            assertEquals(2.0, cache.get(-11.5, 47.5), 0.0);
+            assertEquals(3.0, cache.get(11.5, -47.5), 0.0);
+            assertEquals(4.0, cache.get(-11.5, -47.5), 0.0);
+            assertEquals(5.0, cache.get(-180.0, -90.0), 0.0);
+            assertEquals(6.0, cache.get(180.0, 90.0), 0.0);
+        }
+    }
+
+    @Test
+    public void testIgnoresInvalidCoordinates() throws IOException {
+        try (ElevationCache cache = new ElevationCache(file, 1024, 7200)) {
+            cache.put(181.0, 47.5, 1.0);
+            cache.put(11.5, -91.0, 1.0);
+            assertNull(cache.get(181.0, 47.5));
+            assertNull(cache.get(11.5, -91.0));
+        }
+    }
+
+    @Test
+    public void testSurvivesReopening() throws IOException {
+        try (ElevationCache cache = new ElevationCache(file, 1024, 7200)) {
+            cache.put(11.5, 47.5, 1234.5);
+            cache.put(-70.1, -33.4, -12.25);
+        }
+        try (ElevationCache cache = new ElevationCache(file, 1024, 7200)) {
+            assertEquals(1234.5, cache.get(11.5, 47.5), 0.0);
+            assertEquals(-12.25, cache.get(-70.1, -33.4), 0.0);
+        }
+    }
+
+    @Test
+    public void testRecreatesWithOtherResolution() throws IOException {
+        try (ElevationCache cache = new ElevationCache(file, 1024, 7200)) {
+            cache.put(11.5, 47.5, 1234.5);
+        }
+        try (ElevationCache cache = new ElevationCache(file, 1024, 1200)) {
+            assertNull(cache.get(11.5, 47.5));
+        }
+        try (ElevationCache cache = new ElevationCache(file, 2048, 1200)) {
+            assertNull(cache.get(11.5, 47.5));
+        }
+    }
+
+    @Test
+    public void testBoundsEntries() throws IOException {
+        try (ElevationCache cache = new ElevationCache(file, 1024, 7200)) {
+            for (int i = 0; i < 10000; i++)
+                cache.put(10.0 + i / 7200.0, 50.0, i);
+
+            int cached = 0;
+            for (int i = 0; i < 10000; i++) {
+                Double elevation = cache.get(10.0 + i / 7200.0, 50.0);
+                if (elevation != null) {
+                    assertEquals(i, elevation, 0.0);
+                    cached++;
+                }
+            }
+            assertTrue(cached <= 1024);
+            // the most recently put elevations are more likely to survive
+            assertTrue(cached > 500);
+        }
+        assertEquals(16 + 1024 * 16, file.length());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedOfASet() throws IOException {
+        // a single set with four entries
+        try (ElevationCache cache = new ElevationCache(file, 4, 7200)) {
+            for (int i = 0; i < 4; i++)
+                cache.put(i, 0.0, i);
+            assertEquals(0.0, cache.get(0.0, 0.0), 0.0);
+            cache.put(4.0, 0.0, 4.0);
+
+            assertEquals(0.0, cache.get(0.0, 0.0), 0.0);
+            assertNull(cache.get(1.0, 0.0));
+            assertEquals(2.0, cache.get(2.0, 0.0), 0.0);
+            assertEquals(3.0, cache.get(3.0, 0.0), 0.0);
+            assertEquals(4.0, cache.get(4.0, 0.0), 0.0);
+
+            cache.put(3.0, 0.0, 33.0);
+            assertEquals(33.0, cache.get(3.0, 0.0), 0.0);
+            assertEquals(2.0, cache.get(2.0, 0.0), 0.0);
+        }
+    }
+
+    @Test
+    public void testIgnoresElevationsOfLowerPriority() throws IOException {
+        try (ElevationCache cache = new ElevationCache(file, 1024, 7200)) {
+            cache.put(11.5, 47.5, 1234.5, 8);
+            assertNull(cache.get(11.5, 47.5, 2));
+            assertEquals(1234.5, cache.get(11.5, 47.5, 8), 0.0);
+            assertEquals(1234.5, cache.get(11.5, 47.5), 0.0);
+
+            cache.put(11.5, 47.5, 1230.0, 2);
+            assertEquals(1230.0, cache.get(11.5, 47.5, 2), 0.0);
+        }
+        try (ElevationCache cache = new ElevationCache(file, 1024, 7200)) {
+            assertEquals(1230.0, cache.get(11.5, 47.5, 2), 0.0);
+        }
+    }
+
+    @Test
+    public void testClear() throws IOException {
+        try (ElevationCache cache = new ElevationCache(file, 1024, 7200)) {
+            cache.put(11.5, 47.5, 1234.5);
+            cache.clear();
+            assertNull(cache.get(11.5, 47.5));
+        }
+    }
+}
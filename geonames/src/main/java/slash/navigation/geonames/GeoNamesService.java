@@ -38,7 +38,11 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Logger;
 import java.util.prefs.Preferences;
+import java.util.stream.IntStream;
 
+import static java.lang.Double.NEGATIVE_INFINITY;
+import static java.lang.Double.POSITIVE_INFINITY;
+import static java.lang.Math.min;
 import static slash.common.io.Transfer.parseInteger;
 import static slash.common.io.Transfer.trim;
 
@@ -52,6 +56,7 @@ public class GeoNamesService extends BaseGeocodingService implements ElevationSe
     private static final Preferences preferences = Preferences.userNodeForPackage(GeoNamesService.class);
     private static final Logger log = Logger.getLogger(GeoNamesService.class.getName());
     private static final String GEONAMES_URL_PREFERENCE = "geonamesUrl";
+    private static final int MAXIMUM_POINTS_PER_REQUEST = 20;
     private int overQueryLimitCount;
 
     public String getName() {
@@ -62,12 +67,16 @@ public class GeoNamesService extends BaseGeocodingService implements ElevationSe
         return overQueryLimitCount > 0;
     }
 
-    private String getGeoNamesApiUrl() {
+    String getGeoNamesApiUrl() {
         return preferences.get(GEONAMES_URL_PREFERENCE, "http://api.geonames.org/");
     }
 
+    String getUserName(String apiType) {
+        return trim(APIKeyRegistry.getInstance().getAPIKey("geonames", apiType));
+    }
+
     private String execute(String uri, String apiType) throws IOException {
-        String userName = trim(APIKeyRegistry.getInstance().getAPIKey("geonames", apiType));
+        String userName = getUserName(apiType);
         if(userName == null)
             return null;
 
@@ -99,6 +108,50 @@ public class GeoNamesService extends BaseGeocodingService implements ElevationSe
         return null;
     }
 
+    private void getElevationsFor(String uri, double[] longitudes, double[] latitudes, int[] indices,
+                                  Integer nullValue, Integer[] elevations) throws IOException {
+        for (int start = 0; start < indices.length; start += MAXIMUM_POINTS_PER_REQUEST) {
+            int end = min(start + MAXIMUM_POINTS_PER_REQUEST, indices.length);
+            StringBuilder lats = new StringBuilder(), lngs = new StringBuilder();
+            for (int i = start; i < end; i++) {
+                if (i > start) {
+                    lats.append(',');
+                    lngs.append(',');
+                }
+                lats.append(latitudes[indices[i]]);
+                lngs.append(longitudes[indices[i]]);
+            }
+
+            String result = execute(uri + "?lats=" + lats + "&lngs=" + lngs, uri);
+            if (result == null)
+                continue;
+
+            // returns one elevation per line in the order of the points
+            String[] lines = result.trim().split("\\s+");
+            if (lines.length != end - start)
+                continue;
+            for (int i = start; i < end; i++) {
+                String line = lines[i - start];
+                // returns /home/data/asterv2/N82/N82E018.zip for not-existing data
+                if (line.contains("/home/data/aster"))
+                    continue;
+                try {
+                    Integer elevation = parseInteger(line);
+                    if (elevation != null && !elevation.equals(nullValue))
+                        elevations[indices[i]] = elevation;
+                } catch (NumberFormatException e) {
+                    throw new IOException("Cannot unmarshall " + result + ": " + e, e);
+                }
+            }
+        }
+    }
+
+    private static int[] getMissingElevations(Integer[] elevations, double[] latitudes, double minimumLatitude, double maximumLatitude) {
+        return IntStream.range(0, elevations.length)
+                .filter(i -> elevations[i] == null && latitudes[i] < maximumLatitude && latitudes[i] > minimumLatitude)
+                .toArray();
+    }
+
     private void checkCurrentlyOverloaded(String url, String result) throws ServiceUnavailableException {
         if (result.contains("limit") && (result.contains("overloaded") || result.contains("exceeded"))) {
             overQueryLimitCount++;
@@ -139,6 +192,18 @@ public class GeoNamesService extends BaseGeocodingService implements ElevationSe
         return elevation != null ? elevation.doubleValue() : null;
     }
 
+    public Double[] getElevationsFor(double[] longitudes, double[] latitudes) throws IOException {
+        Integer[] elevations = new Integer[longitudes.length];
+        getElevationsFor("astergdem", longitudes, latitudes, getMissingElevations(elevations, latitudes, -65.0, 83.0), -9999, elevations);
+        getElevationsFor("srtm3", longitudes, latitudes, getMissingElevations(elevations, latitudes, -56.0, 60.0), -32768, elevations);
+        getElevationsFor("gtopo30", longitudes, latitudes, getMissingElevations(elevations, latitudes, NEGATIVE_INFINITY, POSITIVE_INFINITY), -9999, elevations);
+
+        Double[] result = new Double[elevations.length];
+        for (int i = 0; i < elevations.length; i++)
+            result[i] = elevations[i] != null ? elevations[i].doubleValue() : null;
+        return result;
+    }
+
     public List<GeocodingResult> getPositionsFor(String address) {
         return null; // not supported
     }
@@ -0,0 +1,139 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+package slash.navigation.geonames;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.*;
+
+public class GeoNamesServiceTest {
+    private HttpServer server;
+    private final Map<String, AtomicInteger> requestCounts = new ConcurrentHashMap<>();
+    private GeoNamesService service;
+
+    // astergdem has data from 0 to 20 degrees, srtm3 west of 20 degrees
+    private static int elevationFor(String uri, double longitude, double latitude) {
+        return switch (uri) {
+            case "astergdem" -> longitude < 0.0 || longitude > 20.0 ? -9999 : 1000 + (int) latitude;
+            case "srtm3" -> longitude > 20.0 ? -32768 : 2000 + (int) latitude;
+            default -> 3000 + (int) latitude;
+        };
+    }
+
+    private void createContext(String uri) {
+        server.createContext("/" + uri, exchange -> {
+            requestCounts.computeIfAbsent(uri, k -> new AtomicInteger()).incrementAndGet();
+            String[] lats = null, lngs = null;
+            for (String parameter : exchange.getRequestURI().getQuery().split("&")) {
+                String value = parameter.substring(parameter.indexOf('=') + 1);
+                if (parameter.startsWith("lat=") || parameter.startsWith("lats="))
+                    lats = value.split(",");
+                else if (parameter.startsWith("lng=") || parameter.startsWith("lngs="))
+                    lngs = value.split(",");
+            }
+            assertNotNull(lats);
+            assertNotNull(lngs);
+            assertTrue(lats.length <= 20);
+
+            StringBuilder response = new StringBuilder();
+            for (int i = 0; i < lats.length; i++)
+                response.append(elevationFor(uri, Double.parseDouble(lngs[i]), Double.parseDouble(lats[i]))).append("\r\n");
+            byte[] bytes = response.toString().getBytes(UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(bytes);
+            }
+        });
+    }
+
+    private int getRequestCount(String uri) {
+        AtomicInteger count = requestCounts.get(uri);
+        return count != null ? count.get() : 0;
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        createContext("astergdem");
+        createContext("srtm3");
+        createContext("gtopo30");
+        server.start();
+
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+        service = new GeoNamesService() {
+            String getGeoNamesApiUrl() {
+                return url;
+            }
+
+            String getUserName(String apiType) {
+                return "test";
+            }
+        };
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testElevationsFor() throws IOException {
+        double[] longitudes = new double[]{10.0, -5.0, 25.0, 10.0, 10.0};
+        double[] latitudes = new double[]{47.0, 47.0, 47.0, 70.0, 85.0};
+
+        Double[] elevations = service.getElevationsFor(longitudes, latitudes);
+        assertEquals(1047.0, elevations[0], 0.0);
+        assertEquals(2047.0, elevations[1], 0.0);
+        assertEquals(3047.0, elevations[2], 0.0);
+        assertEquals(1070.0, elevations[3], 0.0);
+        assertEquals(3085.0, elevations[4], 0.0);
+
+        for (int i = 0; i < longitudes.length; i++)
+            assertEquals(service.getElevationFor(longitudes[i], latitudes[i]), elevations[i]);
+    }
+
+    @Test
+    public void testElevationsForInChunks() throws IOException {
+        int count = 45;
+        double[] longitudes = new double[count], latitudes = new double[count];
+        for (int i = 0; i < count; i++) {
+            longitudes[i] = i % 3 == 0 ? -5.0 : 10.0;
+            latitudes[i] = 40.0 + i * 0.1;
+        }
+
+        Double[] elevations = service.getElevationsFor(longitudes, latitudes);
+        for (int i = 0; i < count; i++)
+            assertEquals(i % 3 == 0 ? 2000 + (int) latitudes[i] : 1000 + (int) latitudes[i], elevations[i], 0.0);
+        assertEquals(3, getRequestCount("astergdem"));
+        assertEquals(1, getRequestCount("srtm3"));
+        assertEquals(0, getRequestCount("gtopo30"));
+    }
+}
@@ -42,6 +42,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.logging.Logger;
 
+import static java.lang.Math.min;
 import static slash.common.io.Transfer.encodeUri;
 import static slash.navigation.common.Bearing.calculateBearing;
 import static slash.navigation.googlemaps.GoogleMapsServer.getGoogleMapsServer;
@@ -56,6 +57,8 @@ import static slash.navigation.googlemaps.GoogleUtil.unmarshalGeocode;
 
 public class GoogleService extends BaseGeocodingService implements ElevationService {
     private static final Logger log = Logger.getLogger(GoogleService.class.getName());
+    // up to 512 locations are allowed but the URL must not exceed 16384 characters
+    private static final int MAXIMUM_LOCATIONS_PER_REQUEST = 256;
     private int overQueryLimitCount, deniedCount;
 
     public String getName() {
@@ -73,7 +76,7 @@ public class GoogleService extends BaseGeocodingService implements ElevationServ
                 "&sensor=false&language=" + language + "&key=" + apiKey;
     }
 
-    private String getElevationUrl(String payload) {
+    String getElevationUrl(String payload) {
         return getGoogleApiUrl("elevation", payload);
     }
 
@@ -168,10 +171,9 @@ public class GoogleService extends BaseGeocodingService implements ElevationServ
                 null, response.getFormattedAddress(), type);
     }
 
-    public Double getElevationFor(double longitude, double latitude) throws IOException {
-        String url = getElevationUrl("locations=" + latitude + "," + longitude); // could be up to 512 locations
+    private List<Double> getElevationsFor(String locations) throws IOException {
+        String url = getElevationUrl("locations=" + locations);
         Get get = get(url);
-        log.info("Getting elevation for " + longitude + "," + latitude);
         String result = get.executeAsString();
         if (get.isSuccessful())
             try {
@@ -179,8 +181,7 @@ public class GoogleService extends BaseGeocodingService implements ElevationServ
                 if (elevationResponse != null) {
                     String status = elevationResponse.getStatus();
                     checkForError(url, status);
-                    List<Double> elevations = extractElevations(elevationResponse.getResult());
-                    return !elevations.isEmpty() ? elevations.get(0) : null;
+                    return extractElevations(elevationResponse.getResult());
                 }
             } catch (JAXBException e) {
                 throw new IOException("Cannot unmarshall " + result + ": " + e, e);
@@ -188,6 +189,33 @@ public class GoogleService extends BaseGeocodingService implements ElevationServ
         return null;
     }
 
+    public Double getElevationFor(double longitude, double latitude) throws IOException {
+        log.info("Getting elevation for " + longitude + "," + latitude);
+        List<Double> elevations = getElevationsFor(latitude + "," + longitude);
+        return elevations != null && !elevations.isEmpty() ? elevations.get(0) : null;
+    }
+
+    public Double[] getElevationsFor(double[] longitudes, double[] latitudes) throws IOException {
+        Double[] result = new Double[longitudes.length];
+        for (int start = 0; start < longitudes.length; start += MAXIMUM_LOCATIONS_PER_REQUEST) {
+            int end = min(start + MAXIMUM_LOCATIONS_PER_REQUEST, longitudes.length);
+            StringBuilder locations = new StringBuilder();
+            for (int i = start; i < end; i++) {
+                if (i > start)
+                    locations.append("%7C");
+                locations.append(latitudes[i]).append(',').append(longitudes[i]);
+            }
+
+            log.info("Getting elevation for " + (end - start) + " positions starting with " + longitudes[start] + "," + latitudes[start]);
+            List<Double> elevations = getElevationsFor(locations.toString());
+            // the results are in the order of the locations
+            if (elevations != null && elevations.size() == end - start)
+                for (int i = start; i < end; i++)
+                    result[i] = elevations.get(i - start);
+        }
+        return result;
+    }
+
     private List<Double> extractElevations(List<ElevationResponse.Result> responses) {
         List<Double> results = new ArrayList<>(responses.size());
         for (ElevationResponse.Result response : responses) {
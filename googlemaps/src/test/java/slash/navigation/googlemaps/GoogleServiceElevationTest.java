@@ -0,0 +1,109 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+package slash.navigation.googlemaps;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.*;
+
+public class GoogleServiceElevationTest {
+    private HttpServer server;
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private GoogleService service;
+
+    private static double elevationFor(double longitude, double latitude) {
+        return Math.round(latitude * 10.0 + longitude);
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/elevation", exchange -> {
+            requestCount.incrementAndGet();
+            String query = exchange.getRequestURI().getQuery();
+            String locations = query.substring("locations=".length());
+            StringBuilder response = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<ElevationResponse>\n<status>OK</status>\n");
+            for (String location : locations.split("\\|")) {
+                String[] latitudeAndLongitude = location.split(",");
+                double latitude = Double.parseDouble(latitudeAndLongitude[0]);
+                double longitude = Double.parseDouble(latitudeAndLongitude[1]);
+                response.append("<result><location><lat>").append(latitude).append("</lat><lng>").append(longitude)
+                        .append("</lng></location><elevation>").append(elevationFor(longitude, latitude))
+                        .append("</elevation></result>\n");
+            }
+            response.append("</ElevationResponse>");
+            byte[] bytes = response.toString().getBytes(UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(bytes);
+            }
+        });
+        server.start();
+
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/elevation?";
+        service = new GoogleService() {
+            String getElevationUrl(String payload) {
+                return url + payload;
+            }
+        };
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testElevationFor() throws IOException {
+        assertEquals(elevationFor(11.5, 47.5), service.getElevationFor(11.5, 47.5), 0.0);
+        assertEquals(1, requestCount.get());
+    }
+
+    @Test
+    public void testElevationsForInChunks() throws IOException {
+        int count = 600;
+        double[] longitudes = new double[count], latitudes = new double[count];
+        for (int i = 0; i < count; i++) {
+            longitudes[i] = -10.0 + i * 0.05;
+            latitudes[i] = 40.0 + i * 0.01;
+        }
+
+        Double[] elevations = service.getElevationsFor(longitudes, latitudes);
+        assertEquals(count, elevations.length);
+        for (int i = 0; i < count; i++)
+            assertEquals(elevationFor(longitudes[i], latitudes[i]), elevations[i], 0.0);
+        assertEquals(3, requestCount.get());
+    }
+
+    @Test
+    public void testNoElevations() throws IOException {
+        assertEquals(0, service.getElevationsFor(new double[0], new double[0]).length);
+        assertEquals(0, requestCount.get());
+    }
+}
@@ -39,17 +39,20 @@ import slash.navigation.gpx.binding11.TrksegType;
 import slash.navigation.gpx.binding11.WptType;
 
 import jakarta.xml.bind.*;
+import jakarta.xml.bind.annotation.XmlElementDecl;
 import javax.xml.namespace.QName;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 import javax.xml.transform.sax.SAXSource;
 import java.io.*;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import static java.util.Collections.unmodifiableSet;
 import static javax.xml.XMLConstants.XMLNS_ATTRIBUTE_NS_URI;
 
 import static slash.common.helpers.JAXBHelper.*;
@@ -59,6 +62,8 @@ public class GpxUtil {
     public static final String GPX_11_NAMESPACE_URI = "http://www.topografix.com/GPX/1/1";
     public static final String GARMIN_EXTENSIONS_3_NAMESPACE_URI = "http://www.garmin.com/xmlschemas/GpxExtensions/v3";
     public static final String GARMIN_TRACKPOINT_EXTENSIONS_1_NAMESPACE_URI = "http://www.garmin.com/xmlschemas/TrackPointExtension/v1";
+    // some devices declare the location of the schema as the namespace
+    public static final String GARMIN_TRACKPOINT_EXTENSIONS_1_SCHEMA_NAMESPACE_URI = "https://www8.garmin.com/xmlschemas/TrackPointExtensionv1.xsd";
     public static final String GARMIN_TRACKPOINT_EXTENSIONS_2_NAMESPACE_URI = "http://www.garmin.com/xmlschemas/TrackPointExtension/v2";
     public static final String GARMIN_TRIP_EXTENSIONS_1_NAMESPACE_URI = "http://www.garmin.com/xmlschemas/TripExtensions/v1";
     public static final String OSMAND_EXTENSIONS_NAMESPACE_URI = "https://osmand.net/docs/technical/osmand-file-formats/osmand-gpx";
@@ -68,29 +73,54 @@ public class GpxUtil {
         return newUnmarshaller(newContext(slash.navigation.gpx.binding10.ObjectFactory.class));
     }
 
-    private static Marshaller newMarshaller10() {
+    public static Marshaller newMarshaller10() {
         return newMarshaller(newContext(slash.navigation.gpx.binding10.ObjectFactory.class));
     }
 
+    private static final Class<?>[] OBJECT_FACTORIES_11 = {
+            slash.navigation.gpx.binding11.ObjectFactory.class,
+            slash.navigation.gpx.garmin3.ObjectFactory.class,
+            slash.navigation.gpx.osmand.ObjectFactory.class,
+            slash.navigation.gpx.trackpoint1.ObjectFactory.class,
+            slash.navigation.gpx.trackpoint2.ObjectFactory.class,
+            slash.navigation.gpx.trip1.ObjectFactory.class,
+            slash.navigation.gpx.trekbuddy.ObjectFactory.class
+    };
+    private static Set<QName> boundElements11;
+
     private static JAXBContext newContext11() {
-        return newContext(slash.navigation.gpx.binding11.ObjectFactory.class,
-                slash.navigation.gpx.garmin3.ObjectFactory.class,
-                slash.navigation.gpx.osmand.ObjectFactory.class,
-                slash.navigation.gpx.trackpoint1.ObjectFactory.class,
-                slash.navigation.gpx.trackpoint2.ObjectFactory.class,
-                slash.navigation.gpx.trip1.ObjectFactory.class,
-                slash.navigation.gpx.trekbuddy.ObjectFactory.class);
+        return newContext(OBJECT_FACTORIES_11);
     }
 
-    private static Unmarshaller newUnmarshaller11() {
+    public static Unmarshaller newUnmarshaller11() {
         return newUnmarshaller(newContext11());
     }
 
-    private static Marshaller newMarshaller11() {
+    public static Marshaller newMarshaller11() {
         return newMarshaller(newContext11());
     }
 
 
+    /**
+     * Returns the names of the global elements that the GPX 1.1 unmarshaller binds to classes.
+     * Any other element within {@code <extensions>} is unmarshalled as a DOM element.
+     */
+    public static synchronized Set<QName> getBoundElements11() {
+        if (boundElements11 == null) {
+            Set<QName> elements = new HashSet<>();
+            for (Class<?> objectFactory : OBJECT_FACTORIES_11) {
+                for (Method method : objectFactory.getMethods()) {
+                    XmlElementDecl declaration = method.getAnnotation(XmlElementDecl.class);
+                    if (declaration != null && declaration.scope() == XmlElementDecl.GLOBAL.class)
+                        elements.add(new QName(declaration.namespace(), declaration.name()));
+                }
+            }
+            boundElements11 = unmodifiableSet(elements);
+        }
+        return boundElements11;
+    }
+
+
     public static Gpx unmarshal10(Reader reader) throws IOException {
         Gpx result;
         try {
@@ -136,8 +166,7 @@ public class GpxUtil {
             factory.setNamespaceAware(true);
             SAXParser saxParser = factory.newSAXParser();
             NamespaceFilter filter = new NamespaceFilter();
-            filter.addMapping("https://www8.garmin.com/xmlschemas/TrackPointExtensionv1.xsd",
-                    "http://www.garmin.com/xmlschemas/TrackPointExtension/v1");
+            filter.addMapping(GARMIN_TRACKPOINT_EXTENSIONS_1_SCHEMA_NAMESPACE_URI, GARMIN_TRACKPOINT_EXTENSIONS_1_NAMESPACE_URI);
             filter.setParent(saxParser.getXMLReader());
 
             SAXSource source = new SAXSource(filter, inputSource);
@@ -20,12 +20,22 @@
 
 package slash.navigation.hgt;
 
+import java.io.File;
 import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.file.StandardOpenOption.READ;
 
 /**
  * A tile with elevation data.
  *
+ * The elevations of SRTM3 tiles are copied to the heap, the ones of the larger tiles are
+ * mapped into memory. Both need no open file handle once the tile is created and allow
+ * concurrent lookups.
+ *
  * @author Robert "robekas", Christian Pesch
  */
 
@@ -38,15 +48,21 @@ public class ElevationTile {
     private static final int SRTM0dot5_INTERVALS = 7200;
     private static final int SRTM0dot5_FILE_SIZE = (SRTM0dot5_INTERVALS + 1) * (SRTM0dot5_INTERVALS + 1) * 2;
     private static final int INVALID_VALUE_LIMIT = -15000; // Won't interpolate below this elevation in Meters, guess is: -0x8000
+    private static final int MAXIMUM_HEAP_COPY_SIZE = SRTM3_FILE_SIZE;
 
-    private final RandomAccessFile file;
+    private final int intervalCount;
+    private final ShortBuffer elevations;
 
-    public ElevationTile(RandomAccessFile file) {
-        this.file = file;
+    public ElevationTile(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), READ)) {
+            long fileLength = channel.size();
+            this.intervalCount = getIntervalCount(file, fileLength);
+            this.elevations = fileLength <= MAXIMUM_HEAP_COPY_SIZE ? read(channel, (int) fileLength) :
+                    channel.map(READ_ONLY, 0, fileLength).asShortBuffer();
+        }
     }
-    
-    private int getIntervalCount() throws IOException {
-        long fileLength = file.length();
+
+    private static int getIntervalCount(File file, long fileLength) throws IOException {
         if(fileLength == SRTM3_FILE_SIZE)
           return SRTM3_INTERVALS;
         else if(fileLength == SRTM1_FILE_SIZE)
@@ -57,6 +73,18 @@ public class ElevationTile {
             throw new IOException("Elevation tile " + file + " has invalid size " + fileLength);
     }
 
+    private static ShortBuffer read(FileChannel channel, int fileLength) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(fileLength);
+        while (buffer.hasRemaining())
+            if (channel.read(buffer) < 0)
+                throw new IOException("Elevation tile ends after " + buffer.position() + " bytes");
+        buffer.flip();
+        short[] result = new short[fileLength / 2];
+        // hgt files store 16-bit big endian values which is the default byte order of a ByteBuffer
+        buffer.asShortBuffer().get(result);
+        return ShortBuffer.wrap(result);
+    }
+
     /**
      * Calculate the elevation for the destination position according the
      * theorem on intersecting lines ("Strahlensatz").
@@ -70,8 +98,8 @@ public class ElevationTile {
         return (dHeight12 * dDiff) / dLength12;
     }
 
-    public Double getElevationFor(Double longitude, Double latitude) throws IOException {
-        if (file == null || longitude == null || latitude == null)
+    public Double getElevationFor(Double longitude, Double latitude) {
+        if (longitude == null || latitude == null)
             return null;
 
         // cut off the decimal places
@@ -88,7 +116,6 @@ public class ElevationTile {
             latitude = ((double) latitudeAsInt + latitude) + (double) latitudeAsInt; // Make positive double latitude (needed for later calculation)
         }
 
-        int intervalCount = getIntervalCount();
         int longitudeIntervalIndex = (int) ((longitude - (double) longitudeAsInt) * intervalCount);
         int latitudeIntervalIndex = (int) ((latitude - (double) latitudeAsInt) * intervalCount);
 
@@ -110,20 +137,16 @@ public class ElevationTile {
         int pos;                                                    // The index of the elevation into the hgt file
 
         pos = (((intervalCount - latitudeIntervalIndex) - 1) * (intervalCount + 1)) + longitudeIntervalIndex; // The index for the left top elevation
-        file.seek(pos * 2L);                                // We have 16-bit values for elevation, so multiply by 2
-        dLeftTop = file.readShort();                       // Now read the left top elevation from hgt file
+        dLeftTop = elevations.get(pos);                             // Now read the left top elevation from hgt file
 
         pos = ((intervalCount - latitudeIntervalIndex) * (intervalCount + 1)) + longitudeIntervalIndex; // The index for the left bottom elevation
-        file.seek(pos * 2L);                                // We have 16-bit values for elevation, so multiply by 2
-        dLeftBottom = file.readShort();                    // Now read the left bottom elevation from hgt file
+        dLeftBottom = elevations.get(pos);                          // Now read the left bottom elevation from hgt file
 
         pos = (((intervalCount - latitudeIntervalIndex) - 1) * (intervalCount + 1)) + longitudeIntervalIndex + 1; // The index for the right top elevation
-        file.seek(pos * 2L);                                // We have 16-bit values for elevation, so multiply by 2
-        dRightTop = file.readShort();                      // Now read the right top elevation from hgt file
+        dRightTop = elevations.get(pos);                            // Now read the right top elevation from hgt file
 
         pos = ((intervalCount - latitudeIntervalIndex) * (intervalCount + 1)) + longitudeIntervalIndex + 1; // The index for the right bottom elevation
-        file.seek(pos * 2L);                                // We have 16-bit values for elevation, so multiply by 2
-        dRightBottom = file.readShort();                   // Now read the right bottom top elevation from hgt file
+        dRightBottom = elevations.get(pos);                         // Now read the right bottom top elevation from hgt file
 
         // if one of the read elevation values is not valid, we cannot interpolate
         if ((dLeftTop < INVALID_VALUE_LIMIT) || (dLeftBottom < INVALID_VALUE_LIMIT) ||
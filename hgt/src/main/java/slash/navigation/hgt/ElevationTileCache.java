@@ -0,0 +1,89 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.hgt;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the least recently used {@link ElevationTile}s by their tile key.
+ *
+ * @author Christian Pesch
+ */
+
+class ElevationTileCache {
+    private final int maximumSize;
+    private final Map<Integer, ElevationTile> tiles;
+    private final AtomicLong hits = new AtomicLong(), misses = new AtomicLong();
+
+    ElevationTileCache(int maximumSize) {
+        this.maximumSize = maximumSize;
+        this.tiles = new LinkedHashMap<>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<Integer, ElevationTile> eldest) {
+                return size() > ElevationTileCache.this.maximumSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the tile for the given key or <code>null</code> if it is not cached.
+     */
+    ElevationTile get(int key) {
+        ElevationTile tile;
+        synchronized (tiles) {
+            tile = tiles.get(key);
+        }
+        (tile != null ? hits : misses).incrementAndGet();
+        return tile;
+    }
+
+    /**
+     * Caches the given tile unless another thread cached one for the key meanwhile and
+     * returns the cached tile.
+     */
+    ElevationTile put(int key, ElevationTile tile) {
+        synchronized (tiles) {
+            ElevationTile existing = tiles.putIfAbsent(key, tile);
+            return existing != null ? existing : tile;
+        }
+    }
+
+    void clear() {
+        synchronized (tiles) {
+            tiles.clear();
+        }
+    }
+
+    int size() {
+        synchronized (tiles) {
+            return tiles.size();
+        }
+    }
+
+    long getHitCount() {
+        return hits.get();
+    }
+
+    long getMissCount() {
+        return misses.get();
+    }
+}
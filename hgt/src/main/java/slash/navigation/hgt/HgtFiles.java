@@ -32,11 +32,12 @@ import slash.navigation.download.FileAndChecksum;
 import slash.navigation.elevation.ElevationService;
 
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.util.*;
+import java.util.logging.Logger;
 import java.util.prefs.Preferences;
 
 import static java.lang.String.format;
+import static java.util.Arrays.sort;
 import static java.util.stream.Collectors.toList;
 import static slash.common.io.Directories.ensureDirectory;
 import static slash.common.io.Directories.getApplicationDirectory;
@@ -50,12 +51,14 @@ import static slash.common.io.Transfer.isEmpty;
  */
 
 public class HgtFiles implements ElevationService {
+    private static final Logger log = Logger.getLogger(HgtFiles.class.getName());
     private static final Preferences preferences = Preferences.userNodeForPackage(HgtFiles.class);
     private static final String DIRECTORY_PREFERENCE = "directory";
     private static final String BASE_URL_PREFERENCE = "baseUrl";
+    private static final String MAXIMUM_TILE_COUNT_PREFERENCE = "maximumTileCount";
     public static final String DOT_HGT = ".hgt";
 
-    private final Map<java.io.File, RandomAccessFile> randomAccessFileCache = new HashMap<>();
+    private final ElevationTileCache elevationTileCache = new ElevationTileCache(preferences.getInt(MAXIMUM_TILE_COUNT_PREFERENCE, 16));
     private final DataSource dataSource;
     private final DownloadManager downloadManager;
 
@@ -86,6 +89,7 @@ public class HgtFiles implements ElevationService {
 
     public void setPath(String path) {
         preferences.put(DIRECTORY_PREFERENCE + getName(), path);
+        elevationTileCache.clear();
     }
 
     public java.io.File getDirectory() {
@@ -104,31 +108,74 @@ public class HgtFiles implements ElevationService {
                 (longitude < 0) ? ((longitudeAsInteger - 1) * -1) : longitudeAsInteger);
     }
 
+    int createTileKey(double longitude, double latitude) {
+        int longitudeAsInteger = (int) longitude;
+        int latitudeAsInteger = (int) latitude;
+        // the same tile as for createFileKey() with the south west corner from -181/-91 to 180/90
+        if (longitude < 0)
+            longitudeAsInteger--;
+        if (latitude < 0)
+            latitudeAsInteger--;
+        return (latitudeAsInteger + 91) * 362 + longitudeAsInteger + 181;
+    }
+
     private java.io.File createFile(String key) {
         return new java.io.File(getDirectory(), key);
     }
 
+    private ElevationTile getElevationTile(int key, double longitude, double latitude) throws IOException {
+        ElevationTile elevationTile = elevationTileCache.get(key);
+        if (elevationTile == null) {
+            java.io.File file = createFile(createFileKey(longitude, latitude));
+            if (!file.exists())
+                return null;
+
+            // concurrent callers may read the same tile, the first one cached is used
+            elevationTile = elevationTileCache.put(key, new ElevationTile(file));
+        }
+        return elevationTile;
+    }
+
     public Double getElevationFor(double longitude, double latitude) throws IOException {
-        java.io.File file = createFile(createFileKey(longitude, latitude));
-        if (!file.exists())
-            return null;
-
-        RandomAccessFile randomAccessFile = randomAccessFileCache.get(file);
-        if (randomAccessFile == null) {
-            randomAccessFile = new RandomAccessFile(file, "r");
-            randomAccessFileCache.put(file, randomAccessFile);
+        ElevationTile elevationTile = getElevationTile(createTileKey(longitude, latitude), longitude, latitude);
+        return elevationTile != null ? elevationTile.getElevationFor(longitude, latitude) : null;
+    }
+
+    public Double[] getElevationsFor(double[] longitudes, double[] latitudes) throws IOException {
+        int count = longitudes.length;
+        // sort by tile key in the upper and by index in the lower half to look up each tile once
+        long[] keysAndIndices = new long[count];
+        for (int i = 0; i < count; i++)
+            keysAndIndices[i] = (long) createTileKey(longitudes[i], latitudes[i]) << 32 | i;
+        sort(keysAndIndices);
+
+        Double[] elevations = new Double[count];
+        int i = 0;
+        while (i < count) {
+            int key = (int) (keysAndIndices[i] >>> 32);
+            int first = (int) keysAndIndices[i];
+            ElevationTile elevationTile = getElevationTile(key, longitudes[first], latitudes[first]);
+            for (; i < count && (int) (keysAndIndices[i] >>> 32) == key; i++) {
+                int index = (int) keysAndIndices[i];
+                if (elevationTile != null)
+                    elevations[index] = elevationTile.getElevationFor(longitudes[index], latitudes[index]);
+            }
         }
-        return new ElevationTile(randomAccessFile).getElevationFor(longitude, latitude);
+        return elevations;
+    }
+
+    long getTileCacheHitCount() {
+        return elevationTileCache.getHitCount();
+    }
+
+    long getTileCacheMissCount() {
+        return elevationTileCache.getMissCount();
     }
 
     public void dispose() {
-        for (RandomAccessFile randomAccessFile : randomAccessFileCache.values())
-            try {
-                randomAccessFile.close();
-            } catch (IOException e) {
-                throw new IllegalArgumentException("Cannot close random access file" + randomAccessFile);
-            }
-        randomAccessFileCache.clear();
+        log.fine(format("Elevation tile cache of %s had %d hits and %d misses", getName(),
+                getTileCacheHitCount(), getTileCacheMissCount()));
+        elevationTileCache.clear();
     }
 
     public void downloadElevationDataFor(List<LongitudeAndLatitude> longitudeAndLatitudes, boolean waitForDownload) {
@@ -0,0 +1,92 @@
+package slash.navigation.hgt;
+
+import org.junit.Test;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static java.io.File.createTempFile;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static org.junit.Assert.*;
+
+public class ElevationTileCacheTest {
+    private static ElevationTile createTile() throws IOException {
+        File file = createTempFile("elevationtilecache", ".hgt");
+        try {
+            try (DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+                for (int i = 0; i < 1201 * 1201; i++)
+                    outputStream.writeShort(100);
+            }
+            return new ElevationTile(file);
+        } finally {
+            assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() throws IOException {
+        ElevationTileCache cache = new ElevationTileCache(2);
+        ElevationTile tile1 = createTile(), tile2 = createTile(), tile3 = createTile();
+        assertSame(tile1, cache.put(1, tile1));
+        assertSame(tile2, cache.put(2, tile2));
+        assertSame(tile1, cache.get(1));
+        assertSame(tile3, cache.put(3, tile3));
+
+        assertEquals(2, cache.size());
+        assertSame(tile1, cache.get(1));
+        assertNull(cache.get(2));
+        assertSame(tile3, cache.get(3));
+        assertEquals(3, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testKeepsFirstCachedTile() throws IOException {
+        ElevationTileCache cache = new ElevationTileCache(2);
+        ElevationTile tile1 = createTile(), tile2 = createTile();
+        assertSame(tile1, cache.put(1, tile1));
+        assertSame(tile1, cache.put(1, tile2));
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertNull(cache.get(1));
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        ElevationTileCache cache = new ElevationTileCache(4);
+        List<ElevationTile> tiles = new ArrayList<>();
+        for (int i = 0; i < 8; i++)
+            tiles.add(createTile());
+
+        ExecutorService executor = newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                int offset = i;
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 100000; j++) {
+                        int key = (offset + j) % tiles.size();
+                        ElevationTile tile = cache.get(key);
+                        if (tile == null)
+                            tile = cache.put(key, tiles.get(key));
+                        assertSame(tiles.get(key), tile);
+                    }
+                }));
+            }
+            for (Future<?> future : futures)
+                future.get();
+        } finally {
+            executor.shutdown();
+        }
+
+        assertTrue(cache.size() <= 4);
+        assertEquals(800000, cache.getHitCount() + cache.getMissCount());
+    }
+}
@@ -0,0 +1,167 @@
+package slash.navigation.hgt;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static java.io.File.createTempFile;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static org.junit.Assert.*;
+
+public class ElevationTileTest {
+    private final Random random = new Random(42);
+    private final List<File> files = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        // mapped files cannot be deleted on Windows until the mapping is garbage collected
+        for (File file : files)
+            if (!file.delete())
+                file.deleteOnExit();
+    }
+
+    private File createTile(int intervals) throws IOException {
+        File file = createTempFile("elevationtile", ".hgt");
+        files.add(file);
+        try (DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            for (int row = 0; row <= intervals; row++)
+                for (int column = 0; column <= intervals; column++)
+                    outputStream.writeShort((row * 7 + column * 13) % 4000 == 0 ? -32768 : (row * 7 + column * 13) % 4000 - 100);
+        }
+        return file;
+    }
+
+    // the bilinear interpolation with a seek and read per elevation before the tiles were kept in memory
+    private static Double readElevationFor(RandomAccessFile file, int intervalCount, double longitude, double latitude) throws IOException {
+        int longitudeAsInt = (int) longitude;
+        int latitudeAsInt = (int) latitude;
+        if (longitude < 0) {
+            longitudeAsInt = (longitudeAsInt - 1) * -1;
+            longitude = ((double) longitudeAsInt + longitude) + (double) longitudeAsInt;
+        }
+        if (latitude < 0) {
+            latitudeAsInt = (latitudeAsInt - 1) * -1;
+            latitude = ((double) latitudeAsInt + latitude) + (double) latitudeAsInt;
+        }
+
+        int longitudeIntervalIndex = Math.min((int) ((longitude - (double) longitudeAsInt) * intervalCount), intervalCount - 1);
+        int latitudeIntervalIndex = Math.min((int) ((latitude - (double) latitudeAsInt) * intervalCount), intervalCount - 1);
+        double dOffLon = longitude - (double) longitudeAsInt;
+        double dOffLat = latitude - (double) latitudeAsInt;
+
+        file.seek(((((intervalCount - latitudeIntervalIndex) - 1) * (intervalCount + 1)) + longitudeIntervalIndex) * 2L);
+        double dLeftTop = file.readShort();
+        file.seek((((intervalCount - latitudeIntervalIndex) * (intervalCount + 1)) + longitudeIntervalIndex) * 2L);
+        double dLeftBottom = file.readShort();
+        file.seek((((intervalCount - latitudeIntervalIndex) - 1) * (intervalCount + 1) + longitudeIntervalIndex + 1) * 2L);
+        double dRightTop = file.readShort();
+        file.seek(((intervalCount - latitudeIntervalIndex) * (intervalCount + 1) + longitudeIntervalIndex + 1) * 2L);
+        double dRightBottom = file.readShort();
+        if ((dLeftTop < -15000) || (dLeftBottom < -15000) || (dRightTop < -15000) || (dRightBottom < -15000))
+            return null;
+
+        double dDeltaLon = dOffLon - (double) longitudeIntervalIndex * (1.0 / (double) intervalCount);
+        double dDeltaLat = dOffLat - (double) latitudeIntervalIndex * (1.0 / (double) intervalCount);
+        double dLonHeightLeft = dLeftBottom - ((dLeftBottom - dLeftTop) * dDeltaLat) / (1.0 / (double) intervalCount);
+        double dLonHeightRight = dRightBottom - ((dRightBottom - dRightTop) * dDeltaLat) / (1.0 / (double) intervalCount);
+        double dElevation = dLonHeightLeft - ((dLonHeightLeft - dLonHeightRight) * dDeltaLon) / (1.0 / (double) intervalCount);
+        return dElevation + 0.5;
+    }
+
+    private double randomCoordinate(int degree) {
+        double fraction = random.nextInt(20) == 0 ? random.nextInt(3) * 0.5 : random.nextDouble();
+        return degree < 0 ? degree + 1 - fraction : degree + fraction;
+    }
+
+    private void assertSameElevations(int intervals) throws IOException {
+        File file = createTile(intervals);
+        ElevationTile tile = new ElevationTile(file);
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+            for (int i = 0; i < 10000; i++) {
+                double longitude = randomCoordinate(random.nextBoolean() ? 11 : -3);
+                double latitude = randomCoordinate(random.nextBoolean() ? 47 : -23);
+                assertEquals(readElevationFor(randomAccessFile, intervals, longitude, latitude), tile.getElevationFor(longitude, latitude));
+            }
+        }
+    }
+
+    @Test
+    public void testSrtm3() throws IOException {
+        assertSameElevations(1200);
+    }
+
+    @Test
+    public void testSrtm1() throws IOException {
+        assertSameElevations(3600);
+    }
+
+    @Test
+    public void testSrtm0dot5() throws IOException {
+        assertSameElevations(7200);
+    }
+
+    @Test
+    public void testNoCoordinates() throws IOException {
+        ElevationTile tile = new ElevationTile(createTile(1200));
+        assertNull(tile.getElevationFor(null, 47.5));
+        assertNull(tile.getElevationFor(11.5, null));
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvalidSize() throws IOException {
+        File file = createTempFile("elevationtile", ".hgt");
+        files.add(file);
+        new ElevationTile(file);
+    }
+
+    @Test
+    public void testConcurrentLookups() throws Exception {
+        for (int intervals : new int[]{1200, 3600}) {
+            File file = createTile(intervals);
+            int count = 20000;
+            double[] longitudes = new double[count], latitudes = new double[count];
+            Double[] expected = new Double[count];
+            try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+                for (int i = 0; i < count; i++) {
+                    longitudes[i] = randomCoordinate(11);
+                    latitudes[i] = randomCoordinate(47);
+                    expected[i] = readElevationFor(randomAccessFile, intervals, longitudes[i], latitudes[i]);
+                }
+            }
+
+            ElevationTile tile = new ElevationTile(file);
+            ExecutorService executor = newFixedThreadPool(4);
+            try {
+                List<Future<Integer>> futures = new ArrayList<>();
+                for (int i = 0; i < 8; i++) {
+                    int offset = i * 997;
+                    futures.add(executor.submit(() -> {
+                        int mismatches = 0;
+                        for (int j = 0; j < count; j++) {
+                            int index = (offset + j) % count;
+                            Double elevation = tile.getElevationFor(longitudes[index], latitudes[index]);
+                            if (expected[index] == null ? elevation != null : !expected[index].equals(elevation))
+                                mismatches++;
+                        }
+                        return mismatches;
+                    }));
+                }
+                for (Future<Integer> future : futures)
+                    assertEquals(Integer.valueOf(0), future.get());
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+}
@@ -1,9 +1,24 @@
 package slash.navigation.hgt;
 
 import org.junit.Test;
+import slash.navigation.datasources.binding.DatasourceType;
+import slash.navigation.datasources.impl.DataSourceImpl;
 import slash.navigation.download.DownloadManager;
 
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static java.nio.file.Files.createTempDirectory;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 public class HgtFilesTest {
     private final HgtFiles files = new HgtFiles(null, new DownloadManager(null));
@@ -21,4 +36,83 @@ public class HgtFilesTest {
         assertEquals("N42E000.hgt", files.createFileKey(0.15052, 42.42091));
         assertEquals("N42W001.hgt", files.createFileKey(-0.55289, 42.55803));
     }
+
+    @Test
+    public void createTileKey() {
+        Map<Integer, String> fileKeys = new HashMap<>();
+        Map<String, Integer> tileKeys = new HashMap<>();
+        for (double longitude = -180.0; longitude <= 180.0; longitude += 0.5) {
+            for (double latitude = -89.5; latitude <= 89.5; latitude += 0.5) {
+                int tileKey = files.createTileKey(longitude, latitude);
+                String fileKey = files.createFileKey(longitude, latitude);
+                String previousFileKey = fileKeys.put(tileKey, fileKey);
+                if (previousFileKey != null)
+                    assertEquals(previousFileKey, fileKey);
+                Integer previousTileKey = tileKeys.put(fileKey, tileKey);
+                if (previousTileKey != null)
+                    assertEquals(previousTileKey.intValue(), tileKey);
+            }
+        }
+    }
+
+    private static void writeTile(File file) throws IOException {
+        try (DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            for (int row = 0; row <= 1200; row++)
+                for (int column = 0; column <= 1200; column++)
+                    outputStream.writeShort((row * 3 + column * 5) % 2000);
+        }
+    }
+
+    @Test
+    public void elevationsForFromLocalTiles() throws IOException {
+        File directory = createTempDirectory("hgtfiles").toFile();
+        File tile1 = new File(directory, "N47E011.hgt"), tile2 = new File(directory, "S24W003.hgt");
+        writeTile(tile1);
+        writeTile(tile2);
+
+        DatasourceType datasourceType = new DatasourceType();
+        datasourceType.setName("HgtFilesTest");
+        datasourceType.setDirectory("test");
+        HgtFiles hgtFiles = new HgtFiles(new DataSourceImpl(datasourceType), new DownloadManager(null));
+        hgtFiles.setPath(directory.getAbsolutePath());
+        try {
+            Random random = new Random(42);
+            int count = 500;
+            double[] longitudes = new double[count], latitudes = new double[count];
+            for (int i = 0; i < count; i++) {
+                switch (random.nextInt(3)) {
+                    case 0 -> {
+                        longitudes[i] = 11.0 + random.nextDouble();
+                        latitudes[i] = 47.0 + random.nextDouble();
+                    }
+                    case 1 -> {
+                        longitudes[i] = -3.0 + random.nextDouble();
+                        latitudes[i] = -24.0 + random.nextDouble();
+                    }
+                    default -> {
+                        longitudes[i] = 11.0 + random.nextDouble();
+                        latitudes[i] = 48.0 + random.nextDouble();
+                    }
+                }
+            }
+
+            Double[] elevations = hgtFiles.getElevationsFor(longitudes, latitudes);
+            assertEquals(3, hgtFiles.getTileCacheMissCount());
+            assertEquals(0, hgtFiles.getTileCacheHitCount());
+
+            for (int i = 0; i < count; i++) {
+                if (latitudes[i] >= 48.0)
+                    assertNull(elevations[i]);
+                else
+                    assertNotNull(elevations[i]);
+                assertEquals(hgtFiles.getElevationFor(longitudes[i], latitudes[i]), elevations[i]);
+            }
+        } finally {
+            hgtFiles.setPath("");
+            hgtFiles.dispose();
+            assertTrue(tile1.delete());
+            assertTrue(tile2.delete());
+            assertTrue(directory.delete());
+        }
+    }
 }
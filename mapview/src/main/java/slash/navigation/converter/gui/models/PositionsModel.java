@@ -57,6 +57,7 @@ public interface PositionsModel extends TableModel {
     int[] getContainedPositions(BoundingBox boundingBox);
     int[] getPositionsWithinDistanceToPredecessor(double distance);
     int[] getInsignificantPositions(double threshold);
+    int[] getLeastSignificantPositions(int count);
     int getClosestPosition(double longitude, double latitude, double threshold);
     int getClosestPosition(CompactCalendar time, long threshold);
 
@@ -65,6 +66,7 @@ public interface PositionsModel extends TableModel {
     void add(int rowIndex, List<BaseNavigationPosition> positions);
 
     void edit(int rowIndex, PositionColumnValues columnToValues, boolean fireEvent, boolean trackUndo);
+    void elevationsEdited(int[] rowIndices, Double[] previousElevations, Double[] nextElevations);
 
     void remove(int firstIndex, int lastIndex);
     void remove(int[] rowIndices);
@@ -61,7 +61,7 @@ public abstract class BabelFormat extends BaseNavigationFormat<GpxRoute> {
     private static final String USR_BIN_GPSBABEL = "/usr/bin/gpsbabel";
     private Gpx10Format gpxFormat;
 
-    private Gpx10Format getGpxFormat() {
+    private synchronized Gpx10Format getGpxFormat() {
         if (gpxFormat == null)
             gpxFormat = createGpxFormat();
         return gpxFormat;
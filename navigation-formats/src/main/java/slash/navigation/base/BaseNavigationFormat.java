@@ -109,6 +109,14 @@ public abstract class BaseNavigationFormat<R extends BaseRoute<?, ?>> implements
         return true;
     }
 
+    /**
+     * Returns {@code true} if the signature proves that {@link #read} would not find a route
+     * in the content so that the {@link NavigationFormatParser} may try this format last.
+     */
+    protected boolean isUnreadable(ContentSignature signature) {
+        return false;
+    }
+
     public boolean isSupportsWriting() {
         return true;
     }
@@ -149,6 +149,11 @@ public abstract class BaseNavigationPosition implements NavigationPosition {
         return asWgs84Position();
     }
 
+    @SuppressWarnings("UnusedDeclaration")
+    public Wgs84Position asColumbusFusionPosition() {
+        return asWgs84Position();
+    }
+
     @SuppressWarnings("UnusedDeclaration")
     public Wgs84Position asCoPilotPosition() {
         return asWgs84Position();
@@ -254,6 +259,11 @@ public abstract class BaseNavigationPosition implements NavigationPosition {
         return new GpxPosition(getLongitude(), getLatitude(), getElevation(), getSpeed(), getTime(), getDescription());
     }
 
+    @SuppressWarnings("UnusedDeclaration")
+    public Wgs84Position asGroundTrackPosition() {
+        return asWgs84Position();
+    }
+
     @SuppressWarnings("UnusedDeclaration")
     public KmlPosition asIgoRoutePosition() {
         return asKmlPosition();
@@ -31,7 +31,6 @@ import slash.navigation.columbus.ColumbusGpsType1Format;
 import slash.navigation.columbus.ColumbusGpsType2Format;
 import slash.navigation.common.BoundingBox;
 import slash.navigation.common.NavigationPosition;
-import slash.navigation.common.SimpleNavigationPosition;
 import slash.navigation.copilot.CoPilot6Format;
 import slash.navigation.copilot.CoPilot7Format;
 import slash.navigation.copilot.CoPilot8Format;
@@ -84,14 +83,17 @@ import slash.navigation.wbt.WintecWbt201Tk2Format;
 import slash.navigation.wbt.WintecWbt202TesFormat;
 
 import java.util.*;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
 
-import static java.lang.Double.MAX_VALUE;
+import static java.lang.Integer.MAX_VALUE;
 import static java.lang.Math.*;
 import static java.util.Arrays.asList;
-import static java.util.Arrays.binarySearch;
 import static slash.common.io.Transfer.*;
 import static slash.common.type.CompactCalendar.*;
+import static slash.navigation.base.RouteCalculations.getMostSignificantPositions;
 import static slash.navigation.base.RouteCalculations.getSignificantPositions;
+import static slash.navigation.common.NavigationConversion.wgs84LongitudeLatitudeToGaussKruegerRightHeight;
 
 /**
  * The base of all routes formats.
@@ -103,6 +105,10 @@ public abstract class BaseRoute<P extends BaseNavigationPosition, F extends Base
     private static final String REVERSE_ROUTE_NAME_POSTFIX = " (rev)";
     private final F format;
     private RouteCharacteristics characteristics;
+    private final DistancesAndTimesFromStart distancesAndTimesFromStart = new DistancesAndTimesFromStart();
+    private final PositionsIndex positionsIndex = new PositionsIndex();
+    private final TimesIndex timesIndex = new TimesIndex();
+    private final IdentityIndex identityIndex = new IdentityIndex();
 
     protected BaseRoute(F format, RouteCharacteristics characteristics) {
         this.format = format;
@@ -137,6 +143,7 @@ public abstract class BaseRoute<P extends BaseNavigationPosition, F extends Base
         for (int i = index; i > topOffset; i--)
             positions.set(i, positions.get(i - 1));
         positions.set(topOffset, move);
+        positionsUpdated(topOffset, index);
     }
 
     public void move(int firstIndex, int secondIndex) {
@@ -145,6 +152,7 @@ public abstract class BaseRoute<P extends BaseNavigationPosition, F extends Base
         P to = positions.get(secondIndex);
         positions.set(firstIndex, to);
         positions.set(secondIndex, from);
+        positionsUpdated(min(firstIndex, secondIndex), max(firstIndex, secondIndex));
     }
 
     public void bottom(int index, int bottomOffset) {
@@ -153,13 +161,179 @@ public abstract class BaseRoute<P extends BaseNavigationPosition, F extends Base
         for (int i = index; i < getPositionCount() - 1 - bottomOffset; i++)
             positions.set(i, positions.get(i + 1));
         positions.set(getPositionCount() - 1 - bottomOffset, move);
+        positionsUpdated(index, getPositionCount() - 1 - bottomOffset);
+    }
+
+    /**
+     * Moves the positions at the given indices to the top in one pass, keeping their order.
+     */
+    public void top(int[] indices) {
+        int[] sorted = Arrays.stream(indices).sorted().distinct().toArray();
+        List<P> positions = getPositions();
+        List<P> result = new ArrayList<>(positions.size());
+        for (int index : sorted)
+            result.add(positions.get(index));
+        result.addAll(getPositionsExcept(positions, sorted));
+        order(result);
+    }
+
+    /**
+     * Moves the positions from the top back to the given indices, which reverts {@link #top(int[])}.
+     */
+    public void topDown(int[] indices) {
+        int[] sorted = Arrays.stream(indices).sorted().distinct().toArray();
+        List<P> positions = getPositions();
+        order(merge(positions.subList(sorted.length, positions.size()), sorted, positions.subList(0, sorted.length)));
+    }
+
+    /**
+     * Moves the positions at the given indices to the bottom in one pass, keeping their order.
+     */
+    public void bottom(int[] indices) {
+        int[] sorted = Arrays.stream(indices).sorted().distinct().toArray();
+        List<P> positions = getPositions();
+        List<P> result = getPositionsExcept(positions, sorted);
+        for (int index : sorted)
+            result.add(positions.get(index));
+        order(result);
+    }
+
+    /**
+     * Moves the positions from the bottom back to the given indices, which reverts {@link #bottom(int[])}.
+     */
+    public void bottomUp(int[] indices) {
+        int[] sorted = Arrays.stream(indices).sorted().distinct().toArray();
+        List<P> positions = getPositions();
+        int first = positions.size() - sorted.length;
+        order(merge(positions.subList(0, first), sorted, positions.subList(first, positions.size())));
+    }
+
+    private List<P> getPositionsExcept(List<P> positions, int[] sortedIndices) {
+        List<P> result = new ArrayList<>(positions.size());
+        int next = 0;
+        for (int i = 0; i < positions.size(); i++) {
+            if (next < sortedIndices.length && sortedIndices[next] == i)
+                next++;
+            else
+                result.add(positions.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Tells the route that the {@link #getPositions() positions} between the indices were
+     * modified or replaced directly, so that distances, times and queries for positions
+     * near coordinates or times consider them. Insertions and removals with the methods
+     * of the route are noticed by the route itself.
+     */
+    public void positionsUpdated(int firstIndex, int lastIndex) {
+        distancesAndTimesFromStart.positionsUpdated(firstIndex, lastIndex);
+        updateIndices(firstIndex, lastIndex);
+    }
+
+    private void updateIndices(int firstIndex, int lastIndex) {
+        positionsIndex.positionsUpdated(firstIndex, lastIndex);
+        timesIndex.invalidate();
+        identityIndex.positionsUpdated(getPositions(), firstIndex, lastIndex);
+    }
+
+    private void positionsInserted(int[] sortedIndices) {
+        if (sortedIndices.length == 0)
+            return;
+        distancesAndTimesFromStart.positionsInserted(getPositions(), sortedIndices);
+        updateIndices(sortedIndices[0], MAX_VALUE);
+    }
+
+    private void positionsRemoved(int[] sortedIndices) {
+        if (sortedIndices.length == 0)
+            return;
+        distancesAndTimesFromStart.positionsRemoved(getPositions(), sortedIndices);
+        updateIndices(sortedIndices[0], MAX_VALUE);
     }
 
     public abstract void add(int index, P position);
 
+    /**
+     * Adds the given positions at the given index with a single shift of the following
+     * positions.
+     */
+    public void add(int index, List<P> positions) {
+        getPositions().addAll(index, positions);
+        positionsInserted(IntStream.range(index, index + positions.size()).toArray());
+    }
+
+    /**
+     * Adds the given positions in one pass so that they end up at the given ascending
+     * indices, which reverts {@link #remove(int[])}.
+     */
+    public void add(int[] indices, List<P> positions) {
+        List<P> result = merge(getPositions(), indices, positions);
+        List<P> existing = getPositions();
+        existing.clear();
+        existing.addAll(result);
+        positionsInserted(indices);
+    }
+
+    private List<P> merge(List<P> existing, int[] indices, List<P> positions) {
+        List<P> result = new ArrayList<>(existing.size() + positions.size());
+        int next = 0;
+        for (P position : existing) {
+            while (next < indices.length && indices[next] == result.size())
+                result.add(positions.get(next++));
+            result.add(position);
+        }
+        while (next < indices.length)
+            result.add(positions.get(next++));
+        return result;
+    }
+
     public P remove(int index) {
         List<P> positions = getPositions();
-        return positions.remove(index);
+        P removed = positions.remove(index);
+        positionsRemoved(new int[]{index});
+        return removed;
+    }
+
+    /**
+     * Removes the positions at the given indices in one pass instead of shifting the
+     * following positions for every removed position.
+     *
+     * @param indices the indices of the positions to remove in any order
+     * @return the removed positions in ascending order of their indices
+     */
+    public List<P> remove(int[] indices) {
+        int[] sorted = Arrays.stream(indices).sorted().distinct().toArray();
+        List<P> positions = getPositions();
+        List<P> removed = new ArrayList<>(sorted.length);
+        if (sorted.length == 0)
+            return removed;
+
+        int target = sorted[0], next = 0;
+        for (int source = sorted[0]; source < positions.size(); source++) {
+            P position = positions.get(source);
+            if (next < sorted.length && sorted[next] == source) {
+                removed.add(position);
+                next++;
+            } else
+                positions.set(target++, position);
+        }
+        positions.subList(target, positions.size()).clear();
+        positionsRemoved(sorted);
+        return removed;
+    }
+
+    /**
+     * Removes the positions that match the given predicate in one pass.
+     *
+     * @return the removed positions in the order of the route
+     */
+    public List<P> removeIf(Predicate<P> predicate) {
+        List<P> positions = getPositions();
+        List<Integer> indices = new ArrayList<>();
+        for (int i = 0; i < positions.size(); i++)
+            if (predicate.test(positions.get(i)))
+                indices.add(i);
+        return remove(toArray(indices));
     }
 
     /**
@@ -168,16 +342,14 @@ public abstract class BaseRoute<P extends BaseNavigationPosition, F extends Base
      */
     public void removeDuplicates() {
         List<P> positions = getPositions();
-        P previous = null;
-        int index = 0;
-        while (index < positions.size()) {
-            P next = positions.get(index);
-            if (previous != null && (!next.hasCoordinates() || toDouble(next.calculateDistance(previous)) <= 0.0)) {
-                positions.remove(index);
-            } else
-                index++;
-            previous = next;
+        List<Integer> duplicates = new ArrayList<>();
+        for (int i = 1; i < positions.size(); i++) {
+            P previous = positions.get(i - 1);
+            P next = positions.get(i);
+            if (!next.hasCoordinates() || toDouble(next.calculateDistance(previous)) <= 0.0)
+                duplicates.add(i);
         }
+        remove(toArray(duplicates));
     }
 
     public void ensureIncreasingTime() {
@@ -206,17 +378,11 @@ public abstract class BaseRoute<P extends BaseNavigationPosition, F extends Base
             }
             previous = next;
         }
+        positionsUpdated(0, positions.size() - 1);
     }
 
     public int[] getContainedPositions(BoundingBox boundingBox) {
-        List<Integer> result = new ArrayList<>();
-        List<P> positions = getPositions();
-        for (int i = 0; i < positions.size(); i++) {
-            P position = positions.get(i);
-            if (position.hasCoordinates() && boundingBox.contains(position))
-                result.add(i);
-        }
-        return toArray(result);
+        return positionsIndex.getContainedPositions(getPositions(), boundingBox);
     }
 
     public int[] getPositionsWithinDistanceToPredecessor(double distance) {
@@ -242,7 +408,14 @@ public abstract class BaseRoute<P extends BaseNavigationPosition, F extends Base
     }
 
     public int[] getInsignificantPositions(double threshold) {
-        int[] significantPositions = getSignificantPositions(getPositions(), threshold);
+        return getAllBut(getSignificantPositions(getPositions(), threshold));
+    }
+
+    public int[] getLeastSignificantPositions(int count) {
+        return getAllBut(getMostSignificantPositions(getPositions(), count));
+    }
+
+    private int[] getAllBut(int[] significantPositions) {
         BitSet bitset = new BitSet(getPositionCount());
         for (int significantPosition : significantPositions)
             bitset.set(significantPosition);
@@ -256,39 +429,31 @@ public abstract class BaseRoute<P extends BaseNavigationPosition, F extends Base
     }
 
     public int getClosestPosition(double longitude, double latitude, double threshold) {
-        SimpleNavigationPosition reference = new SimpleNavigationPosition(longitude, latitude);
-        int closestIndex = -1;
-        double closestDistance = MAX_VALUE;
+        return positionsIndex.getClosestPosition(getPositions(), longitude, latitude, threshold);
+    }
 
-        List<P> positions = getPositions();
-        for (int i = 0; i < positions.size(); ++i) {
-            P position = positions.get(i);
-            Double distance = position.calculateDistance(reference);
-            if (distance != null && distance < closestDistance && distance <= threshold) {
-                closestDistance = distance;
-                closestIndex = i;
-            }
-        }
-        return closestIndex;
+    public int[] getClosestPositions(double longitude, double latitude, int count, double threshold) {
+        return positionsIndex.getClosestPositions(getPositions(), longitude, latitude, count, threshold);
     }
 
-    public int getClosestPosition(CompactCalendar time, long threshold) {
-        int closestIndex = -1;
-        long closestDistance = Long.MAX_VALUE;
+    /**
+     * Returns the index of the first position of the segment closest to the given coordinates
+     * within the threshold in meters or -1 if there is none.
+     */
+    public int getClosestSegment(double longitude, double latitude, double threshold) {
+        return positionsIndex.getClosestSegment(getPositions(), longitude, latitude, threshold);
+    }
 
-        List<P> positions = getPositions();
-        for (int i = 0; i < positions.size(); ++i) {
-            P position = positions.get(i);
-            if (!position.hasTime())
-                continue;
+    public int getClosestPosition(CompactCalendar time, long threshold) {
+        return timesIndex.getClosestPosition(getPositions(), time, threshold);
+    }
 
-            long distance = abs(position.getTime().getTimeInMillis() - time.getTimeInMillis());
-            if (distance < closestDistance && distance <= threshold) {
-                closestDistance = distance;
-                closestIndex = i;
-            }
-        }
-        return closestIndex;
+    /**
+     * Returns the index of the last position with a time before or equal to the given time
+     * and the index of the first position with a time after it, -1 if there is none.
+     */
+    public int[] getBracketingPositions(CompactCalendar time) {
+        return timesIndex.getBracketingPositions(getPositions(), time);
     }
 
     public P getPosition(int index) {
@@ -296,12 +461,12 @@ public abstract class BaseRoute<P extends BaseNavigationPosition, F extends Base
     }
 
     public int getIndex(P position) {
-        return getPositions().indexOf(position);
+        return identityIndex.getIndex(getPositions(), position);
     }
 
     public P getSuccessor(P position) {
         List<P> positions = getPositions();
-        int index = positions.indexOf(position);
+        int index = getIndex(position);
         return index != -1 && index < positions.size() - 1 ? positions.get(index + 1) : null;
     }
 
@@ -337,67 +502,15 @@ public abstract class BaseRoute<P extends BaseNavigationPosition, F extends Base
     }
 
     public double getDistance(int startIndex, int endIndex) {
-        double result = 0;
-        List<P> positions = getPositions();
-        NavigationPosition previous = null;
-        for (int i = startIndex; i <= endIndex; i++) {
-            NavigationPosition next = positions.get(i);
-            if (previous != null) {
-                Double distance = previous.calculateDistance(next);
-                if (!isEmpty(distance))
-                    result += distance;
-            }
-            previous = next;
-        }
-        return result;
+        return distancesAndTimesFromStart.getDistance(getPositions(), startIndex, endIndex);
     }
 
     public double[] getDistancesFromStart(int startIndex, int endIndex) {
-        double[] result = new double[endIndex - startIndex + 1];
-        List<P> positions = getPositions();
-        int index = 0;
-        double distance = 0.0;
-        NavigationPosition previous = !positions.isEmpty() ? positions.get(0) : null;
-        while (index <= endIndex) {
-            NavigationPosition next = positions.get(index);
-            if (previous != null) {
-                Double delta = previous.calculateDistance(next);
-                if (!isEmpty(delta))
-                    distance += delta;
-                if (index >= startIndex)
-                    result[index - startIndex] = distance;
-            }
-            index++;
-            previous = next;
-        }
-        return result;
+        return distancesAndTimesFromStart.getDistancesFromStart(getPositions(), startIndex, endIndex);
     }
 
     public double[] getDistancesFromStart(int[] indices) {
-        double[] result = new double[indices.length];
-        if (indices.length > 0 && getPositionCount() > 0) {
-            Arrays.sort(indices);
-            int endIndex = min(indices[indices.length - 1], getPositionCount() - 1);
-
-            int index = 0;
-            double distance = 0.0;
-            List<P> positions = getPositions();
-            NavigationPosition previous = positions.get(0);
-            while (index <= endIndex) {
-                NavigationPosition next = positions.get(index);
-                if (previous != null) {
-                    Double delta = previous.calculateDistance(next);
-                    if (!isEmpty(delta))
-                        distance += delta;
-                    int indexInIndices = binarySearch(indices, index);
-                    if (indexInIndices >= 0)
-                        result[indexInIndices] = distance;
-                }
-                index++;
-                previous = next;
-            }
-        }
-        return result;
+        return distancesAndTimesFromStart.getDistancesFromStart(getPositions(), indices);
     }
 
     public double getDistanceDifference(int index) {
@@ -413,51 +526,11 @@ public abstract class BaseRoute<P extends BaseNavigationPosition, F extends Base
     }
 
     public long[] getTimesFromStart(int startIndex, int endIndex) {
-        long[] result = new long[endIndex - startIndex + 1];
-        List<P> positions = getPositions();
-        int index = 0;
-        long time = 0L;
-        NavigationPosition previous = !positions.isEmpty() ? positions.get(0) : null;
-        while (index <= endIndex) {
-            NavigationPosition next = positions.get(index);
-            if (previous != null) {
-                Long delta = previous.calculateTime(next);
-                if (delta != null)
-                    time += delta;
-                if (index >= startIndex)
-                    result[index - startIndex] = time;
-            }
-            index++;
-            previous = next;
-        }
-        return result;
+        return distancesAndTimesFromStart.getTimesFromStart(getPositions(), startIndex, endIndex);
     }
 
     public long[] getTimesFromStart(int[] indices) {
-        long[] result = new long[indices.length];
-        if (indices.length > 0 && getPositionCount() > 0) {
-            Arrays.sort(indices);
-            int endIndex = min(indices[indices.length - 1], getPositionCount() - 1);
-
-            int index = 0;
-            long time = 0L;
-            List<P> positions = getPositions();
-            NavigationPosition previous = positions.get(0);
-            while (index <= endIndex) {
-                NavigationPosition next = positions.get(index);
-                if (previous != null) {
-                    Long delta = previous.calculateTime(next);
-                    if (delta != null)
-                        time += delta;
-                    int indexInIndices = binarySearch(indices, index);
-                    if (indexInIndices >= 0)
-                        result[indexInIndices] = time;
-                }
-                index++;
-                previous = next;
-            }
-        }
-        return result;
+        return distancesAndTimesFromStart.getTimesFromStart(getPositions(), indices);
     }
 
     public double getElevationAscend(int startIndex, int endIndex) {
@@ -517,14 +590,12 @@ public abstract class BaseRoute<P extends BaseNavigationPosition, F extends Base
         for (int i = 0; i < positions.size(); i++) {
             existing.set(i, positions.get(i));
         }
+        positionsUpdated(0, positions.size() - 1);
     }
 
     public void revert() {
-        List<P> positions = getPositions();
-        List<P> reverted = new ArrayList<>();
-        for (P position : positions) {
-            reverted.add(0, position);
-        }
+        List<P> reverted = new ArrayList<>(getPositions());
+        Collections.reverse(reverted);
         order(reverted);
 
         String routeName = getName();
@@ -546,6 +617,8 @@ public abstract class BaseRoute<P extends BaseNavigationPosition, F extends Base
         for (int row : indices) {
             existing.set(row, positions.get(index++));
         }
+        if (indices.length > 0)
+            positionsUpdated(indices[0], indices[indices.length - 1]);
     }
 
     public abstract P createPosition(Double longitude, Double latitude, Double elevation, Double speed, CompactCalendar time, String description);
@@ -937,9 +1010,31 @@ public abstract class BaseRoute<P extends BaseNavigationPosition, F extends Base
         if (getFormat() instanceof MagicMapsPthFormat)
             return (MagicMapsPthRoute) this;
 
-        List<GkPosition> gkPositions = new ArrayList<>();
-        for (P position : getPositions()) {
-            gkPositions.add(position.asGkPosition());
+        List<P> positions = getPositions();
+        int count = positions.size();
+        double[] longitudes = new double[count], latitudes = new double[count];
+        for (int i = 0; i < count; i++) {
+            P position = positions.get(i);
+            if (position.hasCoordinates()) {
+                longitudes[i] = position.getLongitude();
+                latitudes[i] = position.getLatitude();
+            }
+        }
+        double[] rights = new double[count], heights = new double[count];
+        wgs84LongitudeLatitudeToGaussKruegerRightHeight(longitudes, latitudes, rights, heights);
+
+        List<GkPosition> gkPositions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            P position = positions.get(i);
+            if (position instanceof GkPosition || !position.hasCoordinates()) {
+                gkPositions.add(position.asGkPosition());
+                continue;
+            }
+            GkPosition gkPosition = new GkPosition(rights[i], heights[i], position.getDescription());
+            gkPosition.setElevation(position.getElevation());
+            gkPosition.setSpeed(position.getSpeed());
+            gkPosition.setTime(position.getTime());
+            gkPositions.add(gkPosition);
         }
         return new MagicMapsPthRoute(getCharacteristics(), gkPositions);
     }
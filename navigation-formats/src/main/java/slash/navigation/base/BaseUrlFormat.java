@@ -35,6 +35,11 @@ import static slash.navigation.base.NavigationFormatParser.TOTAL_BUFFER_SIZE;
  */
 
 public abstract class BaseUrlFormat extends SimpleFormat<Wgs84Route> {
+    protected boolean isUnreadable(ContentSignature signature) {
+        // every URL pattern contains a scheme
+        return signature.isComplete() && !signature.contains("://");
+    }
+
     public void read(InputStream source, ParserContext<Wgs84Route> context) throws IOException {
         // used to be a UTF-8 then ISO-8859-1 fallback style
         read(source, UTF8_ENCODING, context);
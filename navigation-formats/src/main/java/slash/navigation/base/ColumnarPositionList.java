@@ -0,0 +1,711 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.base;
+
+import slash.common.type.CompactCalendar;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+import static java.lang.Math.max;
+import static slash.common.type.CompactCalendar.fromMillisAndTimeZone;
+import static slash.navigation.base.RouteComments.parseDescription;
+
+/**
+ * A list of {@link Wgs84Position}s that keeps the values of the positions in parallel
+ * primitive arrays instead of one object with boxed fields per position.
+ * <p>
+ * Every position occupies a slot with its values; {@link #get(int)} hands out the view
+ * onto the slot which reads and writes the arrays. The view of a slot is created once,
+ * thus positions of the list can be compared by identity. Adding or setting a view of
+ * this list stores a reference to its slot like an {@link java.util.ArrayList} stores a
+ * reference to an object, any other position is copied into a new slot.
+ * <p>
+ * Once less than half of the slots are in the list, the slots in the list are compacted
+ * and the arrays shrunk. Views of slots that are no longer in the list keep their values
+ * on their own, thus they stay valid, for example to undo a removal, and are stored in
+ * a slot again when they are added to the list again.
+ *
+ * @author Christian Pesch
+ */
+
+public class ColumnarPositionList extends AbstractList<Wgs84Position> implements RandomAccess {
+    private static final int LONGITUDE = 0, LATITUDE = 1, ELEVATION = 2, SPEED = 3, HEADING = 4,
+            PRESSURE = 5, TEMPERATURE = 6, HDOP = 7, VDOP = 8, PDOP = 9,
+            ACCELERATION_X = 10, ACCELERATION_Y = 11, ACCELERATION_Z = 12, DOUBLE_COLUMNS = 13;
+    private static final int TIME = 13, HEART_BEAT = 14, SATELLITES = 15, FIX_QUALITY = 16, WAYPOINT_TYPE = 17;
+    private static final WaypointType[] WAYPOINT_TYPES = WaypointType.values();
+    private static final String UTC = "UTC";
+    private static final int MINIMUM_CAPACITY = 16;
+
+    // the slots of the positions in list order
+    private int[] order;
+    private int size;
+    // the index of the first occurrence of each slot in the list or -1, built lazily
+    private int[] indices;
+
+    // the values of the slots; columns are created when the first value is stored
+    private int slotCount;
+    private int[] present;
+    private final double[][] doubles = new double[DOUBLE_COLUMNS][];
+    private long[] times;
+    private String[] timeZoneIds;
+    private short[] heartBeats;
+    private int[] satellites, fixQualities;
+    private byte[] waypointTypes;
+    private String[] descriptions;
+    private Object[] origins;
+    private ColumnarPosition[] views;
+
+    public ColumnarPositionList() {
+        this(MINIMUM_CAPACITY);
+    }
+
+    public ColumnarPositionList(int initialCapacity) {
+        order = new int[max(initialCapacity, 1)];
+        present = new int[order.length];
+    }
+
+    public ColumnarPositionList(Collection<? extends Wgs84Position> positions) {
+        this(positions.size());
+        addAll(positions);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /*for tests*/ int getSlotCount() {
+        return slotCount;
+    }
+
+    private void checkIndex(int index, int limit) {
+        if (index < 0 || index >= limit)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+
+    public Wgs84Position get(int index) {
+        checkIndex(index, size);
+        return viewOf(order[index]);
+    }
+
+    private ColumnarPosition viewOf(int slot) {
+        if (views == null)
+            views = new ColumnarPosition[present.length];
+        ColumnarPosition view = views[slot];
+        if (view == null) {
+            view = new ColumnarPosition(this, slot);
+            views[slot] = view;
+        }
+        return view;
+    }
+
+    public Wgs84Position set(int index, Wgs84Position position) {
+        checkIndex(index, size);
+        Wgs84Position previous = viewOf(order[index]);
+        order[index] = slotOf(position);
+        indices = null;
+        compactIfMostlyUnused();
+        return previous;
+    }
+
+    public void add(int index, Wgs84Position position) {
+        checkIndex(index, size + 1);
+        int slot = slotOf(position);
+        if (size == order.length)
+            order = Arrays.copyOf(order, grow(order.length));
+        System.arraycopy(order, index, order, index + 1, size - index);
+        order[index] = slot;
+        size++;
+        modCount++;
+        indices = null;
+        compactIfMostlyUnused();
+    }
+
+    public boolean addAll(int index, Collection<? extends Wgs84Position> positions) {
+        checkIndex(index, size + 1);
+        int count = positions.size();
+        if (count == 0)
+            return false;
+
+        int[] slots = new int[count];
+        int next = 0;
+        for (Wgs84Position position : positions)
+            slots[next++] = slotOf(position);
+        if (size + count > order.length)
+            order = Arrays.copyOf(order, max(grow(order.length), size + count));
+        System.arraycopy(order, index, order, index + count, size - index);
+        System.arraycopy(slots, 0, order, index, count);
+        size += count;
+        modCount++;
+        indices = null;
+        compactIfMostlyUnused();
+        return true;
+    }
+
+    public Wgs84Position remove(int index) {
+        checkIndex(index, size);
+        Wgs84Position removed = viewOf(order[index]);
+        System.arraycopy(order, index + 1, order, index, size - index - 1);
+        size--;
+        modCount++;
+        indices = null;
+        compactIfMostlyUnused();
+        return removed;
+    }
+
+    protected void removeRange(int fromIndex, int toIndex) {
+        System.arraycopy(order, toIndex, order, fromIndex, size - toIndex);
+        size -= toIndex - fromIndex;
+        modCount++;
+        indices = null;
+        compactIfMostlyUnused();
+    }
+
+    public void clear() {
+        size = 0;
+        modCount++;
+        indices = null;
+        compactIfMostlyUnused();
+    }
+
+    public int indexOf(Object o) {
+        if (o instanceof ColumnarPosition position && position.store == this) {
+            int index = getIndices()[position.slot];
+            if (index != -1)
+                return index;
+        }
+        return super.indexOf(o);
+    }
+
+    private int[] getIndices() {
+        if (indices == null) {
+            int[] result = new int[slotCount];
+            Arrays.fill(result, -1);
+            for (int i = size - 1; i >= 0; i--)
+                result[order[i]] = i;
+            indices = result;
+        }
+        return indices;
+    }
+
+    public boolean contains(Object o) {
+        return indexOf(o) != -1;
+    }
+
+    private static int grow(int length) {
+        return length + max(length >> 1, 1);
+    }
+
+    private int slotOf(Wgs84Position position) {
+        if (position instanceof ColumnarPosition view && view.owner == this) {
+            if (view.store != this) {
+                // a view that was moved out of the list by a compaction comes back
+                int slot = copyOf(view);
+                view.moveTo(this, slot);
+                if (views == null)
+                    views = new ColumnarPosition[present.length];
+                views[slot] = view;
+            }
+            return view.slot;
+        }
+        return copyOf(position);
+    }
+
+    private int copyOf(Wgs84Position position) {
+        int slot = newSlot();
+        setDouble(slot, LONGITUDE, position.getLongitude());
+        setDouble(slot, LATITUDE, position.getLatitude());
+        setDouble(slot, ELEVATION, position.getElevation());
+        setDouble(slot, SPEED, position.getSpeed());
+        setDouble(slot, HEADING, position.getHeading());
+        setDouble(slot, PRESSURE, position.getPressure());
+        setDouble(slot, TEMPERATURE, position.getTemperature());
+        setDouble(slot, HDOP, position.getHdop());
+        setDouble(slot, VDOP, position.getVdop());
+        setDouble(slot, PDOP, position.getPdop());
+        setDouble(slot, ACCELERATION_X, position.getAccelerationX());
+        setDouble(slot, ACCELERATION_Y, position.getAccelerationY());
+        setDouble(slot, ACCELERATION_Z, position.getAccelerationZ());
+        setTime(slot, position.getTime());
+        setHeartBeat(slot, position.getHeartBeat());
+        setSatellites(slot, position.getSatellites());
+        setFixQuality(slot, position.getFixQuality());
+        setWaypointType(slot, position.getWaypointType());
+        setDescription(slot, position.getDescription());
+        setOrigin(slot, position.getOrigin());
+        return slot;
+    }
+
+    private int newSlot() {
+        if (slotCount == present.length)
+            resize(grow(present.length));
+        present[slotCount] = 0;
+        return slotCount++;
+    }
+
+    private void resize(int capacity) {
+        present = Arrays.copyOf(present, capacity);
+        for (int i = 0; i < DOUBLE_COLUMNS; i++)
+            if (doubles[i] != null)
+                doubles[i] = Arrays.copyOf(doubles[i], capacity);
+        if (times != null)
+            times = Arrays.copyOf(times, capacity);
+        if (timeZoneIds != null)
+            timeZoneIds = Arrays.copyOf(timeZoneIds, capacity);
+        if (heartBeats != null)
+            heartBeats = Arrays.copyOf(heartBeats, capacity);
+        if (satellites != null)
+            satellites = Arrays.copyOf(satellites, capacity);
+        if (fixQualities != null)
+            fixQualities = Arrays.copyOf(fixQualities, capacity);
+        if (waypointTypes != null)
+            waypointTypes = Arrays.copyOf(waypointTypes, capacity);
+        if (descriptions != null)
+            descriptions = Arrays.copyOf(descriptions, capacity);
+        if (origins != null)
+            origins = Arrays.copyOf(origins, capacity);
+        if (views != null)
+            views = Arrays.copyOf(views, capacity);
+    }
+
+    private void compactIfMostlyUnused() {
+        // a slot may be in the list more than once, thus this underestimates the unused slots
+        if (slotCount > MINIMUM_CAPACITY && size < slotCount / 2)
+            compact();
+    }
+
+    private void compact() {
+        BitSet used = new BitSet(slotCount);
+        for (int i = 0; i < size; i++)
+            used.set(order[i]);
+
+        int[] slots = new int[slotCount];
+        int next = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            // slots are only moved to lower slots which have been visited before
+            if (used.get(slot)) {
+                moveSlot(slot, next);
+                slots[slot] = next++;
+            } else if (views != null && views[slot] != null)
+                views[slot].moveOut();
+        }
+        for (int i = 0; i < size; i++)
+            order[i] = slots[order[i]];
+
+        int previousSlotCount = slotCount;
+        slotCount = next;
+        if (descriptions != null)
+            Arrays.fill(descriptions, next, previousSlotCount, null);
+        if (origins != null)
+            Arrays.fill(origins, next, previousSlotCount, null);
+        if (timeZoneIds != null)
+            Arrays.fill(timeZoneIds, next, previousSlotCount, null);
+        if (views != null)
+            Arrays.fill(views, next, previousSlotCount, null);
+        resize(max(grow(next), MINIMUM_CAPACITY));
+        if (order.length > max(grow(size), MINIMUM_CAPACITY))
+            order = Arrays.copyOf(order, max(grow(size), MINIMUM_CAPACITY));
+        indices = null;
+    }
+
+    private void moveSlot(int from, int to) {
+        if (from == to)
+            return;
+        present[to] = present[from];
+        for (int i = 0; i < DOUBLE_COLUMNS; i++)
+            if (doubles[i] != null)
+                doubles[i][to] = doubles[i][from];
+        if (times != null)
+            times[to] = times[from];
+        if (timeZoneIds != null)
+            timeZoneIds[to] = timeZoneIds[from];
+        if (heartBeats != null)
+            heartBeats[to] = heartBeats[from];
+        if (satellites != null)
+            satellites[to] = satellites[from];
+        if (fixQualities != null)
+            fixQualities[to] = fixQualities[from];
+        if (waypointTypes != null)
+            waypointTypes[to] = waypointTypes[from];
+        if (descriptions != null)
+            descriptions[to] = descriptions[from];
+        if (origins != null)
+            origins[to] = origins[from];
+        if (views != null) {
+            views[to] = views[from];
+            if (views[to] != null)
+                views[to].slot = to;
+        }
+    }
+
+    private boolean isPresent(int slot, int column) {
+        return (present[slot] & (1 << column)) != 0;
+    }
+
+    private void setPresent(int slot, int column, boolean value) {
+        if (value)
+            present[slot] |= 1 << column;
+        else
+            present[slot] &= ~(1 << column);
+    }
+
+    private Double getDouble(int slot, int column) {
+        return isPresent(slot, column) ? doubles[column][slot] : null;
+    }
+
+    private void setDouble(int slot, int column, Double value) {
+        setPresent(slot, column, value != null);
+        if (value == null)
+            return;
+        if (doubles[column] == null)
+            doubles[column] = new double[present.length];
+        doubles[column][slot] = value;
+    }
+
+    private CompactCalendar getTime(int slot) {
+        if (!isPresent(slot, TIME))
+            return null;
+        String timeZoneId = timeZoneIds != null && timeZoneIds[slot] != null ? timeZoneIds[slot] : UTC;
+        return fromMillisAndTimeZone(times[slot], timeZoneId);
+    }
+
+    private void setTime(int slot, CompactCalendar time) {
+        setPresent(slot, TIME, time != null);
+        if (time == null)
+            return;
+        if (times == null)
+            times = new long[present.length];
+        times[slot] = time.getTimeInMillis();
+
+        String timeZoneId = UTC.equals(time.getTimeZoneId()) ? null : time.getTimeZoneId();
+        if (timeZoneId != null && timeZoneIds == null)
+            timeZoneIds = new String[present.length];
+        if (timeZoneIds != null)
+            timeZoneIds[slot] = timeZoneId;
+    }
+
+    private Short getHeartBeat(int slot) {
+        return isPresent(slot, HEART_BEAT) ? heartBeats[slot] : null;
+    }
+
+    private void setHeartBeat(int slot, Short heartBeat) {
+        setPresent(slot, HEART_BEAT, heartBeat != null);
+        if (heartBeat == null)
+            return;
+        if (heartBeats == null)
+            heartBeats = new short[present.length];
+        heartBeats[slot] = heartBeat;
+    }
+
+    private Integer getSatellites(int slot) {
+        return isPresent(slot, SATELLITES) ? satellites[slot] : null;
+    }
+
+    private void setSatellites(int slot, Integer value) {
+        setPresent(slot, SATELLITES, value != null);
+        if (value == null)
+            return;
+        if (satellites == null)
+            satellites = new int[present.length];
+        satellites[slot] = value;
+    }
+
+    private Integer getFixQuality(int slot) {
+        return isPresent(slot, FIX_QUALITY) ? fixQualities[slot] : null;
+    }
+
+    private void setFixQuality(int slot, Integer value) {
+        setPresent(slot, FIX_QUALITY, value != null);
+        if (value == null)
+            return;
+        if (fixQualities == null)
+            fixQualities = new int[present.length];
+        fixQualities[slot] = value;
+    }
+
+    private WaypointType getWaypointType(int slot) {
+        return isPresent(slot, WAYPOINT_TYPE) ? WAYPOINT_TYPES[waypointTypes[slot]] : null;
+    }
+
+    private void setWaypointType(int slot, WaypointType waypointType) {
+        setPresent(slot, WAYPOINT_TYPE, waypointType != null);
+        if (waypointType == null)
+            return;
+        if (waypointTypes == null)
+            waypointTypes = new byte[present.length];
+        waypointTypes[slot] = (byte) waypointType.ordinal();
+    }
+
+    private String getDescription(int slot) {
+        return descriptions != null ? descriptions[slot] : null;
+    }
+
+    private void setDescription(int slot, String description) {
+        if (description != null && descriptions == null)
+            descriptions = new String[present.length];
+        if (descriptions != null)
+            descriptions[slot] = description;
+    }
+
+    private Object getOrigin(int slot) {
+        return origins != null ? origins[slot] : null;
+    }
+
+    private void setOrigin(int slot, Object origin) {
+        if (origin != null && origins == null)
+            origins = new Object[present.length];
+        if (origins != null)
+            origins[slot] = origin;
+    }
+
+    /**
+     * A view onto the values of a slot of the list, or of a list of its own once its
+     * slot is no longer in the list and the list was compacted.
+     */
+    private static class ColumnarPosition extends Wgs84Position {
+        private final ColumnarPositionList owner;
+        private ColumnarPositionList store;
+        private int slot;
+
+        private ColumnarPosition(ColumnarPositionList owner, int slot) {
+            this.owner = owner;
+            this.store = owner;
+            this.slot = slot;
+        }
+
+        private void moveOut() {
+            ColumnarPositionList copy = new ColumnarPositionList(1);
+            moveTo(copy, copy.copyOf(this));
+        }
+
+        private void moveTo(ColumnarPositionList store, int slot) {
+            this.store = store;
+            this.slot = slot;
+        }
+
+        public Double getLongitude() {
+            return store.getDouble(slot, LONGITUDE);
+        }
+
+        public void setLongitude(Double longitude) {
+            store.setDouble(slot, LONGITUDE, longitude);
+        }
+
+        public Double getLatitude() {
+            return store.getDouble(slot, LATITUDE);
+        }
+
+        public void setLatitude(Double latitude) {
+            store.setDouble(slot, LATITUDE, latitude);
+        }
+
+        public String getDescription() {
+            return store.getDescription(slot);
+        }
+
+        public void setDescription(String description) {
+            store.setDescription(slot, description);
+            if (description == null)
+                return;
+
+            parseDescription(this, description);
+        }
+
+        public Double getElevation() {
+            return store.getDouble(slot, ELEVATION);
+        }
+
+        public void setElevation(Double elevation) {
+            store.setDouble(slot, ELEVATION, elevation);
+        }
+
+        public Double getSpeed() {
+            return store.getDouble(slot, SPEED);
+        }
+
+        public void setSpeed(Double speed) {
+            store.setDouble(slot, SPEED, speed);
+        }
+
+        public CompactCalendar getTime() {
+            return store.getTime(slot);
+        }
+
+        public void setTime(CompactCalendar time) {
+            store.setTime(slot, time);
+        }
+
+        public WaypointType getWaypointType() {
+            return store.getWaypointType(slot);
+        }
+
+        public void setWaypointType(WaypointType waypointType) {
+            store.setWaypointType(slot, waypointType);
+        }
+
+        public Double getHeading() {
+            return store.getDouble(slot, HEADING);
+        }
+
+        public void setHeading(Double heading) {
+            store.setDouble(slot, HEADING, heading);
+        }
+
+        public Double getPressure() {
+            return store.getDouble(slot, PRESSURE);
+        }
+
+        public void setPressure(Double pressure) {
+            store.setDouble(slot, PRESSURE, pressure);
+        }
+
+        public Double getTemperature() {
+            return store.getDouble(slot, TEMPERATURE);
+        }
+
+        public void setTemperature(Double temperature) {
+            store.setDouble(slot, TEMPERATURE, temperature);
+        }
+
+        public Short getHeartBeat() {
+            return store.getHeartBeat(slot);
+        }
+
+        public void setHeartBeat(Short heartBeat) {
+            store.setHeartBeat(slot, heartBeat);
+        }
+
+        public Double getHdop() {
+            return store.getDouble(slot, HDOP);
+        }
+
+        public void setHdop(Double hdop) {
+            store.setDouble(slot, HDOP, hdop);
+        }
+
+        public Double getVdop() {
+            return store.getDouble(slot, VDOP);
+        }
+
+        public void setVdop(Double vdop) {
+            store.setDouble(slot, VDOP, vdop);
+        }
+
+        public Double getPdop() {
+            return store.getDouble(slot, PDOP);
+        }
+
+        public void setPdop(Double pdop) {
+            store.setDouble(slot, PDOP, pdop);
+        }
+
+        public Integer getSatellites() {
+            return store.getSatellites(slot);
+        }
+
+        public void setSatellites(Integer satellites) {
+            store.setSatellites(slot, satellites);
+        }
+
+        public Integer getFixQuality() {
+            return store.getFixQuality(slot);
+        }
+
+        public void setFixQuality(Integer fixQuality) {
+            store.setFixQuality(slot, fixQuality);
+        }
+
+        public Double getAccelerationX() {
+            return store.getDouble(slot, ACCELERATION_X);
+        }
+
+        public void setAccelerationX(Double accelerationX) {
+            store.setDouble(slot, ACCELERATION_X, accelerationX);
+        }
+
+        public Double getAccelerationY() {
+            return store.getDouble(slot, ACCELERATION_Y);
+        }
+
+        public void setAccelerationY(Double accelerationY) {
+            store.setDouble(slot, ACCELERATION_Y, accelerationY);
+        }
+
+        public Double getAccelerationZ() {
+            return store.getDouble(slot, ACCELERATION_Z);
+        }
+
+        public void setAccelerationZ(Double accelerationZ) {
+            store.setDouble(slot, ACCELERATION_Z, accelerationZ);
+        }
+
+        public Object getOrigin() {
+            return store.getOrigin(slot);
+        }
+
+        public <T> T getOrigin(Class<T> resultClass) {
+            Object origin = getOrigin();
+            if (resultClass.isInstance(origin))
+                return resultClass.cast(origin);
+            else
+                return null;
+        }
+
+        public void setOrigin(Object origin) {
+            store.setOrigin(slot, origin);
+        }
+
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            ColumnarPosition that = (ColumnarPosition) o;
+            if (store == that.store && slot == that.slot)
+                return true;
+
+            return Objects.equals(getDescription(), that.getDescription()) &&
+                    Objects.equals(getElevation(), that.getElevation()) &&
+                    Objects.equals(getHeading(), that.getHeading()) &&
+                    Objects.equals(getLatitude(), that.getLatitude()) &&
+                    Objects.equals(getLongitude(), that.getLongitude()) &&
+                    Objects.equals(getTime(), that.getTime()) &&
+                    Objects.equals(getHdop(), that.getHdop()) &&
+                    Objects.equals(getPdop(), that.getPdop()) &&
+                    Objects.equals(getVdop(), that.getVdop()) &&
+                    Objects.equals(getSatellites(), that.getSatellites()) &&
+                    Objects.equals(getFixQuality(), that.getFixQuality()) &&
+                    Objects.equals(getAccelerationX(), that.getAccelerationX()) &&
+                    Objects.equals(getAccelerationY(), that.getAccelerationY()) &&
+                    Objects.equals(getAccelerationZ(), that.getAccelerationZ());
+        }
+
+        public int hashCode() {
+            return Objects.hash(getLongitude(), getLatitude(), getElevation(), getHeading(), getDescription(), getTime(),
+                    getHdop(), getPdop(), getVdop(), getSatellites(), getFixQuality(),
+                    getAccelerationX(), getAccelerationY(), getAccelerationZ());
+        }
+    }
+}
@@ -0,0 +1,247 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.base;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.lang.Math.min;
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.util.Arrays.copyOf;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+
+/**
+ * The first bytes of a byte stream which the {@link NavigationFormatParser} inspects
+ * once before probing the {@link NavigationFormat}s: magic bytes, the XML root element
+ * and the first text lines.
+ *
+ * @author Christian Pesch
+ */
+
+public class ContentSignature {
+    public static final int SIGNATURE_SIZE = 16 * 1024;
+
+    private static final byte[] ZIP_ARCHIVE = {'P', 'K', 3, 4};
+    private static final byte[] COMPOUND_DOCUMENT = {(byte) 0xD0, (byte) 0xCF, 0x11, (byte) 0xE0, (byte) 0xA1, (byte) 0xB1, 0x1A, (byte) 0xE1};
+    private static final XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+    static {
+        xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    private final byte[] bytes;
+    private final boolean complete;
+    private final Map<String, List<String>> lines = new HashMap<>();
+    private QName rootElement;
+    private boolean rootElementParsed;
+
+    public ContentSignature(byte[] bytes, boolean complete) {
+        this.bytes = bytes;
+        this.complete = complete;
+    }
+
+    /**
+     * Reads up to {@link #SIGNATURE_SIZE} bytes from the source; the caller
+     * is responsible to reset() the source afterwards.
+     */
+    public static ContentSignature read(InputStream source) throws IOException {
+        byte[] buffer = new byte[SIGNATURE_SIZE];
+        int length = 0;
+        while (length < buffer.length) {
+            int count = source.read(buffer, length, buffer.length - length);
+            if (count == -1)
+                return new ContentSignature(copyOf(buffer, length), true);
+            length += count;
+        }
+        // a stream of exactly SIGNATURE_SIZE bytes is treated as incomplete which is the safe side
+        return new ContentSignature(buffer, false);
+    }
+
+    /**
+     * Returns the inspected bytes which are a prefix of the content.
+     */
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    public int getLength() {
+        return bytes.length;
+    }
+
+    /**
+     * Returns {@code true} if the inspected bytes are the whole content.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public boolean matches(int offset, byte... expected) {
+        if (offset + expected.length > bytes.length)
+            return false;
+        for (int i = 0; i < expected.length; i++) {
+            if (bytes[offset + i] != expected[i])
+                return false;
+        }
+        return true;
+    }
+
+    public boolean matches(int offset, String expected) {
+        return matches(offset, expected.getBytes(US_ASCII));
+    }
+
+    public boolean isZipArchive() {
+        return matches(0, ZIP_ARCHIVE);
+    }
+
+    public boolean isCompoundDocument() {
+        return matches(0, COMPOUND_DOCUMENT);
+    }
+
+    /**
+     * Returns {@code true} if the given ASCII string is found in the inspected bytes.
+     */
+    public boolean contains(String ascii) {
+        byte[] expected = ascii.getBytes(US_ASCII);
+        for (int i = 0; i + expected.length <= bytes.length; i++) {
+            if (matches(i, expected))
+                return true;
+        }
+        return false;
+    }
+
+    private static boolean isWhitespace(int c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+    }
+
+    private boolean isMarkup(int start, int step, int highByteOffset) {
+        for (int i = start; i + step - 1 < bytes.length; i += step) {
+            if (step == 2 && bytes[i + highByteOffset] != 0)
+                return false;
+            int c = bytes[i + (step == 2 ? 1 - highByteOffset : 0)] & 0xFF;
+            if (isWhitespace(c))
+                continue;
+            return c == '<';
+        }
+        return false;
+    }
+
+    /**
+     * Returns {@code true} if the first character which is not whitespace is a {@code <}
+     * in UTF-8, ISO-8859-1 or UTF-16 with or without byte order mark.
+     */
+    public boolean isMarkup() {
+        if (matches(0, (byte) 0xEF, (byte) 0xBB, (byte) 0xBF))
+            return isMarkup(3, 1, 0);
+        if (matches(0, (byte) 0xFE, (byte) 0xFF))
+            return isMarkup(2, 2, 0);
+        if (matches(0, (byte) 0xFF, (byte) 0xFE))
+            return isMarkup(2, 2, 1);
+        if (bytes.length > 1 && bytes[0] == 0)
+            return isMarkup(0, 2, 0);
+        if (bytes.length > 1 && bytes[1] == 0)
+            return isMarkup(0, 2, 1);
+        return isMarkup(0, 1, 0);
+    }
+
+    /**
+     * Returns the qualified name of the XML root element or {@code null} if the
+     * inspected bytes are no XML or the root element is not within them.
+     */
+    public QName getRootElement() {
+        if (!rootElementParsed) {
+            rootElementParsed = true;
+            if (isMarkup())
+                rootElement = parseRootElement();
+        }
+        return rootElement;
+    }
+
+    private QName parseRootElement() {
+        try {
+            XMLStreamReader reader;
+            synchronized (xmlInputFactory) {
+                reader = xmlInputFactory.createXMLStreamReader(new ByteArrayInputStream(bytes));
+            }
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() == START_ELEMENT)
+                        return reader.getName();
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException | RuntimeException e) {
+            // not well-formed up to the root element
+        }
+        return null;
+    }
+
+    /**
+     * Returns the lines of the inspected bytes decoded as ISO-8859-1 and split like
+     * {@link java.io.BufferedReader#readLine()}; a last line without line terminator
+     * is only included if the inspected bytes are the whole content.
+     */
+    public List<String> getLines() {
+        return getLines(ISO_8859_1.name());
+    }
+
+    /**
+     * Returns the lines of the inspected bytes decoded with the given encoding like
+     * {@link #getLines()}; a character cut off at the end of the inspected bytes is
+     * only part of the last line which is left out.
+     */
+    public List<String> getLines(String encoding) {
+        return lines.computeIfAbsent(encoding, key -> splitLines(new String(bytes, Charset.forName(key))));
+    }
+
+    private List<String> splitLines(String text) {
+        List<String> result = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\n' || c == '\r') {
+                result.add(text.substring(start, i));
+                if (c == '\r' && i + 1 < text.length() && text.charAt(i + 1) == '\n')
+                    i++;
+                start = i + 1;
+            }
+        }
+        if (complete && start < text.length())
+            result.add(text.substring(start));
+        return result;
+    }
+
+    public String toString() {
+        return getClass().getSimpleName() + "[length=" + bytes.length + ", complete=" + complete +
+                ", text=" + new String(bytes, 0, min(bytes.length, 16), ISO_8859_1) + "]";
+    }
+}
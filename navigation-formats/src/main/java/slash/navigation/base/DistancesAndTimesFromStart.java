@@ -0,0 +1,292 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.base;
+
+import slash.common.type.CompactCalendar;
+import slash.navigation.common.NavigationPosition;
+
+import java.util.BitSet;
+import java.util.List;
+
+import static java.lang.Double.NaN;
+import static java.lang.Double.isNaN;
+import static java.lang.Integer.MAX_VALUE;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.System.arraycopy;
+import static java.util.Arrays.binarySearch;
+import static java.util.Arrays.copyOf;
+import static java.util.Arrays.sort;
+import static java.util.Objects.checkIndex;
+import static slash.navigation.common.Bearing.calculateBearings;
+
+/**
+ * Caches the distances and times between the positions of a {@link BaseRoute}
+ * and their sums from the start of the route.
+ *
+ * The route reports inserted and removed positions with {@link #positionsInserted} and
+ * {@link #positionsRemoved} and modified positions with {@link #positionsUpdated}. Only
+ * the segments next to them are calculated again with {@link slash.navigation.common.Bearing#calculateBearings}
+ * and the sums are added up again from the first of them on. If the number of positions
+ * changed without a report, all segments are calculated again. Distances between two
+ * positions are the sums of the segments between them.
+ *
+ * @author Christian Pesch
+ */
+
+class DistancesAndTimesFromStart {
+    // element i is the value from position i to position i + 1, 0 for missing values
+    private double[] distances = new double[0];
+    private long[] timeDifferences = new long[0];
+    // element i is the sum of the values from the start to position i
+    private double[] distancesFromStart = new double[0];
+    private long[] timesFromStart = new long[0];
+    // the segments that have to be calculated again
+    private final BitSet staleSegments = new BitSet();
+    // the first position whose sums have to be added up again
+    private int firstStaleSum = MAX_VALUE;
+    // the number of positions or -1 if unknown
+    private int size = -1;
+
+    synchronized void invalidate() {
+        size = -1;
+        staleSegments.clear();
+        firstStaleSum = MAX_VALUE;
+    }
+
+    synchronized void positionsUpdated(int firstIndex, int lastIndex) {
+        if (size < 0)
+            return;
+        // the segments from the predecessor of the first to the last position
+        int firstSegment = max(firstIndex - 1, 0), lastSegment = min(lastIndex, size - 2);
+        if (firstSegment <= lastSegment)
+            staleSegments.set(firstSegment, lastSegment + 1);
+    }
+
+    /**
+     * Tells the cache that positions were inserted into the positions so that they are
+     * at the given ascending indices now.
+     */
+    synchronized void positionsInserted(List<? extends NavigationPosition> positions, int[] sortedIndices) {
+        if (size < 0 || sortedIndices.length == 0)
+            return;
+        int count = size + sortedIndices.length;
+        if (count != positions.size() || sortedIndices[sortedIndices.length - 1] >= count) {
+            invalidate();
+            return;
+        }
+
+        ensureCapacity(count);
+        int first = sortedIndices[0], next = sortedIndices.length - 1, source = size - 1;
+        boolean successorInserted = false;
+        for (int i = count - 1; i >= first; i--) {
+            if (next >= 0 && sortedIndices[next] == i) {
+                staleSegments.set(i);
+                successorInserted = true;
+                next--;
+                continue;
+            }
+
+            distances[i] = distances[source];
+            timeDifferences[i] = timeDifferences[source];
+            staleSegments.set(i, staleSegments.get(source) || successorInserted);
+            successorInserted = false;
+            source--;
+        }
+        // the segment from the predecessor to the first inserted position
+        if (first > 0)
+            staleSegments.set(first - 1);
+        size = count;
+        staleSegments.clear(count - 1, max(count - 1, staleSegments.length()));
+        firstStaleSum = min(firstStaleSum, first);
+    }
+
+    /**
+     * Tells the cache that the positions at the given ascending indices were removed
+     * from the positions.
+     */
+    synchronized void positionsRemoved(List<? extends NavigationPosition> positions, int[] sortedIndices) {
+        if (size < 0 || sortedIndices.length == 0)
+            return;
+        if (size - sortedIndices.length != positions.size() || sortedIndices[sortedIndices.length - 1] >= size) {
+            invalidate();
+            return;
+        }
+
+        int first = sortedIndices[0], start = max(first - 1, 0), next = 0, target = start;
+        for (int source = start; source < size; source++) {
+            if (next < sortedIndices.length && sortedIndices[next] == source) {
+                next++;
+                continue;
+            }
+
+            boolean successorRemoved = next < sortedIndices.length && sortedIndices[next] == source + 1;
+            distances[target] = distances[source];
+            timeDifferences[target] = timeDifferences[source];
+            staleSegments.set(target, staleSegments.get(source) || successorRemoved);
+            target++;
+        }
+        size = positions.size();
+        staleSegments.clear(max(size - 1, 0), max(size - 1, staleSegments.length()));
+        firstStaleSum = min(firstStaleSum, first);
+    }
+
+    synchronized double getDistance(List<? extends NavigationPosition> positions, int startIndex, int endIndex) {
+        if (startIndex > endIndex)
+            return 0.0;
+        checkIndex(startIndex, positions.size());
+        checkIndex(endIndex, positions.size());
+        ensureValid(positions);
+        // summing the segments in their order gives the same result as summing their distances
+        double result = 0.0;
+        for (int i = startIndex; i < endIndex; i++)
+            result += distances[i];
+        return result;
+    }
+
+    synchronized double[] getDistancesFromStart(List<? extends NavigationPosition> positions, int startIndex, int endIndex) {
+        double[] result = new double[endIndex - startIndex + 1];
+        if (endIndex >= 0) {
+            checkIndex(endIndex, positions.size());
+            ensureValid(positions);
+            int first = max(startIndex, 0);
+            arraycopy(distancesFromStart, first, result, first - startIndex, endIndex - first + 1);
+        }
+        return result;
+    }
+
+    synchronized double[] getDistancesFromStart(List<? extends NavigationPosition> positions, int[] indices) {
+        double[] result = new double[indices.length];
+        if (indices.length > 0 && !positions.isEmpty()) {
+            sort(indices);
+            int endIndex = min(indices[indices.length - 1], positions.size() - 1);
+            ensureValid(positions);
+            for (int index : indices)
+                if (index >= 0 && index <= endIndex)
+                    result[binarySearch(indices, index)] = distancesFromStart[index];
+        }
+        return result;
+    }
+
+    synchronized long[] getTimesFromStart(List<? extends NavigationPosition> positions, int startIndex, int endIndex) {
+        long[] result = new long[endIndex - startIndex + 1];
+        if (endIndex >= 0) {
+            checkIndex(endIndex, positions.size());
+            ensureValid(positions);
+            int first = max(startIndex, 0);
+            arraycopy(timesFromStart, first, result, first - startIndex, endIndex - first + 1);
+        }
+        return result;
+    }
+
+    synchronized long[] getTimesFromStart(List<? extends NavigationPosition> positions, int[] indices) {
+        long[] result = new long[indices.length];
+        if (indices.length > 0 && !positions.isEmpty()) {
+            sort(indices);
+            int endIndex = min(indices[indices.length - 1], positions.size() - 1);
+            ensureValid(positions);
+            for (int index : indices)
+                if (index >= 0 && index <= endIndex)
+                    result[binarySearch(indices, index)] = timesFromStart[index];
+        }
+        return result;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= distances.length)
+            return;
+        int length = max(capacity, distances.length + (distances.length >> 1));
+        distances = copyOf(distances, length);
+        timeDifferences = copyOf(timeDifferences, length);
+        distancesFromStart = copyOf(distancesFromStart, length);
+        timesFromStart = copyOf(timesFromStart, length);
+    }
+
+    private void ensureValid(List<? extends NavigationPosition> positions) {
+        int count = positions.size();
+        if (size != count) {
+            ensureCapacity(count);
+            size = count;
+            staleSegments.clear();
+            staleSegments.set(0, max(count - 1, 0));
+            firstStaleSum = 0;
+        }
+
+        int firstSegment = staleSegments.nextSetBit(0);
+        if (firstSegment >= 0)
+            firstStaleSum = min(firstStaleSum, firstSegment + 1);
+        while (firstSegment >= 0) {
+            int lastSegment = staleSegments.nextClearBit(firstSegment) - 1;
+            calculateSegments(positions, firstSegment, lastSegment);
+            firstSegment = staleSegments.nextSetBit(lastSegment + 1);
+        }
+        staleSegments.clear();
+
+        if (firstStaleSum < count) {
+            // adding zero for missing values keeps the sums identical to adding nothing
+            int first = max(firstStaleSum, 1);
+            if (firstStaleSum == 0) {
+                distancesFromStart[0] = 0.0;
+                timesFromStart[0] = 0L;
+            }
+            for (int i = first; i < count; i++) {
+                distancesFromStart[i] = distancesFromStart[i - 1] + distances[i - 1];
+                timesFromStart[i] = timesFromStart[i - 1] + timeDifferences[i - 1];
+            }
+        }
+        firstStaleSum = MAX_VALUE;
+    }
+
+    private static double toDouble(Double value) {
+        return value != null ? value : NaN;
+    }
+
+    private void calculateSegments(List<? extends NavigationPosition> positions, int firstSegment, int lastSegment) {
+        int count = lastSegment - firstSegment + 2;
+        double[] longitudes = new double[count], latitudes = new double[count];
+        long[] times = new long[count];
+        BitSet withTime = new BitSet(count);
+        for (int i = 0; i < count; i++) {
+            NavigationPosition position = positions.get(firstSegment + i);
+            if (position.hasCoordinates()) {
+                longitudes[i] = toDouble(position.getLongitude());
+                latitudes[i] = toDouble(position.getLatitude());
+            } else {
+                longitudes[i] = NaN;
+                latitudes[i] = NaN;
+            }
+            CompactCalendar time = position.getTime();
+            if (time != null) {
+                times[i] = time.getTimeInMillis();
+                withTime.set(i);
+            }
+        }
+
+        double[] segmentDistances = new double[count - 1];
+        calculateBearings(longitudes, latitudes, segmentDistances, null);
+        for (int i = 0; i < count - 1; i++) {
+            double distance = segmentDistances[i];
+            boolean withCoordinates = !isNaN(longitudes[i]) && !isNaN(longitudes[i + 1]);
+            distances[firstSegment + i] = withCoordinates && !isNaN(distance) ? distance : 0.0;
+            timeDifferences[firstSegment + i] = withTime.get(i) && withTime.get(i + 1) ? times[i + 1] - times[i] : 0L;
+        }
+    }
+}
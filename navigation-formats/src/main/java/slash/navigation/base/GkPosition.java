@@ -35,6 +35,7 @@ import static slash.navigation.common.NavigationConversion.wgs84LongitudeLatitud
 
 public class GkPosition extends BaseNavigationPosition {
     private double right, height;
+    private double[] longitudeLatitude;
     private String description;
     private Double elevation;
     private Double speed;
@@ -58,8 +59,14 @@ public class GkPosition extends BaseNavigationPosition {
         setDescription(description);
     }
 
+    private double[] getLongitudeLatitude() {
+        if (longitudeLatitude == null)
+            longitudeLatitude = gaussKruegerRightHeightToWgs84LongitudeLatitude(right, height);
+        return longitudeLatitude;
+    }
+
     public Double getLongitude() {
-        return gaussKruegerRightHeightToWgs84LongitudeLatitude(right, height)[0];
+        return getLongitudeLatitude()[0];
     }
 
     public void setLongitude(Double longitude) {
@@ -68,7 +75,7 @@ public class GkPosition extends BaseNavigationPosition {
     }
 
     public Double getLatitude() {
-        return gaussKruegerRightHeightToWgs84LongitudeLatitude(right, height)[1];
+        return getLongitudeLatitude()[1];
     }
 
     public void setLatitude(Double latitude) {
@@ -114,6 +121,7 @@ public class GkPosition extends BaseNavigationPosition {
 
     private void setRight(double right) {
         this.right = right;
+        this.longitudeLatitude = null;
     }
 
     public Double getHeight() {
@@ -122,6 +130,7 @@ public class GkPosition extends BaseNavigationPosition {
 
     private void setHeight(double height) {
         this.height = height;
+        this.longitudeLatitude = null;
     }
 
     public GkPosition asGkPosition() {
@@ -0,0 +1,121 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.base;
+
+import slash.navigation.common.NavigationPosition;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+/**
+ * Maps the positions of a {@link BaseRoute} by identity to their index.
+ *
+ * The map is built lazily and built again if the number of positions changes. Reported
+ * updates of a few positions, for example moves, are applied to the map, larger ones
+ * discard it. A found index is verified against the positions, thus a stale map is
+ * detected and built again. Positions that are not part of the route are searched
+ * by equality as {@link List#indexOf(Object)} does.
+ *
+ * A {@link ColumnarPositionList} identifies its views by their slots on its own without
+ * creating a view for every position.
+ *
+ * @author Christian Pesch
+ */
+
+class IdentityIndex {
+    private static final int MAXIMUM_UPDATE_FRACTION = 16;
+
+    private Map<NavigationPosition, Integer> indices;
+    private int positionCount = -1;
+
+    synchronized void invalidate() {
+        indices = null;
+        positionCount = -1;
+    }
+
+    private void ensureValid(List<? extends NavigationPosition> positions) {
+        if (positionCount == positions.size())
+            return;
+
+        int count = positions.size();
+        Map<NavigationPosition, Integer> result = new IdentityHashMap<>(count);
+        // the first occurrence wins like for List#indexOf
+        for (int i = count - 1; i >= 0; i--)
+            result.put(positions.get(i), i);
+
+        this.indices = result;
+        this.positionCount = count;
+    }
+
+    private boolean isAtIndex(List<? extends NavigationPosition> positions, NavigationPosition position, Integer index) {
+        return index != null && index < positions.size() && positions.get(index) == position;
+    }
+
+    synchronized void positionsUpdated(List<? extends NavigationPosition> positions, int firstIndex, int lastIndex) {
+        if (indices == null)
+            return;
+
+        int count = positions.size();
+        int first = max(firstIndex, 0), last = min(lastIndex, count - 1);
+        if (positionCount != count || last - first >= max(count / MAXIMUM_UPDATE_FRACTION, 64)) {
+            invalidate();
+            return;
+        }
+
+        for (int i = first; i <= last; i++) {
+            NavigationPosition position = positions.get(i);
+            Integer index = indices.get(position);
+            if (!isAtIndex(positions, position, index) || index > i)
+                indices.put(position, i);
+        }
+    }
+
+    /**
+     * Returns the index of the first occurrence of the given position or -1.
+     */
+    synchronized int getIndex(List<? extends NavigationPosition> positions, NavigationPosition position) {
+        if (positions instanceof ColumnarPositionList)
+            return positions.indexOf(position);
+
+        ensureValid(positions);
+        Integer index = indices.get(position);
+        if (isAtIndex(positions, position, index))
+            return index;
+
+        if (index != null) {
+            invalidate();
+            ensureValid(positions);
+            index = indices.get(position);
+            if (isAtIndex(positions, position, index))
+                return index;
+        }
+
+        int found = positions.indexOf(position);
+        // the positions were replaced without an update
+        if (found != -1 && positions.get(found) == position)
+            invalidate();
+        return found;
+    }
+}
@@ -0,0 +1,49 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.base;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static slash.common.io.InputOutput.checkInterrupted;
+
+/**
+ * Stops the reading of a format with an {@link java.io.InterruptedIOException}
+ * once the probing thread has been interrupted.
+ *
+ * @author Christian Pesch
+ */
+class InterruptibleInputStream extends FilterInputStream {
+    InterruptibleInputStream(InputStream in) {
+        super(in);
+    }
+
+    public int read() throws IOException {
+        checkInterrupted();
+        return super.read();
+    }
+
+    public int read(byte[] b, int off, int len) throws IOException {
+        checkInterrupted();
+        return super.read(b, off, len);
+    }
+}
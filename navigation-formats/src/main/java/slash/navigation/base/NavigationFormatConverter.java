@@ -24,11 +24,14 @@ import slash.navigation.common.NavigationPosition;
 import slash.navigation.gpx.GpxPosition;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
 
 import static slash.common.io.Transfer.trim;
+import static slash.navigation.base.RouteComments.getDefaultDescription;
 
 /**
  * Converts between different {@link NavigationFormat}.
@@ -63,20 +66,104 @@ public class NavigationFormatConverter {
         return formatName;
     }
 
-    /*package local for tests*/static BaseNavigationPosition asFormat(NavigationPosition position, NavigationFormat<?> format) throws IOException {
-        BaseNavigationPosition result;
+    private static String getPositionMethodName(NavigationFormat<?> format) {
         String formatName = getFormatName(format);
         formatName = formatName.replace("Format", "Position");
         formatName = removeDigits(formatName);
+        return "as" + formatName;
+    }
+
+    /*package local for tests*/static BaseNavigationPosition asFormat(NavigationPosition position, NavigationFormat<?> format) throws IOException {
+        BaseNavigationPosition result;
+        String methodName = getPositionMethodName(format);
         try {
-            Method method = position.getClass().getMethod("as" + formatName);
+            Method method = position.getClass().getMethod(methodName);
             result = (BaseNavigationPosition) method.invoke(position);
         } catch (Exception e) {
-            throw new IOException("Cannot call as" + formatName + "() on " + position, e);
+            throw new IOException("Cannot call " + methodName + "() on " + position, e);
         }
         return result;
     }
 
+    /**
+     * Returns a sink that converts every position to a position of the format before
+     * it passes it to the given sink; the method is looked up once per position class.
+     */
+    public static <P extends BaseNavigationPosition> PositionSink<BaseNavigationPosition> convertPositions(PositionSink<P> sink, NavigationFormat<?> format) {
+        String methodName = getPositionMethodName(format);
+        return new PositionSink<BaseNavigationPosition>() {
+            private Class<?> positionClass;
+            private Method method;
+
+            public void beginRoute(RouteCharacteristics characteristics, String name) throws IOException {
+                sink.beginRoute(characteristics, name);
+            }
+
+            @SuppressWarnings("unchecked")
+            public void addPosition(BaseNavigationPosition position) throws IOException {
+                P converted;
+                try {
+                    if (position.getClass() != positionClass) {
+                        method = position.getClass().getMethod(methodName);
+                        positionClass = position.getClass();
+                    }
+                    converted = (P) method.invoke(position);
+                } catch (Exception e) {
+                    throw new IOException("Cannot call " + methodName + "() on " + position, e);
+                }
+                sink.addPosition(converted);
+            }
+
+            public void endRoute() throws IOException {
+                sink.endRoute();
+            }
+
+            public void close() throws IOException {
+                sink.close();
+            }
+        };
+    }
+
+    /**
+     * Returns a sink that gives the positions of every route the default descriptions
+     * that reading with the {@link NavigationFormatParser} gives them.
+     */
+    private static PositionSink<BaseNavigationPosition> commentPositions(PositionSink<BaseNavigationPosition> sink) {
+        return new PositionSink<BaseNavigationPosition>() {
+            private int index;
+
+            public void beginRoute(RouteCharacteristics characteristics, String name) throws IOException {
+                index = 0;
+                sink.beginRoute(characteristics, name);
+            }
+
+            public void addPosition(BaseNavigationPosition position) throws IOException {
+                position.setDescription(getDefaultDescription(position, index++));
+                sink.addPosition(position);
+            }
+
+            public void endRoute() throws IOException {
+                sink.endRoute();
+            }
+
+            public void close() throws IOException {
+                sink.close();
+            }
+        };
+    }
+
+    /**
+     * Converts the positions from the source to the target while reading so that the
+     * memory needed does not grow with the number of positions; closes the target.
+     */
+    @SuppressWarnings("unchecked")
+    public static void convert(InputStream source, PositionStreamingFormat<?> sourceFormat, ParserContext<?> context,
+                               OutputStream target, PositionStreamingFormat<?> targetFormat) throws IOException {
+        try (PositionSink<BaseNavigationPosition> sink = commentPositions(convertPositions(targetFormat.createPositionSink(target), (NavigationFormat<?>) targetFormat))) {
+            ((PositionStreamingFormat<BaseNavigationPosition>) sourceFormat).read(source, context, sink);
+        }
+    }
+
     // Any concrete route only ever implements the as...Format() methods for the formats it can
     // actually convert to, discovered here by reflection; the cast documents that assumption.
     @SuppressWarnings("unchecked")
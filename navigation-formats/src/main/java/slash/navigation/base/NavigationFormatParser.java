@@ -40,13 +40,19 @@ import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
 import static java.io.File.separatorChar;
+import static java.lang.Math.max;
 import static java.lang.Math.min;
 import static java.lang.String.format;
+import static java.nio.file.Files.readAllBytes;
 import static slash.common.io.Files.getExtension;
 import static slash.common.io.Files.toUrl;
+import static slash.common.helpers.ThreadHelper.createDaemonThreadPool;
 import static slash.common.io.Transfer.ceiling;
 import static slash.common.type.CompactCalendar.UTC;
 import static slash.common.type.CompactCalendar.fromCalendar;
@@ -65,17 +71,36 @@ public class NavigationFormatParser {
     private static final Logger log = Logger.getLogger(NavigationFormatParser.class.getName());
     public static final int TOTAL_BUFFER_SIZE = 1024 * 1024;
     private static final int CHUNK_BUFFER_SIZE = 8 * 1024;
+    public static final int DEFAULT_PROBE_THREADS = max(1, min(4, Runtime.getRuntime().availableProcessors()));
     private final NavigationFormatRegistry navigationFormatRegistry;
+    private final int probeThreads;
+    private final ExecutorService probeExecutor;
     private final List<NavigationFormatParserListener> listeners = new CopyOnWriteArrayList<>();
+    private boolean rankingBySignature = true;
 
     public NavigationFormatParser(NavigationFormatRegistry navigationFormatRegistry) {
+        this(navigationFormatRegistry, 1);
+    }
+
+    /**
+     * Creates a parser that probes the formats for content which is already in memory
+     * with the given number of threads; the detected format is the same as when probing
+     * one format after another.
+     */
+    public NavigationFormatParser(NavigationFormatRegistry navigationFormatRegistry, int probeThreads) {
         this.navigationFormatRegistry = navigationFormatRegistry;
+        this.probeThreads = probeThreads;
+        this.probeExecutor = probeThreads > 1 ? createDaemonThreadPool("ProbeFormats", probeThreads) : null;
     }
 
     public NavigationFormatRegistry getNavigationFormatRegistry() {
         return navigationFormatRegistry;
     }
 
+    /*for tests*/ void setRankingBySignature(boolean rankingBySignature) {
+        this.rankingBySignature = rankingBySignature;
+    }
+
     public void addNavigationFileParserListener(NavigationFormatParserListener listener) {
         listeners.add(listener);
     }
@@ -118,20 +143,65 @@ public class NavigationFormatParser {
         return positionCounts;
     }
 
+    private boolean isUnreadable(NavigationFormat<BaseRoute<?, ?>> format, ContentSignature signature) {
+        try {
+            return format instanceof BaseNavigationFormat<?> baseNavigationFormat && baseNavigationFormat.isUnreadable(signature);
+        } catch (RuntimeException e) {
+            log.fine(format("Cannot check signature with %s: %s", format, e));
+            return false;
+        }
+    }
+
+    /**
+     * Moves the formats that the signature proves unable to read the content behind the
+     * candidates, so that they are only probed when no candidate reads the content. Both
+     * keep their order so that the same format wins as when probing all formats in the
+     * given order.
+     */
+    private List<NavigationFormat<BaseRoute<?, ?>>> rankBySignature(List<NavigationFormat<BaseRoute<?, ?>>> formats, ContentSignature signature) {
+        if (!rankingBySignature)
+            return formats;
+
+        List<NavigationFormat<BaseRoute<?, ?>>> candidates = new ArrayList<>();
+        List<NavigationFormat<BaseRoute<?, ?>>> vetoed = new ArrayList<>();
+        for (NavigationFormat<BaseRoute<?, ?>> format : formats) {
+            if (isUnreadable(format, signature))
+                vetoed.add(format);
+            else
+                candidates.add(format);
+        }
+        log.fine(format("Found %d candidates in %d formats for %s", candidates.size(), formats.size(), signature));
+        candidates.addAll(vetoed);
+        return candidates;
+    }
+
+    private static boolean isPreferred(NavigationFormat<BaseRoute<?, ?>> format, NavigationFormat<BaseRoute<?, ?>> firstSuccessfulFormat,
+                                       List<NavigationFormat<BaseRoute<?, ?>>> formats) {
+        return firstSuccessfulFormat == null || formats.indexOf(format) < formats.indexOf(firstSuccessfulFormat);
+    }
+
     private void internalRead(InputStream buffer, List<NavigationFormat<BaseRoute<?, ?>>> formats, ParserContext<BaseRoute<?, ?>> context) throws IOException {
         int routeCountBefore = context.getRoutes().size();
         NavigationFormat<BaseRoute<?, ?>> firstSuccessfulFormat = null;
 
         try {
-            for (NavigationFormat<BaseRoute<?, ?>> format : formats) {
+            ContentSignature signature = ContentSignature.read(buffer);
+            try {
+                buffer.reset();
+            } catch (IOException e) {
+                log.severe("Cannot reset() stream to mark(): " + e.getLocalizedMessage());
+                return;
+            }
+
+            for (NavigationFormat<BaseRoute<?, ?>> format : rankBySignature(formats, signature)) {
                 notifyReading(format);
 
                 log.fine(format("Trying to read with %s", format));
                 try {
                     format.read(buffer, context);
 
-                    // if no route has been read, take the first that didn't throw an exception
-                    if (firstSuccessfulFormat == null)
+                    // if no route has been read, take the first in the given order that didn't throw an exception
+                    if (isPreferred(format, firstSuccessfulFormat, formats))
                         firstSuccessfulFormat = format;
                 } catch (Exception e) {
                     // probing tries every candidate format in turn, so a format declining a file it does
@@ -160,8 +230,98 @@ public class NavigationFormatParser {
             context.addFormat(firstSuccessfulFormat);
     }
 
+    private static class ProbeResult {
+        private final ParserContext<BaseRoute<?, ?>> context;
+        private final boolean successful;
+
+        private ProbeResult(ParserContext<BaseRoute<?, ?>> context, boolean successful) {
+            this.context = context;
+            this.successful = successful;
+        }
+    }
+
+    private ProbeResult probe(byte[] bytes, NavigationFormat<BaseRoute<?, ?>> format, ParserContext<BaseRoute<?, ?>> parent) {
+        notifyReading(format);
+
+        log.fine(format("Trying to read with %s", format));
+        // every probe reads into its own context since formats append routes while reading
+        ParserContext<BaseRoute<?, ?>> context = new InternalParserContext(parent.getFile(), parent.getStartDate());
+        try (InputStream inputStream = new InterruptibleInputStream(new ByteArrayInputStream(bytes))) {
+            format.read(inputStream, context);
+            return new ProbeResult(context, true);
+        } catch (Exception e) {
+            log.fine(format("Cannot read with %s, trying next format: %s", format, e));
+            return new ProbeResult(context, false);
+        }
+    }
+
+    private ProbeResult getProbeResult(Future<ProbeResult> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while probing formats");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Error)
+                throw (Error) e.getCause();
+            throw new IOException("Cannot probe formats: " + e.getCause(), e.getCause());
+        }
+    }
+
+    /**
+     * Probes the formats concurrently on independent streams over the same bytes and
+     * decides like {@link #internalRead} in the order of the formats: the first format
+     * that reads routes wins, the probes behind it are cancelled. At most as many probes
+     * as there are probe threads are in flight to bound the memory they need.
+     */
+    private void parallelInternalRead(byte[] bytes, List<NavigationFormat<BaseRoute<?, ?>>> formats, ParserContext<BaseRoute<?, ?>> context) throws IOException {
+        List<NavigationFormat<BaseRoute<?, ?>>> candidates = rankBySignature(formats, ContentSignature.read(new ByteArrayInputStream(bytes)));
+        List<Future<ProbeResult>> futures = new ArrayList<>();
+        for (int i = 0; i < min(probeThreads, candidates.size()); i++)
+            futures.add(submitProbe(bytes, candidates.get(i), context));
+
+        NavigationFormat<BaseRoute<?, ?>> firstSuccessfulFormat = null;
+        try {
+            for (int i = 0; i < candidates.size(); i++) {
+                NavigationFormat<BaseRoute<?, ?>> format = candidates.get(i);
+                ProbeResult result = getProbeResult(futures.get(i));
+
+                if (result.successful && isPreferred(format, firstSuccessfulFormat, formats))
+                    firstSuccessfulFormat = format;
+
+                if (!result.context.getRoutes().isEmpty()) {
+                    // keep the formats of nested reads behind the format as internalRead() does
+                    List<NavigationFormat<BaseRoute<?, ?>>> nestedFormats = result.context.getFormats();
+                    for (int j = nestedFormats.size() - 1; j >= 0; j--)
+                        context.addFormat(nestedFormats.get(j));
+                    context.appendRoutes(result.context.getRoutes());
+                    context.addFormat(format);
+                    break;
+                }
+
+                // slide the window of probes in flight by one
+                if (futures.size() < candidates.size())
+                    futures.add(submitProbe(bytes, candidates.get(futures.size()), context));
+            }
+        } finally {
+            for (Future<ProbeResult> future : futures)
+                future.cancel(true);
+        }
+
+        if (context.getRoutes().isEmpty() && context.getFormats().isEmpty() && firstSuccessfulFormat != null)
+            context.addFormat(firstSuccessfulFormat);
+    }
+
+    private Future<ProbeResult> submitProbe(byte[] bytes, NavigationFormat<BaseRoute<?, ?>> format, ParserContext<BaseRoute<?, ?>> context) {
+        return probeExecutor.submit(() -> probe(bytes, format, context));
+    }
+
     public ParserResult read(File source, List<NavigationFormat<?>> formats) throws IOException {
         log.info("Reading '" + source.getAbsolutePath() + "' by " + formats.size() + " formats");
+        if (probeExecutor != null)
+            // the buffered read marks the whole file anyway, so probing the bytes needs no more memory
+            return read(readAllBytes(source.toPath()), extractStartDate(source), source, widen(formats));
+
         try (InputStream inputStream = new FileInputStream(source)) {
             return read(inputStream, (int) source.length(), extractStartDate(source), source, widen(formats));
         }
@@ -204,12 +364,21 @@ public class NavigationFormatParser {
         commentRouteName(route);
     }
 
+    private boolean isOfFormat(List<BaseRoute<?, ?>> routes, NavigationFormat<BaseRoute<?, ?>> format) {
+        for (BaseRoute<?, ?> route : routes) {
+            if (!route.getFormat().getClass().equals(format.getClass()))
+                return false;
+        }
+        return true;
+    }
+
     private ParserResult createResult(ParserContext<BaseRoute<?, ?>> context) throws IOException {
         List<BaseRoute<?, ?>> source = context.getRoutes();
         // if (source != null && source.size() > 0) {
         if (source != null && !context.getFormats().isEmpty()) {
             NavigationFormat<BaseRoute<?, ?>> format = determineFormat(source, context.getFormats().get(0));
-            List<BaseRoute<?, ?>> destination = convertRoute(source, format);
+            // the routes collected while reading are usually already of the format
+            List<BaseRoute<?, ?>> destination = isOfFormat(source, format) ? source : convertRoute(source, format);
             log.info("Detected '" + format.getName() + "' with " + destination.size() + " route(s) and " +
                     getPositionCounts(destination) + " positions");
             if (destination.isEmpty())
@@ -252,6 +421,17 @@ public class NavigationFormatParser {
         return createResult(context);
     }
 
+    private ParserResult read(byte[] source, CompactCalendar startDate, File file,
+                              List<NavigationFormat<BaseRoute<?, ?>>> formats) throws IOException {
+        if (probeExecutor == null)
+            return read(new ByteArrayInputStream(source), source.length, startDate, file, formats);
+
+        log.fine("Reading " + source.length + " bytes by " + formats.size() + " formats in parallel");
+        ParserContext<BaseRoute<?, ?>> context = new InternalParserContext(file, startDate);
+        parallelInternalRead(source, formats, context);
+        return createResult(context);
+    }
+
     /**
      * Buffers the source and marks past its end so reset() between format
      * attempts always succeeds, then probes the formats into the context.
@@ -268,7 +448,7 @@ public class NavigationFormatParser {
     }
 
     public ParserResult read(String source) throws IOException {
-        return read(new ByteArrayInputStream(source.getBytes()));
+        return read(source.getBytes(), null, null, widen(getNavigationFormatRegistry().getReadFormats()));
     }
 
     public ParserResult read(InputStream source) throws IOException {
@@ -317,8 +497,7 @@ public class NavigationFormatParser {
         if(urlParsingFormat != null) {
             List<NavigationFormat<?>> readFormats = new ArrayList<>(formats);
             readFormats.add(0, urlParsingFormat);
-            byte[] bytes = url.toExternalForm().getBytes();
-            return read(new ByteArrayInputStream(bytes), bytes.length, null, null, widen(readFormats));
+            return read(url.toExternalForm().getBytes(), null, null, widen(readFormats));
         }
 
         if (isGoogleMapsProfileUrl(url)) {
@@ -334,7 +513,7 @@ public class NavigationFormatParser {
         try (InputStream inputStream = url.openStream()) {
             byte[] bytes = inputStream.readAllBytes();
             log.info("Reading '" + url + "' with " + bytes.length + " bytes");
-            return read(new ByteArrayInputStream(bytes), bytes.length, extractStartDate(url), extractFile(url), widen(formats));
+            return read(bytes, extractStartDate(url), extractFile(url), widen(formats));
         }
     }
 
@@ -78,9 +78,12 @@ import slash.navigation.zip.ZipFormat;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static java.util.Arrays.asList;
 import static java.util.Arrays.sort;
+import static java.util.Collections.unmodifiableList;
 
 /**
  * Managed the navigation formats.
@@ -90,6 +93,8 @@ import static java.util.Arrays.sort;
 
 public class NavigationFormatRegistry {
     private final List<Class<? extends NavigationFormat<?>>> formats = new ArrayList<>();
+    private List<NavigationFormat<?>> readFormats, writeFormats, readAndWriteFormats;
+    private final Map<String, List<NavigationFormat<?>>> readFormatsPreferredByExtension = new ConcurrentHashMap<>();
 
     public NavigationFormatRegistry() {
         // native formats
@@ -231,27 +236,50 @@ public class NavigationFormatRegistry {
         return true;
     }
 
-    private List<NavigationFormat<?>> getFormatInstances(boolean includeReadableFormats, boolean includeWritableFormats) {
-        List<NavigationFormat<?>> result = new ArrayList<>();
+    /**
+     * Instantiates every format once; the formats keep no state between reads and
+     * writes, so the same instances are shared by all lists and callers.
+     */
+    private synchronized void initializeFormatInstances() {
+        if (readFormats != null)
+            return;
+
+        List<NavigationFormat<?>> read = new ArrayList<>();
+        List<NavigationFormat<?>> write = new ArrayList<>();
+        List<NavigationFormat<?>> readAndWrite = new ArrayList<>();
         for (Class<? extends NavigationFormat<?>> formatClass : formats) {
+            NavigationFormat<?> format;
             try {
-                NavigationFormat<?> format = formatClass.getDeclaredConstructor().newInstance();
-                if (includeReadableFormats && format.isSupportsReading() && includeReadFormat(format) ||
-                        includeWritableFormats && format.isSupportsWriting())
-                    result.add(format);
+                format = formatClass.getDeclaredConstructor().newInstance();
             } catch (Exception e) {
                 throw new IllegalArgumentException("Cannot instantiate " + formatClass, e);
             }
+            boolean includeRead = format.isSupportsReading() && includeReadFormat(format);
+            if (includeRead)
+                read.add(format);
+            if (format.isSupportsWriting())
+                write.add(format);
+            if (includeRead || format.isSupportsWriting())
+                readAndWrite.add(format);
         }
-        return result;
+        readFormats = unmodifiableList(read);
+        writeFormats = unmodifiableList(write);
+        readAndWriteFormats = unmodifiableList(readAndWrite);
+    }
+
+    public synchronized List<NavigationFormat<?>> getReadFormats() {
+        initializeFormatInstances();
+        return readFormats;
     }
 
-    public List<NavigationFormat<?>> getReadFormats() {
-        return getFormatInstances(true, false);
+    public synchronized List<NavigationFormat<?>> getWriteFormats() {
+        initializeFormatInstances();
+        return writeFormats;
     }
 
-    public List<NavigationFormat<?>> getWriteFormats() {
-        return getFormatInstances(false, true);
+    private synchronized List<NavigationFormat<?>> getReadAndWriteFormats() {
+        initializeFormatInstances();
+        return readAndWriteFormats;
     }
 
     private List<NavigationFormat<?>> sortByName(List<NavigationFormat<?>> formats) {
@@ -261,7 +289,7 @@ public class NavigationFormatRegistry {
     }
 
     public List<NavigationFormat<?>> getFormatsSortedByName() {
-        return sortByName(getFormatInstances(true, true));
+        return sortByName(getReadAndWriteFormats());
     }
 
     private List<NavigationFormat<?>> filterByGarble(List<NavigationFormat<?>> formats) {
@@ -298,6 +326,12 @@ public class NavigationFormatRegistry {
     }
 
     public List<NavigationFormat<?>> getReadFormatsPreferredByExtension(String preferredExtension) {
+        if (preferredExtension == null)
+            return getReadFormats();
+        return readFormatsPreferredByExtension.computeIfAbsent(preferredExtension, this::createReadFormatsPreferredByExtension);
+    }
+
+    private List<NavigationFormat<?>> createReadFormatsPreferredByExtension(String preferredExtension) {
         List<NavigationFormat<?>> preferredFormats = new ArrayList<>();
         for(NavigationFormat<?> format : getReadFormats()) {
             if(format.getExtension().equals(preferredExtension))
@@ -307,7 +341,7 @@ public class NavigationFormatRegistry {
         List<NavigationFormat<?>> result = new ArrayList<>(getReadFormats());
         result.removeAll(preferredFormats);
         result.addAll(0, preferredFormats);
-        return result;
+        return unmodifiableList(result);
     }
 
     public List<NavigationFormat<?>> getReadFormatsWithPreferredFormat(NavigationFormat<?> preferredFormat) {
@@ -0,0 +1,203 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.base;
+
+import java.util.function.IntConsumer;
+
+import static java.lang.Math.ceil;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.Math.sqrt;
+import static java.util.Arrays.parallelSort;
+import static java.util.Arrays.sort;
+
+/**
+ * A static R-tree over boxes that is packed with the Sort-Tile-Recursive algorithm
+ * and kept in primitive arrays.
+ *
+ * The items are sorted into vertical slices by the x of their centers and within the
+ * slices by the y of their centers, then consecutive items form the leaves and consecutive
+ * nodes form the next level. The boxes of all levels are stored one after another.
+ *
+ * @author Christian Pesch
+ */
+
+class PackedRTree {
+    private static final int NODE_SIZE = 16;
+    private static final int PARALLEL_SORT_THRESHOLD = 100000;
+
+    // item ids in packed order
+    private final int[] ids;
+    // minimum x, minimum y, maximum x, maximum y of the items followed by the nodes level by level
+    private final double[] boxes;
+    // index after the last entry of each level, the first level are the items
+    private final int[] levelEnds;
+
+    /**
+     * Packs the given boxes, the item id is the index into the arrays.
+     * Items with a NaN coordinate are not indexed.
+     */
+    PackedRTree(double[] minimumX, double[] minimumY, double[] maximumX, double[] maximumY) {
+        int count = 0;
+        for (int i = 0; i < minimumX.length; i++)
+            if (isValid(minimumX[i], minimumY[i], maximumX[i], maximumY[i]))
+                count++;
+
+        int[] items = new int[count];
+        int index = 0;
+        for (int i = 0; i < minimumX.length; i++)
+            if (isValid(minimumX[i], minimumY[i], maximumX[i], maximumY[i]))
+                items[index++] = i;
+
+        int leafCount = (count + NODE_SIZE - 1) / NODE_SIZE;
+        int sliceCount = max((int) ceil(sqrt(leafCount)), 1);
+        int sliceSize = sliceCount * NODE_SIZE;
+
+        sortByCenter(items, 0, count, minimumX, maximumX);
+        for (int start = 0; start < count; start += sliceSize)
+            sortByCenter(items, start, min(start + sliceSize, count), minimumY, maximumY);
+        this.ids = items;
+
+        int entries = count, levels = 1;
+        for (int nodes = count; nodes > 1; levels++) {
+            nodes = (nodes + NODE_SIZE - 1) / NODE_SIZE;
+            entries += nodes;
+        }
+        this.levelEnds = new int[levels];
+        this.boxes = new double[4 * entries];
+
+        for (int i = 0; i < count; i++) {
+            int id = items[i];
+            setBox(i, minimumX[id], minimumY[id], maximumX[id], maximumY[id]);
+        }
+        levelEnds[0] = count;
+
+        int levelStart = 0, levelEnd = count;
+        for (int level = 1; level < levels; level++) {
+            int node = levelEnd;
+            for (int child = levelStart; child < levelEnd; child += NODE_SIZE, node++)
+                setBoxOfChildren(node, child, min(child + NODE_SIZE, levelEnd));
+            levelStart = levelEnd;
+            levelEnd = node;
+            levelEnds[level] = levelEnd;
+        }
+    }
+
+    private static boolean isValid(double minimumX, double minimumY, double maximumX, double maximumY) {
+        return !Double.isNaN(minimumX) && !Double.isNaN(minimumY) && !Double.isNaN(maximumX) && !Double.isNaN(maximumY);
+    }
+
+    // sorts by keys that combine the quantized center with the position in the array
+    private static void sortByCenter(int[] items, int from, int to, double[] minimum, double[] maximum) {
+        int count = to - from;
+        if (count < 2)
+            return;
+
+        double lowest = Double.POSITIVE_INFINITY, highest = Double.NEGATIVE_INFINITY;
+        for (int i = from; i < to; i++) {
+            double center = (minimum[items[i]] + maximum[items[i]]) / 2;
+            lowest = min(lowest, center);
+            highest = max(highest, center);
+        }
+
+        int bits = 32 - Integer.numberOfLeadingZeros(count);
+        double scale = highest > lowest ? ((1L << (62 - bits)) - 1) / (highest - lowest) : 0.0;
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            int item = items[from + i];
+            double center = (minimum[item] + maximum[item]) / 2;
+            keys[i] = ((long) ((center - lowest) * scale) << bits) | i;
+        }
+        if (count > PARALLEL_SORT_THRESHOLD)
+            parallelSort(keys);
+        else
+            sort(keys);
+
+        int[] sorted = new int[count];
+        long mask = (1L << bits) - 1;
+        for (int i = 0; i < count; i++)
+            sorted[i] = items[from + (int) (keys[i] & mask)];
+        System.arraycopy(sorted, 0, items, from, count);
+    }
+
+    private void setBox(int entry, double minimumX, double minimumY, double maximumX, double maximumY) {
+        boxes[4 * entry] = minimumX;
+        boxes[4 * entry + 1] = minimumY;
+        boxes[4 * entry + 2] = maximumX;
+        boxes[4 * entry + 3] = maximumY;
+    }
+
+    private void setBoxOfChildren(int node, int firstChild, int endChild) {
+        double minimumX = Double.POSITIVE_INFINITY, minimumY = Double.POSITIVE_INFINITY;
+        double maximumX = Double.NEGATIVE_INFINITY, maximumY = Double.NEGATIVE_INFINITY;
+        for (int child = firstChild; child < endChild; child++) {
+            minimumX = min(minimumX, boxes[4 * child]);
+            minimumY = min(minimumY, boxes[4 * child + 1]);
+            maximumX = max(maximumX, boxes[4 * child + 2]);
+            maximumY = max(maximumY, boxes[4 * child + 3]);
+        }
+        setBox(node, minimumX, minimumY, maximumX, maximumY);
+    }
+
+    int size() {
+        return ids.length;
+    }
+
+    private boolean intersects(int entry, double minimumX, double minimumY, double maximumX, double maximumY) {
+        return boxes[4 * entry] <= maximumX && boxes[4 * entry + 1] <= maximumY &&
+                boxes[4 * entry + 2] >= minimumX && boxes[4 * entry + 3] >= minimumY;
+    }
+
+    /**
+     * Passes the ids of all items whose boxes intersect the given box, borders included.
+     */
+    void search(double minimumX, double minimumY, double maximumX, double maximumY, IntConsumer consumer) {
+        if (ids.length == 0)
+            return;
+
+        int[] nodes = new int[NODE_SIZE * levelEnds.length + 1];
+        int[] levels = new int[nodes.length];
+        int top = 0;
+        nodes[0] = boxes.length / 4 - 1;
+        levels[0] = levelEnds.length - 1;
+
+        while (top >= 0) {
+            int node = nodes[top], level = levels[top];
+            top--;
+
+            if (!intersects(node, minimumX, minimumY, maximumX, maximumY))
+                continue;
+            if (level == 0) {
+                consumer.accept(ids[node]);
+                continue;
+            }
+
+            int levelStart = level > 0 ? levelEnds[level - 1] : 0;
+            int childLevelStart = level > 1 ? levelEnds[level - 2] : 0;
+            int firstChild = childLevelStart + (node - levelStart) * NODE_SIZE;
+            int endChild = min(firstChild + NODE_SIZE, levelEnds[level - 1]);
+            for (int child = endChild - 1; child >= firstChild; child--) {
+                nodes[++top] = child;
+                levels[top] = level - 1;
+            }
+        }
+    }
+}
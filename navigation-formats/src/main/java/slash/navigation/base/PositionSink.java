@@ -0,0 +1,38 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.base;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Receives the positions of routes one at a time as a {@link PositionStreamingFormat}
+ * decodes them: every route starts with {@link #beginRoute}, continues with
+ * {@link #addPosition} for each of its positions and ends with {@link #endRoute}.
+ *
+ * @author Christian Pesch
+ */
+
+public interface PositionSink<P extends BaseNavigationPosition> extends Closeable {
+    void beginRoute(RouteCharacteristics characteristics, String name) throws IOException;
+    void addPosition(P position) throws IOException;
+    void endRoute() throws IOException;
+}
@@ -0,0 +1,80 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.base;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Adapts {@link NavigationFormat}s which need a complete route to read or write
+ * to the {@link PositionSink} of a {@link PositionStreamingFormat}.
+ *
+ * @author Christian Pesch
+ */
+
+public class PositionSinks {
+    @SuppressWarnings("unchecked")
+    public static <P extends BaseNavigationPosition> void replay(List<? extends BaseRoute<?, ?>> routes, PositionSink<P> sink) throws IOException {
+        for (BaseRoute<?, ?> route : routes) {
+            sink.beginRoute(route.getCharacteristics(), route.getName());
+            for (BaseNavigationPosition position : route.getPositions())
+                sink.addPosition((P) position);
+            sink.endRoute();
+        }
+    }
+
+    /**
+     * Reads the complete routes with the format and passes them to the sink.
+     */
+    public static <P extends BaseNavigationPosition, R extends BaseRoute<?, ?>> void read(NavigationFormat<R> format, InputStream source,
+                                                                                           ParserContext<?> context, PositionSink<P> sink) throws IOException {
+        ParserContext<R> routes = new ParserContextImpl<>(context.getFile(), context.getStartDate());
+        format.read(source, routes);
+        replay(routes.getRoutes(), sink);
+    }
+
+    /**
+     * Returns a sink that collects complete routes and writes them with the format
+     * to the target when it is closed.
+     */
+    public static <P extends BaseNavigationPosition, R extends BaseRoute<?, ?>> PositionSink<P> createBufferingPositionSink(NavigationFormat<R> format,
+                                                                                                                            OutputStream target) {
+        ParserContext<R> routes = new ParserContextImpl<>();
+        return new RouteCollectingPositionSink<P, R>(format, routes) {
+            @SuppressWarnings("unchecked")
+            public void close() throws IOException {
+                try {
+                    List<R> collected = routes.getRoutes();
+                    if (collected.size() > 1) {
+                        if (!(format instanceof MultipleRoutesFormat))
+                            throw new IOException(format.getName() + " cannot write " + collected.size() + " routes to one file");
+                        ((MultipleRoutesFormat<R>) format).write(collected, target);
+                    } else if (collected.size() == 1)
+                        format.write(collected.get(0), target, 0, collected.get(0).getPositionCount());
+                } finally {
+                    target.close();
+                }
+            }
+        };
+    }
+}
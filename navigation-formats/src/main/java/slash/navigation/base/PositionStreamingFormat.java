@@ -0,0 +1,46 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.base;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A navigation format that reads and writes positions one at a time through a
+ * {@link PositionSink} so that a large route never has to be held in memory.
+ *
+ * @author Christian Pesch
+ */
+
+public interface PositionStreamingFormat<P extends BaseNavigationPosition> {
+    /**
+     * Reads the positions from the source into the sink; the context provides
+     * the start date and the file but receives no routes.
+     */
+    void read(InputStream source, ParserContext<?> context, PositionSink<P> sink) throws IOException;
+
+    /**
+     * Returns a sink that writes the positions it receives to the target;
+     * closing the sink completes and closes the target.
+     */
+    PositionSink<P> createPositionSink(OutputStream target) throws IOException;
+}
@@ -0,0 +1,378 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.base;
+
+import slash.navigation.common.BoundingBox;
+import slash.navigation.common.NavigationPosition;
+import slash.navigation.common.SimpleNavigationPosition;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+import static java.lang.Double.NEGATIVE_INFINITY;
+import static java.lang.Double.NaN;
+import static java.lang.Double.POSITIVE_INFINITY;
+import static java.lang.Double.isNaN;
+import static java.lang.Math.abs;
+import static java.lang.Math.cos;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.Math.sqrt;
+import static java.lang.Math.toRadians;
+import static java.util.Arrays.copyOf;
+import static java.util.Arrays.sort;
+import static java.util.Comparator.comparingDouble;
+import static slash.navigation.common.Bearing.EARTH_RADIUS;
+
+/**
+ * Indexes the positions of a {@link BaseRoute} and the segments between them
+ * in {@link PackedRTree}s for nearest position, nearest segment and bounding box queries.
+ *
+ * The trees are built lazily on the first query. Since the positions and the lists of
+ * routes are modified directly, modifications are either detected by a changed number
+ * of positions and positions that are no longer where they were indexed, or reported with
+ * {@link #positionsUpdated(int, int)}. Few updated positions are checked one by one until
+ * too many are collected and the trees are built again.
+ *
+ * The queries look up candidates in boxes that contain everything within the threshold
+ * and calculate the distances of the candidates exactly as a linear scan would.
+ *
+ * @author Christian Pesch
+ */
+
+class PositionsIndex {
+    private static final int MAXIMUM_UPDATED_RANGE = 64;
+    private static final int INSERTION_SORT_SIZE = 32;
+    private static final double MINIMUM_SEARCH_DISTANCE = 100.0;
+    // lower bounds of the meters of a degree of latitude and of longitude at the equator
+    private static final double METERS_OF_A_DEGREE_OF_LATITUDE = 110000.0;
+    private static final double METERS_OF_A_DEGREE_OF_LONGITUDE = 111000.0;
+
+    private double[] longitudes, latitudes;
+    private PackedRTree positions, segments;
+    private final BitSet updated = new BitSet();
+    private boolean valid = false;
+
+    synchronized void positionsUpdated(int firstIndex, int lastIndex) {
+        if (!valid)
+            return;
+        if (firstIndex < 0 || lastIndex - firstIndex >= MAXIMUM_UPDATED_RANGE || lastIndex >= longitudes.length)
+            invalidate();
+        else {
+            updated.set(firstIndex, lastIndex + 1);
+            if (updated.cardinality() > max(MAXIMUM_UPDATED_RANGE, longitudes.length / 64))
+                invalidate();
+        }
+    }
+
+    synchronized void invalidate() {
+        valid = false;
+        longitudes = null;
+        latitudes = null;
+        positions = null;
+        segments = null;
+        updated.clear();
+    }
+
+    private static double toDouble(Double value) {
+        return value != null ? value : NaN;
+    }
+
+    private void ensureValid(List<? extends NavigationPosition> list) {
+        if (valid && longitudes.length == list.size())
+            return;
+
+        invalidate();
+        int count = list.size();
+        longitudes = new double[count];
+        latitudes = new double[count];
+        for (int i = 0; i < count; i++) {
+            NavigationPosition position = list.get(i);
+            if (position.hasCoordinates()) {
+                longitudes[i] = toDouble(position.getLongitude());
+                latitudes[i] = toDouble(position.getLatitude());
+            } else {
+                longitudes[i] = NaN;
+                latitudes[i] = NaN;
+            }
+        }
+        positions = new PackedRTree(longitudes, latitudes, longitudes, latitudes);
+        valid = true;
+    }
+
+    private void ensureSegments() {
+        if (segments != null)
+            return;
+
+        int count = max(longitudes.length - 1, 0);
+        double[] minimumLongitudes = new double[count], minimumLatitudes = new double[count];
+        double[] maximumLongitudes = new double[count], maximumLatitudes = new double[count];
+        for (int i = 0; i < count; i++) {
+            // NaN propagates through min and max and keeps segments with missing coordinates out of the tree
+            minimumLongitudes[i] = min(longitudes[i], longitudes[i + 1]);
+            minimumLatitudes[i] = min(latitudes[i], latitudes[i + 1]);
+            maximumLongitudes[i] = max(longitudes[i], longitudes[i + 1]);
+            maximumLatitudes[i] = max(latitudes[i], latitudes[i + 1]);
+        }
+        segments = new PackedRTree(minimumLongitudes, minimumLatitudes, maximumLongitudes, maximumLatitudes);
+    }
+
+    private boolean isUnchanged(NavigationPosition position, int index) {
+        if (!position.hasCoordinates())
+            return isNaN(longitudes[index]);
+        return Double.compare(longitudes[index], toDouble(position.getLongitude())) == 0 &&
+                Double.compare(latitudes[index], toDouble(position.getLatitude())) == 0;
+    }
+
+    private interface Distance {
+        /**
+         * Returns the distance of the position or segment with the given index or NaN if it doesn't match.
+         */
+        double calculate(int index);
+    }
+
+    private static class Candidates {
+        private int[] indices = new int[16];
+        private double[] distances = new double[16];
+        private int size;
+        private boolean stale;
+
+        void add(int index, double distance) {
+            if (isNaN(distance))
+                return;
+            if (size == indices.length) {
+                indices = copyOf(indices, size * 2);
+                distances = copyOf(distances, size * 2);
+            }
+            indices[size] = index;
+            distances[size++] = distance;
+        }
+
+        // lower indices stay first for equal distances like with a linear scan
+        void sortByDistance() {
+            if (size <= INSERTION_SORT_SIZE) {
+                for (int i = 1; i < size; i++) {
+                    int index = indices[i];
+                    double distance = distances[i];
+                    int j = i - 1;
+                    while (j >= 0 && (distances[j] > distance || distances[j] == distance && indices[j] > index)) {
+                        indices[j + 1] = indices[j];
+                        distances[j + 1] = distances[j];
+                        j--;
+                    }
+                    indices[j + 1] = index;
+                    distances[j + 1] = distance;
+                }
+                return;
+            }
+
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++)
+                order[i] = i;
+            sort(order, comparingDouble((Integer i) -> distances[i]).thenComparingInt(i -> indices[i]));
+            int[] sortedIndices = new int[size];
+            double[] sortedDistances = new double[size];
+            for (int i = 0; i < size; i++) {
+                sortedIndices[i] = indices[order[i]];
+                sortedDistances[i] = distances[order[i]];
+            }
+            indices = sortedIndices;
+            distances = sortedDistances;
+        }
+    }
+
+    private boolean isUpdated(int index, int neighbours) {
+        return updated.get(index) || neighbours > 0 && updated.get(index + neighbours);
+    }
+
+    private boolean isStale(List<? extends NavigationPosition> list, int index, int neighbours) {
+        for (int i = index; i <= index + neighbours; i++)
+            if (!isUnchanged(list.get(i), i))
+                return true;
+        return false;
+    }
+
+    /**
+     * Collects the positions or segments with neighbours = 1 within the box from the tree and
+     * from the updated positions. Boxes which exceed the antimeridian are wrapped if requested.
+     */
+    private Candidates collect(List<? extends NavigationPosition> list, PackedRTree tree, int neighbours,
+                               double minimumLongitude, double minimumLatitude, double maximumLongitude, double maximumLatitude,
+                               boolean wrap, Distance distance) {
+        Candidates candidates = new Candidates();
+        IntConsumer consumer = index -> {
+            if (isUpdated(index, neighbours))
+                return;
+            if (isStale(list, index, neighbours))
+                candidates.stale = true;
+            else
+                candidates.add(index, distance.calculate(index));
+        };
+
+        if (wrap && maximumLongitude - minimumLongitude >= 360.0)
+            tree.search(NEGATIVE_INFINITY, minimumLatitude, POSITIVE_INFINITY, maximumLatitude, consumer);
+        else {
+            tree.search(minimumLongitude, minimumLatitude, maximumLongitude, maximumLatitude, consumer);
+            if (wrap && minimumLongitude < -180.0)
+                tree.search(minimumLongitude + 360.0, minimumLatitude, POSITIVE_INFINITY, maximumLatitude, consumer);
+            if (wrap && maximumLongitude > 180.0)
+                tree.search(NEGATIVE_INFINITY, minimumLatitude, maximumLongitude - 360.0, maximumLatitude, consumer);
+        }
+
+        // an updated position belongs to the segment before and after it
+        int end = longitudes.length - neighbours;
+        for (int index = updated.nextSetBit(0); index >= 0; index = updated.nextSetBit(index + 1)) {
+            for (int i = max(index - neighbours, 0); i <= index; i++)
+                if (i < end && (i == index || !updated.get(i)))
+                    candidates.add(i, distance.calculate(i));
+        }
+        return candidates;
+    }
+
+    private static double toLatitudeDegrees(double distance) {
+        return distance / METERS_OF_A_DEGREE_OF_LATITUDE;
+    }
+
+    private static double toLongitudeDegrees(double latitude, double latitudeDegrees, double distance) {
+        double cosine = cos(toRadians(min(abs(latitude) + latitudeDegrees, 90.0)));
+        double degrees = distance / (METERS_OF_A_DEGREE_OF_LONGITUDE * cosine);
+        return cosine > 0.0 && degrees < 360.0 ? degrees : 360.0;
+    }
+
+    /**
+     * Returns up to count indices of the positions closest to the given coordinates within
+     * the threshold in meters, the closest first and lower indices first for equal distances.
+     */
+    synchronized int[] getClosestPositions(List<? extends NavigationPosition> list, double longitude, double latitude,
+                                           int count, double threshold) {
+        if (count <= 0 || list.isEmpty())
+            return new int[0];
+        ensureValid(list);
+
+        SimpleNavigationPosition reference = new SimpleNavigationPosition(longitude, latitude);
+        double searchDistance = min(MINIMUM_SEARCH_DISTANCE, threshold);
+        while (true) {
+            double latitudeDegrees = toLatitudeDegrees(searchDistance);
+            double longitudeDegrees = toLongitudeDegrees(latitude, latitudeDegrees, searchDistance);
+            double limit = searchDistance;
+            Candidates candidates = collect(list, positions, 0, longitude - longitudeDegrees, latitude - latitudeDegrees,
+                    longitude + longitudeDegrees, latitude + latitudeDegrees, true, index -> {
+                        Double distance = list.get(index).calculateDistance(reference);
+                        return distance != null && distance <= limit ? distance : NaN;
+                    });
+            if (candidates.stale) {
+                invalidate();
+                ensureValid(list);
+                continue;
+            }
+
+            // all positions within the search distance are candidates, thus the closest candidates are the closest positions
+            if (candidates.size >= count || searchDistance >= threshold || longitudeDegrees >= 360.0 && latitudeDegrees >= 180.0) {
+                candidates.sortByDistance();
+                return copyOf(candidates.indices, min(count, candidates.size));
+            }
+            searchDistance = min(searchDistance * 4, threshold);
+        }
+    }
+
+    /**
+     * Returns the index of the position closest to the given coordinates within the
+     * threshold in meters or -1.
+     */
+    int getClosestPosition(List<? extends NavigationPosition> list, double longitude, double latitude, double threshold) {
+        int[] result = getClosestPositions(list, longitude, latitude, 1, threshold);
+        return result.length > 0 ? result[0] : -1;
+    }
+
+    /**
+     * Returns the indices of the positions within the bounding box in ascending order.
+     */
+    synchronized int[] getContainedPositions(List<? extends NavigationPosition> list, BoundingBox boundingBox) {
+        if (list.isEmpty())
+            return new int[0];
+        ensureValid(list);
+
+        while (true) {
+            Candidates candidates = collect(list, positions, 0, boundingBox.southWest().getLongitude(), boundingBox.southWest().getLatitude(),
+                    boundingBox.northEast().getLongitude(), boundingBox.northEast().getLatitude(), false, index -> {
+                        NavigationPosition position = list.get(index);
+                        return position.hasCoordinates() && boundingBox.contains(position) ? 0.0 : NaN;
+                    });
+            if (candidates.stale) {
+                invalidate();
+                ensureValid(list);
+                continue;
+            }
+            int[] result = copyOf(candidates.indices, candidates.size);
+            sort(result);
+            return result;
+        }
+    }
+
+    /**
+     * Returns the index of the first position of the segment closest to the given coordinates
+     * within the threshold in meters or -1. The distance to a segment is measured in a plane
+     * that is tangent to the earth at the given coordinates, which is accurate for segments
+     * that are short compared to the earth.
+     */
+    synchronized int getClosestSegment(List<? extends NavigationPosition> list, double longitude, double latitude, double threshold) {
+        if (list.size() < 2)
+            return -1;
+        ensureValid(list);
+        ensureSegments();
+
+        double metersOfALatitudeDegree = toRadians(EARTH_RADIUS);
+        double metersOfALongitudeDegree = metersOfALatitudeDegree * cos(toRadians(latitude));
+        double latitudeDegrees = threshold / metersOfALatitudeDegree;
+        double longitudeDegrees = metersOfALongitudeDegree > 0.0 ? min(threshold / metersOfALongitudeDegree, 360.0) : 360.0;
+
+        while (true) {
+            Candidates candidates = collect(list, segments, 1, longitude - longitudeDegrees, latitude - latitudeDegrees,
+                    longitude + longitudeDegrees, latitude + latitudeDegrees, false, index -> {
+                        NavigationPosition first = list.get(index), second = list.get(index + 1);
+                        if (!first.hasCoordinates() || !second.hasCoordinates())
+                            return NaN;
+                        double distance = distanceToSegment(
+                                (first.getLongitude() - longitude) * metersOfALongitudeDegree, (first.getLatitude() - latitude) * metersOfALatitudeDegree,
+                                (second.getLongitude() - longitude) * metersOfALongitudeDegree, (second.getLatitude() - latitude) * metersOfALatitudeDegree);
+                        return distance <= threshold ? distance : NaN;
+                    });
+            if (candidates.stale) {
+                invalidate();
+                ensureValid(list);
+                ensureSegments();
+                continue;
+            }
+            candidates.sortByDistance();
+            return candidates.size > 0 ? candidates.indices[0] : -1;
+        }
+    }
+
+    // distance of the origin to the segment from (x1, y1) to (x2, y2)
+    private static double distanceToSegment(double x1, double y1, double x2, double y2) {
+        double dx = x2 - x1, dy = y2 - y1;
+        double lengthSquare = dx * dx + dy * dy;
+        double fraction = lengthSquare > 0.0 ? max(0.0, min(1.0, -(x1 * dx + y1 * dy) / lengthSquare)) : 0.0;
+        double x = x1 + fraction * dx, y = y1 + fraction * dy;
+        return sqrt(x * x + y * y);
+    }
+}
@@ -21,14 +21,25 @@
 package slash.navigation.base;
 
 import slash.common.type.CompactCalendar;
+import slash.navigation.common.Bearing;
 import slash.navigation.common.NavigationPosition;
 
 import java.util.List;
+import java.util.stream.Stream;
 
-import static java.lang.Math.abs;
-import static java.lang.System.arraycopy;
+import static java.lang.Double.NEGATIVE_INFINITY;
+import static java.lang.Double.NaN;
+import static java.lang.Double.POSITIVE_INFINITY;
+import static java.lang.Double.isNaN;
+import static java.lang.Math.*;
+import static java.util.Arrays.copyOf;
+import static java.util.Arrays.fill;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
 import static slash.common.io.Transfer.isEmpty;
 import static slash.common.type.CompactCalendar.fromMillis;
+import static slash.navigation.common.Bearing.EARTH_RADIUS;
+import static slash.navigation.common.Bearing.calculateBearing;
 
 /**
  * Provides {@link NavigationPosition} calculation functionality.
@@ -37,38 +48,110 @@ import static slash.common.type.CompactCalendar.fromMillis;
  */
 
 public class RouteCalculations {
-    private static int[] douglasPeuckerSimplify(List<? extends NavigationPosition> positions, int from, int to, double threshold) {
-        // find the point with the maximum distance
-        NavigationPosition pointA = positions.get(from);
-        NavigationPosition pointB = positions.get(to);
+    // ranges with more positions are split up in parallel
+    private static final int PARALLEL_THRESHOLD = 50000;
+    private static final double METERS_OF_A_DEGREE = toRadians(EARTH_RADIUS);
+
+    private static double[][] toCoordinates(List<? extends NavigationPosition> positions) {
+        double[] longitudes = new double[positions.size()];
+        double[] latitudes = new double[positions.size()];
+        for (int i = 0; i < positions.size(); i++) {
+            NavigationPosition position = positions.get(i);
+            boolean hasCoordinates = position.hasCoordinates();
+            longitudes[i] = hasCoordinates ? position.getLongitude() : NaN;
+            latitudes[i] = hasCoordinates ? position.getLatitude() : NaN;
+        }
+        return new double[][]{longitudes, latitudes};
+    }
+
+    private static int[] toIndices(boolean[] significant, int count) {
+        int[] result = new int[count];
+        int index = 0;
+        for (int i = 0; i < significant.length; i++)
+            if (significant[i])
+                result[index++] = i;
+        return result;
+    }
+
+    private static int[] toIndices(boolean[] significant) {
+        int count = 0;
+        for (boolean b : significant)
+            if (b)
+                count++;
+        return toIndices(significant, count);
+    }
+
+    /**
+     * Returns the index of the position between from and to with the maximum orthogonal
+     * distance to the line from from to to if the distance is greater than threshold, -1 otherwise.
+     */
+    private static int findMaximumDistance(double[] longitudes, double[] latitudes, int from, int to, double threshold) {
+        double longitudeA = longitudes[from], latitudeA = latitudes[from];
+        double longitudeB = longitudes[to], latitudeB = latitudes[to];
+        if (isNaN(longitudeA) || isNaN(longitudeB))
+            return -1;
+
+        double courseAtoB = toRadians(calculateBearing(longitudeA, latitudeA, longitudeB, latitudeB).getAngle());
         int maximumDistanceIndex = -1;
         double maximumDistance = 0.0;
         for (int i = from + 1; i < to; i++) {
-            NavigationPosition position = positions.get(i);
-            if (position.hasCoordinates()) {
-                Double distance = position.calculateOrthogonalDistance(pointA, pointB);
-                if (distance == null)
-                    continue;
-
-                double absDistance = abs(distance);
-                if (absDistance > maximumDistance) {
-                    maximumDistance = absDistance;
-                    maximumDistanceIndex = i;
-                }
+            if (isNaN(longitudes[i]))
+                continue;
+
+            // like BaseNavigationPosition#calculateOrthogonalDistance
+            Bearing bearingAD = calculateBearing(longitudes[i], latitudes[i], longitudeA, latitudeA);
+            double distanceAtoD = bearingAD.getDistance();
+            double courseAtoD = toRadians(bearingAD.getAngle());
+            double absDistance = abs(asin(sin(distanceAtoD / EARTH_RADIUS) * sin(courseAtoD - courseAtoB)) * EARTH_RADIUS);
+            if (absDistance > maximumDistance) {
+                maximumDistance = absDistance;
+                maximumDistanceIndex = i;
             }
         }
+        return maximumDistance > threshold ? maximumDistanceIndex : -1;
+    }
+
+    private static void douglasPeuckerSimplify(double[] longitudes, double[] latitudes, int from, int to,
+                                               double threshold, boolean[] significant) {
+        int[] stack = new int[64];
+        int size = 0;
+        stack[size++] = from;
+        stack[size++] = to;
+        while (size > 0) {
+            to = stack[--size];
+            from = stack[--size];
+            int index = findMaximumDistance(longitudes, latitudes, from, to, threshold);
+            if (index == -1)
+                continue;
+
+            significant[index] = true;
+            if (size + 4 > stack.length)
+                stack = copyOf(stack, stack.length * 2);
+            stack[size++] = index;
+            stack[size++] = to;
+            stack[size++] = from;
+            stack[size++] = index;
+        }
+    }
+
+    private static void douglasPeuckerSimplifyInParallel(double[] longitudes, double[] latitudes, double threshold,
+                                                         boolean[] significant) {
+        // the ranges never overlap, thus the threads write to different elements of significant
+        List<int[]> ranges = singletonList(new int[]{0, longitudes.length - 1});
+        while (!ranges.isEmpty()) {
+            ranges = ranges.parallelStream().flatMap(range -> {
+                if (range[1] - range[0] < PARALLEL_THRESHOLD) {
+                    douglasPeuckerSimplify(longitudes, latitudes, range[0], range[1], threshold, significant);
+                    return Stream.<int[]>empty();
+                }
 
-        // if maximum distance is greater than threshold, recursively simplify
-        if ((maximumDistanceIndex != -1) && (maximumDistance > threshold)) {
-            int[] res1 = douglasPeuckerSimplify(positions, from, maximumDistanceIndex, threshold);
-            int[] res2 = douglasPeuckerSimplify(positions, maximumDistanceIndex, to, threshold);
-
-            int[] result = new int[res1.length - 1 + res2.length];
-            arraycopy(res1, 0, result, 0, res1.length - 1);
-            arraycopy(res2, 0, result, res1.length - 1, res2.length);
-            return result;
-        } else
-            return new int[]{from, to};
+                int index = findMaximumDistance(longitudes, latitudes, range[0], range[1], threshold);
+                if (index == -1)
+                    return Stream.<int[]>empty();
+                significant[index] = true;
+                return Stream.of(new int[]{range[0], index}, new int[]{index, range[1]});
+            }).collect(toList());
+        }
     }
 
     /**
@@ -85,8 +168,154 @@ public class RouteCalculations {
             return new int[0];
         else if (positions.size() == 1)
             return new int[]{0};
+
+        double[][] coordinates = toCoordinates(positions);
+        boolean[] significant = new boolean[positions.size()];
+        significant[0] = true;
+        significant[positions.size() - 1] = true;
+        if (positions.size() > PARALLEL_THRESHOLD)
+            douglasPeuckerSimplifyInParallel(coordinates[0], coordinates[1], threshold, significant);
         else
-            return douglasPeuckerSimplify(positions, 0, positions.size() - 1, threshold);
+            douglasPeuckerSimplify(coordinates[0], coordinates[1], 0, positions.size() - 1, threshold, significant);
+        return toIndices(significant);
+    }
+
+    /**
+     * Calculates the area in square meter of the triangle between the given position and its
+     * predecessor and successor with a local equirectangular projection.
+     */
+    private static double calculateArea(double[] longitudes, double[] latitudes, int previous, int index, int next) {
+        double longitude = longitudes[index], latitude = latitudes[index];
+        if (isNaN(longitude))
+            return NEGATIVE_INFINITY;
+        if (isNaN(longitudes[previous]) || isNaN(longitudes[next]))
+            return POSITIVE_INFINITY;
+
+        double scale = cos(toRadians(latitude));
+        double x1 = IEEEremainder(longitudes[previous] - longitude, 360.0) * scale;
+        double y1 = latitudes[previous] - latitude;
+        double x2 = IEEEremainder(longitudes[next] - longitude, 360.0) * scale;
+        double y2 = latitudes[next] - latitude;
+        return abs(x1 * y2 - x2 * y1) / 2.0 * METERS_OF_A_DEGREE * METERS_OF_A_DEGREE;
+    }
+
+    /**
+     * A binary min heap of position indices ordered by the areas of their triangles.
+     */
+    private static class AreaHeap {
+        private final double[] areas;
+        private final int[] heap, positionInHeap;
+        private int size;
+
+        AreaHeap(double[] areas, int from, int to) {
+            this.areas = areas;
+            this.heap = new int[to - from];
+            this.positionInHeap = new int[areas.length];
+            for (int i = from; i < to; i++) {
+                heap[size] = i;
+                positionInHeap[i] = size++;
+            }
+            for (int i = size / 2 - 1; i >= 0; i--)
+                down(i);
+        }
+
+        int removeFirst() {
+            int first = heap[0];
+            move(heap[--size], 0);
+            down(0);
+            return first;
+        }
+
+        void update(int index, double area) {
+            double previous = areas[index];
+            areas[index] = area;
+            if (area < previous)
+                up(positionInHeap[index]);
+            else
+                down(positionInHeap[index]);
+        }
+
+        private void move(int index, int position) {
+            heap[position] = index;
+            positionInHeap[index] = position;
+        }
+
+        private void up(int position) {
+            int index = heap[position];
+            while (position > 0) {
+                int parent = (position - 1) / 2;
+                if (areas[heap[parent]] <= areas[index])
+                    break;
+                move(heap[parent], position);
+                position = parent;
+            }
+            move(index, position);
+        }
+
+        private void down(int position) {
+            int index = heap[position];
+            while (true) {
+                int child = 2 * position + 1;
+                if (child >= size)
+                    break;
+                if (child + 1 < size && areas[heap[child + 1]] < areas[heap[child]])
+                    child++;
+                if (areas[index] <= areas[heap[child]])
+                    break;
+                move(heap[child], position);
+                position = child;
+            }
+            move(index, position);
+        }
+    }
+
+    /**
+     * Search the most significant positions with the Visvalingam-Whyatt-Algorithm: the position
+     * that spans the smallest triangle with its neighbours is removed until the given number of
+     * positions is left. Positions without coordinates are removed first.
+     *
+     * https://en.wikipedia.org/wiki/Visvalingam%E2%80%93Whyatt_algorithm
+     *
+     * @param positions the original list of positions
+     * @param count the number of positions to keep, at least the first and the last position are kept
+     * @return an array of indices to the original list of positions with the most significant positions
+     */
+    public static int[] getMostSignificantPositions(List<? extends NavigationPosition> positions, int count) {
+        int size = positions.size();
+        boolean[] significant = new boolean[size];
+        fill(significant, true);
+        if (count >= size || size < 3)
+            return toIndices(significant, size);
+
+        double[][] coordinates = toCoordinates(positions);
+        double[] longitudes = coordinates[0], latitudes = coordinates[1];
+        int[] previous = new int[size], next = new int[size];
+        double[] areas = new double[size];
+        for (int i = 1; i < size - 1; i++) {
+            previous[i] = i - 1;
+            next[i] = i + 1;
+            areas[i] = calculateArea(longitudes, latitudes, i - 1, i, i + 1);
+        }
+
+        AreaHeap heap = new AreaHeap(areas, 1, size - 1);
+        int remaining = size;
+        int minimum = max(count, 2);
+        while (remaining > minimum) {
+            int index = heap.removeFirst();
+            significant[index] = false;
+            remaining--;
+
+            // the area of a neighbour never gets smaller than the area of the removed position
+            double area = areas[index];
+            int before = previous[index], after = next[index];
+            next[before] = after;
+            previous[after] = before;
+            if (before > 0)
+                heap.update(before, max(area, calculateArea(longitudes, latitudes, previous[before], before, after)));
+            if (after < size - 1)
+                heap.update(after, max(area, calculateArea(longitudes, latitudes, before, after, next[after])));
+        }
+        return toIndices(significant, remaining);
     }
 
     @SuppressWarnings("unused")
@@ -0,0 +1,94 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.base;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.prefs.Preferences;
+
+/**
+ * A {@link PositionSink} that collects the positions into routes of a {@link NavigationFormat}
+ * and appends every route with positions to a {@link ParserContext}.
+ * <p>
+ * Once a route has many plain {@link Wgs84Position}s, they are moved to a
+ * {@link ColumnarPositionList} which needs a fraction of the memory.
+ *
+ * @author Christian Pesch
+ */
+
+public class RouteCollectingPositionSink<P extends BaseNavigationPosition, R extends BaseRoute<?, ?>> implements PositionSink<P> {
+    private static final Preferences preferences = Preferences.userNodeForPackage(RouteCollectingPositionSink.class);
+
+    private final NavigationFormat<R> format;
+    private final ParserContext<R> context;
+    private final int columnarPositionsThreshold = preferences.getInt("columnarPositionsThreshold", 100000);
+    private RouteCharacteristics characteristics;
+    private String name;
+    private List<P> positions;
+
+    public RouteCollectingPositionSink(NavigationFormat<R> format, ParserContext<R> context) {
+        this.format = format;
+        this.context = context;
+    }
+
+    public void beginRoute(RouteCharacteristics characteristics, String name) {
+        this.characteristics = characteristics;
+        this.name = name;
+        this.positions = new ArrayList<>();
+    }
+
+    private static boolean isPlainWgs84Position(Object position) {
+        return position.getClass().equals(Wgs84Position.class);
+    }
+
+    private boolean isColumnarStorable() {
+        for (P position : positions) {
+            if (!isPlainWgs84Position(position))
+                return false;
+        }
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void addPosition(P position) {
+        // a columnar list stores only the values of a plain Wgs84Position
+        if (positions instanceof ColumnarPositionList && !isPlainWgs84Position(position))
+            positions = new ArrayList<>(positions);
+        positions.add(position);
+
+        if (columnarPositionsThreshold > 0 && positions.size() == columnarPositionsThreshold && isColumnarStorable())
+            positions = (List<P>) new ColumnarPositionList((List<Wgs84Position>) positions);
+    }
+
+    public void endRoute() {
+        if (!positions.isEmpty())
+            context.appendRoute(createRoute(characteristics, name, positions));
+        positions = null;
+    }
+
+    protected R createRoute(RouteCharacteristics characteristics, String name, List<P> positions) {
+        return format.createRoute(characteristics, name, positions);
+    }
+
+    public void close() throws IOException {
+    }
+}
@@ -19,13 +19,13 @@
 */
 package slash.navigation.base;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.*;
 import java.util.ArrayList;
 import java.util.List;
 
 import static java.lang.String.format;
+import static slash.common.io.InputOutput.checkInterrupted;
+import static slash.common.io.Transfer.ISO_LATIN1_ENCODING;
 import static slash.navigation.base.RouteCharacteristics.Waypoints;
 
 /**
@@ -34,7 +34,7 @@ import static slash.navigation.base.RouteCharacteristics.Waypoints;
  * @author Christian Pesch
  */
 
-public abstract class SimpleLineBasedFormat<R extends SimpleRoute<?, ?>> extends SimpleFormat<R> {
+public abstract class SimpleLineBasedFormat<R extends SimpleRoute<?, ?>> extends SimpleFormat<R> implements PositionStreamingFormat<Wgs84Position> {
 
     public int getMaximumPositionCount() {
         return UNLIMITED_MAXIMUM_POSITION_COUNT;
@@ -45,11 +45,41 @@ public abstract class SimpleLineBasedFormat<R extends SimpleRoute<?, ?>> extends
         return (R)new Wgs84Route(this, characteristics, null, positions);
     }
 
+    /**
+     * Returns the encoding the lines are read with.
+     */
+    protected String getEncoding() {
+        return ISO_LATIN1_ENCODING;
+    }
+
+    public void read(InputStream source, ParserContext<R> context) throws IOException {
+        read(source, getEncoding(), context);
+    }
+
     public void read(BufferedReader reader, String encoding, ParserContext<R> context) throws IOException {
-        List<Wgs84Position> positions = new ArrayList<>();
+        read(reader, context, new RouteCollectingPositionSink<Wgs84Position, R>(this, context) {
+            protected R createRoute(RouteCharacteristics characteristics, String name, List<Wgs84Position> positions) {
+                return SimpleLineBasedFormat.this.createRoute(characteristics, positions);
+            }
+        });
+    }
+
+    public void read(InputStream source, ParserContext<?> context, PositionSink<Wgs84Position> sink) throws IOException {
+        read(source, getEncoding(), context, sink);
+    }
+
+    protected void read(InputStream source, String encoding, ParserContext<?> context, PositionSink<Wgs84Position> sink) throws IOException {
+        try (Reader reader = new InputStreamReader(source, encoding)) {
+            read(new BufferedReader(reader), context, sink);
+        }
+    }
+
+    protected void read(BufferedReader reader, ParserContext<?> context, PositionSink<Wgs84Position> sink) throws IOException {
+        boolean routeBegun = false;
 
         int lineCount = 0;
         while (true) {
+            checkInterrupted();
             String line = reader.readLine();
             if (line == null)
                 break;
@@ -59,7 +89,11 @@ public abstract class SimpleLineBasedFormat<R extends SimpleRoute<?, ?>> extends
             if (isValidLine(line)) {
                 if (isPosition(line)) {
                     Wgs84Position position = parsePosition(line, context);
-                    positions.add(position);
+                    if (!routeBegun) {
+                        sink.beginRoute(getRouteCharacteristics(), null);
+                        routeBegun = true;
+                    }
+                    sink.addPosition(position);
                 }
             } else {
                 if (lineCount++ > getGarbleCount())
@@ -67,14 +101,26 @@ public abstract class SimpleLineBasedFormat<R extends SimpleRoute<?, ?>> extends
             }
         }
 
-        if (!positions.isEmpty())
-            context.appendRoute(createRoute(getRouteCharacteristics(), positions));
+        if (routeBegun)
+            sink.endRoute();
     }
 
     protected int getGarbleCount() {
         return 1;
     }
 
+    protected boolean isUnreadable(ContentSignature signature) {
+        // counts like read() and would throw for too much garble
+        int lineCount = 0;
+        for (String line : signature.getLines(getEncoding())) {
+            if (line.isEmpty())
+                continue;
+            if (!isValidLine(line) && lineCount++ > getGarbleCount())
+                return true;
+        }
+        return false;
+    }
+
     protected RouteCharacteristics getRouteCharacteristics() {
         return Waypoints;
     }
@@ -90,18 +136,73 @@ public abstract class SimpleLineBasedFormat<R extends SimpleRoute<?, ?>> extends
     public void write(R route, PrintWriter writer, int startIndex, int endIndex) {
         List<Wgs84Position> positions = (List<Wgs84Position>) route.getPositions();
         writeHeader(writer, route);
+        Wgs84Position previousPosition = null;
         for (int i = startIndex; i < endIndex; i++) {
             Wgs84Position position = positions.get(i);
-            writePosition(position, writer, i, i == startIndex);
+            writePosition(position, previousPosition, writer, i, i == startIndex);
+            previousPosition = position;
         }
         writeFooter(writer, endIndex - startIndex);
     }
 
+    public PositionSink<Wgs84Position> createPositionSink(OutputStream target) throws IOException {
+        return createPositionSink(target, ISO_LATIN1_ENCODING);
+    }
+
+    /**
+     * Returns a sink that writes the header with the first route, every position as
+     * it arrives and the footer when it is closed.
+     */
+    protected PositionSink<Wgs84Position> createPositionSink(OutputStream target, String encoding) throws IOException {
+        PrintWriter writer = new PrintWriter(new OutputStreamWriter(target, encoding));
+        return new PositionSink<Wgs84Position>() {
+            private boolean headerWritten;
+            private int index;
+            private Wgs84Position previousPosition;
+
+            private void writeHeaderOnce(RouteCharacteristics characteristics, String name) {
+                if (!headerWritten) {
+                    writeHeader(writer, createRoute(characteristics, name, new ArrayList<Wgs84Position>()));
+                    headerWritten = true;
+                }
+            }
+
+            public void beginRoute(RouteCharacteristics characteristics, String name) {
+                writeHeaderOnce(characteristics, name);
+            }
+
+            public void addPosition(Wgs84Position position) {
+                writePosition(position, previousPosition, writer, index, index == 0);
+                previousPosition = position;
+                index++;
+            }
+
+            public void endRoute() {
+                writer.flush();
+            }
+
+            public void close() {
+                writeHeaderOnce(getRouteCharacteristics(), null);
+                writeFooter(writer, index);
+                writer.close();
+            }
+        };
+    }
+
     protected void writeHeader(PrintWriter writer, R route) {
     }
 
     protected abstract void writePosition(Wgs84Position position, PrintWriter writer, int index, boolean firstPosition);
 
+    /**
+     * Writes a position which depends on the previously written position, which is <code>null</code>
+     * for the first position. The previous position is passed since a format instance is shared by
+     * concurrent writes.
+     */
+    protected void writePosition(Wgs84Position position, Wgs84Position previousPosition, PrintWriter writer, int index, boolean firstPosition) {
+        writePosition(position, writer, index, firstPosition);
+    }
+
     protected void writeFooter(PrintWriter writer, int positionCount) {
     }
 }
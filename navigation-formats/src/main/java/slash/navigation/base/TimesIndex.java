@@ -0,0 +1,200 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.base;
+
+import slash.common.type.CompactCalendar;
+import slash.navigation.common.NavigationPosition;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static java.lang.Math.abs;
+import static java.util.Arrays.copyOf;
+import static java.util.Comparator.comparingLong;
+
+/**
+ * Indexes the times of the positions of a {@link BaseRoute} sorted by time and
+ * position index for binary searches.
+ *
+ * Positions without time are not indexed. If the times of the route increase, the
+ * positions are indexed in their order, otherwise - for example for loggers whose
+ * clock was adjusted during recording - they are sorted. The index is built lazily,
+ * built again if the number of positions changes, updates are reported or a found
+ * position has a different time than indexed.
+ *
+ * @author Christian Pesch
+ */
+
+class TimesIndex {
+    // times in ascending order and the indices of their positions in ascending order for equal times
+    private long[] times;
+    private int[] indices;
+    private int positionCount = -1;
+
+    synchronized void invalidate() {
+        times = null;
+        indices = null;
+        positionCount = -1;
+    }
+
+    private void ensureValid(List<? extends NavigationPosition> positions) {
+        if (positionCount == positions.size())
+            return;
+
+        int count = positions.size();
+        long[] allTimes = new long[count];
+        int[] allIndices = new int[count];
+        int size = 0;
+        boolean increasing = true;
+        for (int i = 0; i < count; i++) {
+            CompactCalendar time = positions.get(i).getTime();
+            if (time == null)
+                continue;
+            long millis = time.getTimeInMillis();
+            if (size > 0 && millis < allTimes[size - 1])
+                increasing = false;
+            allTimes[size] = millis;
+            allIndices[size++] = i;
+        }
+
+        if (!increasing) {
+            final long[] unsortedTimes = allTimes;
+            final int[] unsortedIndices = allIndices;
+            // a stable sort keeps lower indices first for equal times
+            int[] order = IntStream.range(0, size).boxed()
+                    .sorted(comparingLong(i -> unsortedTimes[i]))
+                    .mapToInt(Integer::intValue).toArray();
+            allTimes = new long[size];
+            allIndices = new int[size];
+            for (int i = 0; i < size; i++) {
+                allTimes[i] = unsortedTimes[order[i]];
+                allIndices[i] = unsortedIndices[order[i]];
+            }
+        }
+
+        this.times = copyOf(allTimes, size);
+        this.indices = copyOf(allIndices, size);
+        this.positionCount = count;
+    }
+
+    // the first entry with a time that is equal or greater than the given time
+    private int lowerBound(long time) {
+        int low = 0, high = times.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (times[middle] < time)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    // the first entry with a time that is greater than the given time
+    private int upperBound(long time) {
+        int low = 0, high = times.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (times[middle] <= time)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    private boolean isUnchanged(List<? extends NavigationPosition> positions, int entry) {
+        CompactCalendar time = positions.get(indices[entry]).getTime();
+        return time != null && time.getTimeInMillis() == times[entry];
+    }
+
+    private interface Query {
+        /**
+         * Returns the found entries or <code>null</code> if one of them is stale.
+         */
+        int[] run();
+    }
+
+    private int[] query(List<? extends NavigationPosition> positions, Query query) {
+        ensureValid(positions);
+        int[] result = query.run();
+        if (result == null) {
+            invalidate();
+            ensureValid(positions);
+            result = query.run();
+        }
+        return result;
+    }
+
+    private int[] verified(List<? extends NavigationPosition> positions, int... entries) {
+        int[] result = new int[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            if (entries[i] == -1)
+                result[i] = -1;
+            else if (!isUnchanged(positions, entries[i]))
+                return null;
+            else
+                result[i] = indices[entries[i]];
+        }
+        return result;
+    }
+
+    /**
+     * Returns the index of the position with the time closest to the given time within
+     * the threshold in milliseconds or -1. The lowest index wins for equal differences.
+     */
+    synchronized int getClosestPosition(List<? extends NavigationPosition> positions, CompactCalendar time, long threshold) {
+        long millis = time.getTimeInMillis();
+        int[] result = query(positions, () -> {
+            int after = lowerBound(millis);
+            int before = after > 0 ? lowerBound(times[after - 1]) : -1;
+            if (after == times.length)
+                after = -1;
+
+            long afterDistance = after != -1 ? abs(times[after] - millis) : Long.MAX_VALUE;
+            long beforeDistance = before != -1 ? abs(millis - times[before]) : Long.MAX_VALUE;
+            int closest;
+            if (afterDistance == beforeDistance)
+                closest = after == -1 ? -1 : indices[after] < indices[before] ? after : before;
+            else
+                closest = afterDistance < beforeDistance ? after : before;
+            if (closest != -1 && abs(times[closest] - millis) > threshold)
+                closest = -1;
+            return verified(positions, closest);
+        });
+        return result[0];
+    }
+
+    /**
+     * Returns the index of the last position with a time before or equal to the given time
+     * and of the first position with a time after the given time, -1 if there is none.
+     * If the times of the route do not increase, the two positions are not necessarily
+     * neighbours in the route.
+     */
+    synchronized int[] getBracketingPositions(List<? extends NavigationPosition> positions, CompactCalendar time) {
+        long millis = time.getTimeInMillis();
+        return query(positions, () -> {
+            int after = upperBound(millis);
+            int before = after - 1;
+            return verified(positions, before, after < times.length ? after : -1);
+        });
+    }
+}
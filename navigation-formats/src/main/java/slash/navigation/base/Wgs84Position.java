@@ -49,6 +49,9 @@ public class Wgs84Position extends BaseNavigationPosition implements ExtendedSen
     private CompactCalendar time;
     private Object origin;
 
+    protected/* for ColumnarPositionList */ Wgs84Position() {
+    }
+
     public Wgs84Position(Double longitude, Double latitude, Double elevation, Double speed, CompactCalendar time, String description) {
         this(longitude, latitude, elevation, speed, time, description, null);
     }
@@ -34,6 +34,10 @@ public abstract class XmlNavigationFormat<R extends BaseRoute<?, ?>> extends Bas
         return UNLIMITED_MAXIMUM_POSITION_COUNT;
     }
 
+    protected boolean isUnreadable(ContentSignature signature) {
+        return !signature.isMarkup();
+    }
+
     protected String asDescription(List<String> strings) {
         if (strings == null)
             return null;
@@ -20,13 +20,18 @@
 package slash.navigation.columbus;
 
 import slash.common.type.CompactCalendar;
+import slash.navigation.base.ContentSignature;
 import slash.navigation.base.ParserContext;
+import slash.navigation.base.PositionSink;
+import slash.navigation.base.PositionSinks;
 import slash.navigation.base.WaypointType;
 import slash.navigation.base.Wgs84Position;
 import slash.navigation.base.Wgs84Route;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -37,11 +42,13 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import static java.util.Arrays.asList;
+import static slash.common.io.InputOutput.checkInterrupted;
 import static slash.common.io.Transfer.formatDoubleAsString;
 import static slash.common.io.Transfer.formatIntAsString;
 import static slash.common.io.Transfer.parseDouble;
 import static slash.common.io.Transfer.trim;
 import static slash.common.type.CompactCalendar.fromMillisAndTimeZone;
+import static slash.navigation.base.PositionSinks.createBufferingPositionSink;
 import static slash.navigation.base.WaypointType.Waypoint;
 import static slash.navigation.columbus.ColumbusV1000Device.getTimeZone;
 import static slash.navigation.columbus.ColumbusV1000Device.getUseLocalTimeZone;
@@ -96,14 +103,6 @@ public class ColumbusFusionFormat extends ColumbusGpsFormat {
     static final int LAYOUT_GNSS_SAT_FIX = 11;
     static final int LAYOUT_GNSS_IMU = 12;
 
-    /**
-     * Layout of the file currently being written, chosen from the route by
-     * writeHeader() and read by the writePosition() calls that follow it. Safe as
-     * instance state because one write() drives header-then-positions in order;
-     * the read path stays stateless, taking its layout as a parameter.
-     */
-    private int writeLayout = LAYOUT_GNSS_SAT_FIX;
-
     private static final String S = ",";
     private static final String TAG = "([CDGT]?)", DATE = "(\\d*)", TIME = "(\\d+)",
             LATLON = "(-?[\\d.]+)", ALT = "([-\\d.]*)", SPEED = "([\\d.]*)", HEAD = "([\\d.]*)",
@@ -141,7 +140,7 @@ public class ColumbusFusionFormat extends ColumbusGpsFormat {
     }
 
     protected String getHeader() {
-        return headerFor(writeLayout);
+        return headerFor(LAYOUT_GNSS_SAT_FIX);
     }
 
     private String headerFor(int layout) {
@@ -182,9 +181,14 @@ public class ColumbusFusionFormat extends ColumbusGpsFormat {
         return LAYOUT_GNSS_SAT_FIX;
     }
 
-    protected void writeHeader(PrintWriter writer, Wgs84Route route) {
-        writeLayout = detectWriteLayout(route);
-        writer.println(headerFor(writeLayout));
+    public void write(Wgs84Route route, PrintWriter writer, int startIndex, int endIndex) {
+        // the layout is passed to the positions since a format instance is shared by concurrent writes
+        int layout = detectWriteLayout(route);
+        writer.println(headerFor(layout));
+        List<Wgs84Position> positions = route.getPositions();
+        for (int i = startIndex; i < endIndex; i++)
+            writePosition(positions.get(i), writer, layout);
+        writeFooter(writer, endIndex - startIndex);
     }
 
     protected boolean isPosition(String line) {
@@ -237,6 +241,11 @@ public class ColumbusFusionFormat extends ColumbusGpsFormat {
         return layout == LAYOUT_GNSS_IMU || layout == LAYOUT_IMU;
     }
 
+    protected boolean isUnreadable(ContentSignature signature) {
+        List<String> lines = signature.getLines(getEncoding());
+        return !lines.isEmpty() && !FORMAT_DIRECTIVE_PATTERN.matcher(lines.get(0)).matches();
+    }
+
     public void read(BufferedReader reader, String encoding, ParserContext<Wgs84Route> context) throws IOException {
         String directiveLine = reader.readLine();
         if (directiveLine == null || !FORMAT_DIRECTIVE_PATTERN.matcher(directiveLine).matches())
@@ -254,6 +263,16 @@ public class ColumbusFusionFormat extends ColumbusGpsFormat {
             context.appendRoute(createRoute(getRouteCharacteristics(), positions));
     }
 
+    public void read(InputStream source, ParserContext<?> context, PositionSink<Wgs84Position> sink) throws IOException {
+        // the layout of the lines is only known from the column header
+        PositionSinks.read(this, source, context, sink);
+    }
+
+    public PositionSink<Wgs84Position> createPositionSink(OutputStream target) {
+        // the layout to write depends on all positions of the route
+        return createBufferingPositionSink(this, target);
+    }
+
     List<Wgs84Position> parseBody(BufferedReader reader, int layout) throws IOException {
         Pattern linePattern = linePatternFor(layout);
         List<Wgs84Position> positions = new ArrayList<Wgs84Position>();
@@ -264,6 +283,7 @@ public class ColumbusFusionFormat extends ColumbusGpsFormat {
 
         String line;
         while ((line = reader.readLine()) != null) {
+            checkInterrupted();
             if (trim(line) == null)
                 continue;
 
@@ -426,6 +446,10 @@ public class ColumbusFusionFormat extends ColumbusGpsFormat {
     }
 
     protected void writePosition(Wgs84Position position, PrintWriter writer, int index, boolean firstPosition) {
+        writePosition(position, writer, LAYOUT_GNSS_SAT_FIX);
+    }
+
+    private void writePosition(Wgs84Position position, PrintWriter writer, int layout) {
         CompactCalendar time = getTimeToWrite(position);
 
         String date = formatDate(time);
@@ -435,7 +459,7 @@ public class ColumbusFusionFormat extends ColumbusGpsFormat {
 
         String prefix = formatFusionTag(position) + S + date + S + timeOfDay + S;
 
-        switch (writeLayout) {
+        switch (layout) {
             case LAYOUT_IMU:
                 writer.println(prefix +
                         formatDoubleOrEmpty(position.getAccelerationX()) + S +
@@ -93,6 +93,10 @@ public class ColumbusGpsBinaryFormat extends SimpleFormat<Wgs84Route> {
         throw new UnsupportedOperationException();
     }
 
+    protected boolean isUnreadable(ContentSignature signature) {
+        return !signature.matches(0, (byte) HEADER, (byte) (HEADER >> 8));
+    }
+
     public void read(InputStream source, ParserContext<Wgs84Route> context) throws IOException {
         if (isValidHeader(source)) {
             int available = source.available();
@@ -54,6 +54,8 @@ import slash.navigation.tcx.TcxFormat;
 import slash.navigation.tcx.TcxRoute;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
@@ -198,6 +200,52 @@ public class ExcelRoute extends BaseRoute<ExcelPosition, ExcelFormat> {
         return super.remove(index);
     }
 
+    // the rows of the sheet are shifted for every position
+    public void top(int[] indices) {
+        int[] sorted = Arrays.stream(indices).sorted().distinct().toArray();
+        for (int i = 0; i < sorted.length; i++)
+            top(sorted[i], i);
+    }
+
+    public void topDown(int[] indices) {
+        int[] sorted = Arrays.stream(indices).sorted().distinct().toArray();
+        for (int i = sorted.length - 1; i >= 0; i--)
+            for (int j = i; j < sorted[i]; j++)
+                move(j, j + 1);
+    }
+
+    public void bottom(int[] indices) {
+        int[] sorted = Arrays.stream(indices).sorted().distinct().toArray();
+        for (int i = 0; i < sorted.length; i++)
+            bottom(sorted[sorted.length - 1 - i], i);
+    }
+
+    public void bottomUp(int[] indices) {
+        int[] sorted = Arrays.stream(indices).sorted().distinct().toArray();
+        for (int i = 0; i < sorted.length; i++)
+            for (int j = getPositionCount() - sorted.length + i; j > sorted[i]; j--)
+                move(j, j - 1);
+    }
+
+    public void add(int index, List<ExcelPosition> positions) {
+        for (int i = positions.size() - 1; i >= 0; i--)
+            add(index, positions.get(i));
+    }
+
+    public void add(int[] indices, List<ExcelPosition> positions) {
+        for (int i = 0; i < indices.length; i++)
+            add(indices[i], positions.get(i));
+    }
+
+    public List<ExcelPosition> remove(int[] indices) {
+        int[] sorted = Arrays.stream(indices).sorted().distinct().toArray();
+        List<ExcelPosition> removed = new ArrayList<>(sorted.length);
+        for (int i = sorted.length - 1; i >= 0; i--)
+            removed.add(remove(sorted[i]));
+        Collections.reverse(removed);
+        return removed;
+    }
+
     public ExcelPosition createPosition(Double longitude, Double latitude, Double elevation, Double speed, CompactCalendar time, String description) {
         ExcelPosition position = new ExcelPosition(sheet.createRow(sheet.getLastRowNum() + 1), mapping);
         position.setLongitude(longitude);
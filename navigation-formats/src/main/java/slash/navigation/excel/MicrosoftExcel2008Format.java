@@ -23,6 +23,7 @@ import org.apache.poi.openxml4j.util.ZipSecureFile;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import slash.navigation.base.ContentSignature;
 import slash.navigation.base.ParserContext;
 
 import java.io.IOException;
@@ -56,6 +57,10 @@ public class MicrosoftExcel2008Format extends ExcelFormat {
         return workbook.createSheet(createSafeSheetName(name));
     }
 
+    protected boolean isUnreadable(ContentSignature signature) {
+        return !signature.isZipArchive();
+    }
+
     public void read(InputStream source, ParserContext<ExcelRoute> context) throws IOException {
         Workbook workbook = new XSSFWorkbook(source);
         parseWorkbook(workbook, context);
@@ -22,6 +22,7 @@ package slash.navigation.excel;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
+import slash.navigation.base.ContentSignature;
 import slash.navigation.base.ParserContext;
 
 import java.io.IOException;
@@ -51,6 +52,10 @@ public class MicrosoftExcel97Format extends ExcelFormat {
         return workbook.createSheet(createSafeSheetName(name));
     }
 
+    protected boolean isUnreadable(ContentSignature signature) {
+        return !signature.isCompoundDocument();
+    }
+
     public void read(InputStream source, ParserContext<ExcelRoute> context) throws IOException {
         try (Workbook workbook = new HSSFWorkbook(source, false)) {
             parseWorkbook(workbook, context);
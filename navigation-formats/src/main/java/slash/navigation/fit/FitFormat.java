@@ -75,6 +75,11 @@ public class FitFormat extends SimpleFormat<Wgs84Route> {
         throw new UnsupportedOperationException();
     }
 
+    protected boolean isUnreadable(ContentSignature signature) {
+        // the data type in the file header fails the integrity check otherwise
+        return !signature.matches(8, ".FIT");
+    }
+
     public void read(InputStream source, ParserContext<Wgs84Route> context) throws IOException {
         Decode decode = new Decode();
         MesgBroadcaster broadcaster = new MesgBroadcaster(decode);
@@ -22,6 +22,8 @@ package slash.navigation.gpx;
 
 import slash.navigation.base.GarbleNavigationFormat;
 import slash.navigation.base.ParserContext;
+import slash.navigation.base.PositionSink;
+import slash.navigation.base.PositionSinks;
 import slash.navigation.gpx.binding11.GpxType;
 
 import java.io.IOException;
@@ -53,4 +55,9 @@ public class GarbleGpx11Format extends Gpx11Format implements GarbleNavigationFo
             process(gpxType, context);
         }
     }
-}
\ No newline at end of file
+
+    public void read(InputStream source, ParserContext<?> context, PositionSink<GpxPosition> sink) throws IOException {
+        // the lenient reader needs the complete document
+        PositionSinks.read(this, source, context, sink);
+    }
+}
@@ -20,12 +20,13 @@
 
 package slash.navigation.gpx;
 
+import slash.navigation.base.ContentSignature;
 import slash.navigation.base.ParserContext;
+import slash.navigation.base.PositionSink;
 import slash.navigation.base.RouteCharacteristics;
 import slash.navigation.gpx.binding10.Gpx;
 import slash.navigation.gpx.binding10.ObjectFactory;
 
-import jakarta.xml.bind.JAXBException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -36,6 +37,8 @@ import java.util.logging.Logger;
 
 import static java.lang.String.format;
 import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
 import static slash.common.io.Transfer.formatDouble;
 import static slash.common.io.Transfer.*;
 import static slash.common.type.CompactCalendar.now;
@@ -43,8 +46,7 @@ import static slash.navigation.base.RouteCharacteristics.*;
 import static slash.navigation.common.NavigationConversion.*;
 import static slash.navigation.common.UnitConversion.kmhToMs;
 import static slash.navigation.common.UnitConversion.msToKmh;
-import static slash.navigation.gpx.GpxUtil.marshal10;
-import static slash.navigation.gpx.GpxUtil.unmarshal10;
+import static slash.navigation.gpx.GpxUtil.GPX_10_NAMESPACE_URI;
 
 /**
  * Reads and writes GPS Exchange Format 1.0 (.gpx) files.
@@ -70,17 +72,24 @@ public class Gpx10Format extends GpxFormat {
         return "GPS Exchange Format " + VERSION + " (*" + getExtension() + ")";
     }
 
-    void process(Gpx gpx, ParserContext<GpxRoute> context) {
-        if (gpx == null)
-            return;
-
+    void checkVersion(Gpx gpx) {
         if (!VERSION.equals(gpx.getVersion())) {
             log.warning(format("GPX %s file declares invalid version number %s", VERSION, gpx.getVersion()));
         }
+    }
 
-        boolean hasSpeedInKiloMeterPerHourInsteadOfMeterPerSecond = gpx.getCreator() != null &&
+    boolean hasSpeedInKiloMeterPerHourInsteadOfMeterPerSecond(Gpx gpx) {
+        return gpx.getCreator() != null &&
                 ("Mobile Action http://www.mobileaction.com/".equals(gpx.getCreator()) ||
                  "Holux Utility".equals(gpx.getCreator()));
+    }
+
+    void process(Gpx gpx, ParserContext<GpxRoute> context) {
+        if (gpx == null)
+            return;
+
+        checkVersion(gpx);
+        boolean hasSpeedInKiloMeterPerHourInsteadOfMeterPerSecond = hasSpeedInKiloMeterPerHourInsteadOfMeterPerSecond(gpx);
         GpxRoute wayPointsAsRoute = extractWayPoints(gpx, hasSpeedInKiloMeterPerHourInsteadOfMeterPerSecond);
         if (wayPointsAsRoute != null)
             context.appendRoute(wayPointsAsRoute);
@@ -88,9 +97,16 @@ public class Gpx10Format extends GpxFormat {
         context.appendRoutes(extractTracks(gpx, hasSpeedInKiloMeterPerHourInsteadOfMeterPerSecond));
     }
 
+    protected boolean isUnreadable(ContentSignature signature) {
+        return isUnreadable(signature, GPX_10_NAMESPACE_URI);
+    }
+
     public void read(InputStream source, ParserContext<GpxRoute> context) throws IOException {
-        Gpx gpx = unmarshal10(source);
-        process(gpx, context);
+        new Gpx10StreamReader(this).read(source, context);
+    }
+
+    public void read(InputStream source, ParserContext<?> context, PositionSink<GpxPosition> sink) throws IOException {
+        new Gpx10StreamReader(this).read(source, sink);
     }
 
     private List<GpxRoute> extractRoutes(Gpx gpx, boolean hasSpeedInKiloMeterPerHourInsteadOfMeterPerSecond) {
@@ -114,7 +130,7 @@ public class Gpx10Format extends GpxFormat {
         return positions.isEmpty() ? null : new GpxRoute(this, isTripmasterTrack(positions) ? Track : Waypoints, name, descriptions, positions, gpx);
     }
 
-    private boolean isTripmasterTrack(List<GpxPosition> positions) {
+    boolean isTripmasterTrack(List<GpxPosition> positions) {
         for (GpxPosition position : positions) {
             if (position.getReason() == null)
                 return false;
@@ -135,13 +151,29 @@ public class Gpx10Format extends GpxFormat {
         return result;
     }
 
+    GpxPosition createPosition(Gpx.Wpt wpt, boolean hasSpeedInKiloMeterPerHourInsteadOfMeterPerSecond) {
+        GpxPosition position = new GpxPosition(wpt.getLon(), wpt.getLat(), wpt.getEle(), getSpeed(wpt.getSpeed(), wpt.getCmt(), hasSpeedInKiloMeterPerHourInsteadOfMeterPerSecond), formatDouble(wpt.getCourse()), parseXMLTime(wpt.getTime()), asWayPointDescription(wpt.getName(), wpt.getDesc()), wpt.getHdop(), wpt.getPdop(), wpt.getVdop(), wpt.getSat(), wpt);
+        position.setFixQuality(parseFix(wpt.getFix()));
+        return position;
+    }
+
+    GpxPosition createPosition(Gpx.Rte.Rtept rtept, boolean hasSpeedInKiloMeterPerHourInsteadOfMeterPerSecond) {
+        GpxPosition position = new GpxPosition(rtept.getLon(), rtept.getLat(), rtept.getEle(), getSpeed(rtept.getSpeed(), rtept.getCmt(), hasSpeedInKiloMeterPerHourInsteadOfMeterPerSecond), formatDouble(rtept.getCourse()), parseXMLTime(rtept.getTime()), asDescription(rtept.getName(), rtept.getDesc()), rtept.getHdop(), rtept.getPdop(), rtept.getVdop(), rtept.getSat(), rtept);
+        position.setFixQuality(parseFix(rtept.getFix()));
+        return position;
+    }
+
+    GpxPosition createPosition(Gpx.Trk.Trkseg.Trkpt trkPt, boolean hasSpeedInKiloMeterPerHourInsteadOfMeterPerSecond) {
+        GpxPosition position = new GpxPosition(trkPt.getLon(), trkPt.getLat(), trkPt.getEle(), getSpeed(trkPt.getSpeed(), trkPt.getCmt(), hasSpeedInKiloMeterPerHourInsteadOfMeterPerSecond), formatDouble(trkPt.getCourse()), parseXMLTime(trkPt.getTime()), asDescription(trkPt.getName(), trkPt.getDesc()), trkPt.getHdop(), trkPt.getPdop(), trkPt.getVdop(), trkPt.getSat(), trkPt);
+        position.setFixQuality(parseFix(trkPt.getFix()));
+        return position;
+    }
+
     private List<GpxPosition> extractRoute(Gpx.Rte rte, boolean hasSpeedInKiloMeterPerHourInsteadOfMeterPerSecond) {
         List<GpxPosition> positions = new ArrayList<>();
         if (rte != null) {
             for (Gpx.Rte.Rtept rtept : rte.getRtept()) {
-                GpxPosition position = new GpxPosition(rtept.getLon(), rtept.getLat(), rtept.getEle(), getSpeed(rtept.getSpeed(), rtept.getCmt(), hasSpeedInKiloMeterPerHourInsteadOfMeterPerSecond), formatDouble(rtept.getCourse()), parseXMLTime(rtept.getTime()), asDescription(rtept.getName(), rtept.getDesc()), rtept.getHdop(), rtept.getPdop(), rtept.getVdop(), rtept.getSat(), rtept);
-                position.setFixQuality(parseFix(rtept.getFix()));
-                positions.add(position);
+                positions.add(createPosition(rtept, hasSpeedInKiloMeterPerHourInsteadOfMeterPerSecond));
             }
         }
         return positions;
@@ -150,9 +182,7 @@ public class Gpx10Format extends GpxFormat {
     private List<GpxPosition> extractWayPoints(List<Gpx.Wpt> wpts, boolean hasSpeedInKiloMeterPerHourInsteadOfMeterPerSecond) {
         List<GpxPosition> positions = new ArrayList<>();
         for (Gpx.Wpt wpt : wpts) {
-            GpxPosition position = new GpxPosition(wpt.getLon(), wpt.getLat(), wpt.getEle(), getSpeed(wpt.getSpeed(), wpt.getCmt(), hasSpeedInKiloMeterPerHourInsteadOfMeterPerSecond), formatDouble(wpt.getCourse()), parseXMLTime(wpt.getTime()), asWayPointDescription(wpt.getName(), wpt.getDesc()), wpt.getHdop(), wpt.getPdop(), wpt.getVdop(), wpt.getSat(), wpt);
-            position.setFixQuality(parseFix(wpt.getFix()));
-            positions.add(position);
+            positions.add(createPosition(wpt, hasSpeedInKiloMeterPerHourInsteadOfMeterPerSecond));
         }
         return positions;
     }
@@ -162,9 +192,7 @@ public class Gpx10Format extends GpxFormat {
         if (trk != null) {
             for (Gpx.Trk.Trkseg trkSeg : trk.getTrkseg()) {
                 for (Gpx.Trk.Trkseg.Trkpt trkPt : trkSeg.getTrkpt()) {
-                    GpxPosition position = new GpxPosition(trkPt.getLon(), trkPt.getLat(), trkPt.getEle(), getSpeed(trkPt.getSpeed(), trkPt.getCmt(), hasSpeedInKiloMeterPerHourInsteadOfMeterPerSecond), formatDouble(trkPt.getCourse()), parseXMLTime(trkPt.getTime()), asDescription(trkPt.getName(), trkPt.getDesc()), trkPt.getHdop(), trkPt.getPdop(), trkPt.getVdop(), trkPt.getSat(), trkPt);
-                    position.setFixQuality(parseFix(trkPt.getFix()));
-                    positions.add(position);
+                    positions.add(createPosition(trkPt, hasSpeedInKiloMeterPerHourInsteadOfMeterPerSecond));
                 }
             }
         }
@@ -195,132 +223,169 @@ public class Gpx10Format extends GpxFormat {
                 "Heading: " + formatHeadingAsString(heading);
     }
 
-    private List<Gpx.Wpt> createWayPoints(GpxRoute route, int startIndex, int endIndex) {
-        ObjectFactory objectFactory = new ObjectFactory();
-        List<Gpx.Wpt> wpts = new ArrayList<>();
+    // the coordinates, the elevation and the time are written from the position, everything
+    // else of the way point has to stay for the next write if read objects are reused at all
+    protected void compactOrigin(GpxPosition position) {
+        if (!reuseReadObjectsForWriting) {
+            position.removeOrigin();
+            return;
+        }
+
+        Object origin = position.getOrigin();
+        if (origin instanceof Gpx.Wpt wpt) {
+            wpt.setLat(null);
+            wpt.setLon(null);
+            wpt.setEle(null);
+            wpt.setTime(null);
+        } else if (origin instanceof Gpx.Rte.Rtept rtept) {
+            rtept.setLat(null);
+            rtept.setLon(null);
+            rtept.setEle(null);
+            rtept.setTime(null);
+        } else if (origin instanceof Gpx.Trk.Trkseg.Trkpt trkpt) {
+            trkpt.setLat(null);
+            trkpt.setLon(null);
+            trkpt.setEle(null);
+            trkpt.setTime(null);
+        }
+    }
+
+    private Gpx.Wpt createWpt(GpxPosition position) {
+        BigDecimal latitude = formatPosition(position.getLatitude());
+        BigDecimal longitude = formatPosition(position.getLongitude());
+        if(latitude == null || longitude == null)
+            return null;
+        Gpx.Wpt wpt = position.getOrigin(Gpx.Wpt.class);
+        if (wpt == null || !reuseReadObjectsForWriting)
+            wpt = new ObjectFactory().createGpxWpt();
+        wpt.setLat(latitude);
+        wpt.setLon(longitude);
+        wpt.setTime(isWriteTime() ? formatXMLTime(position.getTime()) : null);
+        wpt.setEle(isWriteElevation() ? formatElevation(position.getElevation()) : null);
+        wpt.setCourse(isWriteHeading() ? formatHeading(position.getHeading()) : null);
+        wpt.setSpeed(isWriteSpeed() && position.getSpeed() != null ? formatSpeed(kmhToMs(position.getSpeed())) : null);
+        if (isWriteSpeed() && reuseReadObjectsForWriting)
+            wpt.setCmt(formatSpeedDescription(wpt.getCmt(), position.getSpeed()));
+        if (isWriteHeading() && reuseReadObjectsForWriting)
+            wpt.setCmt(addHeading(wpt.getCmt(), position.getHeading()));
+        wpt.setName(isWriteName() ? splitNameAndDesc ? asName(position.getDescription(), wpt.getName()) : trim(position.getDescription()) : null);
+        wpt.setDesc(isWriteName() && splitNameAndDesc ? asDesc(position.getDescription(), wpt.getDesc()) : null);
+        wpt.setHdop(isWriteAccuracy() && position.getHdop() != null ? formatAccuracy(position.getHdop()) : null);
+        wpt.setPdop(isWriteAccuracy() && position.getPdop() != null ? formatAccuracy(position.getPdop()) : null);
+        wpt.setVdop(isWriteAccuracy() && position.getVdop() != null ? formatAccuracy(position.getVdop()) : null);
+        wpt.setSat(isWriteAccuracy() && position.getSatellites() != null ? formatInt(position.getSatellites()) : null);
+        wpt.setFix(formatFix(position.getFixQuality()));
+        return wpt;
+    }
+
+    private void writeWayPoints(Gpx10StreamWriter writer, GpxRoute route, int startIndex, int endIndex) throws IOException {
         List<GpxPosition> positions = route.getPositions();
         for (int i = startIndex; i < endIndex; i++) {
-            GpxPosition position = positions.get(i);
-            BigDecimal latitude = formatPosition(position.getLatitude());
-            BigDecimal longitude = formatPosition(position.getLongitude());
-            if(latitude == null || longitude == null)
-                continue;
-            Gpx.Wpt wpt = position.getOrigin(Gpx.Wpt.class);
-            if (wpt == null || !reuseReadObjectsForWriting)
-                wpt = objectFactory.createGpxWpt();
-            wpt.setLat(latitude);
-            wpt.setLon(longitude);
-            wpt.setTime(isWriteTime() ? formatXMLTime(position.getTime()) : null);
-            wpt.setEle(isWriteElevation() ? formatElevation(position.getElevation()) : null);
-            wpt.setCourse(isWriteHeading() ? formatHeading(position.getHeading()) : null);
-            wpt.setSpeed(isWriteSpeed() && position.getSpeed() != null ? formatSpeed(kmhToMs(position.getSpeed())) : null);
-            if (isWriteSpeed() && reuseReadObjectsForWriting)
-                wpt.setCmt(formatSpeedDescription(wpt.getCmt(), position.getSpeed()));
-            if (isWriteHeading() && reuseReadObjectsForWriting)
-                wpt.setCmt(addHeading(wpt.getCmt(), position.getHeading()));
-            wpt.setName(isWriteName() ? splitNameAndDesc ? asName(position.getDescription(), wpt.getName()) : trim(position.getDescription()) : null);
-            wpt.setDesc(isWriteName() && splitNameAndDesc ? asDesc(position.getDescription(), wpt.getDesc()) : null);
-            wpt.setHdop(isWriteAccuracy() && position.getHdop() != null ? formatAccuracy(position.getHdop()) : null);
-            wpt.setPdop(isWriteAccuracy() && position.getPdop() != null ? formatAccuracy(position.getPdop()) : null);
-            wpt.setVdop(isWriteAccuracy() && position.getVdop() != null ? formatAccuracy(position.getVdop()) : null);
-            wpt.setSat(isWriteAccuracy() && position.getSatellites() != null ? formatInt(position.getSatellites()) : null);
-            wpt.setFix(formatFix(position.getFixQuality()));
-            wpts.add(wpt);
+            Gpx.Wpt wpt = createWpt(positions.get(i));
+            if (wpt != null)
+                writer.writeWpt(wpt);
         }
-        return wpts;
     }
 
-    private List<Gpx.Rte> createRoute(GpxRoute route, int startIndex, int endIndex) {
-        ObjectFactory objectFactory = new ObjectFactory();
-
-        Gpx.Rte rte = route.getOrigin(Gpx.Rte.class);
-        if (rte != null && reuseReadObjectsForWriting)
-            rte.getRtept().clear();
-        else
-            rte = objectFactory.createGpxRte();
+    private Gpx.Rte createRte(GpxRoute route) {
+        Gpx.Rte rte = route != null ? route.getOrigin(Gpx.Rte.class) : null;
+        if (rte == null || !reuseReadObjectsForWriting)
+            rte = new ObjectFactory().createGpxRte();
 
-        if (isWriteMetaData()) {
+        if (isWriteMetaData() && route != null) {
             rte.setName(asRouteName(route.getName()));
             rte.setDesc(asDescription(route.getDescription()));
         }
-        List<Gpx.Rte> rtes = new ArrayList<>();
-        rtes.add(rte);
+        return rte;
+    }
+
+    private Gpx.Rte.Rtept createRtept(GpxPosition position) {
+        BigDecimal latitude = formatPosition(position.getLatitude());
+        BigDecimal longitude = formatPosition(position.getLongitude());
+        if(latitude == null || longitude == null)
+            return null;
+        Gpx.Rte.Rtept rtept = position.getOrigin(Gpx.Rte.Rtept.class);
+        if (rtept == null || !reuseReadObjectsForWriting)
+            rtept = new ObjectFactory().createGpxRteRtept();
+        rtept.setLat(latitude);
+        rtept.setLon(longitude);
+        rtept.setTime(isWriteTime() ? formatXMLTime(position.getTime()) : null);
+        rtept.setEle(isWriteElevation() ? formatElevation(position.getElevation()) : null);
+        rtept.setCourse(isWriteHeading() ? formatHeading(position.getHeading()) : null);
+        rtept.setSpeed(isWriteSpeed() && position.getSpeed() != null ? formatSpeed(kmhToMs(position.getSpeed())) : null);
+        if (isWriteSpeed() && reuseReadObjectsForWriting)
+            rtept.setCmt(formatSpeedDescription(rtept.getCmt(), position.getSpeed()));
+        if (isWriteHeading() && reuseReadObjectsForWriting)
+            rtept.setCmt(addHeading(rtept.getCmt(), position.getHeading()));
+        rtept.setName(isWriteName() ? splitNameAndDesc ? asName(position.getDescription(), rtept.getName()) : trim(position.getDescription()) : null);
+        rtept.setDesc(isWriteName() && splitNameAndDesc ? asDesc(position.getDescription(), rtept.getDesc()) : null);
+        rtept.setHdop(isWriteAccuracy() && position.getHdop() != null ? formatAccuracy(position.getHdop()) : null);
+        rtept.setPdop(isWriteAccuracy() && position.getPdop() != null ? formatAccuracy(position.getPdop()) : null);
+        rtept.setVdop(isWriteAccuracy() && position.getVdop() != null ? formatAccuracy(position.getVdop()) : null);
+        rtept.setSat(isWriteAccuracy() && position.getSatellites() != null ? formatInt(position.getSatellites()) : null);
+        rtept.setFix(formatFix(position.getFixQuality()));
+        return rtept;
+    }
+
+    private void writeRoute(Gpx10StreamWriter writer, GpxRoute route, int startIndex, int endIndex) throws IOException {
+        writer.startRte(createRte(route));
         List<GpxPosition> positions = route.getPositions();
         for (int i = startIndex; i < endIndex; i++) {
-            GpxPosition position = positions.get(i);
-            BigDecimal latitude = formatPosition(position.getLatitude());
-            BigDecimal longitude = formatPosition(position.getLongitude());
-            if(latitude == null || longitude == null)
-                continue;
-            Gpx.Rte.Rtept rtept = position.getOrigin(Gpx.Rte.Rtept.class);
-            if (rtept == null || !reuseReadObjectsForWriting)
-                rtept = objectFactory.createGpxRteRtept();
-            rtept.setLat(latitude);
-            rtept.setLon(longitude);
-            rtept.setTime(isWriteTime() ? formatXMLTime(position.getTime()) : null);
-            rtept.setEle(isWriteElevation() ? formatElevation(position.getElevation()) : null);
-            rtept.setCourse(isWriteHeading() ? formatHeading(position.getHeading()) : null);
-            rtept.setSpeed(isWriteSpeed() && position.getSpeed() != null ? formatSpeed(kmhToMs(position.getSpeed())) : null);
-            if (isWriteSpeed() && reuseReadObjectsForWriting)
-                rtept.setCmt(formatSpeedDescription(rtept.getCmt(), position.getSpeed()));
-            if (isWriteHeading() && reuseReadObjectsForWriting)
-                rtept.setCmt(addHeading(rtept.getCmt(), position.getHeading()));
-            rtept.setName(isWriteName() ? splitNameAndDesc ? asName(position.getDescription(), rtept.getName()) : trim(position.getDescription()) : null);
-            rtept.setDesc(isWriteName() && splitNameAndDesc ? asDesc(position.getDescription(), rtept.getDesc()) : null);
-            rtept.setHdop(isWriteAccuracy() && position.getHdop() != null ? formatAccuracy(position.getHdop()) : null);
-            rtept.setPdop(isWriteAccuracy() && position.getPdop() != null ? formatAccuracy(position.getPdop()) : null);
-            rtept.setVdop(isWriteAccuracy() && position.getVdop() != null ? formatAccuracy(position.getVdop()) : null);
-            rtept.setSat(isWriteAccuracy() && position.getSatellites() != null ? formatInt(position.getSatellites()) : null);
-            rtept.setFix(formatFix(position.getFixQuality()));
-            rte.getRtept().add(rtept);
+            Gpx.Rte.Rtept rtept = createRtept(positions.get(i));
+            if (rtept != null)
+                writer.writeRtept(rtept);
         }
-        return rtes;
+        writer.endRte();
     }
 
-    private List<Gpx.Trk> createTrack(GpxRoute route, int startIndex, int endIndex) {
-        ObjectFactory objectFactory = new ObjectFactory();
-        List<Gpx.Trk> trks = new ArrayList<>();
-
-        Gpx.Trk trk = route.getOrigin(Gpx.Trk.class);
-        if (trk != null && reuseReadObjectsForWriting)
-            trk.getTrkseg().clear();
-        else
-            trk = objectFactory.createGpxTrk();
+    private Gpx.Trk createTrk(GpxRoute route) {
+        Gpx.Trk trk = route != null ? route.getOrigin(Gpx.Trk.class) : null;
+        if (trk == null || !reuseReadObjectsForWriting)
+            trk = new ObjectFactory().createGpxTrk();
 
-        if (isWriteMetaData()) {
+        if (isWriteMetaData() && route != null) {
             trk.setName(asRouteName(route.getName()));
             trk.setDesc(asDescription(route.getDescription()));
         }
-        trks.add(trk);
-        Gpx.Trk.Trkseg trkseg = objectFactory.createGpxTrkTrkseg();
+        return trk;
+    }
+
+    private Gpx.Trk.Trkseg.Trkpt createTrkpt(GpxPosition position) {
+        BigDecimal latitude = formatPosition(position.getLatitude());
+        BigDecimal longitude = formatPosition(position.getLongitude());
+        if(latitude == null || longitude == null)
+            return null;
+        Gpx.Trk.Trkseg.Trkpt trkpt = position.getOrigin(Gpx.Trk.Trkseg.Trkpt.class);
+        if (trkpt == null || !reuseReadObjectsForWriting)
+            trkpt = new ObjectFactory().createGpxTrkTrksegTrkpt();
+        trkpt.setLat(latitude);
+        trkpt.setLon(longitude);
+        trkpt.setTime(isWriteTime() ? formatXMLTime(position.getTime()) : null);
+        trkpt.setEle(isWriteElevation() ? formatElevation(position.getElevation()) : null);
+        trkpt.setCourse(isWriteHeading() ? formatHeading(position.getHeading()) : null);
+        trkpt.setSpeed(isWriteSpeed() && position.getSpeed() != null ?
+                formatSpeed(kmhToMs(position.getSpeed())) : null);
+        trkpt.setName(isWriteName() ? splitNameAndDesc ? asName(position.getDescription(), trkpt.getName()) : trim(position.getDescription()) : null);
+        trkpt.setDesc(isWriteName() && splitNameAndDesc ? asDesc(position.getDescription(), trkpt.getDesc()) : null);
+        trkpt.setHdop(isWriteAccuracy() && position.getHdop() != null ? formatAccuracy(position.getHdop()) : null);
+        trkpt.setPdop(isWriteAccuracy() && position.getPdop() != null ? formatAccuracy(position.getPdop()) : null);
+        trkpt.setVdop(isWriteAccuracy() && position.getVdop() != null ? formatAccuracy(position.getVdop()) : null);
+        trkpt.setSat(isWriteAccuracy() && position.getSatellites() != null ? formatInt(position.getSatellites()) : null);
+        trkpt.setFix(formatFix(position.getFixQuality()));
+        return trkpt;
+    }
+
+    private void writeTrack(Gpx10StreamWriter writer, GpxRoute route, int startIndex, int endIndex) throws IOException {
+        writer.startTrk(createTrk(route));
+        writer.startTrkseg();
         List<GpxPosition> positions = route.getPositions();
         for (int i = startIndex; i < endIndex; i++) {
-            GpxPosition position = positions.get(i);
-            BigDecimal latitude = formatPosition(position.getLatitude());
-            BigDecimal longitude = formatPosition(position.getLongitude());
-            if(latitude == null || longitude == null)
-                continue;
-            Gpx.Trk.Trkseg.Trkpt trkpt = position.getOrigin(Gpx.Trk.Trkseg.Trkpt.class);
-            if (trkpt == null || !reuseReadObjectsForWriting)
-                trkpt = objectFactory.createGpxTrkTrksegTrkpt();
-            trkpt.setLat(latitude);
-            trkpt.setLon(longitude);
-            trkpt.setTime(isWriteTime() ? formatXMLTime(position.getTime()) : null);
-            trkpt.setEle(isWriteElevation() ? formatElevation(position.getElevation()) : null);
-            trkpt.setCourse(isWriteHeading() ? formatHeading(position.getHeading()) : null);
-            trkpt.setSpeed(isWriteSpeed() && position.getSpeed() != null ?
-                    formatSpeed(kmhToMs(position.getSpeed())) : null);
-            trkpt.setName(isWriteName() ? splitNameAndDesc ? asName(position.getDescription(), trkpt.getName()) : trim(position.getDescription()) : null);
-            trkpt.setDesc(isWriteName() && splitNameAndDesc ? asDesc(position.getDescription(), trkpt.getDesc()) : null);
-            trkpt.setHdop(isWriteAccuracy() && position.getHdop() != null ? formatAccuracy(position.getHdop()) : null);
-            trkpt.setPdop(isWriteAccuracy() && position.getPdop() != null ? formatAccuracy(position.getPdop()) : null);
-            trkpt.setVdop(isWriteAccuracy() && position.getVdop() != null ? formatAccuracy(position.getVdop()) : null);
-            trkpt.setSat(isWriteAccuracy() && position.getSatellites() != null ? formatInt(position.getSatellites()) : null);
-            trkpt.setFix(formatFix(position.getFixQuality()));
-            trkseg.getTrkpt().add(trkpt);
+            Gpx.Trk.Trkseg.Trkpt trkpt = createTrkpt(positions.get(i));
+            if (trkpt != null)
+                writer.writeTrkpt(trkpt);
         }
-        trk.getTrkseg().add(trkseg);
-        return trks;
+        writer.endTrkseg();
+        writer.endTrk();
     }
 
     private Gpx recycleGpx(GpxRoute route) {
@@ -333,35 +398,14 @@ public class Gpx10Format extends GpxFormat {
         return gpx;
     }
 
-    private void createMetaData(GpxRoute route, Gpx gpx) {
+    private void createMetaData(String name, List<String> description, Gpx gpx) {
         if (isWriteMetaData()) {
-            gpx.setName(asRouteName(route.getName()));
-            gpx.setDesc(asDescription(route.getDescription()));
+            gpx.setName(asRouteName(name));
+            gpx.setDesc(asDescription(description));
         }
     }
 
-    private Gpx createGpx(GpxRoute route, int startIndex, int endIndex, List<RouteCharacteristics> characteristics) {
-        Gpx gpx = recycleGpx(route);
-        if (gpx == null || !reuseReadObjectsForWriting)
-            gpx = new ObjectFactory().createGpx();
-        gpx.setCreator(getCreator());
-        gpx.setVersion(VERSION);
-
-        for (RouteCharacteristics characteristic : characteristics) {
-            switch (characteristic) {
-                case Route -> gpx.getRte().addAll(createRoute(route, startIndex, endIndex));
-                case Track -> gpx.getTrk().addAll(createTrack(route, startIndex, endIndex));
-                case Waypoints -> {
-                    createMetaData(route, gpx);
-                    gpx.getWpt().addAll(createWayPoints(route, startIndex, endIndex));
-                }
-            }
-        }
-        return gpx;
-    }
-
     private Gpx createGpx(List<GpxRoute> routes) {
-        ObjectFactory objectFactory = new ObjectFactory();
         Gpx gpx = null;
         for(GpxRoute route : routes) {
             gpx = recycleGpx(route);
@@ -369,42 +413,145 @@ public class Gpx10Format extends GpxFormat {
                 break;
         }
         if (gpx == null || !reuseReadObjectsForWriting)
-            gpx = objectFactory.createGpx();
+            gpx = new ObjectFactory().createGpx();
         gpx.setCreator(getCreator());
         gpx.setVersion(VERSION);
-        if (isWriteMetaData())
-            gpx.setTime(formatXMLTime(now()));
-
-        for (GpxRoute route : routes) {
-            switch (route.getCharacteristics()) {
-                case Waypoints -> {
-                    createMetaData(route, gpx);
-                    gpx.getWpt().addAll(createWayPoints(route, 0, route.getPositionCount()));
-                }
-                case Route -> gpx.getRte().addAll(createRoute(route, 0, route.getPositionCount()));
-                case Track -> gpx.getTrk().addAll(createTrack(route, 0, route.getPositionCount()));
-            }
-        }
         return gpx;
     }
 
+    /*for tests*/ Gpx10StreamWriter createStreamWriter(OutputStream target) throws IOException {
+        return new Gpx10StreamWriter(target);
+    }
+
     public void write(GpxRoute route, OutputStream target, int startIndex, int endIndex) throws IOException {
         write(route, target, startIndex, endIndex, asList(Route, Track, Waypoints));
     }
 
     public void write(GpxRoute route, OutputStream target, int startIndex, int endIndex, List<RouteCharacteristics> characteristics) throws IOException {
-        try {
-            marshal10(createGpx(route, startIndex, endIndex, characteristics), target);
-        } catch (JAXBException e) {
-            throw new IOException("Cannot marshall " + route + ": " + e, e);
+        Gpx gpx = createGpx(singletonList(route));
+        if (characteristics.contains(Waypoints))
+            createMetaData(route.getName(), route.getDescription(), gpx);
+
+        // the schema requires all wpt before all rte before all trk elements
+        try (Gpx10StreamWriter writer = createStreamWriter(target)) {
+            writer.startGpx(gpx);
+            if (characteristics.contains(Waypoints))
+                writeWayPoints(writer, route, startIndex, endIndex);
+            if (characteristics.contains(Route))
+                writeRoute(writer, route, startIndex, endIndex);
+            if (characteristics.contains(Track))
+                writeTrack(writer, route, startIndex, endIndex);
+            writer.endGpx(gpx);
         }
     }
 
-    public void write(List<GpxRoute> routes, OutputStream target) {
-        try {
-            marshal10(createGpx(routes), target);
-        } catch (JAXBException e) {
-            throw new RuntimeException("Cannot marshall " + routes + ": " + e, e);
+    public void write(List<GpxRoute> routes, OutputStream target) throws IOException {
+        Gpx gpx = createGpx(routes);
+        if (isWriteMetaData())
+            gpx.setTime(formatXMLTime(now()));
+        for (GpxRoute route : routes) {
+            if (route.getCharacteristics().equals(Waypoints))
+                createMetaData(route.getName(), route.getDescription(), gpx);
+        }
+
+        try (Gpx10StreamWriter writer = createStreamWriter(target)) {
+            writer.startGpx(gpx);
+            for (GpxRoute route : routes) {
+                if (route.getCharacteristics().equals(Waypoints))
+                    writeWayPoints(writer, route, 0, route.getPositionCount());
+            }
+            for (GpxRoute route : routes) {
+                if (route.getCharacteristics().equals(Route))
+                    writeRoute(writer, route, 0, route.getPositionCount());
+            }
+            for (GpxRoute route : routes) {
+                if (route.getCharacteristics().equals(Track))
+                    writeTrack(writer, route, 0, route.getPositionCount());
+            }
+            writer.endGpx(gpx);
         }
     }
+
+    public PositionSink<GpxPosition> createPositionSink(OutputStream target) throws IOException {
+        Gpx10StreamWriter writer = createStreamWriter(target);
+
+        // the routes are written in the order they arrive, the schema expects
+        // all waypoints before the routes and tracks
+        return new PositionSink<>() {
+            private Gpx gpx;
+            private RouteCharacteristics characteristics;
+
+            private void startGpx(RouteCharacteristics characteristics, String name) throws IOException {
+                gpx = createGpx(emptyList());
+                if (isWriteMetaData())
+                    gpx.setTime(formatXMLTime(now()));
+                if (Waypoints.equals(characteristics))
+                    createMetaData(name, null, gpx);
+                writer.startGpx(gpx);
+            }
+
+            public void beginRoute(RouteCharacteristics characteristics, String name) throws IOException {
+                if (gpx == null)
+                    startGpx(characteristics, name);
+                this.characteristics = characteristics;
+
+                switch (characteristics) {
+                    case Route -> {
+                        Gpx.Rte rte = createRte(null);
+                        if (isWriteMetaData())
+                            rte.setName(asRouteName(name));
+                        writer.startRte(rte);
+                    }
+                    case Track -> {
+                        Gpx.Trk trk = createTrk(null);
+                        if (isWriteMetaData())
+                            trk.setName(asRouteName(name));
+                        writer.startTrk(trk);
+                        writer.startTrkseg();
+                    }
+                }
+            }
+
+            public void addPosition(GpxPosition position) throws IOException {
+                switch (characteristics) {
+                    case Waypoints -> {
+                        Gpx.Wpt wpt = createWpt(position);
+                        if (wpt != null)
+                            writer.writeWpt(wpt);
+                    }
+                    case Route -> {
+                        Gpx.Rte.Rtept rtept = createRtept(position);
+                        if (rtept != null)
+                            writer.writeRtept(rtept);
+                    }
+                    case Track -> {
+                        Gpx.Trk.Trkseg.Trkpt trkpt = createTrkpt(position);
+                        if (trkpt != null)
+                            writer.writeTrkpt(trkpt);
+                    }
+                }
+            }
+
+            public void endRoute() throws IOException {
+                switch (characteristics) {
+                    case Route -> writer.endRte();
+                    case Track -> {
+                        writer.endTrkseg();
+                        writer.endTrk();
+                    }
+                }
+                characteristics = null;
+            }
+
+            public void close() throws IOException {
+                try {
+                    if (gpx == null)
+                        startGpx(null, null);
+                    writer.endGpx(gpx);
+                } finally {
+                    writer.close();
+                }
+            }
+        };
+    }
 }
@@ -0,0 +1,298 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.gpx;
+
+import slash.navigation.gpx.binding10.BoundsType;
+import slash.navigation.gpx.binding10.Gpx;
+import slash.navigation.gpx.binding10.ObjectFactory;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static slash.navigation.base.RouteCharacteristics.Route;
+import static slash.navigation.base.RouteCharacteristics.Track;
+import static slash.navigation.base.RouteCharacteristics.Waypoints;
+import static slash.navigation.gpx.GpxUtil.GPX_10_NAMESPACE_URI;
+
+/**
+ * Reads GPS Exchange Format 1.0 (.gpx) files with StAX.
+ * <p>
+ * Elements without a binding are kept as DOM elements like JAXB does; the way points
+ * are collected to decide if they form a Tripmaster track, the track points are not
+ * collected in the {@link Gpx.Trk.Trkseg}s.
+ *
+ * @author Christian Pesch
+ */
+
+class Gpx10StreamReader extends GpxStreamReader {
+    private final Gpx10Format format;
+    private final ObjectFactory objectFactory = new ObjectFactory();
+    private Gpx gpx;
+    private boolean hasSpeedInKiloMeterPerHourInsteadOfMeterPerSecond;
+    private final List<GpxPosition> wayPoints = new ArrayList<>();
+
+    Gpx10StreamReader(Gpx10Format format) {
+        super(format, GPX_10_NAMESPACE_URI);
+        this.format = format;
+    }
+
+    protected void readGpx() throws XMLStreamException, IOException {
+        gpx = objectFactory.createGpx();
+        gpx.setVersion(getAttribute("version"));
+        gpx.setCreator(getAttribute("creator"));
+        format.checkVersion(gpx);
+        hasSpeedInKiloMeterPerHourInsteadOfMeterPerSecond = format.hasSpeedInKiloMeterPerHourInsteadOfMeterPerSecond(gpx);
+
+        while (nextElement()) {
+            if (!isGpxElement()) {
+                gpx.getAny().add(readElement());
+                continue;
+            }
+
+            String name = getLocalName();
+            if (!"wpt".equals(name))
+                endWayPoints();
+            switch (name) {
+                case "name" -> gpx.setName(readText());
+                case "desc" -> gpx.setDesc(readText());
+                case "author" -> gpx.setAuthor(readText());
+                case "email" -> gpx.setEmail(readText());
+                case "url" -> gpx.setUrl(readText());
+                case "urlname" -> gpx.setUrlname(readText());
+                case "time" -> gpx.setTime(readTime());
+                case "keywords" -> gpx.setKeywords(readText());
+                case "bounds" -> gpx.setBounds(readBounds());
+                case "wpt" -> wayPoints.add(format.createPosition(readWpt(), hasSpeedInKiloMeterPerHourInsteadOfMeterPerSecond));
+                case "rte" -> readRoute();
+                case "trk" -> readTrack();
+                default -> gpx.getAny().add(readElement());
+            }
+        }
+        endWayPoints();
+    }
+
+    private BoundsType readBounds() throws XMLStreamException {
+        BoundsType boundsType = objectFactory.createBoundsType();
+        boundsType.setMinlat(parseDecimal(getAttribute("minlat")));
+        boundsType.setMinlon(parseDecimal(getAttribute("minlon")));
+        boundsType.setMaxlat(parseDecimal(getAttribute("maxlat")));
+        boundsType.setMaxlon(parseDecimal(getAttribute("maxlon")));
+        skipElement();
+        return boundsType;
+    }
+
+    private void endWayPoints() throws IOException {
+        if (wayPoints.isEmpty())
+            return;
+
+        // the name and the description of the file precede the way points
+        beginRoute(format.isTripmasterTrack(wayPoints) ? Track : Waypoints, gpx.getName(), gpx.getDesc(), gpx);
+        for (GpxPosition position : wayPoints)
+            addPosition(position);
+        endRoute();
+        wayPoints.clear();
+    }
+
+    private void readRoute() throws XMLStreamException, IOException {
+        Gpx.Rte rte = objectFactory.createGpxRte();
+        boolean beganRoute = false;
+        while (nextElement()) {
+            if (!isGpxElement()) {
+                rte.getAny().add(readElement());
+                continue;
+            }
+
+            switch (getLocalName()) {
+                case "name" -> rte.setName(readText());
+                case "cmt" -> rte.setCmt(readText());
+                case "desc" -> rte.setDesc(readText());
+                case "src" -> rte.setSrc(readText());
+                case "url" -> rte.setUrl(readText());
+                case "urlname" -> rte.setUrlname(readText());
+                case "number" -> rte.setNumber(readInteger());
+                case "rtept" -> {
+                    if (!beganRoute) {
+                        beginRoute(Route, rte.getName(), rte.getDesc(), gpx, rte);
+                        beganRoute = true;
+                    }
+                    addPosition(format.createPosition(readRtept(), hasSpeedInKiloMeterPerHourInsteadOfMeterPerSecond));
+                }
+                default -> rte.getAny().add(readElement());
+            }
+        }
+        if (!beganRoute)
+            beginRoute(Route, rte.getName(), rte.getDesc(), gpx, rte);
+        endRoute();
+    }
+
+    private void readTrack() throws XMLStreamException, IOException {
+        Gpx.Trk trk = objectFactory.createGpxTrk();
+        boolean beganTrack = false;
+        while (nextElement()) {
+            if (!isGpxElement()) {
+                trk.getAny().add(readElement());
+                continue;
+            }
+
+            switch (getLocalName()) {
+                case "name" -> trk.setName(readText());
+                case "cmt" -> trk.setCmt(readText());
+                case "desc" -> trk.setDesc(readText());
+                case "src" -> trk.setSrc(readText());
+                case "url" -> trk.setUrl(readText());
+                case "urlname" -> trk.setUrlname(readText());
+                case "number" -> trk.setNumber(readInteger());
+                case "trkseg" -> {
+                    while (nextElement()) {
+                        if (isGpxElement() && "trkpt".equals(getLocalName())) {
+                            // tracks without positions are skipped
+                            if (!beganTrack) {
+                                beginRoute(Track, trk.getName(), trk.getDesc(), gpx, trk);
+                                beganTrack = true;
+                            }
+                            addPosition(format.createPosition(readTrkpt(), hasSpeedInKiloMeterPerHourInsteadOfMeterPerSecond));
+                        } else
+                            skipElement();
+                    }
+                }
+                default -> trk.getAny().add(readElement());
+            }
+        }
+        if (beganTrack)
+            endRoute();
+    }
+
+    private Gpx.Wpt readWpt() throws XMLStreamException {
+        Gpx.Wpt wpt = objectFactory.createGpxWpt();
+        wpt.setLat(parseDecimal(getAttribute("lat")));
+        wpt.setLon(parseDecimal(getAttribute("lon")));
+        while (nextElement()) {
+            if (!isGpxElement()) {
+                wpt.getAny().add(readElement());
+                continue;
+            }
+
+            switch (getLocalName()) {
+                case "ele" -> wpt.setEle(readDecimal());
+                case "time" -> wpt.setTime(readTime());
+                case "course" -> wpt.setCourse(readDecimal());
+                case "speed" -> wpt.setSpeed(readDecimal());
+                case "magvar" -> wpt.setMagvar(readDecimal());
+                case "geoidheight" -> wpt.setGeoidheight(readDecimal());
+                case "name" -> wpt.setName(readText());
+                case "cmt" -> wpt.setCmt(readText());
+                case "desc" -> wpt.setDesc(readText());
+                case "src" -> wpt.setSrc(readText());
+                case "url" -> wpt.setUrl(readText());
+                case "urlname" -> wpt.setUrlname(readText());
+                case "sym" -> wpt.setSym(readText());
+                case "type" -> wpt.setType(readText());
+                case "fix" -> wpt.setFix(readText());
+                case "sat" -> wpt.setSat(readInteger());
+                case "hdop" -> wpt.setHdop(readDecimal());
+                case "vdop" -> wpt.setVdop(readDecimal());
+                case "pdop" -> wpt.setPdop(readDecimal());
+                case "ageofdgpsdata" -> wpt.setAgeofdgpsdata(readDecimal());
+                case "dgpsid" -> wpt.setDgpsid(readInt());
+                default -> wpt.getAny().add(readElement());
+            }
+        }
+        return wpt;
+    }
+
+    private Gpx.Rte.Rtept readRtept() throws XMLStreamException {
+        Gpx.Rte.Rtept rtept = objectFactory.createGpxRteRtept();
+        rtept.setLat(parseDecimal(getAttribute("lat")));
+        rtept.setLon(parseDecimal(getAttribute("lon")));
+        while (nextElement()) {
+            if (!isGpxElement()) {
+                rtept.getAny().add(readElement());
+                continue;
+            }
+
+            switch (getLocalName()) {
+                case "ele" -> rtept.setEle(readDecimal());
+                case "time" -> rtept.setTime(readTime());
+                case "course" -> rtept.setCourse(readDecimal());
+                case "speed" -> rtept.setSpeed(readDecimal());
+                case "magvar" -> rtept.setMagvar(readDecimal());
+                case "geoidheight" -> rtept.setGeoidheight(readDecimal());
+                case "name" -> rtept.setName(readText());
+                case "cmt" -> rtept.setCmt(readText());
+                case "desc" -> rtept.setDesc(readText());
+                case "src" -> rtept.setSrc(readText());
+                case "url" -> rtept.setUrl(readText());
+                case "urlname" -> rtept.setUrlname(readText());
+                case "sym" -> rtept.setSym(readText());
+                case "type" -> rtept.setType(readText());
+                case "fix" -> rtept.setFix(readText());
+                case "sat" -> rtept.setSat(readInteger());
+                case "hdop" -> rtept.setHdop(readDecimal());
+                case "vdop" -> rtept.setVdop(readDecimal());
+                case "pdop" -> rtept.setPdop(readDecimal());
+                case "ageofdgpsdata" -> rtept.setAgeofdgpsdata(readDecimal());
+                case "dgpsid" -> rtept.setDgpsid(readInt());
+                default -> rtept.getAny().add(readElement());
+            }
+        }
+        return rtept;
+    }
+
+    private Gpx.Trk.Trkseg.Trkpt readTrkpt() throws XMLStreamException {
+        Gpx.Trk.Trkseg.Trkpt trkpt = objectFactory.createGpxTrkTrksegTrkpt();
+        trkpt.setLat(parseDecimal(getAttribute("lat")));
+        trkpt.setLon(parseDecimal(getAttribute("lon")));
+        while (nextElement()) {
+            if (!isGpxElement()) {
+                trkpt.getAny().add(readElement());
+                continue;
+            }
+
+            switch (getLocalName()) {
+                case "ele" -> trkpt.setEle(readDecimal());
+                case "time" -> trkpt.setTime(readTime());
+                case "course" -> trkpt.setCourse(readDecimal());
+                case "speed" -> trkpt.setSpeed(readDecimal());
+                case "magvar" -> trkpt.setMagvar(readDecimal());
+                case "geoidheight" -> trkpt.setGeoidheight(readDecimal());
+                case "name" -> trkpt.setName(readText());
+                case "cmt" -> trkpt.setCmt(readText());
+                case "desc" -> trkpt.setDesc(readText());
+                case "src" -> trkpt.setSrc(readText());
+                case "url" -> trkpt.setUrl(readText());
+                case "urlname" -> trkpt.setUrlname(readText());
+                case "sym" -> trkpt.setSym(readText());
+                case "type" -> trkpt.setType(readText());
+                case "fix" -> trkpt.setFix(readText());
+                case "sat" -> trkpt.setSat(readInteger());
+                case "hdop" -> trkpt.setHdop(readDecimal());
+                case "vdop" -> trkpt.setVdop(readDecimal());
+                case "pdop" -> trkpt.setPdop(readDecimal());
+                case "ageofdgpsdata" -> trkpt.setAgeofdgpsdata(readDecimal());
+                case "dgpsid" -> trkpt.setDgpsid(readInt());
+                default -> trkpt.getAny().add(readElement());
+            }
+        }
+        return trkpt;
+    }
+}
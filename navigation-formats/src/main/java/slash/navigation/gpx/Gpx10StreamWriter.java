@@ -0,0 +1,230 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.gpx;
+
+import slash.navigation.gpx.binding10.BoundsType;
+import slash.navigation.gpx.binding10.Gpx;
+
+import jakarta.xml.bind.Marshaller;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Collections.singletonMap;
+import static slash.navigation.gpx.GpxUtil.GPX_10_NAMESPACE_URI;
+import static slash.navigation.gpx.GpxUtil.newMarshaller10;
+
+/**
+ * Writes GPS Exchange Format 1.0 (.gpx) files element by element.
+ *
+ * @author Christian Pesch
+ */
+
+class Gpx10StreamWriter extends GpxStreamWriter {
+    private static final Map<String, String> PREFIXES = singletonMap(GPX_10_NAMESPACE_URI, "");
+
+    Gpx10StreamWriter(OutputStream target) throws IOException {
+        super(target, PREFIXES);
+    }
+
+    protected Marshaller createMarshaller() {
+        return newMarshaller10();
+    }
+
+    private void element(String localName, Object value) throws IOException {
+        element(GPX_10_NAMESPACE_URI, localName, value);
+    }
+
+    private void anys(List<Object> anys) throws IOException {
+        for (Object any : anys)
+            any(any);
+    }
+
+    /**
+     * Writes the start and the header of the {@code gpx} element, the {@code wpt},
+     * {@code rte} and {@code trk} elements follow.
+     */
+    void startGpx(Gpx gpx) throws IOException {
+        startElement(GPX_10_NAMESPACE_URI, "gpx");
+        declareNamespace("", GPX_10_NAMESPACE_URI);
+        attribute("version", gpx.getVersion());
+        attribute("creator", gpx.getCreator());
+        element("name", gpx.getName());
+        element("desc", gpx.getDesc());
+        element("author", gpx.getAuthor());
+        element("email", gpx.getEmail());
+        element("url", gpx.getUrl());
+        element("urlname", gpx.getUrlname());
+        element("time", gpx.getTime());
+        element("keywords", gpx.getKeywords());
+        writeBounds(gpx.getBounds());
+    }
+
+    void endGpx(Gpx gpx) throws IOException {
+        anys(gpx.getAny());
+        endElement();
+    }
+
+    private void writeBounds(BoundsType boundsType) throws IOException {
+        if (boundsType == null)
+            return;
+        startElement(GPX_10_NAMESPACE_URI, "bounds");
+        attribute("minlat", boundsType.getMinlat());
+        attribute("minlon", boundsType.getMinlon());
+        attribute("maxlat", boundsType.getMaxlat());
+        attribute("maxlon", boundsType.getMaxlon());
+        endElement();
+    }
+
+    void writeWpt(Gpx.Wpt wpt) throws IOException {
+        startElement(GPX_10_NAMESPACE_URI, "wpt");
+        attribute("lat", wpt.getLat());
+        attribute("lon", wpt.getLon());
+        element("ele", wpt.getEle());
+        element("time", wpt.getTime());
+        element("course", wpt.getCourse());
+        element("speed", wpt.getSpeed());
+        element("magvar", wpt.getMagvar());
+        element("geoidheight", wpt.getGeoidheight());
+        element("name", wpt.getName());
+        element("cmt", wpt.getCmt());
+        element("desc", wpt.getDesc());
+        element("src", wpt.getSrc());
+        element("url", wpt.getUrl());
+        element("urlname", wpt.getUrlname());
+        element("sym", wpt.getSym());
+        element("type", wpt.getType());
+        element("fix", wpt.getFix());
+        element("sat", wpt.getSat());
+        element("hdop", wpt.getHdop());
+        element("vdop", wpt.getVdop());
+        element("pdop", wpt.getPdop());
+        element("ageofdgpsdata", wpt.getAgeofdgpsdata());
+        element("dgpsid", wpt.getDgpsid());
+        anys(wpt.getAny());
+        endElement();
+    }
+
+    /**
+     * Writes the start and the header of a {@code rte} element, the {@code rtept} elements follow.
+     */
+    void startRte(Gpx.Rte rte) throws IOException {
+        startElement(GPX_10_NAMESPACE_URI, "rte");
+        element("name", rte.getName());
+        element("cmt", rte.getCmt());
+        element("desc", rte.getDesc());
+        element("src", rte.getSrc());
+        element("url", rte.getUrl());
+        element("urlname", rte.getUrlname());
+        element("number", rte.getNumber());
+        anys(rte.getAny());
+    }
+
+    void writeRtept(Gpx.Rte.Rtept rtept) throws IOException {
+        startElement(GPX_10_NAMESPACE_URI, "rtept");
+        attribute("lat", rtept.getLat());
+        attribute("lon", rtept.getLon());
+        element("ele", rtept.getEle());
+        element("time", rtept.getTime());
+        element("course", rtept.getCourse());
+        element("speed", rtept.getSpeed());
+        element("magvar", rtept.getMagvar());
+        element("geoidheight", rtept.getGeoidheight());
+        element("name", rtept.getName());
+        element("cmt", rtept.getCmt());
+        element("desc", rtept.getDesc());
+        element("src", rtept.getSrc());
+        element("url", rtept.getUrl());
+        element("urlname", rtept.getUrlname());
+        element("sym", rtept.getSym());
+        element("type", rtept.getType());
+        element("fix", rtept.getFix());
+        element("sat", rtept.getSat());
+        element("hdop", rtept.getHdop());
+        element("vdop", rtept.getVdop());
+        element("pdop", rtept.getPdop());
+        element("ageofdgpsdata", rtept.getAgeofdgpsdata());
+        element("dgpsid", rtept.getDgpsid());
+        anys(rtept.getAny());
+        endElement();
+    }
+
+    void endRte() throws IOException {
+        endElement();
+    }
+
+    /**
+     * Writes the start and the header of a {@code trk} element, the {@code trkseg} elements follow.
+     */
+    void startTrk(Gpx.Trk trk) throws IOException {
+        startElement(GPX_10_NAMESPACE_URI, "trk");
+        element("name", trk.getName());
+        element("cmt", trk.getCmt());
+        element("desc", trk.getDesc());
+        element("src", trk.getSrc());
+        element("url", trk.getUrl());
+        element("urlname", trk.getUrlname());
+        element("number", trk.getNumber());
+        anys(trk.getAny());
+    }
+
+    void startTrkseg() throws IOException {
+        startElement(GPX_10_NAMESPACE_URI, "trkseg");
+    }
+
+    void writeTrkpt(Gpx.Trk.Trkseg.Trkpt trkpt) throws IOException {
+        startElement(GPX_10_NAMESPACE_URI, "trkpt");
+        attribute("lat", trkpt.getLat());
+        attribute("lon", trkpt.getLon());
+        element("ele", trkpt.getEle());
+        element("time", trkpt.getTime());
+        element("course", trkpt.getCourse());
+        element("speed", trkpt.getSpeed());
+        element("magvar", trkpt.getMagvar());
+        element("geoidheight", trkpt.getGeoidheight());
+        element("name", trkpt.getName());
+        element("cmt", trkpt.getCmt());
+        element("desc", trkpt.getDesc());
+        element("src", trkpt.getSrc());
+        element("url", trkpt.getUrl());
+        element("urlname", trkpt.getUrlname());
+        element("sym", trkpt.getSym());
+        element("type", trkpt.getType());
+        element("fix", trkpt.getFix());
+        element("sat", trkpt.getSat());
+        element("hdop", trkpt.getHdop());
+        element("vdop", trkpt.getVdop());
+        element("pdop", trkpt.getPdop());
+        element("ageofdgpsdata", trkpt.getAgeofdgpsdata());
+        element("dgpsid", trkpt.getDgpsid());
+        anys(trkpt.getAny());
+        endElement();
+    }
+
+    void endTrkseg() throws IOException {
+        endElement();
+    }
+
+    void endTrk() throws IOException {
+        endElement();
+    }
+}
@@ -21,7 +21,10 @@
 package slash.navigation.gpx;
 
 import org.w3c.dom.Element;
+import slash.navigation.base.ContentSignature;
 import slash.navigation.base.ParserContext;
+import slash.navigation.base.PositionSink;
+import slash.navigation.base.RouteCharacteristics;
 import slash.navigation.gpx.binding11.*;
 import slash.navigation.gpx.garmin3.AutoroutePointT;
 import slash.navigation.gpx.garmin3.RoutePointExtensionT;
@@ -29,7 +32,6 @@ import slash.navigation.gpx.trip1.ShapingPointExtensionT;
 import slash.navigation.gpx.trip1.ViaPointExtensionT;
 
 import jakarta.xml.bind.JAXBElement;
-import jakarta.xml.bind.JAXBException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -40,12 +42,13 @@ import java.util.List;
 import java.util.logging.Logger;
 
 import static java.lang.String.format;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
 import static slash.common.io.Transfer.*;
 import static slash.common.type.CompactCalendar.now;
 import static slash.navigation.base.RouteCharacteristics.*;
 import static slash.navigation.common.NavigationConversion.*;
-import static slash.navigation.gpx.GpxUtil.marshal11;
-import static slash.navigation.gpx.GpxUtil.unmarshal11;
+import static slash.navigation.gpx.GpxUtil.GPX_11_NAMESPACE_URI;
 
 /**
  * Reads and writes GPS Exchange Format 1.1 (.gpx) files.
@@ -62,16 +65,22 @@ public class Gpx11Format extends GpxFormat {
         return "GPS Exchange Format " + VERSION + " (*" + getExtension() + ")";
     }
 
-    void process(GpxType gpxType, ParserContext<GpxRoute> context) {
-        if (gpxType == null)
-            return;
-
+    void checkVersion(GpxType gpxType) {
         if (!VERSION.equals(gpxType.getVersion())) {
             log.warning(format("GPX %s file declares invalid version number %s", VERSION, gpxType.getVersion()));
         }
+    }
+
+    boolean hasSpeedInKilometerPerHourInsteadOfMeterPerSecond(GpxType gpxType) {
+        return gpxType.getCreator() != null && gpxType.getCreator().startsWith("Columbus GNSS");
+    }
+
+    void process(GpxType gpxType, ParserContext<GpxRoute> context) {
+        if (gpxType == null)
+            return;
 
-        boolean hasSpeedInKilometerPerHourInsteadOfMeterPerSecond = gpxType.getCreator() != null &&
-                gpxType.getCreator().startsWith("Columbus GNSS");
+        checkVersion(gpxType);
+        boolean hasSpeedInKilometerPerHourInsteadOfMeterPerSecond = hasSpeedInKilometerPerHourInsteadOfMeterPerSecond(gpxType);
 
         GpxRoute wayPointsAsRoute = extractWayPoints(gpxType, hasSpeedInKilometerPerHourInsteadOfMeterPerSecond);
         if (wayPointsAsRoute != null)
@@ -80,12 +89,19 @@ public class Gpx11Format extends GpxFormat {
         context.appendRoutes(extractTracks(gpxType, hasSpeedInKilometerPerHourInsteadOfMeterPerSecond));
     }
 
+    protected boolean isUnreadable(ContentSignature signature) {
+        return isUnreadable(signature, GPX_11_NAMESPACE_URI);
+    }
+
     public void read(InputStream source, ParserContext<GpxRoute> context) throws IOException {
-        GpxType gpxType = unmarshal11(source);
-        process(gpxType, context);
+        new Gpx11StreamReader(this).read(source, context);
+    }
+
+    public void read(InputStream source, ParserContext<?> context, PositionSink<GpxPosition> sink) throws IOException {
+        new Gpx11StreamReader(this).read(source, sink);
     }
 
-    private boolean containsRoutePointExtension(RteType rteType) {
+    boolean containsRoutePointExtension(RteType rteType) {
         for (WptType wptType : rteType.getRtept()) {
             ExtensionsType extensions = wptType.getExtensions();
             if (extensions != null) {
@@ -154,27 +170,42 @@ public class Gpx11Format extends GpxFormat {
         return hdop;
     }
 
+    GpxPosition createPosition(WptType wptType, boolean hasSpeedInKilometerPerHourInsteadOfMeterPerSecond) {
+        GpxPositionExtension positionExtension = new GpxPositionExtension(wptType, hasSpeedInKilometerPerHourInsteadOfMeterPerSecond);
+        GpxPosition position = new GpxPosition(wptType.getLon(), wptType.getLat(), wptType.getEle(), positionExtension, parseXMLTime(wptType.getTime()), asDescription(wptType.getName(), wptType.getDesc()), asHdop(wptType, positionExtension), wptType.getPdop(), wptType.getVdop(), wptType.getSat(), wptType);
+        position.setFixQuality(parseFix(wptType.getFix()));
+        return position;
+    }
+
+    // the coordinates, the elevation and the time are written from the position, everything
+    // else of the way point has to stay for the next write
+    protected void compactOrigin(GpxPosition position) {
+        WptType wptType = position.getOrigin(WptType.class);
+        if (wptType == null)
+            return;
+        wptType.setLat(null);
+        wptType.setLon(null);
+        wptType.setEle(null);
+        wptType.setTime(null);
+        if (wptType.getExtensions() != null && wptType.getExtensions().getAny().isEmpty())
+            wptType.setExtensions(null);
+    }
+
     private List<GpxPosition> extractRoute(RteType rteType, boolean hasSpeedInKilometerPerHourInsteadOfMeterPerSecond) {
         List<GpxPosition> positions = new ArrayList<>();
         if (rteType != null) {
             for (WptType wptType : rteType.getRtept()) {
-                GpxPositionExtension positionExtension = new GpxPositionExtension(wptType, hasSpeedInKilometerPerHourInsteadOfMeterPerSecond);
-                GpxPosition position = new GpxPosition(wptType.getLon(), wptType.getLat(), wptType.getEle(), positionExtension, parseXMLTime(wptType.getTime()), asDescription(wptType.getName(), wptType.getDesc()), asHdop(wptType, positionExtension), wptType.getPdop(), wptType.getVdop(), wptType.getSat(), wptType);
-                position.setFixQuality(parseFix(wptType.getFix()));
-                positions.add(position);
+                positions.add(createPosition(wptType, hasSpeedInKilometerPerHourInsteadOfMeterPerSecond));
             }
         }
         return positions;
     }
 
-    private List<GpxPosition> extractRouteWithRoutePointExtension(RteType rteType, boolean hasSpeedInKilometerPerHourInsteadOfMeterPerSecond) {
+    List<GpxPosition> extractRouteWithRoutePointExtension(RteType rteType, boolean hasSpeedInKilometerPerHourInsteadOfMeterPerSecond) {
         List<GpxPosition> positions = new ArrayList<>();
         if (rteType != null) {
             for (WptType wptType : rteType.getRtept()) {
-                GpxPositionExtension positionExtension = new GpxPositionExtension(wptType, hasSpeedInKilometerPerHourInsteadOfMeterPerSecond);
-                GpxPosition position = new GpxPosition(wptType.getLon(), wptType.getLat(), wptType.getEle(), positionExtension, parseXMLTime(wptType.getTime()), asDescription(wptType.getName(), wptType.getDesc()), asHdop(wptType, positionExtension), wptType.getPdop(), wptType.getVdop(), wptType.getSat(), wptType);
-                position.setFixQuality(parseFix(wptType.getFix()));
-                positions.add(position);
+                positions.add(createPosition(wptType, hasSpeedInKilometerPerHourInsteadOfMeterPerSecond));
 
                 ExtensionsType extensions = wptType.getExtensions();
                 if (extensions != null) {
@@ -197,10 +228,7 @@ public class Gpx11Format extends GpxFormat {
     private List<GpxPosition> extractWayPoints(List<WptType> wptTypes, boolean hasSpeedInKilometerPerHourInsteadOfMeterPerSecond) {
         List<GpxPosition> positions = new ArrayList<>();
         for (WptType wptType : wptTypes) {
-            GpxPositionExtension positionExtension = new GpxPositionExtension(wptType, hasSpeedInKilometerPerHourInsteadOfMeterPerSecond);
-            GpxPosition position = new GpxPosition(wptType.getLon(), wptType.getLat(), wptType.getEle(), positionExtension, parseXMLTime(wptType.getTime()), asDescription(wptType.getName(), wptType.getDesc()), asHdop(wptType, positionExtension), wptType.getPdop(), wptType.getVdop(), wptType.getSat(), wptType);
-            position.setFixQuality(parseFix(wptType.getFix()));
-            positions.add(position);
+            positions.add(createPosition(wptType, hasSpeedInKilometerPerHourInsteadOfMeterPerSecond));
         }
         return positions;
     }
@@ -210,10 +238,7 @@ public class Gpx11Format extends GpxFormat {
         if (trkType != null) {
             for (TrksegType trkSegType : trkType.getTrkseg()) {
                 for (WptType wptType : trkSegType.getTrkpt()) {
-                    GpxPositionExtension positionExtension = new GpxPositionExtension(wptType, hasSpeedInKilometerPerHourInsteadOfMeterPerSecond);
-                    GpxPosition position = new GpxPosition(wptType.getLon(), wptType.getLat(), wptType.getEle(), positionExtension, parseXMLTime(wptType.getTime()), asDescription(wptType.getName(), wptType.getDesc()), asHdop(wptType, positionExtension), wptType.getPdop(), wptType.getVdop(), wptType.getSat(), wptType);
-                    position.setFixQuality(parseFix(wptType.getFix()));
-                    positions.add(position);
+                    positions.add(createPosition(wptType, hasSpeedInKilometerPerHourInsteadOfMeterPerSecond));
                 }
             }
         }
@@ -332,40 +357,36 @@ public class Gpx11Format extends GpxFormat {
         return wptType;
     }
 
-    private List<WptType> createWayPoints(GpxRoute route, int startIndex, int endIndex) {
-        List<WptType> wptTypes = new ArrayList<>();
+    private void writeWayPoints(Gpx11StreamWriter writer, GpxRoute route, int startIndex, int endIndex) throws IOException {
         List<GpxPosition> positions = route.getPositions();
         for (int i = startIndex; i < endIndex; i++) {
             GpxPosition position = positions.get(i);
             WptType wptType = createWptType(position);
             if (wptType != null)
-                wptTypes.add(wptType);
+                writer.writeWpt("wpt", wptType);
         }
-        return wptTypes;
     }
 
-    private List<RteType> createRoute(GpxRoute route, int startIndex, int endIndex) {
-        ObjectFactory objectFactory = new ObjectFactory();
-        List<RteType> rteTypes = new ArrayList<>();
+    private RteType createRteType(GpxRoute route) {
         RteType rteType = route.getOrigin(RteType.class);
-        if (rteType != null)
-            rteType.getRtept().clear();
-        else
-            rteType = objectFactory.createRteType();
+        if (rteType == null)
+            rteType = new ObjectFactory().createRteType();
 
         if (isWriteMetaData()) {
             rteType.setName(asRouteName(route.getName()));
             rteType.setDesc(asDescription(route.getDescription()));
         }
-        rteTypes.add(rteType);
+        return rteType;
+    }
+
+    private void writeRoute(Gpx11StreamWriter writer, GpxRoute route, int startIndex, int endIndex) throws IOException {
+        writer.startRte(createRteType(route));
 
         List<GpxPosition> positions = route.getPositions();
         for (int i = startIndex; i < endIndex; i++) {
             GpxPosition position = positions.get(i);
             WptType wptType = createWptType(position);
             if (wptType != null) {
-                rteType.getRtept().add(wptType);
-
                 if (isWriteTrip()) {
                     boolean first = i == startIndex;
                     boolean last = i == endIndex - 1;
@@ -374,41 +395,39 @@ public class Gpx11Format extends GpxFormat {
                     else
                         setShapingPoint(wptType);
                 }
+                writer.writeWpt("rtept", wptType);
             }
         }
-        return rteTypes;
+        writer.endRte();
     }
 
-    private List<TrkType> createTrack(GpxRoute route, int startIndex, int endIndex) {
-        ObjectFactory objectFactory = new ObjectFactory();
-        List<TrkType> trkTypes = new ArrayList<>();
+    private TrkType createTrkType(GpxRoute route) {
         TrkType trkType = route.getOrigin(TrkType.class);
-        if (trkType != null)
-            trkType.getTrkseg().clear();
-        else
-            trkType = objectFactory.createTrkType();
+        if (trkType == null)
+            trkType = new ObjectFactory().createTrkType();
+
         if (isWriteMetaData()) {
             trkType.setName(asRouteName(route.getName()));
             trkType.setDesc(asDescription(route.getDescription()));
             clearDistance(trkType);
         }
-        trkTypes.add(trkType);
+        return trkType;
+    }
 
-        TrksegType trksegType = route.getOrigin(TrksegType.class);
-        if (trksegType != null)
-            trksegType.getTrkpt().clear();
-        else
-            trksegType = objectFactory.createTrksegType();
-        trkType.getTrkseg().add(trksegType);
+    private void writeTrack(Gpx11StreamWriter writer, GpxRoute route, int startIndex, int endIndex) throws IOException {
+        writer.startTrk(createTrkType(route));
+        writer.startTrkseg();
 
         List<GpxPosition> positions = route.getPositions();
         for (int i = startIndex; i < endIndex; i++) {
             GpxPosition position = positions.get(i);
             WptType wptType = createWptType(position);
             if (wptType != null)
-                trksegType.getTrkpt().add(wptType);
+                writer.writeWpt("trkpt", wptType);
         }
-        return trkTypes;
+
+        writer.endTrkseg(route.getOrigin(TrksegType.class));
+        writer.endTrk();
     }
 
     private GpxType recycleGpxType(GpxRoute route) {
@@ -436,30 +455,7 @@ public class Gpx11Format extends GpxFormat {
         return metadataType;
     }
 
-    private GpxType createGpxType(GpxRoute route, int startIndex, int endIndex) {
-        ObjectFactory objectFactory = new ObjectFactory();
-
-        GpxType gpxType = recycleGpxType(route);
-        if (gpxType == null)
-            gpxType = objectFactory.createGpxType();
-        if (gpxType.getCreator() == null || !gpxType.getCreator().startsWith("Columbus GNSS"))
-            gpxType.setCreator(getCreator());
-        gpxType.setVersion(VERSION);
-
-        if (isWriteMetaData()) {
-            gpxType.setMetadata(createMetaData(route, gpxType));
-        } else
-            gpxType.setMetadata(null);
-
-        gpxType.getWpt().addAll(createWayPoints(route, startIndex, endIndex));
-        gpxType.getRte().addAll(createRoute(route, startIndex, endIndex));
-        gpxType.getTrk().addAll(createTrack(route, startIndex, endIndex));
-        return gpxType;
-    }
-
-    private GpxType createGpxType(List<GpxRoute> routes) {
-        ObjectFactory objectFactory = new ObjectFactory();
-
+    private GpxType createGpxType(List<GpxRoute> routes, GpxRoute routeForMetadata) {
         GpxType gpxType = null;
         for (GpxRoute route : routes) {
             gpxType = recycleGpxType(route);
@@ -467,44 +463,161 @@ public class Gpx11Format extends GpxFormat {
                 break;
         }
         if (gpxType == null)
-            gpxType = objectFactory.createGpxType();
+            gpxType = new ObjectFactory().createGpxType();
         if (gpxType.getCreator() == null || !gpxType.getCreator().startsWith("Columbus GNSS"))
             gpxType.setCreator(getCreator());
         gpxType.setVersion(VERSION);
 
-        GpxRoute routeForMetadata = null;
-        for (GpxRoute route : routes) {
-            switch (route.getCharacteristics()) {
-                case Waypoints -> {
-                    routeForMetadata = route;
-                    gpxType.getWpt().addAll(createWayPoints(route, 0, route.getPositionCount()));
-                }
-                case Route -> gpxType.getRte().addAll(createRoute(route, 0, route.getPositionCount()));
-                case Track -> gpxType.getTrk().addAll(createTrack(route, 0, route.getPositionCount()));
-            }
-        }
-
         if (isWriteMetaData()) {
             gpxType.setMetadata(createMetaData(routeForMetadata, gpxType));
         } else
             gpxType.setMetadata(null);
-
         return gpxType;
     }
 
+    private void startGpx(Gpx11StreamWriter writer, GpxType gpxType) throws IOException {
+        writer.startGpx(gpxType.getVersion(), gpxType.getCreator());
+        writer.writeMetadata(gpxType.getMetadata());
+    }
+
+    /*for tests*/ Gpx11StreamWriter createStreamWriter(OutputStream target) throws IOException {
+        return new Gpx11StreamWriter(target);
+    }
+
     public void write(GpxRoute route, OutputStream target, int startIndex, int endIndex) throws IOException {
-        try {
-            marshal11(createGpxType(route, startIndex, endIndex), target);
-        } catch (JAXBException e) {
-            throw new IOException("Cannot marshall " + route + ": " + e, e);
+        GpxType gpxType = createGpxType(singletonList(route), route);
+        try (Gpx11StreamWriter writer = createStreamWriter(target)) {
+            startGpx(writer, gpxType);
+            writeWayPoints(writer, route, startIndex, endIndex);
+            writeRoute(writer, route, startIndex, endIndex);
+            writeTrack(writer, route, startIndex, endIndex);
+            writer.endGpx(gpxType.getExtensions());
         }
     }
 
     public void write(List<GpxRoute> routes, OutputStream target) throws IOException {
-        try {
-            marshal11(createGpxType(routes), target);
-        } catch (JAXBException e) {
-            throw new IOException("Cannot marshall " + routes + ": " + e, e);
+        GpxRoute routeForMetadata = null;
+        for (GpxRoute route : routes) {
+            if (route.getCharacteristics().equals(Waypoints))
+                routeForMetadata = route;
         }
+        GpxType gpxType = createGpxType(routes, routeForMetadata);
+
+        // the schema requires all wpt before all rte before all trk elements
+        try (Gpx11StreamWriter writer = createStreamWriter(target)) {
+            startGpx(writer, gpxType);
+            for (GpxRoute route : routes) {
+                if (route.getCharacteristics().equals(Waypoints))
+                    writeWayPoints(writer, route, 0, route.getPositionCount());
+            }
+            for (GpxRoute route : routes) {
+                if (route.getCharacteristics().equals(Route))
+                    writeRoute(writer, route, 0, route.getPositionCount());
+            }
+            for (GpxRoute route : routes) {
+                if (route.getCharacteristics().equals(Track))
+                    writeTrack(writer, route, 0, route.getPositionCount());
+            }
+            writer.endGpx(gpxType.getExtensions());
+        }
+    }
+
+    public PositionSink<GpxPosition> createPositionSink(OutputStream target) throws IOException {
+        Gpx11StreamWriter writer = createStreamWriter(target);
+
+        // the routes are written in the order they arrive, the schema expects
+        // all waypoints before the routes and tracks
+        return new PositionSink<>() {
+            private boolean started;
+            private RouteCharacteristics characteristics;
+            private WptType routePoint;
+            private int routePointCount;
+
+            private void startGpx(RouteCharacteristics characteristics, String name) throws IOException {
+                GpxType gpxType = createGpxType(emptyList(), null);
+                if (gpxType.getMetadata() != null && Waypoints.equals(characteristics))
+                    gpxType.getMetadata().setName(asRouteName(name));
+                Gpx11Format.this.startGpx(writer, gpxType);
+                started = true;
+            }
+
+            public void beginRoute(RouteCharacteristics characteristics, String name) throws IOException {
+                if (!started)
+                    startGpx(characteristics, name);
+                this.characteristics = characteristics;
+
+                ObjectFactory objectFactory = new ObjectFactory();
+                switch (characteristics) {
+                    case Route -> {
+                        RteType rteType = objectFactory.createRteType();
+                        if (isWriteMetaData())
+                            rteType.setName(asRouteName(name));
+                        writer.startRte(rteType);
+                        routePointCount = 0;
+                    }
+                    case Track -> {
+                        TrkType trkType = objectFactory.createTrkType();
+                        if (isWriteMetaData())
+                            trkType.setName(asRouteName(name));
+                        writer.startTrk(trkType);
+                        writer.startTrkseg();
+                    }
+                }
+            }
+
+            // a route point is written when the next one arrives to know if it's the last one
+            private void writeRoutePoint(boolean last) throws IOException {
+                if (routePoint == null)
+                    return;
+                if (isWriteTrip()) {
+                    if (routePointCount == 1 || last)
+                        setViaPoint(routePoint);
+                    else
+                        setShapingPoint(routePoint);
+                }
+                writer.writeWpt("rtept", routePoint);
+                routePoint = null;
+            }
+
+            public void addPosition(GpxPosition position) throws IOException {
+                WptType wptType = createWptType(position);
+                if (wptType == null)
+                    return;
+
+                switch (characteristics) {
+                    case Waypoints -> writer.writeWpt("wpt", wptType);
+                    case Route -> {
+                        writeRoutePoint(false);
+                        routePoint = wptType;
+                        routePointCount++;
+                    }
+                    case Track -> writer.writeWpt("trkpt", wptType);
+                }
+            }
+
+            public void endRoute() throws IOException {
+                switch (characteristics) {
+                    case Route -> {
+                        writeRoutePoint(true);
+                        writer.endRte();
+                    }
+                    case Track -> {
+                        writer.endTrkseg(null);
+                        writer.endTrk();
+                    }
+                }
+                characteristics = null;
+            }
+
+            public void close() throws IOException {
+                try {
+                    if (!started)
+                        startGpx(null, null);
+                    writer.endGpx(null);
+                } finally {
+                    writer.close();
+                }
+            }
+        };
     }
 }
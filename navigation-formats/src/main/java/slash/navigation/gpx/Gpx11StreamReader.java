@@ -0,0 +1,437 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.gpx;
+
+import slash.navigation.gpx.binding11.*;
+
+import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.Unmarshaller;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+
+import static slash.navigation.base.RouteCharacteristics.Route;
+import static slash.navigation.base.RouteCharacteristics.Track;
+import static slash.navigation.base.RouteCharacteristics.Waypoints;
+import static slash.navigation.gpx.GpxUtil.*;
+
+/**
+ * Reads GPS Exchange Format 1.1 (.gpx) files with StAX.
+ * <p>
+ * The Garmin TrackPointExtensions, the TrekBuddy speed and course and all elements without
+ * a JAXB binding within {@code <extensions>} are read natively; only the other bound extension
+ * elements are unmarshalled with JAXB. The track points are not collected in the {@link TrksegType}s.
+ *
+ * @author Christian Pesch
+ */
+
+class Gpx11StreamReader extends GpxStreamReader {
+    private final Gpx11Format format;
+    private final ObjectFactory objectFactory = new ObjectFactory();
+    private final slash.navigation.gpx.garmin3.ObjectFactory garmin3Factory = new slash.navigation.gpx.garmin3.ObjectFactory();
+    private final slash.navigation.gpx.trackpoint1.ObjectFactory trackpoint1Factory = new slash.navigation.gpx.trackpoint1.ObjectFactory();
+    private final slash.navigation.gpx.trackpoint2.ObjectFactory trackpoint2Factory = new slash.navigation.gpx.trackpoint2.ObjectFactory();
+    private final slash.navigation.gpx.trekbuddy.ObjectFactory trekbuddyFactory = new slash.navigation.gpx.trekbuddy.ObjectFactory();
+    private Unmarshaller unmarshaller;
+    private GpxType gpxType;
+    private boolean hasSpeedInKilometerPerHourInsteadOfMeterPerSecond, readingWayPoints;
+
+    Gpx11StreamReader(Gpx11Format format) {
+        super(format, GPX_11_NAMESPACE_URI);
+        this.format = format;
+    }
+
+    protected String mapNamespaceURI(String namespaceUri) {
+        String result = super.mapNamespaceURI(namespaceUri);
+        return GARMIN_TRACKPOINT_EXTENSIONS_1_SCHEMA_NAMESPACE_URI.equals(result) ? GARMIN_TRACKPOINT_EXTENSIONS_1_NAMESPACE_URI : result;
+    }
+
+    private Unmarshaller getUnmarshaller() {
+        if (unmarshaller == null)
+            unmarshaller = newUnmarshaller11();
+        return unmarshaller;
+    }
+
+    protected void readGpx() throws XMLStreamException, JAXBException, IOException {
+        gpxType = objectFactory.createGpxType();
+        gpxType.setVersion(getAttribute("version"));
+        gpxType.setCreator(getAttribute("creator"));
+        format.checkVersion(gpxType);
+        hasSpeedInKilometerPerHourInsteadOfMeterPerSecond = format.hasSpeedInKilometerPerHourInsteadOfMeterPerSecond(gpxType);
+
+        while (nextElement()) {
+            if (!isGpxElement()) {
+                skipElement();
+                continue;
+            }
+
+            String name = getLocalName();
+            if (!"wpt".equals(name))
+                endWayPoints();
+            switch (name) {
+                case "metadata" -> gpxType.setMetadata(readMetadata());
+                case "wpt" -> readWayPoint();
+                case "rte" -> readRoute();
+                case "trk" -> readTrack();
+                case "extensions" -> gpxType.setExtensions(readExtensions());
+                default -> skipElement();
+            }
+        }
+        endWayPoints();
+    }
+
+    private MetadataType readMetadata() throws XMLStreamException, JAXBException {
+        MetadataType metadataType = objectFactory.createMetadataType();
+        while (nextElement()) {
+            if (!isGpxElement()) {
+                skipElement();
+                continue;
+            }
+
+            switch (getLocalName()) {
+                case "name" -> metadataType.setName(readText());
+                case "desc" -> metadataType.setDesc(readText());
+                case "author" -> metadataType.setAuthor(readPerson());
+                case "copyright" -> metadataType.setCopyright(readCopyright());
+                case "link" -> metadataType.getLink().add(readLink());
+                case "time" -> metadataType.setTime(readTime());
+                case "keywords" -> metadataType.setKeywords(readText());
+                case "bounds" -> metadataType.setBounds(readBounds());
+                case "extensions" -> metadataType.setExtensions(readExtensions());
+                default -> skipElement();
+            }
+        }
+        return metadataType;
+    }
+
+    private PersonType readPerson() throws XMLStreamException {
+        PersonType personType = objectFactory.createPersonType();
+        while (nextElement()) {
+            if (!isGpxElement()) {
+                skipElement();
+                continue;
+            }
+
+            switch (getLocalName()) {
+                case "name" -> personType.setName(readText());
+                case "email" -> {
+                    EmailType emailType = objectFactory.createEmailType();
+                    emailType.setId(getAttribute("id"));
+                    emailType.setDomain(getAttribute("domain"));
+                    skipElement();
+                    personType.setEmail(emailType);
+                }
+                case "link" -> personType.setLink(readLink());
+                default -> skipElement();
+            }
+        }
+        return personType;
+    }
+
+    private CopyrightType readCopyright() throws XMLStreamException {
+        CopyrightType copyrightType = objectFactory.createCopyrightType();
+        copyrightType.setAuthor(getAttribute("author"));
+        while (nextElement()) {
+            if (!isGpxElement()) {
+                skipElement();
+                continue;
+            }
+
+            switch (getLocalName()) {
+                case "year" -> copyrightType.setYear(readTime());
+                case "license" -> copyrightType.setLicense(readText());
+                default -> skipElement();
+            }
+        }
+        return copyrightType;
+    }
+
+    private LinkType readLink() throws XMLStreamException {
+        LinkType linkType = objectFactory.createLinkType();
+        linkType.setHref(getAttribute("href"));
+        while (nextElement()) {
+            if (!isGpxElement()) {
+                skipElement();
+                continue;
+            }
+
+            switch (getLocalName()) {
+                case "text" -> linkType.setText(readText());
+                case "type" -> linkType.setType(readText());
+                default -> skipElement();
+            }
+        }
+        return linkType;
+    }
+
+    private BoundsType readBounds() throws XMLStreamException {
+        BoundsType boundsType = objectFactory.createBoundsType();
+        boundsType.setMinlat(parseDecimal(getAttribute("minlat")));
+        boundsType.setMinlon(parseDecimal(getAttribute("minlon")));
+        boundsType.setMaxlat(parseDecimal(getAttribute("maxlat")));
+        boundsType.setMaxlon(parseDecimal(getAttribute("maxlon")));
+        skipElement();
+        return boundsType;
+    }
+
+    private WptType readWptType() throws XMLStreamException, JAXBException {
+        WptType wptType = objectFactory.createWptType();
+        wptType.setLat(parseDecimal(getAttribute("lat")));
+        wptType.setLon(parseDecimal(getAttribute("lon")));
+        while (nextElement()) {
+            if (!isGpxElement()) {
+                skipElement();
+                continue;
+            }
+
+            switch (getLocalName()) {
+                case "ele" -> wptType.setEle(readDecimal());
+                case "time" -> wptType.setTime(readTime());
+                case "magvar" -> wptType.setMagvar(readDecimal());
+                case "geoidheight" -> wptType.setGeoidheight(readDecimal());
+                case "name" -> wptType.setName(readText());
+                case "cmt" -> wptType.setCmt(readText());
+                case "desc" -> wptType.setDesc(readText());
+                case "src" -> wptType.setSrc(readText());
+                case "link" -> wptType.getLink().add(readLink());
+                case "sym" -> wptType.setSym(readText());
+                case "type" -> wptType.setType(readText());
+                case "fix" -> wptType.setFix(readText());
+                case "sat" -> wptType.setSat(readInteger());
+                case "hdop" -> wptType.setHdop(readDecimal());
+                case "vdop" -> wptType.setVdop(readDecimal());
+                case "pdop" -> wptType.setPdop(readDecimal());
+                case "ageofdgpsdata" -> wptType.setAgeofdgpsdata(readDecimal());
+                case "dgpsid" -> wptType.setDgpsid(readInt());
+                case "extensions" -> wptType.setExtensions(readExtensions());
+                default -> skipElement();
+            }
+        }
+        return wptType;
+    }
+
+    private void readWayPoint() throws XMLStreamException, JAXBException, IOException {
+        if (!readingWayPoints) {
+            MetadataType metadataType = gpxType.getMetadata();
+            beginRoute(Waypoints, metadataType != null ? metadataType.getName() : null,
+                    metadataType != null ? metadataType.getDesc() : null, gpxType);
+            readingWayPoints = true;
+        }
+        addPosition(format.createPosition(readWptType(), hasSpeedInKilometerPerHourInsteadOfMeterPerSecond));
+    }
+
+    private void endWayPoints() throws IOException {
+        if (readingWayPoints) {
+            endRoute();
+            readingWayPoints = false;
+        }
+    }
+
+    private void readRoute() throws XMLStreamException, JAXBException, IOException {
+        RteType rteType = objectFactory.createRteType();
+        boolean beganRoute = false;
+        while (nextElement()) {
+            if (!isGpxElement()) {
+                skipElement();
+                continue;
+            }
+
+            switch (getLocalName()) {
+                case "name" -> rteType.setName(readText());
+                case "cmt" -> rteType.setCmt(readText());
+                case "desc" -> rteType.setDesc(readText());
+                case "src" -> rteType.setSrc(readText());
+                case "link" -> rteType.getLink().add(readLink());
+                case "number" -> rteType.setNumber(readInteger());
+                case "type" -> rteType.setType(readText());
+                case "extensions" -> rteType.setExtensions(readExtensions());
+                case "rtept" -> {
+                    if (!beganRoute) {
+                        beginRoute(Route, rteType.getName(), rteType.getDesc(), gpxType, rteType);
+                        beganRoute = true;
+                    }
+                    // kept for the route point extensions
+                    WptType wptType = readWptType();
+                    rteType.getRtept().add(wptType);
+                    addPosition(format.createPosition(wptType, hasSpeedInKilometerPerHourInsteadOfMeterPerSecond));
+                }
+                default -> skipElement();
+            }
+        }
+        if (!beganRoute)
+            beginRoute(Route, rteType.getName(), rteType.getDesc(), gpxType, rteType);
+        endRoute();
+
+        if (format.containsRoutePointExtension(rteType)) {
+            beginRoute(Track, rteType.getName(), rteType.getDesc(), gpxType, rteType);
+            for (GpxPosition position : format.extractRouteWithRoutePointExtension(rteType, hasSpeedInKilometerPerHourInsteadOfMeterPerSecond))
+                addPosition(position);
+            endRoute();
+        }
+        // the positions keep their way points, the route does not need them any longer
+        rteType.getRtept().clear();
+    }
+
+    private void readTrack() throws XMLStreamException, JAXBException, IOException {
+        TrkType trkType = objectFactory.createTrkType();
+        boolean beganTrack = false;
+        while (nextElement()) {
+            if (!isGpxElement()) {
+                skipElement();
+                continue;
+            }
+
+            switch (getLocalName()) {
+                case "name" -> trkType.setName(readText());
+                case "cmt" -> trkType.setCmt(readText());
+                case "desc" -> trkType.setDesc(readText());
+                case "src" -> trkType.setSrc(readText());
+                case "link" -> trkType.getLink().add(readLink());
+                case "number" -> trkType.setNumber(readInteger());
+                case "type" -> trkType.setType(readText());
+                case "extensions" -> trkType.setExtensions(readExtensions());
+                case "trkseg" -> {
+                    TrksegType trksegType = objectFactory.createTrksegType();
+                    trkType.getTrkseg().add(trksegType);
+                    if (!beganTrack) {
+                        beginRoute(Track, trkType.getName(), trkType.getDesc(), gpxType, trkType, trksegType);
+                        beganTrack = true;
+                    }
+                    readTrackSegment(trksegType);
+                }
+                default -> skipElement();
+            }
+        }
+        if (!beganTrack)
+            beginRoute(Track, trkType.getName(), trkType.getDesc(), gpxType, trkType);
+        endRoute();
+    }
+
+    private void readTrackSegment(TrksegType trksegType) throws XMLStreamException, JAXBException, IOException {
+        while (nextElement()) {
+            if (!isGpxElement()) {
+                skipElement();
+                continue;
+            }
+
+            switch (getLocalName()) {
+                case "trkpt" -> addPosition(format.createPosition(readWptType(), hasSpeedInKilometerPerHourInsteadOfMeterPerSecond));
+                case "extensions" -> trksegType.setExtensions(readExtensions());
+                default -> skipElement();
+            }
+        }
+    }
+
+    private ExtensionsType readExtensions() throws XMLStreamException, JAXBException {
+        ExtensionsType extensionsType = objectFactory.createExtensionsType();
+        while (nextElement())
+            extensionsType.getAny().add(readExtension());
+        return extensionsType;
+    }
+
+    private Object readExtension() throws XMLStreamException, JAXBException {
+        String namespaceUri = getNamespaceURI();
+        String localName = getLocalName();
+
+        if ("TrackPointExtension".equals(localName)) {
+            if (GARMIN_TRACKPOINT_EXTENSIONS_2_NAMESPACE_URI.equals(namespaceUri))
+                return trackpoint2Factory.createTrackPointExtension(readTrackPoint2Extension());
+            if (GARMIN_TRACKPOINT_EXTENSIONS_1_NAMESPACE_URI.equals(namespaceUri))
+                return trackpoint1Factory.createTrackPointExtension(readTrackPoint1Extension());
+            if (GARMIN_EXTENSIONS_3_NAMESPACE_URI.equals(namespaceUri))
+                return garmin3Factory.createTrackPointExtension(readGarmin3TrackPointExtension());
+        }
+
+        if (TREKBUDDY_EXTENSIONS_0984_NAMESPACE_URI.equals(namespaceUri)) {
+            if ("speed".equals(localName))
+                return trekbuddyFactory.createSpeed(readDecimal());
+            if ("course".equals(localName))
+                return trekbuddyFactory.createCourse(readDecimal());
+        }
+
+        if (getBoundElements11().contains(new QName(namespaceUri, localName)))
+            return unmarshal(getUnmarshaller());
+        return readElement();
+    }
+
+    private slash.navigation.gpx.trackpoint2.TrackPointExtensionT readTrackPoint2Extension() throws XMLStreamException, JAXBException {
+        slash.navigation.gpx.trackpoint2.TrackPointExtensionT trackPoint = trackpoint2Factory.createTrackPointExtensionT();
+        while (nextElement()) {
+            if (!GARMIN_TRACKPOINT_EXTENSIONS_2_NAMESPACE_URI.equals(getNamespaceURI())) {
+                skipElement();
+                continue;
+            }
+
+            switch (getLocalName()) {
+                case "atemp" -> trackPoint.setAtemp(readDouble());
+                case "wtemp" -> trackPoint.setWtemp(readDouble());
+                case "depth" -> trackPoint.setDepth(readDouble());
+                case "hr" -> trackPoint.setHr(readShort());
+                case "cad" -> trackPoint.setCad(readShort());
+                case "speed" -> trackPoint.setSpeed(readDouble());
+                case "course" -> trackPoint.setCourse(readDecimal());
+                case "bearing" -> trackPoint.setBearing(readDecimal());
+                case "Extensions" -> trackPoint.setExtensions(unmarshal(getUnmarshaller(), slash.navigation.gpx.trackpoint2.ExtensionsT.class));
+                default -> skipElement();
+            }
+        }
+        return trackPoint;
+    }
+
+    private slash.navigation.gpx.trackpoint1.TrackPointExtensionT readTrackPoint1Extension() throws XMLStreamException, JAXBException {
+        slash.navigation.gpx.trackpoint1.TrackPointExtensionT trackPoint = trackpoint1Factory.createTrackPointExtensionT();
+        while (nextElement()) {
+            if (!GARMIN_TRACKPOINT_EXTENSIONS_1_NAMESPACE_URI.equals(getNamespaceURI())) {
+                skipElement();
+                continue;
+            }
+
+            switch (getLocalName()) {
+                case "atemp" -> trackPoint.setAtemp(readDouble());
+                case "wtemp" -> trackPoint.setWtemp(readDouble());
+                case "depth" -> trackPoint.setDepth(readDouble());
+                case "hr" -> trackPoint.setHr(readShort());
+                case "cad" -> trackPoint.setCad(readShort());
+                case "Extensions" -> trackPoint.setExtensions(unmarshal(getUnmarshaller(), slash.navigation.gpx.trackpoint1.ExtensionsT.class));
+                default -> skipElement();
+            }
+        }
+        return trackPoint;
+    }
+
+    private slash.navigation.gpx.garmin3.TrackPointExtensionT readGarmin3TrackPointExtension() throws XMLStreamException, JAXBException {
+        slash.navigation.gpx.garmin3.TrackPointExtensionT trackPoint = garmin3Factory.createTrackPointExtensionT();
+        while (nextElement()) {
+            if (!GARMIN_EXTENSIONS_3_NAMESPACE_URI.equals(getNamespaceURI())) {
+                skipElement();
+                continue;
+            }
+
+            switch (getLocalName()) {
+                case "Temperature" -> trackPoint.setTemperature(readDouble());
+                case "Depth" -> trackPoint.setDepth(readDouble());
+                case "Extensions" -> trackPoint.setExtensions(unmarshal(getUnmarshaller(), slash.navigation.gpx.garmin3.ExtensionsT.class));
+                default -> skipElement();
+            }
+        }
+        return trackPoint;
+    }
+}
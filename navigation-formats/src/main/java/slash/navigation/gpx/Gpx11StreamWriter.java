@@ -0,0 +1,287 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.gpx;
+
+import slash.navigation.gpx.binding11.*;
+
+import jakarta.xml.bind.JAXBElement;
+import jakarta.xml.bind.Marshaller;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static slash.navigation.gpx.GpxUtil.*;
+
+/**
+ * Writes GPS Exchange Format 1.1 (.gpx) files element by element.
+ *
+ * @author Christian Pesch
+ */
+
+class Gpx11StreamWriter extends GpxStreamWriter {
+    private static final Map<String, String> PREFIXES = new LinkedHashMap<>();
+
+    static {
+        // in the order and with the prefixes of the JAXB marshaller
+        PREFIXES.put(GARMIN_TRACKPOINT_EXTENSIONS_1_NAMESPACE_URI, "gpxtpx1");
+        PREFIXES.put(GPX_11_NAMESPACE_URI, "");
+        PREFIXES.put(GARMIN_TRIP_EXTENSIONS_1_NAMESPACE_URI, "trp");
+        PREFIXES.put(GARMIN_EXTENSIONS_3_NAMESPACE_URI, "gpxx");
+        PREFIXES.put(OSMAND_EXTENSIONS_NAMESPACE_URI, "osmand");
+        PREFIXES.put(GARMIN_TRACKPOINT_EXTENSIONS_2_NAMESPACE_URI, "gpxtpx");
+        PREFIXES.put(TREKBUDDY_EXTENSIONS_0984_NAMESPACE_URI, "ns7");
+    }
+
+    Gpx11StreamWriter(OutputStream target) throws IOException {
+        super(target, PREFIXES);
+    }
+
+    protected Marshaller createMarshaller() {
+        return newMarshaller11();
+    }
+
+    private void element(String localName, Object value) throws IOException {
+        element(GPX_11_NAMESPACE_URI, localName, value);
+    }
+
+    void startGpx(String version, String creator) throws IOException {
+        // declare the namespaces of all bindings at the root like the JAXB marshaller does
+        startElement(GPX_11_NAMESPACE_URI, "gpx");
+        for (Map.Entry<String, String> entry : PREFIXES.entrySet())
+            declareNamespace(entry.getValue(), entry.getKey());
+        attribute("version", version);
+        attribute("creator", creator);
+    }
+
+    void endGpx(ExtensionsType extensionsType) throws IOException {
+        writeExtensions(extensionsType);
+        endElement();
+    }
+
+    void writeMetadata(MetadataType metadataType) throws IOException {
+        if (metadataType == null)
+            return;
+        startElement(GPX_11_NAMESPACE_URI, "metadata");
+        element("name", metadataType.getName());
+        element("desc", metadataType.getDesc());
+        writePerson(metadataType.getAuthor());
+        writeCopyright(metadataType.getCopyright());
+        writeLinks(metadataType.getLink());
+        element("time", metadataType.getTime());
+        element("keywords", metadataType.getKeywords());
+        writeBounds(metadataType.getBounds());
+        writeExtensions(metadataType.getExtensions());
+        endElement();
+    }
+
+    private void writePerson(PersonType personType) throws IOException {
+        if (personType == null)
+            return;
+        startElement(GPX_11_NAMESPACE_URI, "author");
+        element("name", personType.getName());
+        EmailType emailType = personType.getEmail();
+        if (emailType != null) {
+            startElement(GPX_11_NAMESPACE_URI, "email");
+            attribute("id", emailType.getId());
+            attribute("domain", emailType.getDomain());
+            endElement();
+        }
+        writeLink(personType.getLink());
+        endElement();
+    }
+
+    private void writeCopyright(CopyrightType copyrightType) throws IOException {
+        if (copyrightType == null)
+            return;
+        startElement(GPX_11_NAMESPACE_URI, "copyright");
+        attribute("author", copyrightType.getAuthor());
+        element("year", copyrightType.getYear());
+        element("license", copyrightType.getLicense());
+        endElement();
+    }
+
+    private void writeLinks(List<LinkType> linkTypes) throws IOException {
+        for (LinkType linkType : linkTypes)
+            writeLink(linkType);
+    }
+
+    private void writeLink(LinkType linkType) throws IOException {
+        if (linkType == null)
+            return;
+        startElement(GPX_11_NAMESPACE_URI, "link");
+        attribute("href", linkType.getHref());
+        element("text", linkType.getText());
+        element("type", linkType.getType());
+        endElement();
+    }
+
+    private void writeBounds(BoundsType boundsType) throws IOException {
+        if (boundsType == null)
+            return;
+        startElement(GPX_11_NAMESPACE_URI, "bounds");
+        attribute("minlat", boundsType.getMinlat());
+        attribute("minlon", boundsType.getMinlon());
+        attribute("maxlat", boundsType.getMaxlat());
+        attribute("maxlon", boundsType.getMaxlon());
+        endElement();
+    }
+
+    private void writeExtensions(ExtensionsType extensionsType) throws IOException {
+        if (extensionsType == null)
+            return;
+        startElement(GPX_11_NAMESPACE_URI, "extensions");
+        for (Object any : extensionsType.getAny())
+            any(any);
+        endElement();
+    }
+
+    /**
+     * Writes a {@code wpt}, {@code rtept} or {@code trkpt} element.
+     */
+    void writeWpt(String localName, WptType wptType) throws IOException {
+        startElement(GPX_11_NAMESPACE_URI, localName);
+        attribute("lat", wptType.getLat());
+        attribute("lon", wptType.getLon());
+        element("ele", wptType.getEle());
+        element("time", wptType.getTime());
+        element("magvar", wptType.getMagvar());
+        element("geoidheight", wptType.getGeoidheight());
+        element("name", wptType.getName());
+        element("cmt", wptType.getCmt());
+        element("desc", wptType.getDesc());
+        element("src", wptType.getSrc());
+        writeLinks(wptType.getLink());
+        element("sym", wptType.getSym());
+        element("type", wptType.getType());
+        element("fix", wptType.getFix());
+        element("sat", wptType.getSat());
+        element("hdop", wptType.getHdop());
+        element("vdop", wptType.getVdop());
+        element("pdop", wptType.getPdop());
+        element("ageofdgpsdata", wptType.getAgeofdgpsdata());
+        element("dgpsid", wptType.getDgpsid());
+        writeExtensions(wptType.getExtensions());
+        endElement();
+    }
+
+    /**
+     * Writes the start and the header of a {@code rte} element, the {@code rtept} elements follow.
+     */
+    void startRte(RteType rteType) throws IOException {
+        startElement(GPX_11_NAMESPACE_URI, "rte");
+        element("name", rteType.getName());
+        element("cmt", rteType.getCmt());
+        element("desc", rteType.getDesc());
+        element("src", rteType.getSrc());
+        writeLinks(rteType.getLink());
+        element("number", rteType.getNumber());
+        element("type", rteType.getType());
+        writeExtensions(rteType.getExtensions());
+    }
+
+    void endRte() throws IOException {
+        endElement();
+    }
+
+    /**
+     * Writes the start and the header of a {@code trk} element, the {@code trkseg} elements follow.
+     */
+    void startTrk(TrkType trkType) throws IOException {
+        startElement(GPX_11_NAMESPACE_URI, "trk");
+        element("name", trkType.getName());
+        element("cmt", trkType.getCmt());
+        element("desc", trkType.getDesc());
+        element("src", trkType.getSrc());
+        writeLinks(trkType.getLink());
+        element("number", trkType.getNumber());
+        element("type", trkType.getType());
+        writeExtensions(trkType.getExtensions());
+    }
+
+    void endTrk() throws IOException {
+        endElement();
+    }
+
+    void startTrkseg() throws IOException {
+        startElement(GPX_11_NAMESPACE_URI, "trkseg");
+    }
+
+    void endTrkseg(TrksegType trksegType) throws IOException {
+        if (trksegType != null)
+            writeExtensions(trksegType.getExtensions());
+        endElement();
+    }
+
+    protected boolean writeNatively(JAXBElement<?> jaxbElement) throws IOException {
+        Object value = jaxbElement.getValue();
+        if (value instanceof slash.navigation.gpx.trackpoint2.TrackPointExtensionT trackPoint) {
+            String namespaceUri = GARMIN_TRACKPOINT_EXTENSIONS_2_NAMESPACE_URI;
+            startElement(namespaceUri, "TrackPointExtension");
+            element(namespaceUri, "atemp", trackPoint.getAtemp());
+            element(namespaceUri, "wtemp", trackPoint.getWtemp());
+            element(namespaceUri, "depth", trackPoint.getDepth());
+            element(namespaceUri, "hr", trackPoint.getHr());
+            element(namespaceUri, "cad", trackPoint.getCad());
+            element(namespaceUri, "speed", trackPoint.getSpeed());
+            element(namespaceUri, "course", trackPoint.getCourse());
+            element(namespaceUri, "bearing", trackPoint.getBearing());
+            if (trackPoint.getExtensions() != null)
+                writeExtensions(namespaceUri, trackPoint.getExtensions().getAny());
+            endElement();
+            return true;
+        }
+
+        if (value instanceof slash.navigation.gpx.trackpoint1.TrackPointExtensionT trackPoint) {
+            String namespaceUri = GARMIN_TRACKPOINT_EXTENSIONS_1_NAMESPACE_URI;
+            startElement(namespaceUri, "TrackPointExtension");
+            element(namespaceUri, "atemp", trackPoint.getAtemp());
+            element(namespaceUri, "wtemp", trackPoint.getWtemp());
+            element(namespaceUri, "depth", trackPoint.getDepth());
+            element(namespaceUri, "hr", trackPoint.getHr());
+            element(namespaceUri, "cad", trackPoint.getCad());
+            if (trackPoint.getExtensions() != null)
+                writeExtensions(namespaceUri, trackPoint.getExtensions().getAny());
+            endElement();
+            return true;
+        }
+
+        if (value instanceof slash.navigation.gpx.garmin3.TrackPointExtensionT trackPoint) {
+            String namespaceUri = GARMIN_EXTENSIONS_3_NAMESPACE_URI;
+            startElement(namespaceUri, "TrackPointExtension");
+            element(namespaceUri, "Temperature", trackPoint.getTemperature());
+            element(namespaceUri, "Depth", trackPoint.getDepth());
+            if (trackPoint.getExtensions() != null)
+                writeExtensions(namespaceUri, trackPoint.getExtensions().getAny());
+            endElement();
+            return true;
+        }
+        return false;
+    }
+
+    private void writeExtensions(String namespaceUri, List<Object> anys) throws IOException {
+        startElement(namespaceUri, "Extensions");
+        for (Object any : anys)
+            any(any);
+        endElement();
+    }
+}
@@ -20,11 +20,19 @@
 
 package slash.navigation.gpx;
 
+import slash.navigation.base.ContentSignature;
 import slash.navigation.base.MultipleRoutesFormat;
+import slash.navigation.base.ParserContext;
+import slash.navigation.base.PositionSink;
+import slash.navigation.base.PositionSinks;
+import slash.navigation.base.PositionStreamingFormat;
 import slash.navigation.base.RouteCharacteristics;
 import slash.navigation.base.XmlNavigationFormat;
 import slash.navigation.common.NavigationPosition;
 
+import javax.xml.namespace.QName;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.prefs.Preferences;
 import java.util.regex.Matcher;
@@ -38,7 +46,7 @@ import static slash.common.io.Transfer.parseDouble;
  * @author Christian Pesch
  */
 
-public abstract class GpxFormat extends XmlNavigationFormat<GpxRoute> implements MultipleRoutesFormat<GpxRoute> {
+public abstract class GpxFormat extends XmlNavigationFormat<GpxRoute> implements MultipleRoutesFormat<GpxRoute>, PositionStreamingFormat<GpxPosition> {
     private static final Preferences preferences = Preferences.userNodeForPackage(GpxFormat.class);
     static final Pattern TRIPMASTER_REASON_PATTERN = Pattern.compile("(Punkt|Richtung \\d+|Abstand \\d+|Dur. \\d+:\\d+:\\d+|Course \\d+|Dist. \\d+) (-|:) (.+)");
     private static final Pattern TRIPMASTER_SPEED_PATTERN = Pattern.compile("[^-\\d\\.]*([-\\d\\.]+)\\s*(K|k)m/h.*");
@@ -62,6 +70,42 @@ public abstract class GpxFormat extends XmlNavigationFormat<GpxRoute> implements
         return new GpxRoute(this, characteristics, name, null, (List<GpxPosition>) positions);
     }
 
+    GpxRoute createRoute(RouteCharacteristics characteristics, String name, String description,
+                         List<GpxPosition> positions, Object... origins) {
+        return new GpxRoute(this, characteristics, name, asDescription(description), positions, origins);
+    }
+
+    public void read(InputStream source, ParserContext<?> context, PositionSink<GpxPosition> sink) throws IOException {
+        // JAXB unmarshals the complete document before the routes are known
+        PositionSinks.read(this, source, context, sink);
+    }
+
+    /**
+     * Compacts the origins of the positions read from a file: what writing takes from the
+     * position anyway is released, the rest is kept for a lossless round trip. Conversions
+     * that never write a file of this format again release the origins completely.
+     */
+    void compactOrigins(List<GpxRoute> routes) {
+        boolean keepOrigins = isKeepOrigins();
+        for (GpxRoute route : routes) {
+            for (GpxPosition position : route.getPositions()) {
+                if (keepOrigins)
+                    compactOrigin(position);
+                else
+                    position.removeOrigin();
+            }
+        }
+    }
+
+    protected abstract void compactOrigin(GpxPosition position);
+
+    protected boolean isUnreadable(ContentSignature signature, String namespaceUri) {
+        // JAXB rejects any other root element, also the one of the other GPX version
+        QName rootElement = signature.getRootElement();
+        return super.isUnreadable(signature) ||
+                rootElement != null && !rootElement.equals(new QName(namespaceUri, "gpx"));
+    }
+
     protected String asWayPointDescription(String name, String description) {
         return asDescription(name, description);
     }
@@ -117,6 +161,10 @@ public abstract class GpxFormat extends XmlNavigationFormat<GpxRoute> implements
         };
     }
 
+    protected boolean isKeepOrigins() {
+        return preferences.getBoolean("keepOrigins", true);
+    }
+
     protected boolean isWriteAccuracy() {
         return preferences.getBoolean("writeAccuracy", true);
     }
@@ -138,6 +138,23 @@ public class GpxPosition extends Wgs84Position implements ExtendedSensorNavigati
         this.positionExtension = positionExtension;
     }
 
+    // moves the values the position extension reads from the origin into the position, so
+    // that neither the origin nor the position extension has to be kept
+    void removeOrigin() {
+        Double heading = getHeading();
+        Double speed = getSpeed();
+        Double temperature = getTemperature();
+        Short heartBeat = getHeartBeat();
+
+        setPositionExtension(null);
+        setOrigin(null);
+
+        setHeading(heading);
+        setSpeed(speed);
+        setTemperature(temperature);
+        setHeartBeat(heartBeat);
+    }
+
     // Unlike heading/speed/temperature, hdop also has a canonical home outside the extensions -
     // the <hdop> child of <trkpt>, which Gpx11Format writes from this field. Both are written, so
     // both must be updated or the file ends up contradicting itself.
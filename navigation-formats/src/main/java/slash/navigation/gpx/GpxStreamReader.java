@@ -0,0 +1,428 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.gpx;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import slash.navigation.base.ParserContext;
+import slash.navigation.base.PositionSink;
+import slash.navigation.base.RouteCharacteristics;
+
+import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.Unmarshaller;
+import javax.xml.datatype.XMLGregorianCalendar;
+import javax.xml.namespace.QName;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import static javax.xml.XMLConstants.XMLNS_ATTRIBUTE;
+import static javax.xml.XMLConstants.XMLNS_ATTRIBUTE_NS_URI;
+import static javax.xml.stream.XMLStreamConstants.CDATA;
+import static javax.xml.stream.XMLStreamConstants.CHARACTERS;
+import static javax.xml.stream.XMLStreamConstants.END_DOCUMENT;
+import static javax.xml.stream.XMLStreamConstants.END_ELEMENT;
+import static javax.xml.stream.XMLStreamConstants.SPACE;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+import static slash.common.io.InputOutput.checkInterrupted;
+import static slash.common.io.Transfer.parseXMLGregorianCalendar;
+import static slash.common.io.Transfer.trim;
+import static slash.navigation.base.RouteCharacteristics.Waypoints;
+
+/**
+ * The base of the StAX readers that create {@link GpxRoute}s and {@link GpxPosition}s
+ * from GPS Exchange Format (.gpx) files element by element instead of unmarshalling
+ * the complete document with JAXB first.
+ * <p>
+ * Values are converted as leniently as JAXB does: unknown elements are skipped and
+ * values that cannot be converted are {@code null}.
+ *
+ * @author Christian Pesch
+ */
+
+abstract class GpxStreamReader {
+    private static final XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+    static {
+        xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    private final GpxFormat format;
+    private final String namespaceUri;
+    private XMLStreamReader reader;
+    private RouteHandler handler;
+    private Document document;
+    // true if the reader already points to the token after the end of the last element
+    private boolean advanced;
+
+    GpxStreamReader(GpxFormat format, String namespaceUri) {
+        this.format = format;
+        this.namespaceUri = namespaceUri;
+    }
+
+    private interface RouteHandler {
+        void beginRoute(RouteCharacteristics characteristics, String name, String description, Object... origins) throws IOException;
+        void addPosition(GpxPosition position) throws IOException;
+        void endRoute() throws IOException;
+    }
+
+    void read(InputStream source, ParserContext<GpxRoute> context) throws IOException {
+        List<GpxRoute> routes = new ArrayList<>();
+        read(source, new RouteHandler() {
+            private RouteCharacteristics characteristics;
+            private String name, description;
+            private Object[] origins;
+            private List<GpxPosition> positions;
+            private GpxRoute wayPointsAsRoute;
+
+            public void beginRoute(RouteCharacteristics characteristics, String name, String description, Object... origins) {
+                this.characteristics = characteristics;
+                this.name = name;
+                this.description = description;
+                this.origins = origins;
+                this.positions = new ArrayList<>();
+            }
+
+            public void addPosition(GpxPosition position) {
+                positions.add(position);
+            }
+
+            public void endRoute() {
+                GpxRoute route = format.createRoute(characteristics, name, description, positions, origins);
+                if (characteristics != Waypoints)
+                    routes.add(route);
+                // like the unmarshaller, collect way points that are not in front into the first way points route
+                else if (wayPointsAsRoute == null) {
+                    wayPointsAsRoute = route;
+                    routes.add(0, route);
+                } else
+                    wayPointsAsRoute.getPositions().addAll(positions);
+            }
+        });
+        // like the unmarshaller, deliver routes only for a document that could be read completely
+        format.compactOrigins(routes);
+        context.appendRoutes(routes);
+    }
+
+    void read(InputStream source, PositionSink<GpxPosition> sink) throws IOException {
+        read(source, new RouteHandler() {
+            public void beginRoute(RouteCharacteristics characteristics, String name, String description, Object... origins) throws IOException {
+                sink.beginRoute(characteristics, name);
+            }
+
+            public void addPosition(GpxPosition position) throws IOException {
+                sink.addPosition(position);
+            }
+
+            public void endRoute() throws IOException {
+                sink.endRoute();
+            }
+        });
+    }
+
+    private void read(InputStream source, RouteHandler handler) throws IOException {
+        this.handler = handler;
+        try {
+            reader = xmlInputFactory.createXMLStreamReader(source);
+            try {
+                while (reader.getEventType() != START_ELEMENT) {
+                    if (!reader.hasNext())
+                        throw new IOException("Parse error: no root element");
+                    reader.next();
+                }
+
+                QName rootElement = reader.getName();
+                if (!new QName(namespaceUri, "gpx").equals(rootElement))
+                    throw new IOException("Parse error: unexpected root element " + rootElement);
+                readGpx();
+
+                // reject content after the root element like the unmarshaller does
+                while (reader.hasNext())
+                    reader.next();
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException | JAXBException e) {
+            throw new IOException("Parse error: " + e, e);
+        }
+    }
+
+    protected abstract void readGpx() throws XMLStreamException, JAXBException, IOException;
+
+    protected void beginRoute(RouteCharacteristics characteristics, String name, String description, Object... origins) throws IOException {
+        handler.beginRoute(characteristics, name, description, origins);
+    }
+
+    protected void addPosition(GpxPosition position) throws IOException {
+        checkInterrupted();
+        handler.addPosition(position);
+    }
+
+    protected void endRoute() throws IOException {
+        handler.endRoute();
+    }
+
+    /**
+     * Advances to the next child element of the current element.
+     *
+     * @return false if the end of the current element is reached
+     */
+    protected boolean nextElement() throws XMLStreamException {
+        while (true) {
+            int event = advanced ? reader.getEventType() : reader.next();
+            advanced = false;
+            switch (event) {
+                case START_ELEMENT:
+                    return true;
+                case END_ELEMENT:
+                    return false;
+                case END_DOCUMENT:
+                    throw new XMLStreamException("Unexpected end of document");
+            }
+        }
+    }
+
+    protected String getNamespaceURI() {
+        return mapNamespaceURI(reader.getNamespaceURI());
+    }
+
+    /**
+     * Maps the namespace of an element or attribute; no namespace is {@code null}.
+     */
+    protected String mapNamespaceURI(String namespaceUri) {
+        return isEmpty(namespaceUri) ? null : namespaceUri;
+    }
+
+    protected String getLocalName() {
+        return reader.getLocalName();
+    }
+
+    protected boolean isGpxElement() {
+        return namespaceUri.equals(reader.getNamespaceURI());
+    }
+
+    protected String getAttribute(String localName) {
+        return reader.getAttributeValue(null, localName);
+    }
+
+    protected void skipElement() throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            switch (reader.next()) {
+                case START_ELEMENT -> depth++;
+                case END_ELEMENT -> depth--;
+            }
+        }
+    }
+
+    /**
+     * Reads the text of the current element; the text of nested elements is ignored.
+     */
+    protected String readText() throws XMLStreamException {
+        StringBuilder builder = new StringBuilder();
+        int depth = 1;
+        while (depth > 0) {
+            switch (reader.next()) {
+                case START_ELEMENT -> depth++;
+                case END_ELEMENT -> depth--;
+                case CHARACTERS, CDATA, SPACE -> {
+                    if (depth == 1)
+                        builder.append(reader.getText());
+                }
+            }
+        }
+        return builder.toString();
+    }
+
+    protected BigDecimal readDecimal() throws XMLStreamException {
+        return parseDecimal(readText());
+    }
+
+    protected Double readDouble() throws XMLStreamException {
+        String trimmed = trim(readText());
+        if (trimmed == null)
+            return null;
+        switch (trimmed) {
+            case "INF":
+                return Double.POSITIVE_INFINITY;
+            case "-INF":
+                return Double.NEGATIVE_INFINITY;
+        }
+        try {
+            return Double.valueOf(trimmed);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    protected BigInteger readInteger() throws XMLStreamException {
+        String trimmed = removePlus(trim(readText()));
+        try {
+            return trimmed != null ? new BigInteger(trimmed) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    protected Integer readInt() throws XMLStreamException {
+        String trimmed = removePlus(trim(readText()));
+        try {
+            return trimmed != null ? Integer.valueOf(trimmed) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    protected Short readShort() throws XMLStreamException {
+        String trimmed = removePlus(trim(readText()));
+        try {
+            return trimmed != null ? Short.valueOf(trimmed) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    protected XMLGregorianCalendar readTime() throws XMLStreamException {
+        return parseXMLGregorianCalendar(readText());
+    }
+
+    protected static BigDecimal parseDecimal(String string) {
+        String trimmed = trim(string);
+        try {
+            return trimmed != null ? new BigDecimal(trimmed) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String removePlus(String string) {
+        return string != null && string.startsWith("+") ? string.substring(1) : string;
+    }
+
+    /**
+     * Unmarshals the current element with JAXB; the reader points to the token
+     * after the end of the element afterwards.
+     */
+    protected Object unmarshal(Unmarshaller unmarshaller) throws JAXBException {
+        Object result = unmarshaller.unmarshal(reader);
+        advanced = true;
+        return result;
+    }
+
+    protected <T> T unmarshal(Unmarshaller unmarshaller, Class<T> declaredType) throws JAXBException {
+        T result = unmarshaller.unmarshal(reader, declaredType).getValue();
+        advanced = true;
+        return result;
+    }
+
+    /**
+     * Reads the current element into a DOM element like JAXB does for elements
+     * it has no binding for.
+     */
+    protected Element readElement() throws XMLStreamException {
+        Element result = createElement(null);
+        Element current = result;
+        int depth = 1;
+        while (depth > 0) {
+            switch (reader.next()) {
+                case START_ELEMENT -> {
+                    Element child = createElement(current);
+                    current.appendChild(child);
+                    current = child;
+                    depth++;
+                }
+                case END_ELEMENT -> {
+                    if (--depth > 0)
+                        current = (Element) current.getParentNode();
+                }
+                case CHARACTERS, CDATA, SPACE -> current.appendChild(getDocument().createTextNode(reader.getText()));
+            }
+        }
+        return result;
+    }
+
+    private Element createElement(Element parent) {
+        String elementNamespaceUri = getNamespaceURI();
+        String prefix = reader.getPrefix();
+        Element element = getDocument().createElementNS(elementNamespaceUri, qualify(prefix, reader.getLocalName()));
+
+        for (int i = 0; i < reader.getNamespaceCount(); i++)
+            declareNamespace(element, reader.getNamespacePrefix(i), mapNamespaceURI(reader.getNamespaceURI(i)));
+        // the declaration may be in scope from an element outside of the copy
+        if (elementNamespaceUri != null && !isDeclared(element, parent, prefix))
+            declareNamespace(element, prefix, elementNamespaceUri);
+
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            String attributeNamespaceUri = mapNamespaceURI(reader.getAttributeNamespace(i));
+            String attributePrefix = reader.getAttributePrefix(i);
+            element.setAttributeNS(attributeNamespaceUri, qualify(attributePrefix, reader.getAttributeLocalName(i)), reader.getAttributeValue(i));
+            if (attributeNamespaceUri != null && !isDeclared(element, parent, attributePrefix))
+                declareNamespace(element, attributePrefix, attributeNamespaceUri);
+        }
+        return element;
+    }
+
+    private static String qualify(String prefix, String localName) {
+        return isEmpty(prefix) ? localName : prefix + ":" + localName;
+    }
+
+    private static void declareNamespace(Element element, String prefix, String namespaceUri) {
+        element.setAttributeNS(XMLNS_ATTRIBUTE_NS_URI, isEmpty(prefix) ? XMLNS_ATTRIBUTE : qualify(XMLNS_ATTRIBUTE, prefix),
+                namespaceUri != null ? namespaceUri : "");
+    }
+
+    private static boolean isDeclared(Element element, Element parent, String prefix) {
+        String localName = isEmpty(prefix) ? XMLNS_ATTRIBUTE : prefix;
+        if (element.hasAttributeNS(XMLNS_ATTRIBUTE_NS_URI, localName))
+            return true;
+        for (Node node = parent; node instanceof Element ancestor; node = ancestor.getParentNode()) {
+            if (ancestor.hasAttributeNS(XMLNS_ATTRIBUTE_NS_URI, localName))
+                return true;
+        }
+        return false;
+    }
+
+    private static boolean isEmpty(String string) {
+        return string == null || string.isEmpty();
+    }
+
+    private Document getDocument() {
+        if (document == null) {
+            try {
+                DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+                factory.setNamespaceAware(true);
+                document = factory.newDocumentBuilder().newDocument();
+            } catch (ParserConfigurationException e) {
+                throw new IllegalStateException("Cannot create document: " + e, e);
+            }
+        }
+        return document;
+    }
+}
@@ -0,0 +1,383 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.gpx;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import jakarta.xml.bind.JAXBElement;
+import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.Marshaller;
+import javax.xml.datatype.XMLGregorianCalendar;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.transform.dom.DOMResult;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static javax.xml.XMLConstants.XMLNS_ATTRIBUTE_NS_URI;
+import static slash.common.helpers.JAXBHelper.isFormattedOutput;
+
+/**
+ * The base of the StAX writers that write GPS Exchange Format (.gpx) files element
+ * by element instead of marshalling a complete document with JAXB.
+ * <p>
+ * The output is the same as the one of the JAXB marshaller apart from whitespace:
+ * values are printed like JAXB prints them and extension content without a native
+ * writer is marshalled with JAXB and written with the namespaces that are in scope.
+ *
+ * @author Christian Pesch
+ */
+
+abstract class GpxStreamWriter implements Closeable {
+    private static final XMLOutputFactory xmlOutputFactory = XMLOutputFactory.newInstance();
+    private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>";
+    private static final String INDENT = "    ";
+
+    private final Writer writer;
+    private final XMLStreamWriter xmlWriter;
+    private final boolean formattedOutput = isFormattedOutput();
+    private final Map<String, String> preferredPrefixes;
+    private Marshaller marshaller;
+
+    // the namespace declarations and if there are child elements for every open element
+    private final Deque<Map<String, String>> namespaces = new ArrayDeque<>();
+    private final Deque<Boolean> childElements = new ArrayDeque<>();
+    private int generatedPrefixCount = 1;
+    // the content of DOM elements is written as it is without indentation
+    private int verbatimDepth;
+
+    // the start tag is written when the first child, text or the end is written
+    private String pendingPrefix, pendingLocalName, pendingNamespaceUri;
+    private boolean pendingIndentation;
+    private final Map<String, String> pendingNamespaces = new LinkedHashMap<>();
+    private final List<String[]> pendingAttributes = new ArrayList<>();
+
+    GpxStreamWriter(OutputStream target, Map<String, String> preferredPrefixes) throws IOException {
+        this.preferredPrefixes = preferredPrefixes;
+        this.writer = new BufferedWriter(new OutputStreamWriter(target, UTF_8));
+        writer.write(XML_DECLARATION);
+        try {
+            this.xmlWriter = xmlOutputFactory.createXMLStreamWriter(writer);
+        } catch (XMLStreamException e) {
+            throw new IOException("Cannot create writer: " + e, e);
+        }
+        namespaces.push(new HashMap<>());
+    }
+
+    protected abstract Marshaller createMarshaller();
+
+    private String getNamespaceURI(String prefix) {
+        String namespaceUri = pendingNamespaces.get(prefix);
+        if (namespaceUri != null)
+            return namespaceUri;
+        for (Map<String, String> scope : namespaces) {
+            namespaceUri = scope.get(prefix);
+            if (namespaceUri != null)
+                return namespaceUri;
+        }
+        return prefix.isEmpty() ? "" : null;
+    }
+
+    private String getPrefix(String namespaceUri) {
+        String preferredPrefix = preferredPrefixes.get(namespaceUri);
+        if (preferredPrefix != null && namespaceUri.equals(getNamespaceURI(preferredPrefix)))
+            return preferredPrefix;
+        for (Map.Entry<String, String> entry : pendingNamespaces.entrySet()) {
+            if (entry.getValue().equals(namespaceUri))
+                return entry.getKey();
+        }
+        for (Map<String, String> scope : namespaces) {
+            for (Map.Entry<String, String> entry : scope.entrySet()) {
+                if (entry.getValue().equals(namespaceUri) && namespaceUri.equals(getNamespaceURI(entry.getKey())))
+                    return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    private String declarePrefix(String namespaceUri) {
+        String prefix = preferredPrefixes.get(namespaceUri);
+        // the default namespace may always be redeclared, elements without namespace undeclare it again
+        while (prefix == null || (!prefix.isEmpty() && getNamespaceURI(prefix) != null))
+            prefix = "ns" + ++generatedPrefixCount;
+        pendingNamespaces.put(prefix, namespaceUri);
+        return prefix;
+    }
+
+    /**
+     * Declares the namespace at the element that is started last, after the ones declared before.
+     */
+    protected void declareNamespace(String prefix, String namespaceUri) {
+        pendingNamespaces.remove(prefix);
+        pendingNamespaces.put(prefix, namespaceUri);
+    }
+
+    protected void startElement(String namespaceUri, String localName) throws IOException {
+        startElement(namespaceUri, null, localName);
+    }
+
+    private void startElement(String namespaceUri, String prefix, String localName) throws IOException {
+        writePendingStartTag(false);
+        if (!childElements.isEmpty()) {
+            childElements.pop();
+            childElements.push(true);
+        }
+
+        String elementNamespaceUri = namespaceUri != null ? namespaceUri : "";
+        if (prefix == null)
+            prefix = elementNamespaceUri.isEmpty() ? "" : getPrefix(elementNamespaceUri);
+        if (prefix == null)
+            prefix = declarePrefix(elementNamespaceUri);
+        else if (!elementNamespaceUri.equals(getNamespaceURI(prefix)))
+            pendingNamespaces.put(prefix, elementNamespaceUri);
+
+        pendingPrefix = prefix;
+        pendingLocalName = localName;
+        pendingNamespaceUri = elementNamespaceUri;
+        pendingIndentation = verbatimDepth == 0;
+    }
+
+    protected void attribute(String localName, Object value) {
+        String string = print(value);
+        if (string != null)
+            pendingAttributes.add(new String[]{null, null, localName, string});
+    }
+
+    private void attribute(String namespaceUri, String prefix, String localName, String value) {
+        if (namespaceUri != null && !namespaceUri.isEmpty()) {
+            if (prefix == null || prefix.isEmpty() || !namespaceUri.equals(getNamespaceURI(prefix))) {
+                String declared = getPrefix(namespaceUri);
+                prefix = declared != null && !declared.isEmpty() ? declared : declarePrefix(namespaceUri);
+            }
+        } else {
+            namespaceUri = null;
+            prefix = null;
+        }
+        pendingAttributes.add(new String[]{namespaceUri, prefix, localName, value});
+    }
+
+    private void writeIndentation(int depth) throws XMLStreamException {
+        if (!formattedOutput)
+            return;
+        StringBuilder builder = new StringBuilder("\n");
+        for (int i = 0; i < depth; i++)
+            builder.append(INDENT);
+        xmlWriter.writeCharacters(builder.toString());
+    }
+
+    private void writePendingStartTag(boolean empty) throws IOException {
+        if (pendingLocalName == null)
+            return;
+
+        try {
+            if (pendingIndentation)
+                writeIndentation(childElements.size());
+            if (empty)
+                xmlWriter.writeEmptyElement(pendingPrefix, pendingLocalName, pendingNamespaceUri);
+            else
+                xmlWriter.writeStartElement(pendingPrefix, pendingLocalName, pendingNamespaceUri);
+            for (Map.Entry<String, String> entry : pendingNamespaces.entrySet()) {
+                if (entry.getKey().isEmpty())
+                    xmlWriter.writeDefaultNamespace(entry.getValue());
+                else
+                    xmlWriter.writeNamespace(entry.getKey(), entry.getValue());
+            }
+            for (String[] attribute : pendingAttributes) {
+                if (attribute[0] != null)
+                    xmlWriter.writeAttribute(attribute[1], attribute[0], attribute[2], attribute[3]);
+                else
+                    xmlWriter.writeAttribute(attribute[2], attribute[3]);
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Cannot write " + pendingLocalName + ": " + e, e);
+        }
+
+        if (!empty) {
+            namespaces.push(new HashMap<>(pendingNamespaces));
+            childElements.push(false);
+        }
+        pendingPrefix = null;
+        pendingLocalName = null;
+        pendingNamespaceUri = null;
+        pendingNamespaces.clear();
+        pendingAttributes.clear();
+    }
+
+    protected void endElement() throws IOException {
+        if (pendingLocalName != null) {
+            writePendingStartTag(true);
+            return;
+        }
+
+        try {
+            namespaces.pop();
+            if (childElements.pop() && verbatimDepth == 0)
+                writeIndentation(childElements.size());
+            xmlWriter.writeEndElement();
+        } catch (XMLStreamException e) {
+            throw new IOException("Cannot write end of element: " + e, e);
+        }
+    }
+
+    protected void text(String text) throws IOException {
+        writePendingStartTag(false);
+        try {
+            xmlWriter.writeCharacters(text);
+        } catch (XMLStreamException e) {
+            throw new IOException("Cannot write text: " + e, e);
+        }
+    }
+
+    /**
+     * Writes an element with the value printed like JAXB does; {@code null} values are omitted.
+     */
+    protected void element(String namespaceUri, String localName, Object value) throws IOException {
+        String string = print(value);
+        if (string == null)
+            return;
+        startElement(namespaceUri, localName);
+        text(string);
+        endElement();
+    }
+
+    static String print(Object value) {
+        if (value == null)
+            return null;
+        if (value instanceof BigDecimal decimal)
+            return decimal.toPlainString();
+        if (value instanceof Double aDouble) {
+            if (aDouble.isNaN())
+                return "NaN";
+            if (aDouble == Double.POSITIVE_INFINITY)
+                return "INF";
+            if (aDouble == Double.NEGATIVE_INFINITY)
+                return "-INF";
+            return aDouble.toString();
+        }
+        if (value instanceof XMLGregorianCalendar calendar)
+            return calendar.toXMLFormat();
+        return value.toString();
+    }
+
+    private static boolean isSimpleValue(Object value) {
+        return value instanceof String || value instanceof Number || value instanceof XMLGregorianCalendar;
+    }
+
+    /**
+     * Writes an element of an {@code xsd:any} list: a DOM element, a {@link JAXBElement}
+     * or an object of a JAXB class.
+     */
+    protected void any(Object any) throws IOException {
+        if (any instanceof Element element)
+            element(element, true);
+        else if (any instanceof JAXBElement<?> jaxbElement && isSimpleValue(jaxbElement.getValue()))
+            element(jaxbElement.getName().getNamespaceURI(), jaxbElement.getName().getLocalPart(), jaxbElement.getValue());
+        else if (!(any instanceof JAXBElement<?> jaxbElement && writeNatively(jaxbElement)))
+            marshal(any);
+    }
+
+    /**
+     * Writes the given element without JAXB.
+     *
+     * @return false if there is no native writer for the element
+     */
+    protected boolean writeNatively(JAXBElement<?> jaxbElement) throws IOException {
+        return false;
+    }
+
+    private void marshal(Object any) throws IOException {
+        // JAXB declares the namespaces again when marshalling onto the stream writer
+        DOMResult result = new DOMResult();
+        try {
+            if (marshaller == null)
+                marshaller = createMarshaller();
+            marshaller.marshal(any, result);
+        } catch (JAXBException e) {
+            throw new IOException("Cannot marshall " + any + ": " + e, e);
+        }
+        element(((Document) result.getNode()).getDocumentElement(), false);
+    }
+
+    private void element(Element element, boolean verbatim) throws IOException {
+        startElement(element.getNamespaceURI(), element.getPrefix() != null ? element.getPrefix() : "", element.getLocalName());
+
+        NamedNodeMap attributes = element.getAttributes();
+        for (int i = 0; i < attributes.getLength(); i++) {
+            Attr attribute = (Attr) attributes.item(i);
+            // namespaces are declared where they are used
+            if (!XMLNS_ATTRIBUTE_NS_URI.equals(attribute.getNamespaceURI()))
+                attribute(attribute.getNamespaceURI(), attribute.getPrefix(), attribute.getLocalName() != null ?
+                        attribute.getLocalName() : attribute.getName(), attribute.getValue());
+        }
+
+        if (verbatim)
+            verbatimDepth++;
+        try {
+            for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+                switch (child.getNodeType()) {
+                    case Node.ELEMENT_NODE -> element((Element) child, verbatim);
+                    case Node.TEXT_NODE, Node.CDATA_SECTION_NODE -> text(child.getNodeValue());
+                }
+            }
+            endElement();
+        } finally {
+            if (verbatim)
+                verbatimDepth--;
+        }
+    }
+
+    public void close() throws IOException {
+        try {
+            try {
+                writePendingStartTag(true);
+                while (!childElements.isEmpty())
+                    endElement();
+                xmlWriter.writeEndDocument();
+                xmlWriter.flush();
+                xmlWriter.close();
+                if (formattedOutput)
+                    writer.write("\n");
+            } finally {
+                writer.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Cannot close writer: " + e, e);
+        }
+    }
+}
@@ -349,8 +349,7 @@ public abstract class KmlFormat extends BaseKmlFormat {
             if (tavelLogMatcher.matches()) {
                 String timeString = tavelLogMatcher.group(1);
                 try {
-                    Date parsed = createDateFormat(TAVELLOG_DATE).parse(timeString);
-                    position.setTime(fromDate(parsed));
+                    position.setTime(parse(timeString, TAVELLOG_DATE));
                 } catch (ParseException e) {
                     // intentionally left empty;
                 }
@@ -359,8 +358,7 @@ public abstract class KmlFormat extends BaseKmlFormat {
             if (navigonMatcher.matches()) {
                 String timeString = navigonMatcher.group(1);
                 try {
-                    Date parsed = createDateFormat(NAVIGON6310_TIME).parse(timeString);
-                    position.setTime(fromDate(parsed));
+                    position.setTime(parse(timeString, NAVIGON6310_TIME));
                     position.setStartDate(startDate);
                 } catch (ParseException e) {
                     // intentionally left empty;
@@ -370,8 +368,7 @@ public abstract class KmlFormat extends BaseKmlFormat {
             if (bt747Matcher.matches()) {
                 String timeString = bt747Matcher.group(1);
                 try {
-                    Date parsed = createDateFormat(BT747_DATE, Locale.ENGLISH).parse(timeString);
-                    position.setTime(fromDate(parsed));
+                    position.setTime(parse(timeString, BT747_DATE, Locale.ENGLISH));
                 } catch (ParseException e) {
                     // intentionally left empty;
                 }
@@ -381,8 +378,7 @@ public abstract class KmlFormat extends BaseKmlFormat {
                 String dateString = qstarzMatcher.group(1);
                 String timeString = qstarzMatcher.group(2);
                 try {
-                    Date parsed = createDateFormat(TAVELLOG_DATE).parse(dateString + " " + timeString);
-                    position.setTime(fromDate(parsed));
+                    position.setTime(parse(dateString + " " + timeString, TAVELLOG_DATE));
                 } catch (ParseException e) {
                     // intentionally left empty;
                 }
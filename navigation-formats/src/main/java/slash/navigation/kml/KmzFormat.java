@@ -21,6 +21,7 @@
 package slash.navigation.kml;
 
 import slash.common.io.NotClosingUnderlyingInputStream;
+import slash.navigation.base.ContentSignature;
 import slash.navigation.base.ParserContext;
 import slash.navigation.base.RouteCharacteristics;
 import slash.navigation.common.NavigationPosition;
@@ -68,6 +69,10 @@ public abstract class KmzFormat extends BaseKmlFormat {
         return delegate.createRoute(characteristics, name, positions);
     }
 
+    protected boolean isUnreadable(ContentSignature signature) {
+        return !signature.isZipArchive();
+    }
+
     public void read(InputStream source, ParserContext<KmlRoute> context) throws IOException {
         try (ZipInputStream zip = new ZipInputStream(source)) {
             ZipEntry entry;
@@ -21,32 +21,33 @@
 package slash.navigation.nmea;
 
 import slash.common.type.CompactCalendar;
+import slash.navigation.base.ContentSignature;
 import slash.navigation.base.ParserContext;
+import slash.navigation.base.PositionSink;
+import slash.navigation.base.PositionStreamingFormat;
 import slash.navigation.base.RouteCharacteristics;
+import slash.navigation.base.RouteCollectingPositionSink;
 import slash.navigation.base.SimpleFormat;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.*;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.text.ParseException;
-import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Date;
 import java.util.List;
 import java.util.logging.Logger;
 import java.util.prefs.Preferences;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import static java.lang.String.format;
 import static java.util.Locale.US;
+import static slash.common.io.InputOutput.checkInterrupted;
+import static slash.common.io.Transfer.ISO_LATIN1_ENCODING;
 import static slash.common.io.Transfer.isEmpty;
 import static slash.common.io.Transfer.trim;
 import static slash.common.type.CompactCalendar.*;
 import static slash.common.type.HexadecimalNumber.decodeBytes;
 import static slash.common.type.HexadecimalNumber.encodeByte;
+import static slash.navigation.nmea.NmeaSentence.containsLineTerminator;
 import static slash.navigation.base.RouteCharacteristics.Track;
 
 /**
@@ -55,7 +56,7 @@ import static slash.navigation.base.RouteCharacteristics.Track;
  * @author Christian Pesch
  */
 
-public abstract class BaseNmeaFormat extends SimpleFormat<NmeaRoute> {
+public abstract class BaseNmeaFormat extends SimpleFormat<NmeaRoute> implements PositionStreamingFormat<NmeaPosition> {
     private static final Preferences preferences = Preferences.userNodeForPackage(BaseNmeaFormat.class);
     protected final Logger log;
 
@@ -63,7 +64,6 @@ public abstract class BaseNmeaFormat extends SimpleFormat<NmeaRoute> {
     static final String BEGIN_OF_LINE = "^\\$G[NP]";
     static final String END_OF_LINE = "\\*[0-9A-Fa-f][0-9A-Fa-f]$";
 
-    private static final Pattern LINE_PATTERN = Pattern.compile("(^@.*|^\\$.*|" + BEGIN_OF_LINE + ".*" + END_OF_LINE + ")");
 
     private static final String DATE_AND_PRECISE_TIME_FORMAT = "ddMMyy HHmmss.SSS";
     private static final String PRECISE_DATE_AND_TIME_FORMAT = "ddMMyyyy HHmmss";
@@ -99,18 +99,39 @@ public abstract class BaseNmeaFormat extends SimpleFormat<NmeaRoute> {
         return 0;
     }
 
+    protected boolean isUnreadable(ContentSignature signature) {
+        // counts like read() and would throw for too much garble
+        int lineCount = 0;
+        for (String line : signature.getLines()) {
+            if (trim(line) == null)
+                continue;
+            if (!isValidLine(line) && lineCount++ > getGarbleCount())
+                return true;
+        }
+        return false;
+    }
+
     protected RouteCharacteristics getCharacteristics() {
         return Track;
     }
 
     public void read(BufferedReader reader, String encoding, ParserContext<NmeaRoute> context) throws IOException {
-        List<NmeaPosition> positions = new ArrayList<>();
+        read(reader, context, new RouteCollectingPositionSink<>(this, context));
+    }
 
+    public void read(InputStream source, ParserContext<?> context, PositionSink<NmeaPosition> sink) throws IOException {
+        try (Reader reader = new InputStreamReader(source, ISO_LATIN1_ENCODING)) {
+            read(new BufferedReader(reader), context, sink);
+        }
+    }
+
+    protected void read(BufferedReader reader, ParserContext<?> context, PositionSink<NmeaPosition> sink) throws IOException {
         CompactCalendar startDate = context.getStartDate();
         CompactCalendar originalStartDate = startDate;
         int lineCount = 0;
         NmeaPosition previous = null;
         while (true) {
+            checkInterrupted();
             String line = reader.readLine();
             if (line == null)
                 break;
@@ -129,7 +150,11 @@ public abstract class BaseNmeaFormat extends SimpleFormat<NmeaRoute> {
                         position.setStartDate(startDate);
 
                     if (haveDifferentLongitudeAndLatitude(previous, position) || haveDifferentTime(previous, position) /*&& !validStartDate*/) {
-                        positions.add(position);
+                        // sentences are only merged into the latest position, so the one before is complete
+                        if (previous != null)
+                            sink.addPosition(previous);
+                        else
+                            sink.beginRoute(getCharacteristics(), null);
                         previous = position;
                     } else if (previous != null) {
                         mergePositions(previous, position, originalStartDate);
@@ -146,8 +171,10 @@ public abstract class BaseNmeaFormat extends SimpleFormat<NmeaRoute> {
             }
         }
 
-        if (!positions.isEmpty())
-            context.appendRoute(createRoute(getCharacteristics(), null, positions));
+        if (previous != null) {
+            sink.addPosition(previous);
+            sink.endRoute();
+        }
     }
 
     boolean haveDifferentLongitudeAndLatitude(NmeaPosition predecessor, NmeaPosition successor) {
@@ -208,8 +235,10 @@ public abstract class BaseNmeaFormat extends SimpleFormat<NmeaRoute> {
     }
 
     protected boolean isValidLine(String line) {
-        Matcher matcher = LINE_PATTERN.matcher(line);
-        return matcher.matches();
+        if (line.isEmpty())
+            return false;
+        char first = line.charAt(0);
+        return (first == '@' || first == '$') && !containsLineTerminator(line, 1, line.length());
     }
 
     private byte computeChecksum(String line) {
@@ -221,6 +250,18 @@ public abstract class BaseNmeaFormat extends SimpleFormat<NmeaRoute> {
     }
 
     protected boolean hasValidChecksum(String line) {
+        int length = line.length();
+        // compare byte-wise first and create the strings only for the error message
+        if (length > 3) {
+            int checksum = 0;
+            for (int i = 1; i < length - 3; i++)
+                checksum ^= line.charAt(i);
+            int high = Character.digit(line.charAt(length - 2), 16);
+            int low = Character.digit(line.charAt(length - 1), 16);
+            if (high >= 0 && low >= 0 && (checksum & 0xFF) == (high << 4 | low))
+                return true;
+        }
+
         String lineForChecksum = line.substring(1, line.length() - 3);
         byte expected = computeChecksum(lineForChecksum);
         String actualStr = line.substring(line.length() - 2);
@@ -241,6 +282,14 @@ public abstract class BaseNmeaFormat extends SimpleFormat<NmeaRoute> {
         return true;
     }
 
+    protected boolean hasValidFix(String line, char status, char statusThatIndicatesNoFix) {
+        if (status == statusThatIndicatesNoFix) {
+            log.severe("Fix for '" + line + "' is invalid. Contains '" + statusThatIndicatesNoFix + "'");
+            return preferences.getBoolean("ignoreInvalidFix", false);
+        }
+        return true;
+    }
+
     protected abstract boolean isPosition(String line);
 
     protected abstract NmeaPosition parsePosition(String line);
@@ -251,8 +300,7 @@ public abstract class BaseNmeaFormat extends SimpleFormat<NmeaRoute> {
             return null;
         // 130441.89
         try {
-            Date parsed = createDateFormat(PRECISE_TIME_FORMAT).parse(time);
-            return fromDate(parsed);
+            return parse(time, PRECISE_TIME_FORMAT);
         } catch (ParseException e) {
             // intentionally left empty
         }
@@ -271,15 +319,13 @@ public abstract class BaseNmeaFormat extends SimpleFormat<NmeaRoute> {
         String dateAndTime = date + " " + time;
         // date: 160607 time: 130441.89
         try {
-            Date parsed = createDateFormat(DATE_AND_PRECISE_TIME_FORMAT).parse(dateAndTime);
-            return fromDate(parsed);
+            return parse(dateAndTime, DATE_AND_PRECISE_TIME_FORMAT);
         } catch (ParseException e) {
             // intentionally left empty
         }
         // date: 160607 time: 130441
         try {
-            Date parsed = createDateFormat(DATE_AND_TIME_FORMAT).parse(dateAndTime);
-            return fromDate(parsed);
+            return parse(dateAndTime, DATE_AND_TIME_FORMAT);
         } catch (ParseException e) {
             // intentionally left empty
         }
@@ -322,6 +368,28 @@ public abstract class BaseNmeaFormat extends SimpleFormat<NmeaRoute> {
     protected void writeHeader(PrintWriter writer) {
     }
 
+    public PositionSink<NmeaPosition> createPositionSink(OutputStream target) throws IOException {
+        PrintWriter writer = new PrintWriter(new OutputStreamWriter(target, ISO_LATIN1_ENCODING));
+        writeHeader(writer);
+        return new PositionSink<NmeaPosition>() {
+            public void beginRoute(RouteCharacteristics characteristics, String name) {
+            }
+
+            public void addPosition(NmeaPosition position) {
+                writePosition(position, writer);
+            }
+
+            public void endRoute() {
+                writer.flush();
+            }
+
+            public void close() {
+                writeFooter(writer);
+                writer.close();
+            }
+        };
+    }
+
     public void write(NmeaRoute route, PrintWriter writer, int startIndex, int endIndex) {
         writeHeader(writer);
 
@@ -20,10 +20,12 @@
 
 package slash.navigation.nmea;
 
+import slash.navigation.base.PositionSink;
 import slash.navigation.base.RouteCharacteristics;
 import slash.navigation.common.NavigationPosition;
 import slash.navigation.common.ValueAndOrientation;
 
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
@@ -34,6 +36,7 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import static slash.common.io.Transfer.*;
+import static slash.navigation.base.PositionSinks.createBufferingPositionSink;
 import static slash.navigation.base.RouteCharacteristics.Route;
 
 /**
@@ -150,6 +153,11 @@ public class MagellanRouteFormat extends BaseNmeaFormat {
         return "route01";
     }
 
+    public PositionSink<NmeaPosition> createPositionSink(OutputStream target) {
+        // the route sentences at the end refer to all positions
+        return createBufferingPositionSink(this, target);
+    }
+
     public void write(NmeaRoute route, PrintWriter writer, int startIndex, int endIndex) {
         writeHeader(writer);
 
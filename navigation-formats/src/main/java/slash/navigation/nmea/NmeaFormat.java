@@ -30,8 +30,6 @@ import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.List;
 import java.util.prefs.Preferences;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import static java.util.Locale.US;
 import static slash.common.io.Transfer.*;
@@ -64,129 +62,7 @@ public class NmeaFormat extends BaseNmeaFormat {
     private static final String MONTH_FORMAT = "MM";
     private static final String YEAR_FORMAT = "yyyy";
 
-    // $GPRMC,180114,A,4808.9490,N,00928.9610,E,000.0,000.0,160607,,   ,A*76
-    // $GPRMC,140403.000,A,4837.5194,N,00903.4022,E,15.00,0.00,260707,,  *3E
-    // $GPRMC,172103.38,V,4424.5358,N,06812.3754,W,0.000,0.000,101010,0,W,N*3A
-    // $GNRMC,162622.00,A,4857.29112,N,00850.57680,E,0.813,251.19,160217,,,D,V*0D
-    private static final Pattern RMC_PATTERN = Pattern.
-            compile(BEGIN_OF_LINE + "RMC" + SEPARATOR +
-                    "([\\d\\.]*)" + SEPARATOR +     // UTC Time
-                    "[AV]" + SEPARATOR +            // Status, A=active, V=void
-                    "([\\s\\d\\.]+)" + SEPARATOR + "([NS])" + SEPARATOR +
-                    "([\\s\\d\\.]+)" + SEPARATOR + "([EW])" + SEPARATOR +
-                    "([\\d\\.]*)" + SEPARATOR +     // Speed over ground, knots
-                    "([\\d\\.]*)" + SEPARATOR +     // Course over ground, degrees
-                    "(\\d*)" + SEPARATOR +          // Date, ddmmyy
-                    "[\\d\\.]*" + SEPARATOR +
-                    "[\\d\\.]*" + SEPARATOR + "?" + // Magnetic variation
-                    "[ADEW]?" + SEPARATOR + "?" +   // E=East, W=West
-                    "([ADEMNSV])?" +                // Signal integrity, N=not valid
-                    END_OF_LINE);
-
-    // $GPGGA,130441.89,5239.3154,N,00907.7011,E,1,08,1.25,16.76,M,46.79,M,,*6D
-    // $GPGGA,162611,3554.2367,N,10619.4966,W,1,03,06.7,02300.3,M,-022.4,M,,*7F
-    // $GPGGA,132713,5509.7861,N,00140.5854,W,1,07,1.0,98.9,M,,M,,*7d
-    // $GPGGA,171247,4737.266541,N,00814.066563,E,1,,,416,M,,,*00
-    private static final Pattern GGA_PATTERN = Pattern.
-            compile(BEGIN_OF_LINE + "GGA" + SEPARATOR + "([\\d\\.]*)" + SEPARATOR +
-                    "([\\s\\d\\.]+)" + SEPARATOR + "([NS])" + SEPARATOR +
-                    "([\\s\\d\\.]+)" + SEPARATOR + "([WE])" + SEPARATOR +
-                    "([0-7])" + SEPARATOR +          // Fix quality, 0=invalid, domain 0-7 (NMEA GGA quality)
-                    "([\\d]*)" + SEPARATOR +         // Number of satellites in view, 00 - 12
-                    "([\\d\\.]*)" + SEPARATOR +      // HDOP
-                    "(-?[\\d\\.]*)" + SEPARATOR +    // Antenna Altitude above/below mean-sea-level (geoid)
-                    "M" + SEPARATOR +
-                    "[-?\\d\\.]*" + SEPARATOR +
-                    "M?" + SEPARATOR +
-                    ".*" + SEPARATOR + "?" +
-                    ".*" +                           // Differential reference station ID, 0000-1023
-                    END_OF_LINE);
-
-    // $GPGLL,4916.45,N,12311.12,W,220433.11,A*6D
-    private static final Pattern GLL_PATTERN = Pattern.
-            compile(BEGIN_OF_LINE + "GLL" + SEPARATOR +
-                    "([\\s\\d\\.]+)" + SEPARATOR + "([NS])" + SEPARATOR +
-                    "([\\s\\d\\.]+)" + SEPARATOR + "([WE])" + SEPARATOR +
-                    "([\\d\\.]+)" + SEPARATOR +      // UTC Time
-                    "([AVP])" +                      // Status
-                    ".*" +
-                    END_OF_LINE);
-
-    // $GNGNS,184113.00,5215.46773,N,01021.80963,E,AAAN,17,0.73,73.9,45.8,,,V*21
-    private static final Pattern GNS_PATTERN = Pattern.
-            compile(BEGIN_OF_LINE + "GNS" + SEPARATOR +
-                    "([\\d\\.]+)" + SEPARATOR +     // UTC Time
-                    "([\\s\\d\\.]+)" + SEPARATOR + "([NS])" + SEPARATOR +
-                    "([\\s\\d\\.]+)" + SEPARATOR + "([WE])" + SEPARATOR +
-                    "([NADPRFEMS]+)" + SEPARATOR +  // Mode indicator, N=no fix
-                    "(\\d*)" + SEPARATOR +          // Number of SVs in use, range 00?99
-                    "([\\d\\.]*)" + SEPARATOR +     // HDOP
-                    "([\\d\\.]*)" + SEPARATOR +     // Orthometric height in meters
-                    "[\\d\\.]*" + SEPARATOR +       // Geoidal separation in meters
-                    "\\d*" + SEPARATOR +            // Age of differential data
-                    "\\d*" + SEPARATOR +            // Reference station ID
-                    ".*" +
-                    END_OF_LINE);
-
-
-    // $GPWPL,5334.169,N,01001.920,E,STATN1*22
-    // $GPWPL,3018.000,S,15309.000,E,Coffs Harbor (Sidney)
-    private static final Pattern WPL_PATTERN = Pattern.
-            compile(BEGIN_OF_LINE + "WPL" + SEPARATOR +
-                    "([\\s\\d\\.]+)" + SEPARATOR + "([NS])" + SEPARATOR +
-                    "([\\s\\d\\.]+)" + SEPARATOR + "([WE])" + SEPARATOR +
-                    "([^\\*]*)" +
-                    "(\\*[0-9A-Fa-f][0-9A-Fa-f])?$");
-
-    // $GPZDA,032910.542,07,08,2004,00,00*48
-    // $GNZDA,184113.00,23,02,2017,00,00*71
-    private static final Pattern ZDA_PATTERN = Pattern.
-            compile(BEGIN_OF_LINE + "ZDA" + SEPARATOR +
-                    "([\\d\\.]*)" + SEPARATOR + // UTC Time
-                    "(\\d*)" + SEPARATOR +      // day
-                    "(\\d*)" + SEPARATOR +      // month
-                    "(\\d*)" + SEPARATOR +      // year
-                    "\\d*" + SEPARATOR +
-                    "\\d*" +
-                    END_OF_LINE);
-
-    // $GPVTG,0.00,T,,M,1.531,N,2.835,K,A*37
-    // $GPVTG,138.7,T,,M,014.2,N,026.3,K,A*00
-    // $GNVTG,251.19,T,,M,0.813,N,1.506,K,D*20
-    private static final Pattern VTG_PATTERN = Pattern.
-            compile(BEGIN_OF_LINE + "VTG" + SEPARATOR +
-                    "([\\d\\.]*)" + SEPARATOR +   // true course
-                    "T" + SEPARATOR +
-                    "[\\d\\.]*" + SEPARATOR +     // magnetic course
-                    "M" + SEPARATOR +
-                    "([\\d\\.]*)" + SEPARATOR +
-                    "N" + SEPARATOR +
-                    "([\\d\\.]*)" + SEPARATOR +
-                    "K" + SEPARATOR +
-                    "([ADEN])" +                  // Mode indicator, N=not valid
-                    END_OF_LINE);
-
-    // $GPGSA,A,3,,,,15,17,18,23,,,,,,4.7,4.4,1.5*3F
-    private static final Pattern GSA_PATTERN = Pattern.
-            compile(BEGIN_OF_LINE + "GSA" + SEPARATOR +
-                    "[AM]" + SEPARATOR +
-                    "([123])" + SEPARATOR +      // Fix, 1=Fix not available
-                    "\\d*" + SEPARATOR +
-                    "\\d*" + SEPARATOR +
-                    "\\d*" + SEPARATOR +
-                    "\\d*" + SEPARATOR +
-                    "\\d*" + SEPARATOR +
-                    "\\d*" + SEPARATOR +
-                    "\\d*" + SEPARATOR +
-                    "\\d*" + SEPARATOR +
-                    "\\d*" + SEPARATOR +
-                    "\\d*" + SEPARATOR +
-                    "\\d*" + SEPARATOR +
-                    "\\d*" + SEPARATOR +
-                    "([\\d\\.]*)" + SEPARATOR +  // PDOP
-                    "([\\d\\.]*)" + SEPARATOR +  // HDOP
-                    "([\\d\\.]*)" +              // VDOP
-                    END_OF_LINE);
+    private static final ThreadLocal<NmeaSentence> SENTENCE = ThreadLocal.withInitial(NmeaSentence::new);
 
     public String getExtension() {
         return ".nmea";
@@ -202,158 +78,94 @@ public class NmeaFormat extends BaseNmeaFormat {
     }
 
     protected boolean isPosition(String line) {
-        Matcher rmcMatcher = RMC_PATTERN.matcher(line);
-        if (rmcMatcher.matches())
-            return hasValidChecksum(line) && hasValidFix(line, rmcMatcher.group(9), "N");
-
-        Matcher ggaMatcher = GGA_PATTERN.matcher(line);
-        if (ggaMatcher.matches())
-            return hasValidChecksum(line) && hasValidFix(line, ggaMatcher.group(6), "0");
-
-        Matcher gllMatcher = GLL_PATTERN.matcher(line);
-        if (gllMatcher.matches())
-            return hasValidChecksum(line) && hasValidFix(line, gllMatcher.group(6), "V");
-
-        Matcher gnsMatcher = GNS_PATTERN.matcher(line);
-        if (gnsMatcher.matches())
-            return hasValidChecksum(line) && hasValidFix(line, gnsMatcher.group(6), "X");
-
-        Matcher wplMatcher = WPL_PATTERN.matcher(line);
-        if (wplMatcher.matches())
-            return wplMatcher.group(6) == null || hasValidChecksum(line);
-
-        Matcher zdaMatcher = ZDA_PATTERN.matcher(line);
-        if (zdaMatcher.matches())
-            return hasValidChecksum(line);
-
-        Matcher vtgMatcher = VTG_PATTERN.matcher(line);
-        if (vtgMatcher.matches())
-            return hasValidChecksum(line) && hasValidFix(line, vtgMatcher.group(4), "N");
-
-        Matcher gsaMatcher = GSA_PATTERN.matcher(line);
-        return gsaMatcher.matches() && hasValidChecksum(line) && hasValidFix(line, gsaMatcher.group(1), "1");
+        NmeaSentence sentence = SENTENCE.get();
+        if (!sentence.parse(line))
+            return false;
+
+        return switch (sentence.getType()) {
+            case RMC -> hasValidChecksum(line) && hasValidFix(line, sentence.getStatus(), 'N');
+            case GGA -> hasValidChecksum(line) && hasValidFix(line, sentence.getStatus(), '0');
+            case GLL -> hasValidChecksum(line) && hasValidFix(line, sentence.getStatus(), 'V');
+            case GNS, ZDA -> hasValidChecksum(line);
+            case WPL -> !sentence.hasChecksum() || hasValidChecksum(line);
+            case VTG -> hasValidChecksum(line) && hasValidFix(line, sentence.getStatus(), 'N');
+            case GSA -> hasValidChecksum(line) && hasValidFix(line, sentence.getStatus(), '1');
+        };
     }
 
     protected NmeaPosition parsePosition(String line) {
-        Matcher rmcMatcher = RMC_PATTERN.matcher(line);
-        if (rmcMatcher.matches()) {
-            String time = rmcMatcher.group(1);
-            String latitude = rmcMatcher.group(2);
-            String northOrSouth = rmcMatcher.group(3);
-            String longitude = rmcMatcher.group(4);
-            String westOrEast = rmcMatcher.group(5);
-            Double speed = null;
-            String speedStr = rmcMatcher.group(6);
-            if (speedStr != null) {
-                Double miles = parseDouble(speedStr);
+        NmeaSentence sentence = SENTENCE.get();
+        if (!sentence.parse(line))
+            throw new IllegalArgumentException("'" + line + "' does not match");
+
+        switch (sentence.getType()) {
+            case RMC: {
+                // $GPRMC,time,status,latitude,N,longitude,E,knots,course,date,...
+                Double speed = null;
+                Double miles = sentence.getDouble(6);
                 if (miles != null)
                     speed = nauticMilesToKiloMeter(miles);
+                Double heading = sentence.getDouble(7);
+                return new NmeaPosition(sentence.getDouble(4), sentence.getOrientation(5), sentence.getDouble(2), sentence.getOrientation(3),
+                        null, speed, heading, parseDateAndTime(sentence.getString(8), sentence.getString(0)), null);
             }
-            Double heading = parseDouble(rmcMatcher.group(7));
-            String date = rmcMatcher.group(8);
-            return new NmeaPosition(parseDouble(longitude), westOrEast, parseDouble(latitude), northOrSouth,
-                    null, speed, heading, parseDateAndTime(date, time), null);
-        }
-
-        Matcher ggaMatcher = GGA_PATTERN.matcher(line);
-        if (ggaMatcher.matches()) {
-            String time = ggaMatcher.group(1);
-            String latitude = ggaMatcher.group(2);
-            String northOrSouth = ggaMatcher.group(3);
-            String longitude = ggaMatcher.group(4);
-            String westOrEast = ggaMatcher.group(5);
-            String fixQuality = ggaMatcher.group(6);
-            String satellites = ggaMatcher.group(7);
-            String hdop = ggaMatcher.group(8);
-            String altitude = ggaMatcher.group(9);
-            NmeaPosition position = new NmeaPosition(parseDouble(longitude), westOrEast, parseDouble(latitude), northOrSouth,
-                    parseDouble(altitude), null, null, parseTime(time), null);
-            position.setSatellites(parseInteger(satellites));
-            position.setFixQuality(parseInteger(fixQuality));
-            position.setHdop(parseDouble(hdop));
-            return position;
-        }
-
-        Matcher gllMatcher = GLL_PATTERN.matcher(line);
-        if (gllMatcher.matches()) {
-            String latitude = gllMatcher.group(1);
-            String northOrSouth = gllMatcher.group(2);
-            String longitude = gllMatcher.group(3);
-            String westOrEast = gllMatcher.group(4);
-            String time = gllMatcher.group(5);
-            return new NmeaPosition(parseDouble(longitude), westOrEast, parseDouble(latitude), northOrSouth,
-                    null, null, null, parseTime(time), null);
-        }
-
-        Matcher gnsMatcher = GNS_PATTERN.matcher(line);
-        if (gnsMatcher.matches()) {
-            String time = gnsMatcher.group(1);
-            String latitude = gnsMatcher.group(2);
-            String northOrSouth = gnsMatcher.group(3);
-            String longitude = gnsMatcher.group(4);
-            String westOrEast = gnsMatcher.group(5);
-            String svs = gnsMatcher.group(7);
-            String hdop = gnsMatcher.group(8);
-            String orthometricHeight = gnsMatcher.group(9);
-            NmeaPosition position = new NmeaPosition(parseDouble(longitude), westOrEast, parseDouble(latitude), northOrSouth,
-                    parseDouble(orthometricHeight), null, null, parseTime(time), null);
-            position.setHdop(parseDouble(hdop));
-            position.setSatellites(parseInt(svs));
-            return position;
-        }
-
-        Matcher wplMatcher = WPL_PATTERN.matcher(line);
-        if (wplMatcher.matches()) {
-            String latitude = wplMatcher.group(1);
-            String northOrSouth = wplMatcher.group(2);
-            String longitude = wplMatcher.group(3);
-            String westOrEast = wplMatcher.group(4);
-            String description = wplMatcher.group(5);
-            return new NmeaPosition(parseDouble(longitude), westOrEast, parseDouble(latitude), northOrSouth,
-                    null, null, null, null, trim(description));
-        }
-
-        Matcher zdaMatcher = ZDA_PATTERN.matcher(line);
-        if (zdaMatcher.matches()) {
-            String time = zdaMatcher.group(1);
-            String day = trim(zdaMatcher.group(2));
-            String month = trim(zdaMatcher.group(3));
-            String year = trim(zdaMatcher.group(4));
-            String date = (day != null ? day : "") + (month != null ? month : "") + (year != null ? year : "");
-            return new NmeaPosition(null, null, null, null, null, null, null, parseDateAndTime(date, time), null);
-        }
-
-        Matcher vtgMatcher = VTG_PATTERN.matcher(line);
-        if (vtgMatcher.matches()) {
-            Double heading = parseDouble(vtgMatcher.group(1));
-            boolean miles = false;
-            String speedStr = trim(vtgMatcher.group(3));
-            if (speedStr == null) {
-                speedStr = trim(vtgMatcher.group(2));
-                miles = true;
+            case GGA: {
+                // $GPGGA,time,latitude,N,longitude,E,fix quality,satellites,hdop,altitude,M,...
+                NmeaPosition position = new NmeaPosition(sentence.getDouble(3), sentence.getOrientation(4), sentence.getDouble(1), sentence.getOrientation(2),
+                        sentence.getDouble(8), null, null, parseTime(sentence.getString(0)), null);
+                position.setSatellites(sentence.getInteger(6));
+                position.setFixQuality(sentence.getInteger(5));
+                position.setHdop(sentence.getDouble(7));
+                return position;
             }
-            Double speed = parseDouble(speedStr);
-            if (miles && speed != null)
-                speed = nauticMilesToKiloMeter(speed);
-            return new NmeaPosition(null, null, null, null, null, speed, heading, null, null);
-        }
-
-        Matcher gsaMatcher = GSA_PATTERN.matcher(line);
-        if (gsaMatcher.matches()) {
-            String pdop = gsaMatcher.group(2);
-            String hdop = gsaMatcher.group(3);
-            String vdop = gsaMatcher.group(4);
-            NmeaPosition position = new NmeaPosition(null, null, null, null, null, null, null, null, null);
-            position.setPdop(parseDouble(pdop));
-            position.setHdop(parseDouble(hdop));
-            position.setVdop(parseDouble(vdop));
-            return position;
+            case GLL:
+                // $GPGLL,latitude,N,longitude,E,time,status...
+                return new NmeaPosition(sentence.getDouble(2), sentence.getOrientation(3), sentence.getDouble(0), sentence.getOrientation(1),
+                        null, null, null, parseTime(sentence.getString(4)), null);
+            case GNS: {
+                // $GNGNS,time,latitude,N,longitude,E,mode,satellites,hdop,orthometric height,...
+                NmeaPosition position = new NmeaPosition(sentence.getDouble(3), sentence.getOrientation(4), sentence.getDouble(1), sentence.getOrientation(2),
+                        sentence.getDouble(8), null, null, parseTime(sentence.getString(0)), null);
+                position.setHdop(sentence.getDouble(7));
+                Integer satellites = sentence.getInteger(6);
+                position.setSatellites(satellites != null ? satellites : -1);
+                return position;
+            }
+            case WPL:
+                // $GPWPL,latitude,N,longitude,E,description
+                return new NmeaPosition(sentence.getDouble(2), sentence.getOrientation(3), sentence.getDouble(0), sentence.getOrientation(1),
+                        null, null, null, null, trim(sentence.getRemainder(4)));
+            case ZDA: {
+                // $GPZDA,time,day,month,year,...
+                String date = sentence.getString(1) + sentence.getString(2) + sentence.getString(3);
+                return new NmeaPosition(null, null, null, null, null, null, null, parseDateAndTime(date, sentence.getString(0)), null);
+            }
+            case VTG: {
+                // $GPVTG,course,T,magnetic course,M,knots,N,km/h,K,mode
+                Double heading = sentence.getDouble(0);
+                Double speed;
+                if (!sentence.isEmpty(6))
+                    speed = sentence.getDouble(6);
+                else {
+                    speed = sentence.getDouble(4);
+                    if (speed != null)
+                        speed = nauticMilesToKiloMeter(speed);
+                }
+                return new NmeaPosition(null, null, null, null, null, speed, heading, null, null);
+            }
+            case GSA: {
+                // $GPGSA,mode,fix,12 satellites,pdop,hdop,vdop
+                NmeaPosition position = new NmeaPosition(null, null, null, null, null, null, null, null, null);
+                position.setPdop(sentence.getDouble(14));
+                position.setHdop(sentence.getDouble(15));
+                position.setVdop(sentence.getDouble(16));
+                return position;
+            }
+            default:
+                throw new IllegalArgumentException("'" + line + "' does not match");
         }
-
-        throw new IllegalArgumentException("'" + line + "' does not match");
     }
 
-
     private String formatDay(CompactCalendar date) {
         if (date == null)
             return "";
@@ -0,0 +1,387 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.nmea;
+
+import static slash.common.io.Transfer.parseDouble;
+import static slash.common.io.Transfer.parseInteger;
+
+/**
+ * Splits the NMEA 0183 sentences read by the {@link NmeaFormat} into their fields
+ * in a single pass. The fields are kept as offsets into the line, numbers are parsed
+ * from the characters and strings are only created for the fields asked for.
+ * An instance is not thread-safe and remembers the last line it has parsed.
+ *
+ * @author Christian Pesch
+ */
+
+final class NmeaSentence {
+    enum Type {RMC, GGA, GLL, GNS, WPL, ZDA, VTG, GSA}
+
+    private static final int MAXIMUM_SEPARATOR_COUNT = 32;
+    private static final int FIRST_FIELD = 7;
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9,
+            1e10, 1e11, 1e12, 1e13, 1e14, 1e15};
+    private static final int MAXIMUM_DOUBLE_DIGITS = POWERS_OF_TEN.length - 1;
+    private static final int MAXIMUM_INTEGER_DIGITS = 9;
+
+    private static final boolean[] DECIMAL = characters("0123456789.");
+    private static final boolean[] COORDINATE = characters("0123456789. \t\n\u000B\f\r");
+    private static final boolean[] DIGIT = characters("0123456789");
+    private static final boolean[] GEOID_SEPARATION = characters("0123456789.-?");
+    private static final boolean[] MODE = characters("NADPRFEMS");
+
+    private final int[] separators = new int[MAXIMUM_SEPARATOR_COUNT];
+    private String line;
+    private int separatorCount, end;
+    private Type type;
+    private boolean checksum;
+    private char status;
+
+    private static boolean[] characters(String characters) {
+        boolean[] result = new boolean[128];
+        for (int i = 0; i < characters.length(); i++)
+            result[characters.charAt(i)] = true;
+        return result;
+    }
+
+    private static boolean isHexadecimal(char c) {
+        return c >= '0' && c <= '9' || c >= 'A' && c <= 'F' || c >= 'a' && c <= 'f';
+    }
+
+    /**
+     * Returns if the characters from {@code from} to {@code to} contain a character
+     * that the {@code .} of a regular expression doesn't match.
+     */
+    static boolean containsLineTerminator(String line, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = line.charAt(i);
+            if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029')
+                return true;
+        }
+        return false;
+    }
+
+    private static Type toType(char first, char second, char third) {
+        switch (first) {
+            case 'R':
+                return second == 'M' && third == 'C' ? Type.RMC : null;
+            case 'G':
+                if (second == 'G' && third == 'A')
+                    return Type.GGA;
+                if (second == 'L' && third == 'L')
+                    return Type.GLL;
+                if (second == 'N' && third == 'S')
+                    return Type.GNS;
+                return second == 'S' && third == 'A' ? Type.GSA : null;
+            case 'W':
+                return second == 'P' && third == 'L' ? Type.WPL : null;
+            case 'Z':
+                return second == 'D' && third == 'A' ? Type.ZDA : null;
+            case 'V':
+                return second == 'T' && third == 'G' ? Type.VTG : null;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Parses the given line and returns if it is one of the supported sentences
+     * with well-formed fields. Parsing the line that was parsed last is free.
+     */
+    boolean parse(String line) {
+        if (line == this.line)
+            return type != null;
+
+        this.line = line;
+        this.type = null;
+        this.status = 0;
+        this.separatorCount = 0;
+
+        int length = line.length();
+        if (length <= FIRST_FIELD || line.charAt(0) != '$' || line.charAt(1) != 'G' ||
+                (line.charAt(2) != 'N' && line.charAt(2) != 'P') || line.charAt(FIRST_FIELD - 1) != ',')
+            return false;
+
+        Type candidate = toType(line.charAt(3), line.charAt(4), line.charAt(5));
+        if (candidate == null)
+            return false;
+
+        checksum = length >= FIRST_FIELD + 3 && line.charAt(length - 3) == '*' &&
+                isHexadecimal(line.charAt(length - 2)) && isHexadecimal(line.charAt(length - 1));
+        // only the checksum of waypoint sentences is optional
+        if (!checksum && candidate != Type.WPL)
+            return false;
+        end = checksum ? length - 3 : length;
+
+        for (int i = FIRST_FIELD; i < end; i++) {
+            if (line.charAt(i) == ',') {
+                if (separatorCount == MAXIMUM_SEPARATOR_COUNT)
+                    break;
+                separators[separatorCount++] = i;
+            }
+        }
+
+        if (isValid(candidate))
+            type = candidate;
+        return type != null;
+    }
+
+    private boolean isValid(Type type) {
+        switch (type) {
+            case RMC:
+                // $GPRMC,180114,A,4808.9490,N,00928.9610,E,000.0,000.0,160607,,   ,A*76
+                return separatorCount >= 10 &&
+                        consistsOf(0, DECIMAL, false) && isCharacter(1, "AV") &&
+                        isLatitude(2) && isLongitude(4) &&
+                        consistsOf(6, DECIMAL, false) && consistsOf(7, DECIMAL, false) &&
+                        consistsOf(8, DIGIT, false) && consistsOf(9, DECIMAL, false) &&
+                        isRmcIntegrity(getStart(10));
+            case GGA:
+                // $GPGGA,130441.89,5239.3154,N,00907.7011,E,1,08,1.25,16.76,M,46.79,M,,*6D
+                if (separatorCount < 12 || !consistsOf(0, DECIMAL, false) || !isLatitude(1) || !isLongitude(3) ||
+                        !isCharacter(5, "01234567") || !consistsOf(6, DIGIT, false) ||
+                        !consistsOf(7, DECIMAL, false) || !isAltitude(8) || !isCharacter(9, "M") ||
+                        !consistsOf(10, GEOID_SEPARATION, false) || !(isEmpty(11) || isCharacter(11, "M")) ||
+                        containsLineTerminator(line, getStart(12), end))
+                    return false;
+                status = line.charAt(getStart(5));
+                return true;
+            case GLL:
+                // $GPGLL,4916.45,N,12311.12,W,220433.11,A*6D
+                if (separatorCount < 5 || !isLatitude(0) || !isLongitude(2) || !consistsOf(4, DECIMAL, true))
+                    return false;
+                int from = getStart(5);
+                if (from == end || "AVP".indexOf(line.charAt(from)) < 0 || containsLineTerminator(line, from + 1, end))
+                    return false;
+                status = line.charAt(from);
+                return true;
+            case GNS:
+                // $GNGNS,184113.00,5215.46773,N,01021.80963,E,AAAN,17,0.73,73.9,45.8,,,V*21
+                return separatorCount >= 12 &&
+                        consistsOf(0, DECIMAL, true) && isLatitude(1) && isLongitude(3) &&
+                        consistsOf(5, MODE, true) && consistsOf(6, DIGIT, false) &&
+                        consistsOf(7, DECIMAL, false) && consistsOf(8, DECIMAL, false) &&
+                        consistsOf(9, DECIMAL, false) && consistsOf(10, DIGIT, false) &&
+                        consistsOf(11, DIGIT, false) && !containsLineTerminator(line, getStart(12), end);
+            case WPL:
+                // $GPWPL,5334.169,N,01001.920,E,STATN1*22
+                return separatorCount >= 4 && isLatitude(0) && isLongitude(2) &&
+                        line.indexOf('*', getStart(4)) == (checksum ? end : -1);
+            case ZDA:
+                // $GPZDA,032910.542,07,08,2004,00,00*48
+                return separatorCount == 5 && consistsOf(0, DECIMAL, false) &&
+                        consistsOf(1, DIGIT, false) && consistsOf(2, DIGIT, false) && consistsOf(3, DIGIT, false) &&
+                        consistsOf(4, DIGIT, false) && consistsOf(5, DIGIT, false);
+            case VTG:
+                // $GPVTG,138.7,T,,M,014.2,N,026.3,K,A*00
+                if (separatorCount != 8 || !consistsOf(0, DECIMAL, false) || !isCharacter(1, "T") ||
+                        !consistsOf(2, DECIMAL, false) || !isCharacter(3, "M") ||
+                        !consistsOf(4, DECIMAL, false) || !isCharacter(5, "N") ||
+                        !consistsOf(6, DECIMAL, false) || !isCharacter(7, "K") || !isCharacter(8, "ADEN"))
+                    return false;
+                status = line.charAt(getStart(8));
+                return true;
+            case GSA:
+                // $GPGSA,A,3,,,,15,17,18,23,,,,,,4.7,4.4,1.5*3F
+                if (separatorCount != 16 || !isCharacter(0, "AM") || !isCharacter(1, "123"))
+                    return false;
+                for (int i = 2; i < 14; i++)
+                    if (!consistsOf(i, DIGIT, false))
+                        return false;
+                if (!consistsOf(14, DECIMAL, false) || !consistsOf(15, DECIMAL, false) || !consistsOf(16, DECIMAL, false))
+                    return false;
+                status = line.charAt(getStart(1));
+                return true;
+            default:
+                throw new IllegalArgumentException("Unknown sentence type " + type);
+        }
+    }
+
+    // [\d.]*,?[ADEW]?,?([ADEMNSV])? where the group is the signal integrity
+    private boolean isRmcIntegrity(int from) {
+        int i = from;
+        while (i < end && isOf(line.charAt(i), DECIMAL))
+            i++;
+        if (i < end && line.charAt(i) == ',')
+            i++;
+        if (i < end && "ADEW".indexOf(line.charAt(i)) >= 0)
+            i++;
+        if (i < end && line.charAt(i) == ',')
+            i++;
+        if (i < end && "ADEMNSV".indexOf(line.charAt(i)) >= 0)
+            status = line.charAt(i++);
+        return i == end;
+    }
+
+    private boolean isLatitude(int index) {
+        return consistsOf(index, COORDINATE, true) && isCharacter(index + 1, "NS");
+    }
+
+    private boolean isLongitude(int index) {
+        return consistsOf(index, COORDINATE, true) && isCharacter(index + 1, "EW");
+    }
+
+    private boolean isAltitude(int index) {
+        int from = getStart(index), to = getEnd(index);
+        if (from < to && line.charAt(from) == '-')
+            from++;
+        return consistsOf(from, to, DECIMAL, false);
+    }
+
+    private static boolean isOf(char c, boolean[] characters) {
+        return c < characters.length && characters[c];
+    }
+
+    private boolean consistsOf(int index, boolean[] characters, boolean required) {
+        return consistsOf(getStart(index), getEnd(index), characters, required);
+    }
+
+    private boolean consistsOf(int from, int to, boolean[] characters, boolean required) {
+        if (required && from == to)
+            return false;
+        for (int i = from; i < to; i++)
+            if (!isOf(line.charAt(i), characters))
+                return false;
+        return true;
+    }
+
+    private boolean isCharacter(int index, String characters) {
+        int from = getStart(index);
+        return getEnd(index) == from + 1 && characters.indexOf(line.charAt(from)) >= 0;
+    }
+
+    private int getStart(int index) {
+        return index == 0 ? FIRST_FIELD : separators[index - 1] + 1;
+    }
+
+    private int getEnd(int index) {
+        return index < separatorCount ? separators[index] : end;
+    }
+
+    Type getType() {
+        return type;
+    }
+
+    /**
+     * Returns if the sentence ends with a checksum, which is optional for waypoint sentences.
+     */
+    boolean hasChecksum() {
+        return checksum;
+    }
+
+    /**
+     * Returns the status of the sentence that tells about the validity of the fix
+     * or {@code 0} if there is none.
+     */
+    char getStatus() {
+        return status;
+    }
+
+    boolean isEmpty(int index) {
+        return getStart(index) == getEnd(index);
+    }
+
+    String getString(int index) {
+        return line.substring(getStart(index), getEnd(index));
+    }
+
+    /**
+     * Returns the field from the given index to the end of the sentence without its checksum.
+     */
+    String getRemainder(int index) {
+        return line.substring(getStart(index), end);
+    }
+
+    String getOrientation(int index) {
+        switch (line.charAt(getStart(index))) {
+            case 'N':
+                return "N";
+            case 'S':
+                return "S";
+            case 'E':
+                return "E";
+            case 'W':
+                return "W";
+            default:
+                throw new IllegalArgumentException("'" + getString(index) + "' is not an orientation");
+        }
+    }
+
+    /**
+     * Parses the field like {@link slash.common.io.Transfer#parseDouble(String)}. Decimals with
+     * up to 15 digits are exactly representable as a quotient of two doubles, everything else
+     * including malformed numbers is left to {@link Double#parseDouble(String)}.
+     */
+    Double getDouble(int index) {
+        int from = getStart(index), to = getEnd(index);
+        while (from < to && line.charAt(from) <= ' ')
+            from++;
+        while (to > from && line.charAt(to - 1) <= ' ')
+            to--;
+        if (from == to)
+            return null;
+
+        boolean negative = line.charAt(from) == '-';
+        long mantissa = 0;
+        int digits = 0, fractionDigits = -1;
+        for (int i = negative ? from + 1 : from; i < to; i++) {
+            char c = line.charAt(i);
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (fractionDigits >= 0)
+                    fractionDigits++;
+            } else if (c == '.' && fractionDigits < 0)
+                fractionDigits = 0;
+            else
+                return parseDouble(line.substring(from, to));
+        }
+        if (digits == 0 || digits > MAXIMUM_DOUBLE_DIGITS)
+            return parseDouble(line.substring(from, to));
+
+        double value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses the field like {@link slash.common.io.Transfer#parseInteger(String)}.
+     */
+    Integer getInteger(int index) {
+        int from = getStart(index), to = getEnd(index);
+        while (from < to && line.charAt(from) <= ' ')
+            from++;
+        while (to > from && line.charAt(to - 1) <= ' ')
+            to--;
+        if (from == to)
+            return null;
+        if (to - from > MAXIMUM_INTEGER_DIGITS)
+            return parseInteger(line.substring(from, to));
+
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = line.charAt(i);
+            if (c < '0' || c > '9')
+                return parseInteger(line.substring(from, to));
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
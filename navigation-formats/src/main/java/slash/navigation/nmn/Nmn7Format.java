@@ -20,7 +20,10 @@
 
 package slash.navigation.nmn;
 
+import slash.navigation.base.ContentSignature;
 import slash.navigation.base.ParserContext;
+import slash.navigation.base.PositionSink;
+import slash.navigation.base.PositionSinks;
 import slash.navigation.base.Wgs84Position;
 import slash.navigation.nmn.binding7.ObjectFactory;
 import slash.navigation.nmn.binding7.Route;
@@ -35,6 +38,7 @@ import java.util.List;
 import java.util.prefs.Preferences;
 
 import static slash.common.io.Transfer.formatDouble;
+import static slash.navigation.base.PositionSinks.createBufferingPositionSink;
 import static slash.navigation.base.RouteCharacteristics.Route;
 import static slash.navigation.common.NavigationConversion.formatBigDecimal;
 import static slash.navigation.nmn.Nmn7Util.unmarshal;
@@ -76,11 +80,25 @@ public class Nmn7Format extends NmnFormat {
         return new NmnRoute(this, Route, route.getName(), positions);
     }
 
+    protected boolean isUnreadable(ContentSignature signature) {
+        return !signature.isMarkup();
+    }
+
     public void read(InputStream source, ParserContext<NmnRoute> context) throws IOException {
         Route route = unmarshal(source);
         context.appendRoute(process(route));
     }
 
+    public void read(InputStream source, ParserContext<?> context, PositionSink<Wgs84Position> sink) throws IOException {
+        // the route is an XML document and not made of lines
+        PositionSinks.read(this, source, context, sink);
+    }
+
+    public PositionSink<Wgs84Position> createPositionSink(OutputStream target) {
+        // the route is marshalled as one XML document
+        return createBufferingPositionSink(this, target);
+    }
+
     protected void writePosition(Wgs84Position position, PrintWriter writer, int index, boolean firstPosition) {
         throw new UnsupportedOperationException();
     }
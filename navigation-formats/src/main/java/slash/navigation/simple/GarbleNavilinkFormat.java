@@ -106,6 +106,11 @@ public class GarbleNavilinkFormat extends NavilinkFormat implements GarbleNaviga
         }
     }
 
+    protected boolean isUnreadable(ContentSignature signature) {
+        // searches for valid records without a header
+        return false;
+    }
+
     public void read(InputStream source, ParserContext<Wgs84Route> context) throws IOException {
         byte[] record = new byte[SBP_RECORD_LENGTH];
         ByteBuffer sbpRecordByteBuffer = ByteBuffer.wrap(record);
@@ -154,9 +154,11 @@ public class Iblue747Format extends SimpleLineBasedFormat<Wgs84Route> {
         return createDateFormat(DATE_FORMAT).format(date.getTime());
     }
 
-    private Wgs84Position previousPosition;
-
     protected void writePosition(Wgs84Position position, PrintWriter writer, int index, boolean firstPosition) {
+        writePosition(position, null, writer, index, firstPosition);
+    }
+
+    protected void writePosition(Wgs84Position position, Wgs84Position previousPosition, PrintWriter writer, int index, boolean firstPosition) {
         String date = formatDate(position.getTime());
         String time = formatTime(position.getTime());
         String latitude = formatDoubleAsString(Math.abs(position.getLatitude()), 6);
@@ -167,10 +169,7 @@ public class Iblue747Format extends SimpleLineBasedFormat<Wgs84Route> {
         String speed = position.getSpeed() != null ? formatSpeedAsString(position.getSpeed()) : "0.0";
         String heading = position.getHeading() != null ? formatHeadingAsString(position.getHeading()) : "0.0";
 
-        if (firstPosition)
-            previousPosition = null;
         String distance = previousPosition != null ? formatElevationAsString(position.calculateDistance(previousPosition)) : "0.0";
-        previousPosition = position;
 
         writer.println(Integer.toString(index + 1) + SEPARATOR + "T" + SEPARATOR +
                 date + SEPARATOR + time + SEPARATOR + "SPS" + SEPARATOR +
@@ -36,6 +36,7 @@ import java.util.Calendar;
 import java.util.List;
 
 import static java.lang.Long.parseLong;
+import static java.util.Arrays.copyOf;
 import static java.util.Calendar.*;
 import static slash.common.type.CompactCalendar.createDateFormat;
 import static slash.common.type.CompactCalendar.fromCalendar;
@@ -203,6 +204,10 @@ public class NavilinkFormat extends SimpleFormat<Wgs84Route> {
         return position;
     }
 
+    protected boolean isUnreadable(ContentSignature signature) {
+        return signature.getLength() < HEADER_SIZE || !checkHeader(copyOf(signature.getBytes(), HEADER_SIZE));
+    }
+
     public void read(InputStream source, ParserContext<Wgs84Route> context) throws IOException {
         byte[] header = new byte[HEADER_SIZE];
         if ((source.read(header) == HEADER_SIZE) && checkHeader(header)) {
@@ -25,7 +25,6 @@ import slash.navigation.base.*;
 import slash.navigation.common.NavigationPosition;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.util.List;
@@ -67,14 +66,18 @@ public class OpelNaviFormat extends SimpleLineBasedFormat<Wgs84Route> {
         return "Opel Navi 600/900 (*" + getExtension() + ")";
     }
 
-    public void read(InputStream source, ParserContext<Wgs84Route> context) throws IOException {
-        read(source, UTF8_ENCODING, context);
+    protected String getEncoding() {
+        return UTF8_ENCODING;
     }
 
     public void write(Wgs84Route route, OutputStream target, int startIndex, int endIndex) throws IOException {
         write(route, target, UTF8_ENCODING, startIndex, endIndex);
     }
 
+    public PositionSink<Wgs84Position> createPositionSink(OutputStream target) throws IOException {
+        return createPositionSink(target, UTF8_ENCODING);
+    }
+
     @SuppressWarnings("unchecked")
     public <P extends NavigationPosition> Wgs84Route createRoute(RouteCharacteristics characteristics, String name, List<P> positions) {
         return new Wgs84Route(this, characteristics, name, (List<Wgs84Position>) positions);
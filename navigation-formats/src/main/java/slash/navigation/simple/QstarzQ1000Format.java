@@ -158,9 +158,11 @@ public class QstarzQ1000Format extends SimpleLineBasedFormat<Wgs84Route> {
         return createDateFormat(DATE_FORMAT).format(date.getTime());
     }
 
-    private Wgs84Position previousPosition;
-
     protected void writePosition(Wgs84Position position, PrintWriter writer, int index, boolean firstPosition) {
+        writePosition(position, null, writer, index, firstPosition);
+    }
+
+    protected void writePosition(Wgs84Position position, Wgs84Position previousPosition, PrintWriter writer, int index, boolean firstPosition) {
         String date = formatDate(position.getTime());
         String time = formatTime(position.getTime());
         String latitude = formatDoubleAsString(abs(position.getLatitude()), 6);
@@ -172,10 +174,7 @@ public class QstarzQ1000Format extends SimpleLineBasedFormat<Wgs84Route> {
         String hdop = position.getHdop() != null ? formatAccuracyAsString(position.getHdop()) : "0.0";
         String satellites = position.getSatellites() != null ? formatIntAsString(position.getSatellites()) : "0";
 
-        if (firstPosition)
-            previousPosition = null;
         String distance = previousPosition != null ? formatElevationAsString(position.calculateDistance(previousPosition)) : "0.0";
-        previousPosition = position;
 
         writer.println(Integer.toString(index + 1) + SEPARATOR + "T" + SEPARATOR +
                 date + SEPARATOR + time + SEPARATOR + "SPS" + SEPARATOR +
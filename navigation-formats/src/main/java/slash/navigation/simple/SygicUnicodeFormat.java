@@ -19,12 +19,11 @@
 */
 package slash.navigation.simple;
 
-import slash.navigation.base.ParserContext;
+import slash.navigation.base.PositionSink;
 import slash.navigation.base.Wgs84Position;
 import slash.navigation.base.Wgs84Route;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintWriter;
 
@@ -48,14 +47,18 @@ public class SygicUnicodeFormat extends SygicFormat {
         return "Sygic POI Unicode (*" + getExtension() + ")";
     }
 
-    public void read(InputStream source, ParserContext<Wgs84Route> context) throws IOException {
-        read(source, UTF16_ENCODING, context);
+    protected String getEncoding() {
+        return UTF16_ENCODING;
     }
 
     public void write(Wgs84Route route, OutputStream target, int startIndex, int endIndex) throws IOException {
         write(route, target, UTF16LE_ENCODING, startIndex, endIndex);
     }
 
+    public PositionSink<Wgs84Position> createPositionSink(OutputStream target) throws IOException {
+        return createPositionSink(target, UTF16LE_ENCODING);
+    }
+
     protected void writeHeader(PrintWriter writer, Wgs84Route route) {
         // with UTF-16LE no BOM is written, UnicodeLittle would write one by is not supported
         // (see http://java.sun.com/j2se/1.4.2/docs/guide/intl/encoding.doc.html)
@@ -31,7 +31,9 @@ import java.util.List;
 
 import static java.lang.Long.parseLong;
 import static java.nio.ByteBuffer.allocate;
+import static java.nio.ByteBuffer.wrap;
 import static java.nio.ByteOrder.LITTLE_ENDIAN;
+import static java.util.Arrays.copyOf;
 import static java.util.Calendar.*;
 import static slash.common.type.CompactCalendar.*;
 import static slash.navigation.base.RouteCharacteristics.Track;
@@ -87,6 +89,16 @@ public abstract class WintecWbt201Format extends SimpleFormat<Wgs84Route> {
 
     protected abstract List<Wgs84Route> internalRead(ByteBuffer buffer);
 
+    protected boolean isUnreadable(ContentSignature signature) {
+        if (signature.getLength() < getHeaderSize())
+            return true;
+        try {
+            return !checkFormatDescriptor(wrap(copyOf(signature.getBytes(), getHeaderSize())));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
     public void read(InputStream source, ParserContext<Wgs84Route> context) throws IOException {
         byte[] header = new byte[getHeaderSize()];
         if (source.read(header) == getHeaderSize()) {
@@ -24,6 +24,7 @@ import slash.common.io.Files;
 import slash.common.io.NotClosingUnderlyingInputStream;
 import slash.navigation.base.BaseNavigationFormat;
 import slash.navigation.base.BaseRoute;
+import slash.navigation.base.ContentSignature;
 import slash.navigation.base.ParserContext;
 import slash.navigation.base.RouteCharacteristics;
 import slash.navigation.common.NavigationPosition;
@@ -37,6 +38,8 @@ import java.util.logging.Logger;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
+import static slash.navigation.base.NavigationFormatParser.TOTAL_BUFFER_SIZE;
+
 /**
  * Reads routes from ZIP Archive (.zip) files.
  *
@@ -77,6 +80,10 @@ public class ZipFormat extends BaseNavigationFormat<BaseRoute<?, ?>> {
         throw new UnsupportedOperationException();
     }
 
+    protected boolean isUnreadable(ContentSignature signature) {
+        return !signature.isZipArchive();
+    }
+
     public void read(InputStream source, ParserContext<BaseRoute<?, ?>> context) throws IOException {
         try (ZipInputStream zip = new ZipInputStream(source)) {
             ZipEntry entry;
@@ -85,7 +92,8 @@ public class ZipFormat extends BaseNavigationFormat<BaseRoute<?, ?>> {
                     continue;
 
                 NotClosingUnderlyingInputStream buffer = new NotClosingUnderlyingInputStream(new BufferedInputStream(zip));
-                int size = (int) entry.getSize() + 1;
+                // the size of entries written with a data descriptor is unknown before reading them
+                int size = entry.getSize() != -1 ? (int) entry.getSize() + 1 : TOTAL_BUFFER_SIZE;
                 buffer.mark(size);
                 context.parse(buffer, context.getStartDate(), Files.getExtension(entry.getName()));
                 zip.closeEntry();
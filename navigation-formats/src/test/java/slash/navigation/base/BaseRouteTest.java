@@ -103,6 +103,75 @@ public class BaseRouteTest {
         assertEquals("b", route.getPosition(1).getDescription());
     }
 
+    @Test
+    public void removeByIndicesKeepsTheRemainingOrder() {
+        Wgs84Route route = route(p0, p1, p2, p3);
+
+        assertEquals(Arrays.asList(p0, p2, p3), route.remove(new int[]{3, 0, 2, 3}));
+        assertEquals(1, route.getPositionCount());
+        assertSame(p1, route.getPosition(0));
+    }
+
+    @Test
+    public void addByIndicesRevertsRemoveByIndices() {
+        Wgs84Route route = route(p0, p1, p2, p3);
+        int[] indices = {0, 2, 3};
+
+        route.add(indices, route.remove(indices));
+
+        assertEquals(Arrays.asList(p0, p1, p2, p3), route.getPositions());
+    }
+
+    @Test
+    public void addInsertsPositionsAtTheIndex() {
+        Wgs84Route route = route(p0, p3);
+
+        route.add(1, Arrays.asList(p1, p2));
+
+        assertEquals(Arrays.asList(p0, p1, p2, p3), route.getPositions());
+    }
+
+    @Test
+    public void removeIfRemovesTheMatchingPositions() {
+        Wgs84Route route = route(p0, p1, p2, p3);
+
+        assertEquals(Arrays.asList(p1, p3), route.removeIf(position -> position.getLatitude() % 2 == 1.0));
+        assertEquals(Arrays.asList(p0, p2), route.getPositions());
+    }
+
+    @Test
+    public void topAndBottomMoveManyPositionsInOnePass() {
+        Wgs84Route route = route(p0, p1, p2, p3);
+
+        route.top(new int[]{3, 1});
+        assertEquals(Arrays.asList(p1, p3, p0, p2), route.getPositions());
+        route.topDown(new int[]{1, 3});
+        assertEquals(Arrays.asList(p0, p1, p2, p3), route.getPositions());
+
+        route.bottom(new int[]{0, 2});
+        assertEquals(Arrays.asList(p1, p3, p0, p2), route.getPositions());
+        route.bottomUp(new int[]{0, 2});
+        assertEquals(Arrays.asList(p0, p1, p2, p3), route.getPositions());
+    }
+
+    @Test
+    public void removeDuplicatesOnALongTrack() {
+        Wgs84Route route = route();
+        for (int i = 0; i < 500000; i++) {
+            Wgs84Position position = p(10.0 + (i / 2) * 0.0001, 50.0, "p" + i);
+            route.getPositions().add(position);
+        }
+
+        long start = System.nanoTime();
+        route.removeDuplicates();
+        long duration = (System.nanoTime() - start) / 1000000;
+
+        assertEquals(250000, route.getPositionCount());
+        assertEquals("p0", route.getPosition(0).getDescription());
+        assertEquals("p2", route.getPosition(1).getDescription());
+        assertTrue("removing duplicates took " + duration + " ms", duration < 5000);
+    }
+
     @Test
     public void getContainedPositionsReturnsIndicesInsideTheBoundingBox() {
         Wgs84Route route = route(p0, p1, p2, p3);
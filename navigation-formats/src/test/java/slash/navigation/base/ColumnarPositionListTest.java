@@ -0,0 +1,211 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.base;
+
+import org.junit.Test;
+import slash.common.type.CompactCalendar;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+import static slash.common.type.CompactCalendar.fromMillis;
+import static slash.common.type.CompactCalendar.fromMillisAndTimeZone;
+import static slash.navigation.base.RouteCharacteristics.Track;
+
+public class ColumnarPositionListTest {
+    private static Wgs84Position position(double longitude, String description) {
+        return new Wgs84Position(longitude, 50.0, null, null, null, description);
+    }
+
+    @Test
+    public void testStoresValuesAndNulls() {
+        Wgs84Position position = new Wgs84Position(10.5, 48.3, 520.0, null, fromMillis(1000), "Munich");
+        position.setHeading(90.0);
+        position.setHeartBeat((short) 120);
+        position.setSatellites(7);
+        position.setWaypointType(WaypointType.Parking);
+        position.setOrigin("origin");
+
+        ColumnarPositionList list = new ColumnarPositionList();
+        list.add(position);
+        list.add(new Wgs84Position(null, null, null, null, null, null));
+
+        Wgs84Position stored = list.get(0);
+        assertEquals(10.5, stored.getLongitude(), 0.0);
+        assertEquals(48.3, stored.getLatitude(), 0.0);
+        assertEquals(520.0, stored.getElevation(), 0.0);
+        assertNull(stored.getSpeed());
+        assertEquals(fromMillis(1000), stored.getTime());
+        assertEquals("Munich", stored.getDescription());
+        assertEquals(90.0, stored.getHeading(), 0.0);
+        assertEquals(Short.valueOf((short) 120), stored.getHeartBeat());
+        assertEquals(Integer.valueOf(7), stored.getSatellites());
+        assertNull(stored.getFixQuality());
+        assertEquals(WaypointType.Parking, stored.getWaypointType());
+        assertEquals("origin", stored.getOrigin(String.class));
+
+        Wgs84Position empty = list.get(1);
+        assertNull(empty.getLongitude());
+        assertNull(empty.getTime());
+        assertNull(empty.getDescription());
+        assertNull(empty.getOrigin());
+    }
+
+    @Test
+    public void testKeepsTimeZone() {
+        CompactCalendar time = fromMillisAndTimeZone(1000, "Europe/Berlin");
+        ColumnarPositionList list = new ColumnarPositionList();
+        list.add(new Wgs84Position(1.0, 2.0, null, null, time, null));
+        assertEquals("Europe/Berlin", list.get(0).getTime().getTimeZoneId());
+    }
+
+    @Test
+    public void testViewWritesThrough() {
+        ColumnarPositionList list = new ColumnarPositionList();
+        list.add(position(1.0, "a"));
+        Wgs84Position view = list.get(0);
+        view.setElevation(100.0);
+        view.setLongitude(null);
+        assertEquals(100.0, list.get(0).getElevation(), 0.0);
+        assertNull(list.get(0).getLongitude());
+        assertEquals(view, list.get(0));
+        assertEquals(view.hashCode(), list.get(0).hashCode());
+    }
+
+    @Test
+    public void testGrowsBeyondInitialCapacity() {
+        ColumnarPositionList list = new ColumnarPositionList(1);
+        for (int i = 0; i < 1000; i++)
+            list.add(position(i, null));
+        list.get(999).setHeartBeat((short) 1);
+        assertEquals(1000, list.size());
+        assertEquals(999.0, list.get(999).getLongitude(), 0.0);
+        assertEquals(Short.valueOf((short) 1), list.get(999).getHeartBeat());
+        assertNull(list.get(0).getHeartBeat());
+    }
+
+    @Test
+    public void testMovesPositionsLikeReferences() {
+        ColumnarPositionList positions = new ColumnarPositionList(asList(position(0, "a"), position(1, "b"), position(2, "c")));
+        Wgs84Route route = new Wgs84Route(null, Track, "r", positions);
+        route.top(2, 0);
+        assertEquals("c", route.getPosition(0).getDescription());
+        assertEquals("a", route.getPosition(1).getDescription());
+        assertEquals("b", route.getPosition(2).getDescription());
+
+        route.move(0, 2);
+        assertEquals("b", route.getPosition(0).getDescription());
+        assertEquals("c", route.getPosition(2).getDescription());
+
+        route.revert();
+        assertEquals("c", route.getPosition(0).getDescription());
+        assertEquals("b", route.getPosition(2).getDescription());
+    }
+
+    @Test
+    public void testRemovedViewCanBeAddedAgain() {
+        ColumnarPositionList list = new ColumnarPositionList(asList(position(0, "a"), position(1, "b")));
+        Wgs84Position removed = list.remove(0);
+        assertEquals(1, list.size());
+        assertEquals("a", removed.getDescription());
+
+        list.add(1, removed);
+        assertEquals("a", list.get(1).getDescription());
+        assertEquals(1, list.indexOf(removed));
+        assertEquals(-1, list.indexOf(position(0, "a")));
+    }
+
+    @Test
+    public void testHandsOutTheSameView() {
+        ColumnarPositionList list = new ColumnarPositionList(asList(position(0, "a"), position(1, "b")));
+        assertSame(list.get(0), list.get(0));
+        assertSame(list.get(1), list.remove(1));
+    }
+
+    @Test
+    public void testCompactsUnusedSlots() {
+        ColumnarPositionList list = new ColumnarPositionList();
+        for (int i = 0; i < 1000; i++)
+            list.add(position(i, "p" + i));
+        Wgs84Position removed = list.get(10);
+        Wgs84Position kept = list.get(900);
+
+        list.subList(0, 800).clear();
+        assertEquals(200, list.size());
+        assertTrue(list.getSlotCount() <= 400);
+        assertSame(kept, list.get(100));
+        assertEquals("p900", kept.getDescription());
+        assertEquals(900.0, list.get(100).getLongitude(), 0.0);
+
+        assertEquals("p10", removed.getDescription());
+        removed.setElevation(10.0);
+        for (Wgs84Position position : list)
+            assertNull(position.getElevation());
+
+        list.add(0, removed);
+        assertSame(removed, list.get(0));
+        assertEquals(0, list.indexOf(removed));
+        assertEquals(10.0, list.get(0).getElevation(), 0.0);
+    }
+
+    @Test
+    public void testCompactsReplacedSlots() {
+        ColumnarPositionList list = new ColumnarPositionList();
+        for (int i = 0; i < 100; i++)
+            list.add(position(i, null));
+        for (int j = 0; j < 10; j++)
+            for (int i = 0; i < 100; i++)
+                list.set(i, position(i + j, null));
+        assertEquals(100, list.size());
+        assertTrue(list.getSlotCount() <= 200);
+        assertEquals(108.0, list.get(99).getLongitude(), 0.0);
+    }
+
+    @Test
+    public void testAddsAndRemovesRanges() {
+        ColumnarPositionList list = new ColumnarPositionList(1);
+        list.add(position(0, "a"));
+        list.add(position(3, "d"));
+        Wgs84Position a = list.get(0);
+
+        list.addAll(1, asList(position(1, "b"), position(2, "c")));
+        assertEquals(4, list.size());
+        assertEquals("b", list.get(1).getDescription());
+        assertEquals("d", list.get(3).getDescription());
+
+        list.subList(1, 3).clear();
+        assertEquals(2, list.size());
+        assertEquals("d", list.get(1).getDescription());
+        assertEquals(0, list.indexOf(a));
+        assertEquals(1, list.indexOf(list.get(1)));
+    }
+
+    @Test
+    public void testIterates() {
+        List<Wgs84Position> positions = asList(position(0, "a"), position(1, "b"), position(2, "c"));
+        List<String> descriptions = new ArrayList<>();
+        for (Wgs84Position position : new ColumnarPositionList(positions))
+            descriptions.add(position.getDescription());
+        assertEquals(asList("a", "b", "c"), descriptions);
+    }
+}
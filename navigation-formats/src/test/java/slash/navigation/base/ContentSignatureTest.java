@@ -0,0 +1,165 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.base;
+
+import org.junit.Test;
+import slash.navigation.columbus.ColumbusGpsType1Format;
+import slash.navigation.gpx.Gpx10Format;
+import slash.navigation.gpx.Gpx11Format;
+import slash.navigation.kml.Kml22Format;
+import slash.navigation.kml.Kmz22Format;
+import slash.navigation.nmea.NmeaFormat;
+import slash.navigation.simple.SygicAsciiFormat;
+import slash.navigation.simple.SygicUnicodeFormat;
+import slash.navigation.url.UrlFormat;
+
+import javax.xml.namespace.QName;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_16BE;
+import static java.nio.charset.StandardCharsets.UTF_16LE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static java.util.Arrays.copyOf;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static slash.navigation.gpx.GpxUtil.GPX_10_NAMESPACE_URI;
+import static slash.navigation.gpx.GpxUtil.GPX_11_NAMESPACE_URI;
+
+public class ContentSignatureTest {
+    private static final String GPX_10 = "<?xml version=\"1.0\"?>\n<gpx version=\"1.0\" xmlns=\"" + GPX_10_NAMESPACE_URI + "\">\n<wpt lat=\"1\" lon=\"2\"/>\n</gpx>\n";
+    private static final String NMEA = "$GPRMC,180114,A,4808.9490,N,00928.9610,E,000.0,000.0,160607,,A*76\n" +
+            "$GPGGA,180114,4808.9490,N,00928.9610,E,1,05,1.5,00400,M,,,,*2A\n";
+
+    private static final String SYGIC = "\uFEFF; comment\n2.324360\t48.826760\tParis\n17.556660\t54.758830\tLeba\t+48598662069\n";
+
+    private static ContentSignature signature(String string) {
+        return new ContentSignature(string.getBytes(ISO_8859_1), true);
+    }
+
+    private static boolean isUnreadable(BaseNavigationFormat<?> format, ContentSignature signature) {
+        return format.isUnreadable(signature);
+    }
+
+    @Test
+    public void testReadCompleteContent() throws IOException {
+        ContentSignature signature = ContentSignature.read(new ByteArrayInputStream(new byte[]{1, 2, 3}));
+        assertTrue(signature.isComplete());
+        assertEquals(3, signature.getLength());
+    }
+
+    @Test
+    public void testReadIncompleteContent() throws IOException {
+        ContentSignature signature = ContentSignature.read(new ByteArrayInputStream(new byte[ContentSignature.SIGNATURE_SIZE * 2]));
+        assertFalse(signature.isComplete());
+        assertEquals(ContentSignature.SIGNATURE_SIZE, signature.getLength());
+    }
+
+    @Test
+    public void testMarkup() {
+        assertTrue(signature("<gpx/>").isMarkup());
+        assertTrue(signature(" \r\n\t<gpx/>").isMarkup());
+        assertTrue(signature("ï»¿<gpx/>").isMarkup());
+        assertTrue(new ContentSignature("<gpx/>".getBytes(UTF_16LE), true).isMarkup());
+        assertTrue(new ContentSignature("<gpx/>".getBytes(UTF_16BE), true).isMarkup());
+        assertTrue(new ContentSignature(new byte[]{(byte) 0xFF, (byte) 0xFE, '<', 0}, true).isMarkup());
+        assertFalse(signature("").isMarkup());
+        assertFalse(signature("text <gpx/>").isMarkup());
+        assertFalse(signature(NMEA).isMarkup());
+    }
+
+    @Test
+    public void testRootElement() {
+        assertEquals(new QName(GPX_10_NAMESPACE_URI, "gpx"), signature(GPX_10).getRootElement());
+        assertEquals(new QName(GPX_11_NAMESPACE_URI, "gpx"),
+                signature("<gpx xmlns=\"" + GPX_11_NAMESPACE_URI + "\"><wpt lat=").getRootElement());
+        assertEquals(new QName("kml"), signature("<!-- comment --><kml>").getRootElement());
+        assertNull(signature("<gpx").getRootElement());
+        assertNull(signature(NMEA).getRootElement());
+    }
+
+    @Test
+    public void testMagicBytes() {
+        assertTrue(new ContentSignature(new byte[]{'P', 'K', 3, 4, 0}, true).isZipArchive());
+        assertFalse(new ContentSignature(new byte[]{'P', 'K', 5, 6, 0}, true).isZipArchive());
+        assertTrue(new ContentSignature(new byte[]{(byte) 0xD0, (byte) 0xCF, 0x11, (byte) 0xE0, (byte) 0xA1, (byte) 0xB1, 0x1A, (byte) 0xE1}, true).isCompoundDocument());
+        assertTrue(signature("12345678.FIT").matches(8, ".FIT"));
+        assertFalse(signature("12345678.FI").matches(8, ".FIT"));
+    }
+
+    @Test
+    public void testLines() {
+        assertEquals(asList("a", "", "b", "c"), signature("a\n\nb\r\nc").getLines());
+        assertEquals(asList("a", "b"), new ContentSignature("a\rb\nc".getBytes(ISO_8859_1), false).getLines());
+    }
+
+    @Test
+    public void testLinesWithEncoding() {
+        assertEquals(asList("\u00e4", "b"), new ContentSignature("\u00e4\nb".getBytes(UTF_8), true).getLines("UTF-8"));
+        assertEquals(asList("a", "b"), new ContentSignature("\uFEFFa\r\nb".getBytes(UTF_16LE), true).getLines("UTF-16"));
+        // the character cut off at the end is part of the last line only
+        byte[] cutOff = "a\n\u00e4".getBytes(UTF_8);
+        assertEquals(asList("a"), new ContentSignature(copyOf(cutOff, cutOff.length - 1), false).getLines("UTF-8"));
+    }
+
+    @Test
+    public void testContains() {
+        assertTrue(signature("see http://www.routeconverter.com").contains("://"));
+        assertFalse(signature("no url").contains("://"));
+    }
+
+    @Test
+    public void testUnreadableFormats() {
+        ContentSignature gpx10 = signature(GPX_10);
+        assertFalse(isUnreadable(new Gpx10Format(), gpx10));
+        assertTrue(isUnreadable(new Gpx11Format(), gpx10));
+        assertFalse(isUnreadable(new Kml22Format(), gpx10));
+        assertTrue(isUnreadable(new Kmz22Format(), gpx10));
+        assertTrue(isUnreadable(new NmeaFormat(), gpx10));
+        assertTrue(isUnreadable(new ColumbusGpsType1Format(), gpx10));
+        assertFalse(isUnreadable(new UrlFormat(), gpx10));
+
+        ContentSignature nmea = signature(NMEA);
+        assertFalse(isUnreadable(new NmeaFormat(), nmea));
+        assertTrue(isUnreadable(new Gpx10Format(), nmea));
+        assertTrue(isUnreadable(new UrlFormat(), nmea));
+    }
+
+    @Test
+    public void testUnreadableFormatsForIncompleteSignature() {
+        // the URL may follow after the inspected bytes
+        assertFalse(isUnreadable(new UrlFormat(), new ContentSignature(NMEA.getBytes(ISO_8859_1), false)));
+        // the cut off last line is not judged
+        ContentSignature cutOff = new ContentSignature((NMEA + "garble").getBytes(ISO_8859_1), false);
+        assertFalse(isUnreadable(new NmeaFormat(), cutOff));
+    }
+
+    @Test
+    public void testUnreadableFormatsWithOwnEncoding() {
+        ContentSignature sygic = new ContentSignature(SYGIC.getBytes(UTF_16LE), true);
+        assertFalse(isUnreadable(new SygicUnicodeFormat(), sygic));
+        assertTrue(isUnreadable(new SygicAsciiFormat(), sygic));
+    }
+}
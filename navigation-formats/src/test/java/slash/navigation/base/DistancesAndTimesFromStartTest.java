@@ -0,0 +1,179 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.base;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static slash.common.io.Transfer.isEmpty;
+import static slash.common.type.CompactCalendar.fromMillis;
+
+public class DistancesAndTimesFromStartTest {
+    private final Random random = new Random(42);
+    private final DistancesAndTimesFromStart cache = new DistancesAndTimesFromStart();
+
+    private Wgs84Position randomPosition() {
+        boolean withCoordinates = random.nextInt(10) > 0;
+        boolean withTime = random.nextInt(10) > 0;
+        return new Wgs84Position(withCoordinates ? 10.0 + random.nextDouble() : null,
+                withCoordinates ? 50.0 + random.nextDouble() : null, null, null,
+                withTime ? fromMillis(random.nextInt(1000000)) : null, null);
+    }
+
+    private static double[] calculateDistancesFromStart(List<Wgs84Position> positions) {
+        double[] result = new double[positions.size()];
+        double distance = 0.0;
+        for (int i = 1; i < positions.size(); i++) {
+            Double delta = positions.get(i - 1).calculateDistance(positions.get(i));
+            if (!isEmpty(delta))
+                distance += delta;
+            result[i] = distance;
+        }
+        return result;
+    }
+
+    private static long[] calculateTimesFromStart(List<Wgs84Position> positions) {
+        long[] result = new long[positions.size()];
+        long time = 0L;
+        for (int i = 1; i < positions.size(); i++) {
+            Long delta = positions.get(i - 1).calculateTime(positions.get(i));
+            if (delta != null)
+                time += delta;
+            result[i] = time;
+        }
+        return result;
+    }
+
+    private void assertSameAsCalculated(List<Wgs84Position> positions) {
+        int end = positions.size() - 1;
+        assertArrayEquals(calculateDistancesFromStart(positions), cache.getDistancesFromStart(positions, 0, end), 0.01);
+        assertArrayEquals(calculateTimesFromStart(positions), cache.getTimesFromStart(positions, 0, end));
+    }
+
+    @Test
+    public void testFollowsReportedModifications() {
+        List<Wgs84Position> positions = new ArrayList<>();
+        for (int i = 0; i < 100; i++)
+            positions.add(randomPosition());
+        assertSameAsCalculated(positions);
+
+        for (int i = 0; i < 500; i++) {
+            int index = positions.isEmpty() ? 0 : random.nextInt(positions.size());
+            switch (random.nextInt(7)) {
+                case 0 -> {
+                    positions.add(index, randomPosition());
+                    cache.positionsInserted(positions, new int[]{index});
+                }
+                case 1 -> {
+                    positions.add(randomPosition());
+                    cache.positionsInserted(positions, new int[]{positions.size() - 1});
+                }
+                case 2 -> {
+                    if (!positions.isEmpty()) {
+                        positions.remove(index);
+                        cache.positionsRemoved(positions, new int[]{index});
+                    }
+                }
+                case 3 -> {
+                    if (!positions.isEmpty()) {
+                        positions.get(index).setLongitude(random.nextDouble());
+                        cache.positionsUpdated(index, index);
+                    }
+                }
+                case 4 -> {
+                    if (!positions.isEmpty()) {
+                        positions.get(index).setTime(null);
+                        cache.positionsUpdated(index, index);
+                    }
+                }
+                case 5 -> {
+                    int[] indices = {0, 2, 3, 7};
+                    if (positions.size() > 7) {
+                        for (int j = indices.length - 1; j >= 0; j--)
+                            positions.remove(indices[j]);
+                        cache.positionsRemoved(positions, indices);
+                    }
+                }
+                case 6 -> {
+                    int[] indices = {1, 4, 5, 9};
+                    if (positions.size() > 5) {
+                        for (int j : indices)
+                            positions.add(j, randomPosition());
+                        cache.positionsInserted(positions, indices);
+                    }
+                }
+            }
+            if (random.nextInt(3) == 0)
+                assertSameAsCalculated(positions);
+        }
+        assertSameAsCalculated(positions);
+    }
+
+    @Test
+    public void testCalculatesAgainForUnreportedNumberOfPositions() {
+        List<Wgs84Position> positions = new ArrayList<>();
+        for (int i = 0; i < 100; i++)
+            positions.add(randomPosition());
+        assertSameAsCalculated(positions);
+
+        positions.subList(10, 60).clear();
+        assertSameAsCalculated(positions);
+        positions.add(20, randomPosition());
+        assertSameAsCalculated(positions);
+        positions.clear();
+        assertSameAsCalculated(positions);
+    }
+
+    @Test
+    public void testDistanceBetweenIndices() {
+        List<Wgs84Position> positions = new ArrayList<>();
+        for (int i = 0; i < 20; i++)
+            positions.add(randomPosition());
+
+        double expected = 0.0;
+        for (int i = 5; i < 12; i++) {
+            Double delta = positions.get(i).calculateDistance(positions.get(i + 1));
+            if (!isEmpty(delta))
+                expected += delta;
+        }
+        assertEquals(expected, cache.getDistance(positions, 5, 12), 0.0);
+        assertEquals(0.0, cache.getDistance(positions, 12, 5), 0.0);
+    }
+
+    @Test
+    public void testIndices() {
+        List<Wgs84Position> positions = new ArrayList<>();
+        for (int i = 0; i < 20; i++)
+            positions.add(randomPosition());
+        double[] distances = calculateDistancesFromStart(positions);
+        long[] times = calculateTimesFromStart(positions);
+
+        assertArrayEquals(new double[]{distances[3], distances[7], distances[19], 0.0},
+                cache.getDistancesFromStart(positions, new int[]{19, 3, 25, 7}), 0.0);
+        assertArrayEquals(new long[]{times[3], times[7], times[19], 0L},
+                cache.getTimesFromStart(positions, new int[]{19, 3, 25, 7}));
+    }
+}
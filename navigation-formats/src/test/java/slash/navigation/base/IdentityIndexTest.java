@@ -0,0 +1,125 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.base;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class IdentityIndexTest {
+    private final Random random = new Random(42);
+    private final IdentityIndex index = new IdentityIndex();
+
+    private static Wgs84Position position(double longitude) {
+        return new Wgs84Position(longitude, 50.0, null, null, null, null);
+    }
+
+    private List<Wgs84Position> createPositions(int count) {
+        List<Wgs84Position> positions = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+            positions.add(position(i));
+        return positions;
+    }
+
+    private static int calculateIndex(List<Wgs84Position> positions, Wgs84Position position) {
+        for (int i = 0; i < positions.size(); i++)
+            if (positions.get(i) == position)
+                return i;
+        return positions.indexOf(position);
+    }
+
+    private void assertSameAsCalculated(List<Wgs84Position> positions) {
+        for (Wgs84Position position : positions)
+            assertEquals(calculateIndex(positions, position), index.getIndex(positions, position));
+    }
+
+    @Test
+    public void testIdentifiesEqualPositions() {
+        List<Wgs84Position> positions = new ArrayList<>();
+        Wgs84Position first = position(10.0), second = position(10.0);
+        positions.add(first);
+        positions.add(position(11.0));
+        positions.add(second);
+
+        assertEquals(0, index.getIndex(positions, first));
+        assertEquals(2, index.getIndex(positions, second));
+        assertEquals(0, index.getIndex(positions, position(10.0)));
+        assertEquals(-1, index.getIndex(positions, position(12.0)));
+    }
+
+    @Test
+    public void testFollowsModifications() {
+        List<Wgs84Position> positions = createPositions(1000);
+        assertSameAsCalculated(positions);
+
+        for (int i = 0; i < 200; i++) {
+            int position = random.nextInt(positions.size());
+            switch (random.nextInt(4)) {
+                case 0 -> positions.add(position, position(random.nextInt(1000)));
+                case 1 -> positions.remove(position);
+                case 2 -> {
+                    int other = random.nextInt(positions.size());
+                    positions.set(position, positions.set(other, positions.get(position)));
+                    index.positionsUpdated(positions, min(position, other), max(position, other));
+                }
+                case 3 -> {
+                    int other = random.nextInt(positions.size());
+                    positions.set(position, positions.set(other, positions.get(position)));
+                }
+            }
+            assertSameAsCalculated(positions);
+        }
+    }
+
+    @Test
+    public void testColumnarPositionList() {
+        ColumnarPositionList positions = new ColumnarPositionList(createPositions(100));
+        Wgs84Position removed = positions.remove(10);
+        assertEquals(-1, index.getIndex(positions, removed));
+        assertEquals(10, index.getIndex(positions, positions.get(10)));
+
+        positions.add(50, removed);
+        assertEquals(50, index.getIndex(positions, removed));
+        assertEquals(51, index.getIndex(positions, positions.get(51)));
+    }
+
+    @Test
+    public void testIndexOfManyPositions() {
+        List<Wgs84Position> positions = createPositions(200000);
+        ColumnarPositionList columnarPositions = new ColumnarPositionList(positions);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 50000; i++) {
+            int expected = random.nextInt(positions.size());
+            assertEquals(expected, index.getIndex(positions, positions.get(expected)));
+            assertEquals(expected, columnarPositions.indexOf(columnarPositions.get(expected)));
+        }
+        long duration = (System.nanoTime() - start) / 1000000;
+        assertTrue("50000 lookups took " + duration + " ms", duration < 1000);
+    }
+}
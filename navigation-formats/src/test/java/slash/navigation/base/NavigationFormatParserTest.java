@@ -37,12 +37,18 @@ import java.net.URL;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static java.nio.charset.StandardCharsets.US_ASCII;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static slash.common.io.Files.collectFiles;
+import static slash.navigation.base.NavigationTestCase.ROUTE_PATH;
+import static slash.navigation.base.NavigationTestCase.TEST_PATH;
+import static slash.navigation.base.NavigationTestCase.createHermeticSampleFile;
 
 /**
  * Unit tests for {@link NavigationFormatParser} read/write paths that do not
@@ -235,6 +241,85 @@ public class NavigationFormatParserTest {
         assertTrue(result.isSuccessful());
     }
 
+    @Test
+    public void testReadInParallelDetectsSameFormat() throws IOException {
+        NavigationFormatParser parallelParser = new NavigationFormatParser(new NavigationFormatRegistry(), 4);
+        for (String source : new String[]{GPX_11, GPX_11_TWO_ROUTES, new String(columbusBody(5), US_ASCII)}) {
+            ParserResult sequential = parser.read(source);
+            ParserResult parallel = parallelParser.read(source);
+            assertTrue(parallel.isSuccessful());
+            assertEquals(sequential.getFormat().getClass(), parallel.getFormat().getClass());
+            assertEquals(sequential.getAllRoutes().size(), parallel.getAllRoutes().size());
+            assertEquals(sequential.getTheRoute().getPositionCount(), parallel.getTheRoute().getPositionCount());
+        }
+    }
+
+    @Test
+    public void testReadRemoteFileInParallel() throws Exception {
+        NavigationFormatParser parallelParser = new NavigationFormatParser(new NavigationFormatRegistry(), 4);
+        withServer(columbusBody(500), /* withContentLength */ true, url -> {
+            ParserResult result = parallelParser.read(url);
+            assertTrue(result.isSuccessful());
+            assertEquals(ColumbusGpsType1Format.class, result.getFormat().getClass());
+            assertEquals(500, result.getTheRoute().getPositionCount());
+        });
+    }
+
+    @Test
+    public void testReadInParallelProbesOnlyAWindowOfFormats() throws IOException {
+        AtomicInteger sequentialProbes = new AtomicInteger();
+        parser.addNavigationFileParserListener(format -> sequentialProbes.incrementAndGet());
+        NavigationFormatParser parallelParser = new NavigationFormatParser(new NavigationFormatRegistry(), 2);
+        AtomicInteger parallelProbes = new AtomicInteger();
+        parallelParser.addNavigationFileParserListener(format -> parallelProbes.incrementAndGet());
+
+        String source = new String(columbusBody(5), US_ASCII);
+        parser.read(source);
+        parallelParser.read(source);
+        // at most the formats up to the winner and the one probed beside it
+        assertTrue(parallelProbes.get() <= sequentialProbes.get() + 1);
+    }
+
+    @Test
+    public void testReadFileInParallel() throws IOException {
+        NavigationFormatParser parallelParser = new NavigationFormatParser(new NavigationFormatRegistry(), 4);
+        ParserResult result = parallelParser.read(temporaryFile(".csv", columbusBody(250)));
+        assertTrue(result.isSuccessful());
+        assertEquals(ColumbusGpsType1Format.class, result.getFormat().getClass());
+        assertEquals(250, result.getTheRoute().getPositionCount());
+    }
+
+    @Test
+    public void testReadEmptyInputInParallelIsLenientlySuccessful() throws IOException {
+        NavigationFormatParser parallelParser = new NavigationFormatParser(new NavigationFormatRegistry(), 4);
+        ParserResult sequential = parser.read("");
+        ParserResult parallel = parallelParser.read("");
+        assertTrue(parallel.isSuccessful());
+        assertEquals(sequential.getFormat().getClass(), parallel.getFormat().getClass());
+    }
+
+    private static String formatName(ParserResult result) {
+        return result.isSuccessful() ? result.getFormat().getName() : null;
+    }
+
+    @Test
+    public void testRankingBySignatureDetectsTheSameFormats() throws IOException {
+        NavigationFormatParser unrankedParser = new NavigationFormatParser(new NavigationFormatRegistry());
+        unrankedParser.setRankingBySignature(false);
+
+        List<File> files = collectFiles(new File(ROUTE_PATH));
+        assertFalse(files.isEmpty());
+        for (File file : files) {
+            File source = createHermeticSampleFile(file);
+            assertEquals(file.getName(), formatName(unrankedParser.read(source)), formatName(parser.read(source)));
+        }
+
+        for (String content : new String[]{GPX_11, GPX_11_TWO_ROUTES, new String(columbusBody(5), US_ASCII),
+                "file:" + new File(TEST_PATH + "from.gpx").getAbsolutePath(), ""}) {
+            assertEquals(content, formatName(unrankedParser.read(content)), formatName(parser.read(content)));
+        }
+    }
+
     private interface UrlConsumer {
         void accept(URL url) throws Exception;
     }
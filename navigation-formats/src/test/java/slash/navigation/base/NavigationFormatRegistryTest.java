@@ -28,6 +28,7 @@ import slash.navigation.columbus.GarbleColumbusGpsType1Format;
 import slash.navigation.csv.CsvCommaFormat;
 import slash.navigation.csv.CsvSemicolonFormat;
 import slash.navigation.csv.Flightradar24Format;
+import slash.navigation.gpx.Gpx11Format;
 import slash.navigation.nmn.NmnUrlFormat;
 import slash.navigation.simple.*;
 import slash.navigation.url.GoogleMapsUrlFormat;
@@ -35,6 +36,7 @@ import slash.navigation.url.GoogleMapsUrlFormat;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 public class NavigationFormatRegistryTest {
     private final NavigationFormatRegistry registry = new NavigationFormatRegistry();
@@ -77,4 +79,32 @@ public class NavigationFormatRegistryTest {
         assertEquals(GarbleHaicomLoggerFormat.class, formats.get(index++).getClass());
         assertEquals(NmnUrlFormat.class, formats.get(index).getClass());
     }
+
+    @Test
+    public void testFormatInstancesAreShared() {
+        assertSame(registry.getReadFormats(), registry.getReadFormats());
+        assertSame(registry.getWriteFormats(), registry.getWriteFormats());
+        assertSame(registry.getReadFormatsPreferredByExtension(".csv"), registry.getReadFormatsPreferredByExtension(".csv"));
+
+        NavigationFormat<?> gpx11Format = get(registry.getReadFormats(), Gpx11Format.class);
+        assertSame(gpx11Format, get(registry.getWriteFormats(), Gpx11Format.class));
+        assertSame(gpx11Format, get(registry.getReadFormatsPreferredByExtension(".gpx"), Gpx11Format.class));
+    }
+
+    private NavigationFormat<?> get(List<NavigationFormat<?>> formats, Class<?> formatClass) {
+        for (NavigationFormat<?> format : formats)
+            if (format.getClass().equals(formatClass))
+                return format;
+        return null;
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testReadFormatsAreUnmodifiable() {
+        registry.getReadFormats().clear();
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testReadFormatsPreferredByExtensionAreUnmodifiable() {
+        registry.getReadFormatsPreferredByExtension(".gpx").remove(0);
+    }
 }
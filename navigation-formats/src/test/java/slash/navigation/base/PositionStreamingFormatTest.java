@@ -0,0 +1,260 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.base;
+
+import org.junit.Test;
+import slash.navigation.columbus.ColumbusGpsType1Format;
+import slash.navigation.gpx.Gpx11Format;
+import slash.navigation.gpx.GpxPosition;
+import slash.navigation.nmea.MagellanRouteFormat;
+import slash.navigation.nmea.NmeaFormat;
+import slash.navigation.nmea.NmeaPosition;
+import slash.navigation.nmea.NmeaRoute;
+import slash.navigation.nmn.Nmn7Format;
+import slash.navigation.nmn.NmnPosition;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+import static slash.navigation.base.NavigationFormatConverter.convert;
+
+public class PositionStreamingFormatTest {
+    private static final String GPX_11_TRACK = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<gpx version=\"1.1\" creator=\"test\" xmlns=\"http://www.topografix.com/GPX/1/1\">" +
+            "<trk><name>t</name><trkseg><trkpt lat=\"3.0\" lon=\"4.0\"/><trkpt lat=\"3.1\" lon=\"4.1\"/>" +
+            "<trkpt lat=\"3.2\" lon=\"4.2\"/></trkseg></trk></gpx>";
+
+    private static String sentence(String body) {
+        byte checksum = 0;
+        for (int i = 0; i < body.length(); i++)
+            checksum ^= body.charAt(i);
+        return "$" + body + "*" + format("%02X", checksum) + "\n";
+    }
+
+    private static byte[] nmea(int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++)
+            builder.append(sentence(format("GPRMC,1801%02d,A,4808.%04d,N,00928.9610,E,000.0,000.0,160607,,,A", i % 60, i)));
+        return builder.toString().getBytes(US_ASCII);
+    }
+
+    // positions apart far enough for formats that write five fraction digits
+    private static byte[] nmeaTrack(int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++)
+            builder.append(sentence(format("GPRMC,1801%02d,A,48%02d.0000,N,00928.9610,E,000.0,000.0,160607,,,A", i % 60, i)));
+        return builder.toString().getBytes(US_ASCII);
+    }
+
+    private static class RecordingSink<P extends BaseNavigationPosition> implements PositionSink<P> {
+        private final List<String> events = new ArrayList<>();
+        private final List<P> positions = new ArrayList<>();
+
+        public void beginRoute(RouteCharacteristics characteristics, String name) {
+            events.add("begin " + characteristics);
+        }
+
+        public void addPosition(P position) {
+            positions.add(position);
+        }
+
+        public void endRoute() {
+            events.add("end");
+        }
+
+        public void close() {
+            events.add("close");
+        }
+    }
+
+    @Test
+    public void testReadNmeaIntoSink() throws IOException {
+        NmeaFormat format = new NmeaFormat();
+        RecordingSink<NmeaPosition> sink = new RecordingSink<>();
+        format.read(new ByteArrayInputStream(nmea(10)), new ParserContextImpl<>(), sink);
+        assertEquals(asList("begin Track", "end"), sink.events);
+
+        ParserContext<NmeaRoute> context = new ParserContextImpl<>();
+        format.read(new ByteArrayInputStream(nmea(10)), context);
+        List<NmeaPosition> positions = context.getRoutes().get(0).getPositions();
+        assertEquals(positions.size(), sink.positions.size());
+        for (int i = 0; i < positions.size(); i++) {
+            assertEquals(positions.get(i).getLongitude(), sink.positions.get(i).getLongitude());
+            assertEquals(positions.get(i).getLatitude(), sink.positions.get(i).getLatitude());
+            assertEquals(positions.get(i).getTime(), sink.positions.get(i).getTime());
+        }
+    }
+
+    @Test
+    public void testReadNmeaMergesSentencesBeforeSink() throws IOException {
+        byte[] bytes = (sentence("GPRMC,180100,A,4808.0000,N,00928.9610,E,000.0,000.0,160607,,,A") +
+                sentence("GPGGA,180100,4808.0000,N,00928.9610,E,1,05,1.5,00400,M,,,,") +
+                sentence("GPRMC,180101,A,4808.0001,N,00928.9610,E,000.0,000.0,160607,,,A")).getBytes(US_ASCII);
+        NmeaFormat format = new NmeaFormat();
+        RecordingSink<NmeaPosition> sink = new RecordingSink<>();
+        format.read(new ByteArrayInputStream(bytes), new ParserContextImpl<>(), sink);
+
+        ParserContext<NmeaRoute> context = new ParserContextImpl<>();
+        format.read(new ByteArrayInputStream(bytes), context);
+        List<NmeaPosition> positions = context.getRoutes().get(0).getPositions();
+        assertEquals(positions.size(), sink.positions.size());
+        assertEquals(positions.get(0).getElevation(), sink.positions.get(0).getElevation());
+    }
+
+    @Test
+    public void testReadGarbleIntoSinkDoesNotEndRoute() {
+        byte[] bytes = (sentence("GPRMC,180100,A,4808.0000,N,00928.9610,E,000.0,000.0,160607,,,A") + "garble\ngarble\n").getBytes(US_ASCII);
+        RecordingSink<NmeaPosition> sink = new RecordingSink<>();
+        try {
+            new NmeaFormat().read(new ByteArrayInputStream(bytes), new ParserContextImpl<>(), sink);
+        } catch (Exception e) {
+            // too much garble
+        }
+        assertEquals(singletonList("begin Track"), sink.events);
+    }
+
+    @Test
+    public void testReadStopsWhenInterrupted() throws IOException {
+        RecordingSink<NmeaPosition> sink = new RecordingSink<>();
+        Thread.currentThread().interrupt();
+        try {
+            new NmeaFormat().read(new ByteArrayInputStream(nmea(10)), new ParserContextImpl<>(), sink);
+            fail("InterruptedIOException expected");
+        } catch (InterruptedIOException e) {
+            // the interrupt is consumed by the reader
+        }
+        assertFalse(Thread.interrupted());
+        assertEquals(0, sink.positions.size());
+    }
+
+    @Test
+    public void testConvertNmeaToColumbusWhileReading() throws IOException {
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        convert(new ByteArrayInputStream(nmea(100)), new NmeaFormat(), new ParserContextImpl<>(),
+                target, new ColumbusGpsType1Format());
+
+        ParserResult result = new NavigationFormatParser(new NavigationFormatRegistry()).read(
+                new ByteArrayInputStream(target.toByteArray()), singletonList(new ColumbusGpsType1Format()));
+        assertEquals(ColumbusGpsType1Format.class, result.getFormat().getClass());
+        assertEquals(100, result.getTheRoute().getPositionCount());
+    }
+
+    @Test
+    public void testConvertGpxToNmea() throws IOException {
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        convert(new ByteArrayInputStream(GPX_11_TRACK.getBytes(UTF_8)), new Gpx11Format(), new ParserContextImpl<>(),
+                target, new NmeaFormat());
+
+        ParserContext<NmeaRoute> context = new ParserContextImpl<>();
+        new NmeaFormat().read(new ByteArrayInputStream(target.toByteArray()), context);
+        assertEquals(3, context.getRoutes().get(0).getPositionCount());
+        assertEquals(4.2, context.getRoutes().get(0).getPosition(2).getLongitude(), 0.0001);
+    }
+
+    @Test
+    public void testBufferingSinkWritesOnClose() throws IOException {
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        MagellanRouteFormat format = new MagellanRouteFormat();
+        try (PositionSink<NmeaPosition> sink = format.createPositionSink(target)) {
+            sink.beginRoute(RouteCharacteristics.Route, "r");
+            sink.addPosition(new NmeaPosition(4.0, 3.0, null, null, null, "a"));
+            sink.addPosition(new NmeaPosition(4.1, 3.1, null, null, null, "b"));
+            sink.endRoute();
+            assertEquals(0, target.size());
+        }
+
+        ParserContext<NmeaRoute> context = new ParserContextImpl<>();
+        format.read(new ByteArrayInputStream(target.toByteArray()), context);
+        assertEquals(1, context.getRoutes().size());
+        assertEquals(2, context.getRoutes().get(0).getPositionCount());
+    }
+
+    @Test
+    public void testNmn7SinkAndReadThroughCompleteRoutes() throws IOException {
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        Nmn7Format format = new Nmn7Format();
+        try (PositionSink<Wgs84Position> sink = format.createPositionSink(target)) {
+            sink.beginRoute(RouteCharacteristics.Route, "r");
+            sink.addPosition(new NmnPosition(4.0, 3.0, (Double) null, null, null, "a"));
+            sink.addPosition(new NmnPosition(4.1, 3.1, (Double) null, null, null, "b"));
+            sink.endRoute();
+            assertEquals(0, target.size());
+        }
+
+        RecordingSink<Wgs84Position> sink = new RecordingSink<>();
+        format.read(new ByteArrayInputStream(target.toByteArray()), new ParserContextImpl<>(), sink);
+        assertEquals(asList("begin Route", "end"), sink.events);
+        assertEquals(2, sink.positions.size());
+        assertEquals("b", sink.positions.get(1).getDescription());
+    }
+
+    @Test
+    public void testGpxSinkWritesRoutes() throws IOException {
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        Gpx11Format format = new Gpx11Format();
+        try (PositionSink<GpxPosition> sink = format.createPositionSink(target)) {
+            sink.beginRoute(RouteCharacteristics.Track, "t");
+            sink.addPosition(new GpxPosition(4.0, 3.0, null, null, null, null));
+            sink.endRoute();
+        }
+
+        ParserContext<slash.navigation.gpx.GpxRoute> context = new ParserContextImpl<>();
+        format.read(new ByteArrayInputStream(target.toByteArray()), context);
+        assertEquals(1, context.getRoutes().size());
+        assertEquals("t", context.getRoutes().get(0).getName());
+    }
+
+    @Test
+    public void testConvertThroughEveryStreamingFormat() throws IOException {
+        List<String> streamed = new ArrayList<>();
+        for (NavigationFormat<?> format : new AllNavigationFormatRegistry().getFormatsSortedByName()) {
+            if (!(format instanceof PositionStreamingFormat) || !format.isSupportsReading() || !format.isSupportsWriting())
+                continue;
+            PositionStreamingFormat<?> streamingFormat = (PositionStreamingFormat<?>) format;
+
+            ByteArrayOutputStream written = new ByteArrayOutputStream();
+            convert(new ByteArrayInputStream(nmeaTrack(10)), new NmeaFormat(), new ParserContextImpl<>(),
+                    written, streamingFormat);
+            ByteArrayOutputStream reread = new ByteArrayOutputStream();
+            convert(new ByteArrayInputStream(written.toByteArray()), streamingFormat, new ParserContextImpl<>(),
+                    reread, new NmeaFormat());
+
+            ParserContext<NmeaRoute> context = new ParserContextImpl<>();
+            new NmeaFormat().read(new ByteArrayInputStream(reread.toByteArray()), context);
+            assertEquals(format.getName(), 1, context.getRoutes().size());
+            assertEquals(format.getName(), 10, context.getRoutes().get(0).getPositionCount());
+            streamed.add(format.getName());
+        }
+        assertFalse(streamed.isEmpty());
+    }
+}
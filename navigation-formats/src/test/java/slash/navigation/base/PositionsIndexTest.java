@@ -0,0 +1,217 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.base;
+
+import org.junit.Test;
+import slash.navigation.common.BoundingBox;
+import slash.navigation.common.SimpleNavigationPosition;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static java.lang.Double.MAX_VALUE;
+import static java.lang.Math.cos;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.Math.sqrt;
+import static java.lang.Math.toRadians;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static slash.navigation.common.Bearing.EARTH_RADIUS;
+
+public class PositionsIndexTest {
+    private final Random random = new Random(42);
+    private final PositionsIndex index = new PositionsIndex();
+
+    private Wgs84Position randomPosition() {
+        boolean withCoordinates = random.nextInt(10) > 0;
+        return new Wgs84Position(withCoordinates ? 10.0 + random.nextDouble() * 0.1 : null,
+                withCoordinates ? 50.0 + random.nextDouble() * 0.1 : null, null, null, null, null);
+    }
+
+    private List<Wgs84Position> randomPositions(int count) {
+        List<Wgs84Position> positions = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+            positions.add(randomPosition());
+        return positions;
+    }
+
+    private static int[] calculateClosestPositions(List<Wgs84Position> positions, double longitude, double latitude,
+                                                   int count, double threshold) {
+        SimpleNavigationPosition reference = new SimpleNavigationPosition(longitude, latitude);
+        List<Integer> indices = new ArrayList<>();
+        List<Double> distances = new ArrayList<>();
+        for (int i = 0; i < positions.size(); i++) {
+            Double distance = positions.get(i).calculateDistance(reference);
+            if (distance != null && distance <= threshold) {
+                int insert = 0;
+                while (insert < distances.size() && distances.get(insert) <= distance)
+                    insert++;
+                indices.add(insert, i);
+                distances.add(insert, distance);
+            }
+        }
+        int[] result = new int[min(count, indices.size())];
+        for (int i = 0; i < result.length; i++)
+            result[i] = indices.get(i);
+        return result;
+    }
+
+    private static int[] calculateContainedPositions(List<Wgs84Position> positions, BoundingBox boundingBox) {
+        List<Integer> result = new ArrayList<>();
+        for (int i = 0; i < positions.size(); i++) {
+            Wgs84Position position = positions.get(i);
+            if (position.hasCoordinates() && boundingBox.contains(position))
+                result.add(i);
+        }
+        return result.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int calculateClosestSegment(List<Wgs84Position> positions, double longitude, double latitude, double threshold) {
+        double metersOfALatitudeDegree = toRadians(EARTH_RADIUS);
+        double metersOfALongitudeDegree = metersOfALatitudeDegree * cos(toRadians(latitude));
+        int closest = -1;
+        double closestDistance = MAX_VALUE;
+        for (int i = 0; i < positions.size() - 1; i++) {
+            Wgs84Position first = positions.get(i), second = positions.get(i + 1);
+            if (!first.hasCoordinates() || !second.hasCoordinates())
+                continue;
+            double x1 = (first.getLongitude() - longitude) * metersOfALongitudeDegree;
+            double y1 = (first.getLatitude() - latitude) * metersOfALatitudeDegree;
+            double x2 = (second.getLongitude() - longitude) * metersOfALongitudeDegree;
+            double y2 = (second.getLatitude() - latitude) * metersOfALatitudeDegree;
+            double dx = x2 - x1, dy = y2 - y1;
+            double lengthSquare = dx * dx + dy * dy;
+            double fraction = lengthSquare > 0.0 ? max(0.0, min(1.0, -(x1 * dx + y1 * dy) / lengthSquare)) : 0.0;
+            double x = x1 + fraction * dx, y = y1 + fraction * dy;
+            double distance = sqrt(x * x + y * y);
+            if (distance <= threshold && distance < closestDistance) {
+                closest = i;
+                closestDistance = distance;
+            }
+        }
+        return closest;
+    }
+
+    private void assertSameAsCalculated(List<Wgs84Position> positions) {
+        for (int i = 0; i < 20; i++) {
+            double longitude = 9.99 + random.nextDouble() * 0.12;
+            double latitude = 49.99 + random.nextDouble() * 0.12;
+            double threshold = random.nextInt(3) == 0 ? MAX_VALUE : random.nextDouble() * 2000.0;
+            int count = 1 + random.nextInt(5);
+
+            assertArrayEquals(calculateClosestPositions(positions, longitude, latitude, count, threshold),
+                    index.getClosestPositions(positions, longitude, latitude, count, threshold));
+            assertEquals(calculateClosestSegment(positions, longitude, latitude, threshold),
+                    index.getClosestSegment(positions, longitude, latitude, threshold));
+
+            BoundingBox boundingBox = new BoundingBox(longitude + 0.02, latitude + 0.02, longitude, latitude);
+            assertArrayEquals(calculateContainedPositions(positions, boundingBox),
+                    index.getContainedPositions(positions, boundingBox));
+        }
+    }
+
+    @Test
+    public void testQueries() {
+        List<Wgs84Position> positions = randomPositions(2000);
+        assertSameAsCalculated(positions);
+    }
+
+    @Test
+    public void testClosestPosition() {
+        List<Wgs84Position> positions = new ArrayList<>();
+        positions.add(new Wgs84Position(10.0, 50.0, null, null, null, null));
+        positions.add(new Wgs84Position(10.001, 50.0, null, null, null, null));
+        positions.add(new Wgs84Position(10.0, 50.0, null, null, null, null));
+        positions.add(new Wgs84Position(null, null, null, null, null, null));
+
+        assertEquals(0, index.getClosestPosition(positions, 10.0, 50.0, 10.0));
+        assertEquals(1, index.getClosestPosition(positions, 10.0009, 50.0, 10.0));
+        assertEquals(-1, index.getClosestPosition(positions, 10.0005, 50.0, 10.0));
+        assertArrayEquals(new int[]{0, 2, 1}, index.getClosestPositions(positions, 10.0, 50.0, 5, MAX_VALUE));
+    }
+
+    @Test
+    public void testClosestSegment() {
+        List<Wgs84Position> positions = new ArrayList<>();
+        positions.add(new Wgs84Position(10.0, 50.0, null, null, null, null));
+        positions.add(new Wgs84Position(10.01, 50.0, null, null, null, null));
+        positions.add(new Wgs84Position(10.01, 50.01, null, null, null, null));
+
+        assertEquals(0, index.getClosestSegment(positions, 10.005, 50.0001, 50.0));
+        assertEquals(1, index.getClosestSegment(positions, 10.0101, 50.005, 50.0));
+        assertEquals(-1, index.getClosestSegment(positions, 10.005, 50.005, 50.0));
+    }
+
+    @Test
+    public void testFollowsModifications() {
+        List<Wgs84Position> positions = randomPositions(2000);
+        assertSameAsCalculated(positions);
+
+        for (int i = 0; i < 200; i++) {
+            int position = random.nextInt(positions.size());
+            switch (random.nextInt(4)) {
+                case 0 -> positions.add(position, randomPosition());
+                case 1 -> positions.remove(position);
+                case 2 -> {
+                    Wgs84Position moved = randomPosition();
+                    positions.get(position).setLongitude(moved.getLongitude());
+                    positions.get(position).setLatitude(moved.getLatitude());
+                    index.positionsUpdated(position, position);
+                }
+                case 3 -> {
+                    int other = random.nextInt(positions.size());
+                    positions.set(position, positions.set(other, positions.get(position)));
+                    index.positionsUpdated(min(position, other), max(position, other));
+                }
+            }
+            assertSameAsCalculated(positions);
+        }
+    }
+
+    @Test
+    public void testDetectsMovedCandidates() {
+        List<Wgs84Position> positions = randomPositions(1000);
+        int closest = index.getClosestPosition(positions, 10.05, 50.05, MAX_VALUE);
+        positions.get(closest).setLongitude(11.0);
+        assertEquals(calculateClosestPositions(positions, 10.05, 50.05, 1, MAX_VALUE)[0],
+                index.getClosestPosition(positions, 10.05, 50.05, MAX_VALUE));
+    }
+
+    @Test
+    public void testClosestPositionOnLongTrack() {
+        List<Wgs84Position> positions = new ArrayList<>();
+        for (int i = 0; i < 200000; i++)
+            positions.add(new Wgs84Position(10.0 + i * 0.00001, 50.0 + 0.01 * Math.sin(i * 0.001), null, null, null, null));
+        assertEquals(100000, index.getClosestPosition(positions, 11.0, 50.0 + 0.01 * Math.sin(100.0), 10.0));
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 1000; i++) {
+            int expected = random.nextInt(positions.size());
+            Wgs84Position position = positions.get(expected);
+            assertEquals(expected, index.getClosestPosition(positions, position.getLongitude(), position.getLatitude(), 0.1));
+        }
+        long duration = (System.nanoTime() - start) / 1000000;
+        assertTrue("1000 queries took " + duration + " ms", duration < 1000);
+    }
+}
@@ -24,14 +24,19 @@ import org.junit.Test;
 import slash.common.type.CompactCalendar;
 import slash.navigation.common.NavigationPosition;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.logging.Logger;
 
+import static java.lang.Math.*;
 import static org.junit.Assert.*;
 import static slash.common.type.CompactCalendar.fromMillis;
+import static slash.navigation.common.Bearing.EARTH_RADIUS;
 
 public class RouteCalculationsTest {
+    private static final Logger log = Logger.getLogger(RouteCalculationsTest.class.getName());
 
     private static Wgs84Position pos(double lon, double lat) {
         return new Wgs84Position(lon, lat, null, null, null, null);
@@ -95,6 +100,124 @@ public class RouteCalculationsTest {
         assertTrue(indices.contains(2));
     }
 
+    private static List<Wgs84Position> createSmoothTrack(int count) {
+        List<Wgs84Position> positions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            double angle = i * 0.0005;
+            positions.add(pos(10.0 + i * 0.00001 + 0.01 * Math.sin(angle), 50.0 + 0.01 * Math.cos(angle * 3)));
+        }
+        return positions;
+    }
+
+    // the recursive implementation before it worked on coordinate arrays
+    private static List<Integer> douglasPeuckerReference(List<Wgs84Position> positions, int from, int to, double threshold) {
+        NavigationPosition pointA = positions.get(from);
+        NavigationPosition pointB = positions.get(to);
+        int maximumDistanceIndex = -1;
+        double maximumDistance = 0.0;
+        for (int i = from + 1; i < to; i++) {
+            double distance = abs(positions.get(i).calculateOrthogonalDistance(pointA, pointB));
+            if (distance > maximumDistance) {
+                maximumDistance = distance;
+                maximumDistanceIndex = i;
+            }
+        }
+
+        List<Integer> result = new ArrayList<>();
+        if (maximumDistanceIndex != -1 && maximumDistance > threshold) {
+            result.addAll(douglasPeuckerReference(positions, from, maximumDistanceIndex, threshold));
+            result.remove(result.size() - 1);
+            result.addAll(douglasPeuckerReference(positions, maximumDistanceIndex, to, threshold));
+        } else {
+            result.add(from);
+            result.add(to);
+        }
+        return result;
+    }
+
+    private static double area(List<Wgs84Position> positions, int previous, int index, int next) {
+        Wgs84Position a = positions.get(previous), b = positions.get(index), c = positions.get(next);
+        double scale = cos(toRadians(b.getLatitude()));
+        double x1 = (a.getLongitude() - b.getLongitude()) * scale, y1 = a.getLatitude() - b.getLatitude();
+        double x2 = (c.getLongitude() - b.getLongitude()) * scale, y2 = c.getLatitude() - b.getLatitude();
+        return abs(x1 * y2 - x2 * y1) / 2.0 * toRadians(EARTH_RADIUS) * toRadians(EARTH_RADIUS);
+    }
+
+    // removes the position with the smallest effective area by searching all remaining positions
+    private static List<Integer> visvalingamWhyattReference(List<Wgs84Position> positions, int count) {
+        List<Integer> remaining = new ArrayList<>();
+        List<Double> areas = new ArrayList<>();
+        for (int i = 0; i < positions.size(); i++) {
+            remaining.add(i);
+            areas.add(i > 0 && i < positions.size() - 1 ? area(positions, i - 1, i, i + 1) : Double.POSITIVE_INFINITY);
+        }
+
+        while (remaining.size() > count) {
+            int minimum = 1;
+            for (int i = 2; i < remaining.size() - 1; i++)
+                if (areas.get(i) < areas.get(minimum))
+                    minimum = i;
+
+            double area = areas.get(minimum);
+            remaining.remove(minimum);
+            areas.remove(minimum);
+            if (minimum > 1)
+                areas.set(minimum - 1, max(area, area(positions, remaining.get(minimum - 2), remaining.get(minimum - 1), remaining.get(minimum))));
+            if (minimum < remaining.size() - 1)
+                areas.set(minimum, max(area, area(positions, remaining.get(minimum - 1), remaining.get(minimum), remaining.get(minimum + 1))));
+        }
+        return remaining;
+    }
+
+    private static List<Integer> asList(int[] indices) {
+        List<Integer> result = new ArrayList<>(indices.length);
+        for (int index : indices)
+            result.add(index);
+        return result;
+    }
+
+    @Test
+    public void testSignificantPositionsOfLongTrack() {
+        // more positions than are simplified without splitting up the ranges in parallel
+        List<Wgs84Position> positions = createSmoothTrack(60000);
+        long start = System.currentTimeMillis();
+        int[] result = RouteCalculations.getSignificantPositions(positions, 1.0);
+        log.info("Simplified " + positions.size() + " positions to " + result.length + " in " + (System.currentTimeMillis() - start) + " ms");
+
+        assertEquals(douglasPeuckerReference(positions, 0, positions.size() - 1, 1.0), asList(result));
+    }
+
+    // --- getMostSignificantPositions ---
+
+    @Test
+    public void testMostSignificantPositionsOfShortLists() {
+        assertArrayEquals(new int[0], RouteCalculations.getMostSignificantPositions(Collections.<Wgs84Position>emptyList(), 10));
+        assertArrayEquals(new int[]{0}, RouteCalculations.getMostSignificantPositions(Collections.singletonList(pos(10.0, 50.0)), 10));
+        assertArrayEquals(new int[]{0, 1}, RouteCalculations.getMostSignificantPositions(Arrays.asList(pos(10.0, 50.0), pos(11.0, 51.0)), 0));
+    }
+
+    @Test
+    public void testMostSignificantPositionsKeepsCorner() {
+        List<Wgs84Position> positions = Arrays.asList(
+                pos(10.0, 50.0),
+                pos(10.001, 50.0),
+                pos(10.002, 50.0),
+                pos(10.002, 50.001),
+                pos(10.002, 50.002)
+        );
+        assertArrayEquals(new int[]{0, 2, 4}, RouteCalculations.getMostSignificantPositions(positions, 3));
+    }
+
+    @Test
+    public void testMostSignificantPositionsOfLongTrack() {
+        List<Wgs84Position> positions = createSmoothTrack(5000);
+        long start = System.currentTimeMillis();
+        int[] result = RouteCalculations.getMostSignificantPositions(positions, 500);
+        log.info("Simplified " + positions.size() + " positions to " + result.length + " in " + (System.currentTimeMillis() - start) + " ms");
+
+        assertEquals(visvalingamWhyattReference(positions, 500), asList(result));
+    }
+
     // --- asWgs84Position ---
 
     @Test
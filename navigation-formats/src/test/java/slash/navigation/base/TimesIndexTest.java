@@ -0,0 +1,163 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.base;
+
+import org.junit.Test;
+import slash.common.type.CompactCalendar;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static java.lang.Math.abs;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static slash.common.type.CompactCalendar.fromMillis;
+
+public class TimesIndexTest {
+    private final Random random = new Random(42);
+    private final TimesIndex index = new TimesIndex();
+
+    private static Wgs84Position position(Long millis) {
+        return new Wgs84Position(10.0, 50.0, null, null, millis != null ? fromMillis(millis) : null, null);
+    }
+
+    private List<Wgs84Position> createPositions(int count, boolean increasing) {
+        List<Wgs84Position> positions = new ArrayList<>();
+        long time = 1000000L;
+        for (int i = 0; i < count; i++) {
+            time += increasing ? random.nextInt(3) * 1000L : (random.nextInt(5) - 1) * 1000L;
+            positions.add(position(random.nextInt(10) > 0 ? time : null));
+        }
+        return positions;
+    }
+
+    private static int calculateClosestPosition(List<Wgs84Position> positions, CompactCalendar time, long threshold) {
+        int closestIndex = -1;
+        long closestDistance = Long.MAX_VALUE;
+        for (int i = 0; i < positions.size(); ++i) {
+            Wgs84Position position = positions.get(i);
+            if (!position.hasTime())
+                continue;
+            long distance = abs(position.getTime().getTimeInMillis() - time.getTimeInMillis());
+            if (distance < closestDistance && distance <= threshold) {
+                closestDistance = distance;
+                closestIndex = i;
+            }
+        }
+        return closestIndex;
+    }
+
+    private static int[] calculateBracketingPositions(List<Wgs84Position> positions, CompactCalendar time) {
+        int before = -1, after = -1;
+        for (int i = 0; i < positions.size(); ++i) {
+            Wgs84Position position = positions.get(i);
+            if (!position.hasTime())
+                continue;
+            long millis = position.getTime().getTimeInMillis();
+            if (millis <= time.getTimeInMillis()) {
+                if (before == -1 || millis >= positions.get(before).getTime().getTimeInMillis())
+                    before = i;
+            } else if (after == -1 || millis < positions.get(after).getTime().getTimeInMillis())
+                after = i;
+        }
+        return new int[]{before, after};
+    }
+
+    private void assertSameAsCalculated(List<Wgs84Position> positions) {
+        for (int i = 0; i < 100; i++) {
+            CompactCalendar time = fromMillis(990000L + random.nextInt(positions.size() * 2000 + 20000));
+            long threshold = random.nextInt(3) == 0 ? Long.MAX_VALUE : random.nextInt(3000);
+            assertEquals(calculateClosestPosition(positions, time, threshold), index.getClosestPosition(positions, time, threshold));
+            assertArrayEquals(calculateBracketingPositions(positions, time), index.getBracketingPositions(positions, time));
+        }
+    }
+
+    @Test
+    public void testIncreasingTimes() {
+        assertSameAsCalculated(createPositions(2000, true));
+    }
+
+    @Test
+    public void testNonMonotonicTimes() {
+        assertSameAsCalculated(createPositions(2000, false));
+    }
+
+    @Test
+    public void testWithoutTimes() {
+        List<Wgs84Position> positions = new ArrayList<>();
+        positions.add(position(null));
+        assertEquals(-1, index.getClosestPosition(positions, fromMillis(0), Long.MAX_VALUE));
+        assertArrayEquals(new int[]{-1, -1}, index.getBracketingPositions(positions, fromMillis(0)));
+    }
+
+    @Test
+    public void testBracketingPositions() {
+        List<Wgs84Position> positions = new ArrayList<>();
+        positions.add(position(1000L));
+        positions.add(position(2000L));
+        positions.add(position(2000L));
+        positions.add(position(3000L));
+
+        assertArrayEquals(new int[]{-1, 0}, index.getBracketingPositions(positions, fromMillis(500)));
+        assertArrayEquals(new int[]{2, 3}, index.getBracketingPositions(positions, fromMillis(2000)));
+        assertArrayEquals(new int[]{2, 3}, index.getBracketingPositions(positions, fromMillis(2500)));
+        assertArrayEquals(new int[]{3, -1}, index.getBracketingPositions(positions, fromMillis(3000)));
+        assertEquals(0, index.getClosestPosition(positions, fromMillis(1500), 1000));
+        assertEquals(1, index.getClosestPosition(positions, fromMillis(1600), 1000));
+        assertEquals(-1, index.getClosestPosition(positions, fromMillis(4500), 1000));
+    }
+
+    @Test
+    public void testFollowsModifications() {
+        List<Wgs84Position> positions = createPositions(1000, true);
+        assertSameAsCalculated(positions);
+
+        for (int i = 0; i < 100; i++) {
+            int position = random.nextInt(positions.size());
+            switch (random.nextInt(3)) {
+                case 0 -> positions.add(position, position(1000000L + random.nextInt(2000000)));
+                case 1 -> positions.remove(position);
+                case 2 -> {
+                    positions.get(position).setTime(fromMillis(1000000L + random.nextInt(2000000)));
+                    index.invalidate();
+                }
+            }
+            assertSameAsCalculated(positions);
+        }
+    }
+
+    @Test
+    public void testClosestPositionOnLongTrack() {
+        List<Wgs84Position> positions = new ArrayList<>();
+        for (int i = 0; i < 300000; i++)
+            positions.add(position(i * 1000L));
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 5000; i++) {
+            int expected = random.nextInt(positions.size());
+            assertEquals(expected, index.getClosestPosition(positions, fromMillis(expected * 1000L + 400), 5000));
+        }
+        long duration = (System.nanoTime() - start) / 1000000;
+        assertTrue("5000 queries took " + duration + " ms", duration < 1000);
+    }
+}
@@ -31,8 +31,12 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
+import static java.util.concurrent.Executors.newFixedThreadPool;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
@@ -411,9 +415,7 @@ public class ColumbusFusionFormatTest {
     private String writeRoute(List<Wgs84Position> positions) {
         StringWriter output = new StringWriter();
         PrintWriter writer = new PrintWriter(output);
-        format.writeHeader(writer, format.createRoute(RouteCharacteristics.Track, null, positions));
-        for (Wgs84Position position : positions)
-            format.writePosition(position, writer, 0, true);
+        format.write(format.createRoute(RouteCharacteristics.Track, null, positions), writer, 0, positions.size());
         writer.flush();
         return output.toString();
     }
@@ -488,4 +490,34 @@ public class ColumbusFusionFormatTest {
             assertTrue(written.contains("T,240115,101530,52.52,13.405,34.0,12.3,88.0,7,1.2,3"));
         });
     }
+
+    @Test
+    public void testConcurrentWritesKeepTheirLayouts() throws Exception {
+        ignoreLocalTimeZone(() -> {
+            List<Wgs84Position> imuPositions = format.parseBody(reader(
+                    "T,260709,042922,-0.02,0.04,1.09"
+            ), ColumbusFusionFormat.LAYOUT_IMU);
+            List<Wgs84Position> gnssPositions = format.parseBody(reader(
+                    "T,240115,101530,52.52,13.405,34.0,12.3,88.0,7,1.2,3"
+            ), ColumbusFusionFormat.LAYOUT_GNSS_SAT_FIX);
+
+            ExecutorService executor = newFixedThreadPool(4);
+            try {
+                List<Future<Boolean>> futures = new ArrayList<>();
+                for (int i = 0; i < 200; i++) {
+                    boolean imu = i % 2 == 0;
+                    futures.add(executor.submit(() -> {
+                        String written = writeRoute(imu ? imuPositions : gnssPositions);
+                        int layout = format.detectLayout(written.split("\n")[1]);
+                        return layout == (imu ? ColumbusFusionFormat.LAYOUT_IMU : ColumbusFusionFormat.LAYOUT_GNSS_SAT_FIX) &&
+                                reread(written).size() == 1;
+                    }));
+                }
+                for (Future<Boolean> future : futures)
+                    assertTrue(future.get());
+            } finally {
+                executor.shutdownNow();
+            }
+        });
+    }
 }
@@ -0,0 +1,272 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.gpx;
+
+import org.junit.Test;
+import org.w3c.dom.Element;
+import slash.navigation.base.ParserContext;
+import slash.navigation.base.ParserContextImpl;
+import slash.navigation.base.PositionSink;
+import slash.navigation.base.RouteCharacteristics;
+import slash.navigation.gpx.binding10.Gpx;
+import slash.navigation.gpx.binding11.GpxType;
+import slash.navigation.gpx.binding11.RteType;
+import slash.navigation.gpx.binding11.TrkType;
+import slash.navigation.gpx.binding11.WptType;
+
+import jakarta.xml.bind.JAXBElement;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+import static slash.common.TestCase.assertDoubleEquals;
+import static slash.navigation.base.RouteCharacteristics.Route;
+import static slash.navigation.base.RouteCharacteristics.Track;
+import static slash.navigation.base.RouteCharacteristics.Waypoints;
+
+public class GpxStreamReaderTest {
+    private static final String GPX_11 = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<gpx version=\"1.1\" creator=\"test\" xmlns=\"http://www.topografix.com/GPX/1/1\" " +
+            "xmlns:gpxtpx=\"http://www.garmin.com/xmlschemas/TrackPointExtension/v2\" xmlns:x=\"urn:unknown\">\n" +
+            "<metadata><name>File</name><desc>Description</desc><author><name>Author</name>" +
+            "<email id=\"a\" domain=\"b.c\"/></author><keywords>k</keywords></metadata>\n" +
+            "<wpt lat=\"1.0\" lon=\"2.0\"><ele>3.5</ele><name>W1</name></wpt>\n" +
+            "<wpt lat=\"1.1\" lon=\"2.1\"><time>2010-09-18T03:13:32Z</time></wpt>\n" +
+            "<rte><name>Route</name><number>7</number><rtept lat=\"5.0\" lon=\"6.0\"/></rte>\n" +
+            "<trk><name>Track</name><desc>Desc</desc><trkseg>" +
+            "<trkpt lat=\"10.0\" lon=\"11.0\"><extensions><gpxtpx:TrackPointExtension>" +
+            "<gpxtpx:atemp>21.5</gpxtpx:atemp><gpxtpx:hr>130</gpxtpx:hr><gpxtpx:speed>2.5</gpxtpx:speed>" +
+            "<gpxtpx:course>45</gpxtpx:course></gpxtpx:TrackPointExtension>" +
+            "<x:unknown a=\"b\"><x:nested>text</x:nested></x:unknown></extensions></trkpt>" +
+            "<trkpt lat=\"10.1\" lon=\"11.1\"/></trkseg><trkseg><trkpt lat=\"10.2\" lon=\"11.2\"/></trkseg></trk>\n" +
+            "<trk><name>Empty</name></trk>\n" +
+            "</gpx>";
+    private static final String GPX_10 = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<gpx version=\"1.0\" creator=\"test\" xmlns=\"http://www.topografix.com/GPX/1/0\">\n" +
+            "<name>File</name><desc>Description</desc>\n" +
+            "<wpt lat=\"1.0\" lon=\"2.0\"><name>W1</name><speed>10</speed></wpt>\n" +
+            "<rte><name>Route</name><rtept lat=\"5.0\" lon=\"6.0\"><course>90</course></rtept></rte>\n" +
+            "<trk><name>Track</name><trkseg><trkpt lat=\"10.0\" lon=\"11.0\"/><trkpt lat=\"10.1\" lon=\"11.1\"/></trkseg></trk>\n" +
+            "<trk><name>Empty</name><trkseg/></trk>\n" +
+            "</gpx>";
+
+    private List<GpxRoute> read(GpxFormat format, String gpx) throws IOException {
+        ParserContext<GpxRoute> context = new ParserContextImpl<>(null, null);
+        format.read(new ByteArrayInputStream(gpx.getBytes(UTF_8)), context);
+        return context.getRoutes();
+    }
+
+    @Test
+    public void testReadGpx11() throws IOException {
+        List<GpxRoute> routes = read(new Gpx11Format(), GPX_11);
+        assertEquals(4, routes.size());
+
+        GpxRoute wayPoints = routes.get(0);
+        assertEquals(Waypoints, wayPoints.getCharacteristics());
+        assertEquals("File", wayPoints.getName());
+        assertEquals(asList("Description"), wayPoints.getDescription());
+        assertEquals(2, wayPoints.getPositionCount());
+        assertDoubleEquals(2.0, wayPoints.getPosition(0).getLongitude());
+        assertDoubleEquals(1.0, wayPoints.getPosition(0).getLatitude());
+        assertDoubleEquals(3.5, wayPoints.getPosition(0).getElevation());
+        assertEquals("W1", wayPoints.getPosition(0).getDescription());
+        assertNotNull(wayPoints.getPosition(1).getTime());
+        GpxType gpxType = wayPoints.getOrigin(GpxType.class);
+        assertEquals("1.1", gpxType.getVersion());
+        assertEquals("Author", gpxType.getMetadata().getAuthor().getName());
+        assertEquals("b.c", gpxType.getMetadata().getAuthor().getEmail().getDomain());
+        assertEquals("k", gpxType.getMetadata().getKeywords());
+
+        GpxRoute route = routes.get(1);
+        assertEquals(Route, route.getCharacteristics());
+        assertEquals("Route", route.getName());
+        assertEquals(1, route.getPositionCount());
+        assertEquals(7, route.getOrigin(slash.navigation.gpx.binding11.RteType.class).getNumber().intValue());
+
+        GpxRoute track = routes.get(2);
+        assertEquals(Track, track.getCharacteristics());
+        assertEquals("Track", track.getName());
+        assertEquals(3, track.getPositionCount());
+        assertEquals(2, track.getOrigin(TrkType.class).getTrkseg().size());
+        GpxPosition position = track.getPosition(0);
+        assertDoubleEquals(21.5, position.getTemperature());
+        assertEquals(Short.valueOf((short) 130), position.getHeartBeat());
+        assertDoubleEquals(9.0, position.getSpeed());
+        assertDoubleEquals(45.0, position.getHeading());
+
+        GpxRoute empty = routes.get(3);
+        assertEquals(Track, empty.getCharacteristics());
+        assertEquals("Empty", empty.getName());
+        assertEquals(0, empty.getPositionCount());
+    }
+
+    @Test
+    public void testReadGpx11KeepsUnboundExtensionsAsElements() throws IOException {
+        List<GpxRoute> routes = read(new Gpx11Format(), GPX_11);
+        WptType wptType = routes.get(2).getPosition(0).getOrigin(WptType.class);
+        List<Object> anys = wptType.getExtensions().getAny();
+        assertEquals(2, anys.size());
+        assertTrue(anys.get(0) instanceof JAXBElement);
+
+        Element unknown = (Element) anys.get(1);
+        assertEquals("urn:unknown", unknown.getNamespaceURI());
+        assertEquals("unknown", unknown.getLocalName());
+        assertEquals("b", unknown.getAttribute("a"));
+        assertEquals("urn:unknown", unknown.getAttributeNS("http://www.w3.org/2000/xmlns/", "x"));
+        assertEquals("text", unknown.getTextContent());
+    }
+
+    @Test
+    public void testReadGpx11CollectsLateWayPoints() throws IOException {
+        List<GpxRoute> routes = read(new Gpx11Format(), "<gpx version=\"1.1\" xmlns=\"http://www.topografix.com/GPX/1/1\">" +
+                "<wpt lat=\"1.0\" lon=\"2.0\"/><trk><trkseg><trkpt lat=\"3.0\" lon=\"4.0\"/></trkseg></trk>" +
+                "<wpt lat=\"1.1\" lon=\"2.1\"/></gpx>");
+        assertEquals(2, routes.size());
+        assertEquals(Waypoints, routes.get(0).getCharacteristics());
+        assertEquals(2, routes.get(0).getPositionCount());
+        assertEquals(Track, routes.get(1).getCharacteristics());
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadGpx10WithGpx11Format() throws IOException {
+        read(new Gpx11Format(), GPX_10);
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadTruncatedGpx11() throws IOException {
+        read(new Gpx11Format(), GPX_11.substring(0, GPX_11.length() / 2));
+    }
+
+    @Test
+    public void testReadGpx10() throws IOException {
+        List<GpxRoute> routes = read(new Gpx10Format(), GPX_10);
+        assertEquals(3, routes.size());
+
+        GpxRoute wayPoints = routes.get(0);
+        assertEquals(Waypoints, wayPoints.getCharacteristics());
+        assertEquals("File", wayPoints.getName());
+        assertDoubleEquals(36.0, wayPoints.getPosition(0).getSpeed());
+        assertEquals("1.0", wayPoints.getOrigin(Gpx.class).getVersion());
+
+        GpxRoute route = routes.get(1);
+        assertEquals(Route, route.getCharacteristics());
+        assertDoubleEquals(90.0, route.getPosition(0).getHeading());
+        assertNotNull(route.getPosition(0).getOrigin(Gpx.Rte.Rtept.class));
+
+        GpxRoute track = routes.get(2);
+        assertEquals(Track, track.getCharacteristics());
+        assertEquals("Track", track.getName());
+        assertEquals(2, track.getPositionCount());
+    }
+
+    private String write(GpxFormat format, List<GpxRoute> routes) throws IOException {
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        format.write(routes, target);
+        return target.toString(UTF_8);
+    }
+
+    @Test
+    public void testReadGpx11CompactsOrigins() throws IOException {
+        Gpx11Format format = new Gpx11Format();
+        List<GpxRoute> routes = read(format, GPX_11);
+        assertTrue(routes.get(1).getOrigin(RteType.class).getRtept().isEmpty());
+
+        GpxPosition position = routes.get(2).getPosition(0);
+        WptType wptType = position.getOrigin(WptType.class);
+        assertNull(wptType.getLat());
+        assertNull(wptType.getTime());
+        assertEquals(2, wptType.getExtensions().getAny().size());
+        assertDoubleEquals(10.0, position.getLatitude());
+        assertEquals(Short.valueOf((short) 130), position.getHeartBeat());
+
+        List<GpxRoute> written = read(format, write(format, routes));
+        GpxPosition writtenPosition = written.get(2).getPosition(0);
+        assertDoubleEquals(10.0, writtenPosition.getLatitude());
+        assertDoubleEquals(11.0, writtenPosition.getLongitude());
+        assertDoubleEquals(21.5, writtenPosition.getTemperature());
+        assertEquals(2, writtenPosition.getOrigin(WptType.class).getExtensions().getAny().size());
+        assertNotNull(written.get(0).getPosition(1).getTime());
+        assertEquals(routes.get(0).getPosition(1).getTime(), written.get(0).getPosition(1).getTime());
+    }
+
+    @Test
+    public void testReadGpx11WithoutOrigins() throws IOException {
+        Gpx11Format format = new Gpx11Format() {
+            protected boolean isKeepOrigins() {
+                return false;
+            }
+        };
+        List<GpxRoute> routes = read(format, GPX_11);
+        GpxPosition position = routes.get(2).getPosition(0);
+        assertNull(position.getOrigin());
+        assertNull(position.getPositionExtension());
+        assertDoubleEquals(21.5, position.getTemperature());
+        assertEquals(Short.valueOf((short) 130), position.getHeartBeat());
+        assertDoubleEquals(9.0, position.getSpeed());
+        assertDoubleEquals(45.0, position.getHeading());
+
+        GpxPosition writtenPosition = read(new Gpx11Format(), write(format, routes)).get(2).getPosition(0);
+        assertDoubleEquals(21.5, writtenPosition.getTemperature());
+        assertEquals(Short.valueOf((short) 130), writtenPosition.getHeartBeat());
+        assertDoubleEquals(9.0, writtenPosition.getSpeed());
+        assertDoubleEquals(45.0, writtenPosition.getHeading());
+    }
+
+    @Test
+    public void testReadGpx10CompactsOrigins() throws IOException {
+        List<GpxRoute> routes = read(new Gpx10Format(), GPX_10);
+        Gpx.Rte.Rtept rtept = routes.get(1).getPosition(0).getOrigin(Gpx.Rte.Rtept.class);
+        assertNull(rtept.getLat());
+        assertEquals(90, rtept.getCourse().intValue());
+
+        assertNull(read(new Gpx10Format(false, true), GPX_10).get(1).getPosition(0).getOrigin());
+    }
+
+    @Test
+    public void testReadGpx11IntoSink() throws IOException {
+        List<String> events = new ArrayList<>();
+        new Gpx11Format().read(new ByteArrayInputStream(GPX_11.getBytes(UTF_8)), new ParserContextImpl<>(), new PositionSink<>() {
+            public void beginRoute(RouteCharacteristics characteristics, String name) {
+                events.add(characteristics + " " + name);
+            }
+
+            public void addPosition(GpxPosition position) {
+                events.add(position.getLongitude() + "," + position.getLatitude());
+            }
+
+            public void endRoute() {
+                events.add("end");
+            }
+
+            public void close() {
+            }
+        });
+        assertEquals(asList("Waypoints File", "2.0,1.0", "2.1,1.1", "end",
+                "Route Route", "6.0,5.0", "end",
+                "Track Track", "11.0,10.0", "11.1,10.1", "11.2,10.2", "end",
+                "Track Empty", "end"), events);
+    }
+}
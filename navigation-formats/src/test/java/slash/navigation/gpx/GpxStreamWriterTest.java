@@ -0,0 +1,400 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.gpx;
+
+import org.junit.Test;
+import org.w3c.dom.Element;
+import slash.navigation.base.ParserContext;
+import slash.navigation.base.ParserContextImpl;
+import slash.navigation.base.PositionSink;
+import slash.navigation.gpx.binding10.Gpx;
+import slash.navigation.gpx.binding11.ExtensionsType;
+import slash.navigation.gpx.binding11.GpxType;
+import slash.navigation.gpx.binding11.MetadataType;
+import slash.navigation.gpx.binding11.RteType;
+import slash.navigation.gpx.binding11.TrkType;
+import slash.navigation.gpx.binding11.TrksegType;
+import slash.navigation.gpx.binding11.WptType;
+
+import jakarta.xml.bind.JAXBException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.io.OutputStream.nullOutputStream;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+import static slash.common.TestCase.assertDoubleEquals;
+import static slash.common.io.Files.collectFiles;
+import static slash.navigation.base.NavigationTestCase.ROUTE_PATH;
+import static slash.navigation.base.RouteCharacteristics.Route;
+import static slash.navigation.base.RouteCharacteristics.Track;
+import static slash.navigation.base.RouteCharacteristics.Waypoints;
+import static slash.navigation.gpx.GpxUtil.marshal10;
+import static slash.navigation.gpx.GpxUtil.marshal11;
+
+public class GpxStreamWriterTest {
+    private static final String GPX_11 = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<gpx version=\"1.1\" creator=\"test\" xmlns=\"http://www.topografix.com/GPX/1/1\" " +
+            "xmlns:gpxtpx=\"http://www.garmin.com/xmlschemas/TrackPointExtension/v2\" xmlns:x=\"urn:unknown\">\n" +
+            "<metadata><name>File</name><author><name>Author</name></author><keywords>k</keywords></metadata>\n" +
+            "<wpt lat=\"1.0\" lon=\"2.0\"><ele>3.5</ele><name>W1 &amp; W2</name></wpt>\n" +
+            "<rte><name>Route</name><number>7</number><rtept lat=\"5.0\" lon=\"6.0\"/><rtept lat=\"5.1\" lon=\"6.1\"/></rte>\n" +
+            "<trk><name>Track</name><trkseg>" +
+            "<trkpt lat=\"10.0\" lon=\"11.0\"><extensions><gpxtpx:TrackPointExtension>" +
+            "<gpxtpx:atemp>21.5</gpxtpx:atemp><gpxtpx:hr>130</gpxtpx:hr></gpxtpx:TrackPointExtension>" +
+            "<x:unknown a=\"b\"><x:nested>text</x:nested></x:unknown></extensions></trkpt>" +
+            "<trkpt lat=\"10.1\" lon=\"11.1\"/></trkseg></trk>\n" +
+            "<trk><name>Empty</name></trk>\n" +
+            "</gpx>";
+    private static final String GPX_10 = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<gpx version=\"1.0\" creator=\"test\" xmlns=\"http://www.topografix.com/GPX/1/0\">\n" +
+            "<name>File</name>\n" +
+            "<wpt lat=\"1.0\" lon=\"2.0\"><name>W1</name></wpt>\n" +
+            "<rte><name>Route</name><rtept lat=\"5.0\" lon=\"6.0\"/></rte>\n" +
+            "<trk><name>Track</name><trkseg><trkpt lat=\"10.0\" lon=\"11.0\"/><trkpt lat=\"10.1\" lon=\"11.1\"/></trkseg></trk>\n" +
+            "</gpx>";
+
+    private List<GpxRoute> read(GpxFormat format, byte[] bytes) throws IOException {
+        ParserContext<GpxRoute> context = new ParserContextImpl<>(null, null);
+        format.read(new ByteArrayInputStream(bytes), context);
+        return context.getRoutes();
+    }
+
+    private byte[] write(GpxFormat format, List<GpxRoute> routes) throws IOException {
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        format.write(routes, target);
+        return target.toByteArray();
+    }
+
+    @Test
+    public void testWriteGpx11() throws IOException {
+        Gpx11Format format = new Gpx11Format();
+        byte[] bytes = write(format, read(format, GPX_11.getBytes(UTF_8)));
+        String xml = new String(bytes, UTF_8);
+        assertTrue(xml.startsWith("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"));
+        assertTrue(xml.contains("W1 &amp; W2"));
+
+        List<GpxRoute> routes = read(format, bytes);
+        assertEquals(4, routes.size());
+
+        GpxRoute wayPoints = routes.get(0);
+        assertEquals(Waypoints, wayPoints.getCharacteristics());
+        assertEquals(1, wayPoints.getPositionCount());
+        assertDoubleEquals(3.5, wayPoints.getPosition(0).getElevation());
+        assertEquals("Author", wayPoints.getOrigin(slash.navigation.gpx.binding11.GpxType.class).getMetadata().getAuthor().getName());
+
+        GpxRoute route = routes.get(1);
+        assertEquals(Route, route.getCharacteristics());
+        assertEquals("Route", route.getName());
+        assertEquals(2, route.getPositionCount());
+        assertEquals(7, route.getOrigin(slash.navigation.gpx.binding11.RteType.class).getNumber().intValue());
+
+        GpxRoute track = routes.get(2);
+        assertEquals(Track, track.getCharacteristics());
+        assertEquals(2, track.getPositionCount());
+        assertDoubleEquals(21.5, track.getPosition(0).getTemperature());
+        assertEquals(Short.valueOf((short) 130), track.getPosition(0).getHeartBeat());
+
+        assertEquals("Empty", routes.get(3).getName());
+        assertEquals(0, routes.get(3).getPositionCount());
+    }
+
+    @Test
+    public void testWriteGpx11KeepsUnboundExtensions() throws IOException {
+        Gpx11Format format = new Gpx11Format();
+        List<GpxRoute> routes = read(format, write(format, read(format, GPX_11.getBytes(UTF_8))));
+        List<Object> anys = routes.get(2).getPosition(0).getOrigin(WptType.class).getExtensions().getAny();
+        Element unknown = (Element) anys.get(anys.size() - 1);
+        assertEquals("urn:unknown", unknown.getNamespaceURI());
+        assertEquals("b", unknown.getAttribute("a"));
+        assertEquals("text", unknown.getTextContent());
+    }
+
+    @Test
+    public void testWriteGpx10() throws IOException {
+        Gpx10Format format = new Gpx10Format();
+        List<GpxRoute> routes = read(format, write(format, read(format, GPX_10.getBytes(UTF_8))));
+        assertEquals(3, routes.size());
+        assertEquals(Waypoints, routes.get(0).getCharacteristics());
+        assertEquals("File", routes.get(0).getName());
+        assertEquals(Route, routes.get(1).getCharacteristics());
+        assertEquals(1, routes.get(1).getPositionCount());
+        assertEquals(Track, routes.get(2).getCharacteristics());
+        assertDoubleEquals(11.1, routes.get(2).getPosition(1).getLongitude());
+    }
+
+    @Test
+    public void testWriteIntoSink() throws IOException {
+        Gpx11Format format = new Gpx11Format();
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        try (PositionSink<GpxPosition> sink = format.createPositionSink(target)) {
+            sink.beginRoute(Waypoints, "File");
+            sink.addPosition(new GpxPosition(2.0, 1.0, null, null, null, "W1"));
+            sink.endRoute();
+            sink.beginRoute(Route, "Route");
+            sink.addPosition(new GpxPosition(6.0, 5.0, null, null, null, null));
+            sink.addPosition(new GpxPosition(6.1, 5.1, null, null, null, null));
+            sink.endRoute();
+            sink.beginRoute(Track, "Track");
+            sink.addPosition(new GpxPosition(11.0, 10.0, null, null, null, null));
+            sink.endRoute();
+        }
+
+        List<GpxRoute> routes = read(format, target.toByteArray());
+        assertEquals(3, routes.size());
+        assertEquals("File", routes.get(0).getName());
+        assertEquals("W1", routes.get(0).getPosition(0).getDescription());
+        assertEquals(2, routes.get(1).getPositionCount());
+        assertEquals("Track", routes.get(2).getName());
+    }
+
+    @Test
+    public void testWriteEmptySink() throws IOException {
+        Gpx10Format format = new Gpx10Format();
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        format.createPositionSink(target).close();
+        assertTrue(new String(target.toByteArray(), UTF_8).contains("<gpx"));
+    }
+
+    /**
+     * Collects the elements written into a JAXB tree and marshals it when closed, like
+     * Gpx11Format did before it wrote with a stream writer.
+     */
+    private static class MarshallingGpx11StreamWriter extends Gpx11StreamWriter {
+        private final OutputStream target;
+        private final GpxType gpxType = new slash.navigation.gpx.binding11.ObjectFactory().createGpxType();
+        private RteType rteType;
+        private TrksegType trksegType;
+
+        MarshallingGpx11StreamWriter(OutputStream target) throws IOException {
+            super(nullOutputStream());
+            this.target = target;
+        }
+
+        void startGpx(String version, String creator) {
+            gpxType.setVersion(version);
+            gpxType.setCreator(creator);
+        }
+
+        void writeMetadata(MetadataType metadataType) {
+            gpxType.setMetadata(metadataType);
+        }
+
+        void writeWpt(String localName, WptType wptType) {
+            switch (localName) {
+                case "wpt" -> gpxType.getWpt().add(wptType);
+                case "rtept" -> rteType.getRtept().add(wptType);
+                case "trkpt" -> trksegType.getTrkpt().add(wptType);
+            }
+        }
+
+        void startRte(RteType rteType) {
+            rteType.getRtept().clear();
+            gpxType.getRte().add(rteType);
+            this.rteType = rteType;
+        }
+
+        void endRte() {
+        }
+
+        void startTrk(TrkType trkType) {
+            trkType.getTrkseg().clear();
+            gpxType.getTrk().add(trkType);
+        }
+
+        void endTrk() {
+        }
+
+        void startTrkseg() {
+            trksegType = new slash.navigation.gpx.binding11.ObjectFactory().createTrksegType();
+            List<TrkType> trkTypes = gpxType.getTrk();
+            trkTypes.get(trkTypes.size() - 1).getTrkseg().add(trksegType);
+        }
+
+        void endTrkseg(TrksegType origin) {
+            if (origin != null)
+                trksegType.setExtensions(origin.getExtensions());
+        }
+
+        void endGpx(ExtensionsType extensionsType) {
+            gpxType.setExtensions(extensionsType);
+        }
+
+        public void close() throws IOException {
+            try {
+                marshal11(gpxType, target);
+            } catch (JAXBException e) {
+                throw new IOException(e);
+            }
+        }
+    }
+
+    private static class MarshallingGpx10StreamWriter extends Gpx10StreamWriter {
+        private final OutputStream target;
+        private Gpx gpx;
+
+        MarshallingGpx10StreamWriter(OutputStream target) throws IOException {
+            super(nullOutputStream());
+            this.target = target;
+        }
+
+        void startGpx(Gpx gpx) {
+            gpx.getWpt().clear();
+            gpx.getRte().clear();
+            gpx.getTrk().clear();
+            this.gpx = gpx;
+        }
+
+        void endGpx(Gpx gpx) {
+        }
+
+        void writeWpt(Gpx.Wpt wpt) {
+            gpx.getWpt().add(wpt);
+        }
+
+        void startRte(Gpx.Rte rte) {
+            rte.getRtept().clear();
+            gpx.getRte().add(rte);
+        }
+
+        void writeRtept(Gpx.Rte.Rtept rtept) {
+            gpx.getRte().get(gpx.getRte().size() - 1).getRtept().add(rtept);
+        }
+
+        void endRte() {
+        }
+
+        void startTrk(Gpx.Trk trk) {
+            trk.getTrkseg().clear();
+            gpx.getTrk().add(trk);
+        }
+
+        void startTrkseg() {
+            gpx.getTrk().get(gpx.getTrk().size() - 1).getTrkseg().add(new slash.navigation.gpx.binding10.ObjectFactory().createGpxTrkTrkseg());
+        }
+
+        void writeTrkpt(Gpx.Trk.Trkseg.Trkpt trkpt) {
+            List<Gpx.Trk.Trkseg> trksegs = gpx.getTrk().get(gpx.getTrk().size() - 1).getTrkseg();
+            trksegs.get(trksegs.size() - 1).getTrkpt().add(trkpt);
+        }
+
+        void endTrkseg() {
+        }
+
+        void endTrk() {
+        }
+
+        public void close() throws IOException {
+            try {
+                marshal10(gpx, target);
+            } catch (JAXBException e) {
+                throw new IOException(e);
+            }
+        }
+    }
+
+    // the time of writing in the header of the file differs between two writes
+    private static String normalize(byte[] bytes) {
+        String xml = new String(bytes, UTF_8).replaceAll(">\\s+<", "><").trim();
+        Matcher matcher = Pattern.compile("<(wpt|rte|trk)[ >]").matcher(xml);
+        int headerEnd = matcher.find() ? matcher.start() : xml.length();
+        return xml.substring(0, headerEnd).replaceFirst("<time>[^<]*</time>", "<time/>") + xml.substring(headerEnd);
+    }
+
+    private List<String> collectGpxSources() throws IOException {
+        // the namespace of an extension may be declared at the extension only
+        String localNamespace = GPX_11.replace(" xmlns:x=\"urn:unknown\"", "").
+                replace("<x:unknown ", "<x:unknown xmlns:x=\"urn:unknown\" ");
+        List<String> sources = new ArrayList<>(asList(GPX_11, localNamespace, GPX_10));
+        for (File file : collectFiles(new File(ROUTE_PATH), ".gpx"))
+            sources.add(Files.readString(file.toPath(), UTF_8));
+        return sources;
+    }
+
+    private void assertMarshalledEquals(GpxFormat format, GpxFormat marshallingFormat) throws IOException {
+        for (String source : collectGpxSources()) {
+            List<GpxRoute> routes;
+            try {
+                routes = read(format, source.getBytes(UTF_8));
+            } catch (IOException e) {
+                // a file of the other version
+                continue;
+            }
+            assertEquals(source, normalize(write(marshallingFormat, read(format, source.getBytes(UTF_8)))),
+                    normalize(write(format, routes)));
+        }
+    }
+
+    private Gpx11Format createGpx11Format(boolean writeTrip, boolean marshalling) {
+        return new Gpx11Format() {
+            protected boolean isWriteTrip() {
+                return writeTrip;
+            }
+
+            Gpx11StreamWriter createStreamWriter(OutputStream target) throws IOException {
+                return marshalling ? new MarshallingGpx11StreamWriter(target) : super.createStreamWriter(target);
+            }
+        };
+    }
+
+    @Test
+    public void testWriteGpx11LikeMarshaller() throws IOException {
+        assertMarshalledEquals(createGpx11Format(false, false), createGpx11Format(false, true));
+        assertMarshalledEquals(createGpx11Format(true, false), createGpx11Format(true, true));
+    }
+
+    @Test
+    public void testWriteGpx11WithoutTripExtensionsOnWayPoints() throws IOException {
+        // the marshaller wrote the wpt objects after the trip extensions were added to them for the rte
+        Gpx11Format format = createGpx11Format(true, false);
+        String expected = normalize(write(createGpx11Format(true, true), read(format, GPX_11.getBytes(UTF_8)).get(1)));
+        String actual = normalize(write(format, read(format, GPX_11.getBytes(UTF_8)).get(1)));
+        assertTrue(expected.contains("<wpt lat=\"5.0\" lon=\"6.0\"><extensions><trp:ViaPoint>"));
+        assertTrue(actual.contains("<wpt lat=\"5.0\" lon=\"6.0\"/>"));
+        assertTrue(actual.contains("<rtept lat=\"5.0\" lon=\"6.0\"><extensions><trp:ViaPoint>"));
+        assertEquals(expected.replaceAll("(<wpt [^>]*)><extensions>.*?</extensions></wpt>", "$1/>"), actual);
+    }
+
+    @Test
+    public void testWriteGpx10LikeMarshaller() throws IOException {
+        Gpx10Format format = new Gpx10Format();
+        assertMarshalledEquals(format, new Gpx10Format() {
+            Gpx10StreamWriter createStreamWriter(OutputStream target) throws IOException {
+                return new MarshallingGpx10StreamWriter(target);
+            }
+        });
+    }
+
+    private byte[] write(GpxFormat format, GpxRoute route) throws IOException {
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        format.write(route, target, 0, route.getPositionCount());
+        return target.toByteArray();
+    }
+}
@@ -0,0 +1,140 @@
+/*
+    This file is part of RouteConverter.
+
+    RouteConverter is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    RouteConverter is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with RouteConverter; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+    Copyright (C) 2007 Christian Pesch. All Rights Reserved.
+*/
+
+package slash.navigation.nmea;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static slash.navigation.nmea.NmeaSentence.Type.*;
+
+public class NmeaSentenceTest {
+    private final NmeaSentence sentence = new NmeaSentence();
+
+    @Test
+    public void testSplitsFields() {
+        assertTrue(sentence.parse("$GPGGA,162611,3554.2367,N,10619.4966,W,1,03,06.7,02300.3,M,-022.4,M,,*7F"));
+        assertEquals(GGA, sentence.getType());
+        assertEquals("162611", sentence.getString(0));
+        assertEquals(3554.2367, sentence.getDouble(1), 0.0);
+        assertEquals("N", sentence.getOrientation(2));
+        assertEquals(10619.4966, sentence.getDouble(3), 0.0);
+        assertEquals("W", sentence.getOrientation(4));
+        assertEquals('1', sentence.getStatus());
+        assertEquals(Integer.valueOf(3), sentence.getInteger(6));
+        assertEquals(6.7, sentence.getDouble(7), 0.0);
+        assertEquals(2300.3, sentence.getDouble(8), 0.0);
+        assertTrue(sentence.hasChecksum());
+    }
+
+    @Test
+    public void testEmptyFields() {
+        assertTrue(sentence.parse("$GPRMC,123613.957,V,4837.4374,N,903.4036,E,,,170807,,*29"));
+        assertEquals(RMC, sentence.getType());
+        assertTrue(sentence.isEmpty(6));
+        assertNull(sentence.getDouble(6));
+        assertEquals("", sentence.getString(6));
+        assertEquals(0, sentence.getStatus());
+    }
+
+    @Test
+    public void testRmcSignalIntegrity() {
+        assertTrue(sentence.parse("$GPRMC,172103.38,V,4424.5358,N,06812.3754,W,0.000,0.000,101010,0,W,N*3A"));
+        assertEquals('N', sentence.getStatus());
+        assertTrue(sentence.parse("$GNRMC,162622.00,A,4857.29112,N,00850.57680,E,0.813,251.19,160217,,,D,V*0D"));
+        assertEquals('V', sentence.getStatus());
+        assertTrue(sentence.parse("$GPRMC,180114,A,4808.9490,N,00928.9610,E,000.0,000.0,160607,,,A*76"));
+        assertEquals(0, sentence.getStatus());
+        assertFalse(sentence.parse("$GPRMC,180114,A,4808.9490,N,00928.9610,E,000.0,000.0,160607,,,A,A,A*76"));
+    }
+
+    @Test
+    public void testWaypointWithAndWithoutChecksum() {
+        assertTrue(sentence.parse("$GPWPL,5334.169,N,01001.920,E,STATN1*22"));
+        assertEquals(WPL, sentence.getType());
+        assertTrue(sentence.hasChecksum());
+        assertEquals("STATN1", sentence.getRemainder(4));
+
+        assertTrue(sentence.parse("$GPWPL,3018.000,S,15309.000,E,Coffs Harbor, (Sidney)"));
+        assertFalse(sentence.hasChecksum());
+        assertEquals("Coffs Harbor, (Sidney)", sentence.getRemainder(4));
+        assertEquals("S", sentence.getOrientation(1));
+
+        assertFalse(sentence.parse("$GPWPL,3018.000,S,15309.000,E,Coffs*Harbor"));
+        assertFalse(sentence.parse("$GPWPL,3018.000,S,15309.000,E,Coffs*Harbor*22"));
+    }
+
+    @Test
+    public void testMalformedSentences() {
+        assertFalse(sentence.parse(""));
+        assertFalse(sentence.parse("$GPGGA"));
+        assertFalse(sentence.parse("$GPGGA,"));
+        assertFalse(sentence.parse("$GXGGA,162611,3554.2367,N,10619.4966,W,1,03,06.7,02300.3,M,-022.4,M,,*7F"));
+        assertFalse(sentence.parse("$GPGSV,2,1,08,05,40,250,50,09,85,036,51,22,16,285,36,17,,,00*4F"));
+        assertFalse(sentence.parse("$GPGGA,162611,3554.2367,N,10619.4966,W,1,03,06.7,02300.3,M,-022.4,M,,*7"));
+        assertFalse(sentence.parse("$GPGGA,162611,3554.2367,X,10619.4966,W,1,03,06.7,02300.3,M,-022.4,M,,*7F"));
+        assertFalse(sentence.parse("$GPGGA,162611,3554.2367,N,10619.4966,W,8,03,06.7,02300.3,M,-022.4,M,,*7F"));
+        assertFalse(sentence.parse("$GPGGA,162611,3554.2367,N,10619.4966,W,1,03,06.7,02300.3,M,-022.4,M,\n,*7F"));
+        assertFalse(sentence.parse("$GPZDA,032910,07,08,2004,00*48"));
+        assertFalse(sentence.parse("$GPZDA,032910,07,08,2004,00,00,00*48"));
+        assertFalse(sentence.parse("$GPVTG,0.00,T,,M,1.531,N,2.835,K,X*37"));
+        assertNull(sentence.getType());
+    }
+
+    @Test
+    public void testParsesNumbersLikeTransfer() {
+        assertTrue(sentence.parse("$GPGGA,1,0.1,N, 903.4036 ,E,1,,,-0,M,,M,,*61"));
+        assertEquals(0.1, sentence.getDouble(1), 0.0);
+        assertEquals(903.4036, sentence.getDouble(3), 0.0);
+        assertNull(sentence.getInteger(6));
+        assertEquals(Double.doubleToLongBits(-0.0), Double.doubleToLongBits(sentence.getDouble(8)));
+
+        assertTrue(sentence.parse("$GPGGA,1,4837.12345678901234567,N,1.,E,1,12345678901,,-.5,M,,M,,*61"));
+        assertEquals(Double.parseDouble("4837.12345678901234567"), sentence.getDouble(1), 0.0);
+        assertEquals(1.0, sentence.getDouble(3), 0.0);
+        assertEquals(-0.5, sentence.getDouble(8), 0.0);
+        try {
+            sentence.getInteger(6);
+            fail("NumberFormatException expected");
+        } catch (NumberFormatException e) {
+            // expected
+        }
+
+        assertTrue(sentence.parse("$GPGGA,1,48.37.1,N,.,E,1,,,-,M,,M,,*61"));
+        for (int index : new int[]{1, 3, 8}) {
+            try {
+                sentence.getDouble(index);
+                fail("NumberFormatException expected");
+            } catch (NumberFormatException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testReusesLastParse() {
+        String line = "$GPGLL,4916.45,N,12311.12,W,220433.11,A*1A";
+        assertTrue(sentence.parse(line));
+        assertTrue(sentence.parse(line));
+        assertEquals(GLL, sentence.getType());
+        assertEquals('A', sentence.getStatus());
+        assertEquals("220433.11", sentence.getString(4));
+    }
+}
@@ -22,11 +22,15 @@ package slash.navigation.simple;
 
 import org.junit.Test;
 import slash.common.type.CompactCalendar;
+import slash.navigation.base.PositionSink;
 import slash.navigation.base.Wgs84Position;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.text.DateFormat;
 
 import static org.junit.Assert.*;
+import static slash.navigation.base.RouteCharacteristics.Track;
 import static slash.common.TestCase.assertDoubleEquals;
 import static slash.common.TestCase.calendar;
 
@@ -62,4 +66,26 @@ public class Iblue747FormatTest {
         assertEquals(expected, actual);
         assertEquals(expectedCal, position.getTime());
     }
+
+    @Test
+    public void testInterleavedSinksWriteDistancesToTheirPreviousPositions() throws IOException {
+        ByteArrayOutputStream first = new ByteArrayOutputStream(), second = new ByteArrayOutputStream();
+        try (PositionSink<Wgs84Position> firstSink = format.createPositionSink(first);
+             PositionSink<Wgs84Position> secondSink = format.createPositionSink(second)) {
+            firstSink.beginRoute(Track, null);
+            secondSink.beginRoute(Track, null);
+            firstSink.addPosition(new Wgs84Position(10.0, 50.0, null, null, null, null));
+            secondSink.addPosition(new Wgs84Position(-70.0, -30.0, null, null, null, null));
+            firstSink.addPosition(new Wgs84Position(10.001, 50.0, null, null, null, null));
+            secondSink.addPosition(new Wgs84Position(-70.0, -30.001, null, null, null, null));
+            firstSink.endRoute();
+            secondSink.endRoute();
+        }
+
+        String[] firstLines = first.toString().split("\\R");
+        assertTrue(firstLines[1].endsWith(",0.0 M,"));
+        assertTrue(firstLines[2], firstLines[2].matches(".*,71\\.\\d+ M,"));
+        String[] secondLines = second.toString().split("\\R");
+        assertTrue(secondLines[2], secondLines[2].matches(".*,110\\.\\d+ M,"));
+    }
 }
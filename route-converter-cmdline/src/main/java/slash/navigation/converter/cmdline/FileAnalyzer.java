@@ -39,6 +39,7 @@ import java.util.List;
 import java.util.Map;
 
 import static java.lang.Math.round;
+import static slash.navigation.base.NavigationFormatParser.DEFAULT_PROBE_THREADS;
 
 /**
  * Reads a file with the full RouteConverter parser and aggregates the metadata
@@ -65,7 +66,7 @@ public class FileAnalyzer {
      * @throws IOException if the file cannot be read or parsed
      */
     public String analyze(File source) throws IOException {
-        NavigationFormatParser parser = new NavigationFormatParser(registry);
+        NavigationFormatParser parser = new NavigationFormatParser(registry, DEFAULT_PROBE_THREADS);
         ParserResult result = parser.read(source);
         if (!result.isSuccessful())
             throw new IOException("Could not read '" + source.getAbsolutePath() + "'");
@@ -23,7 +23,10 @@ package slash.navigation.converter.cmdline;
 import slash.common.system.Version;
 import slash.navigation.base.*;
 
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
@@ -34,6 +37,8 @@ import static java.lang.System.exit;
 import static slash.common.io.Files.*;
 import static slash.common.system.Platform.*;
 import static slash.common.system.Version.parseVersionFromManifest;
+import static slash.common.type.CompactCalendar.fromMillis;
+import static slash.navigation.base.NavigationFormatParser.DEFAULT_PROBE_THREADS;
 import static slash.navigation.base.NavigationFormatParser.getNumberOfFilesToWriteFor;
 
 /**
@@ -79,8 +84,8 @@ public class RouteConverterCmdLine {
         if (args.length >= 1 && "analyze".equals(args[0]))
             return analyze(args);
 
-        if (args.length != 3) {
-            log.info("Usage: java -jar RouteConverterCmdLine.jar <source file> <target format> <target file>");
+        if (args.length != 3 && args.length != 5) {
+            log.info("Usage: java -jar RouteConverterCmdLine.jar <source file> <target format> <target file> [--douglas-peucker <threshold in meter> | --visvalingam-whyatt <position count>]");
             log.info("       java -jar RouteConverterCmdLine.jar analyze <source file> [--brouter-segments <dir>]");
             logFormatNames(false);
             return 5;
@@ -106,8 +111,17 @@ public class RouteConverterCmdLine {
             return 20;
         }
 
+        Simplification simplification = null;
+        if (args.length == 5) {
+            simplification = parseSimplification(args[3], args[4]);
+            if (simplification == null) {
+                log.severe("Simplification '" + args[3] + " " + args[4] + "' is invalid; stopping.");
+                return 5;
+            }
+        }
+
         try {
-            convert(source, format, target);
+            convert(source, format, target, simplification);
         } catch (IOException e) {
             log.severe("Error while converting: " + e);
             return 25;
@@ -176,8 +190,95 @@ public class RouteConverterCmdLine {
         return new PointToPointLengthComputer();
     }
 
-    private void convert(File source, NavigationFormat<?> format, File target) throws IOException {
-        NavigationFormatParser parser = new NavigationFormatParser(new NavigationFormatRegistry());
+    /**
+     * Removes insignificant positions from a route before it is written.
+     */
+    interface Simplification {
+        int[] getPositionsToRemove(BaseRoute<?, ?> route);
+    }
+
+    static Simplification parseSimplification(String option, String argument) {
+        try {
+            if ("--douglas-peucker".equals(option)) {
+                double threshold = Double.parseDouble(argument);
+                return threshold >= 0.0 ? route -> route.getInsignificantPositions(threshold) : null;
+            }
+            if ("--visvalingam-whyatt".equals(option)) {
+                int count = Integer.parseInt(argument);
+                return count >= 0 ? route -> route.getLeastSignificantPositions(count) : null;
+            }
+        } catch (NumberFormatException e) {
+            // fall through to invalid simplification
+        }
+        return null;
+    }
+
+    private void simplify(List<BaseRoute<?, ?>> routes, Simplification simplification) {
+        for (BaseRoute<?, ?> route : routes) {
+            int before = route.getPositionCount();
+            route.remove(simplification.getPositionsToRemove(route));
+            log.info("Simplified route '" + route.getName() + "' from " + before + " to " + route.getPositionCount() + " positions");
+        }
+    }
+
+    private static class RouteDetectingPositionSink implements PositionSink<BaseNavigationPosition> {
+        private boolean routeBegun;
+
+        public void beginRoute(RouteCharacteristics characteristics, String name) {
+            routeBegun = true;
+        }
+
+        public void addPosition(BaseNavigationPosition position) {
+        }
+
+        public void endRoute() {
+        }
+
+        public void close() {
+        }
+    }
+
+    /**
+     * Finds the streaming format that reads the source as probing the formats would, which
+     * prefers the formats with the extension of the source: these are read one after another
+     * into a sink that keeps no positions. Returns <code>null</code> if a format that cannot
+     * stream comes first or none of them reads a route.
+     */
+    @SuppressWarnings("unchecked")
+    static PositionStreamingFormat<?> findStreamingFormat(File source, List<NavigationFormat<?>> formats) {
+        String extension = getExtension(source);
+        for (NavigationFormat<?> format : formats) {
+            if (!format.getExtension().equals(extension) || !(format instanceof PositionStreamingFormat))
+                return null;
+
+            RouteDetectingPositionSink sink = new RouteDetectingPositionSink();
+            try (InputStream inputStream = new BufferedInputStream(new FileInputStream(source))) {
+                ((PositionStreamingFormat<BaseNavigationPosition>) format).read(inputStream, new ParserContextImpl<>(), sink);
+            } catch (IOException | RuntimeException e) {
+                log.fine("Cannot stream with " + format + ": " + e);
+            }
+            if (sink.routeBegun)
+                return (PositionStreamingFormat<?>) format;
+        }
+        return null;
+    }
+
+    private void convert(File source, NavigationFormat<?> format, File target, Simplification simplification) throws IOException {
+        // the routes are written to one file without simplification, so the positions can pass through
+        if (simplification == null && format.isSupportsMultipleRoutes() && format instanceof PositionStreamingFormat) {
+            List<NavigationFormat<?>> formats = new NavigationFormatRegistry().getReadFormatsPreferredByExtension(getExtension(source));
+            PositionStreamingFormat<?> sourceFormat = findStreamingFormat(source, formats);
+            if (sourceFormat != null) {
+                log.info("Streaming '" + source.getAbsolutePath() + "' as " + ((NavigationFormat<?>) sourceFormat).getName());
+                try (InputStream inputStream = new BufferedInputStream(new FileInputStream(source))) {
+                    NavigationFormatConverter.convert(inputStream, sourceFormat, new ParserContextImpl<>(source, fromMillis(source.lastModified())),
+                            new FileOutputStream(target), (PositionStreamingFormat<?>) format);
+                }
+                return;
+            }
+        }
+
+        NavigationFormatParser parser = new NavigationFormatParser(new NavigationFormatRegistry(), DEFAULT_PROBE_THREADS);
         ParserResult result = parser.read(source);
         if (!result.isSuccessful()) {
             log.severe("Could not read source '" + source.getAbsolutePath() + "'");
@@ -185,6 +286,9 @@ public class RouteConverterCmdLine {
             exit(20);
         }
 
+        if (simplification != null)
+            simplify(result.getAllRoutes(), simplification);
+
         if (format.isSupportsMultipleRoutes()) {
             parser.write(result.getAllRoutes(), (MultipleRoutesFormat) format, target);
         } else {
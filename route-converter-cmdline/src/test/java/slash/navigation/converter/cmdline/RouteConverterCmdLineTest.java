@@ -21,11 +21,15 @@
 package slash.navigation.converter.cmdline;
 
 import org.junit.Test;
+import slash.navigation.base.NavigationFormatRegistry;
+import slash.navigation.base.PositionStreamingFormat;
+import slash.navigation.gpx.Gpx11Format;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -68,4 +72,36 @@ public class RouteConverterCmdLineTest {
                 new String[]{"analyze", "route.gpx", "--brouter-segments", segments.getAbsolutePath()});
         assertTrue(computer.getClass().getName(), computer instanceof BRouterRouteLengthComputer);
     }
+
+    @Test
+    public void invalidSimplificationIsRejected() {
+        assertNull(RouteConverterCmdLine.parseSimplification("--douglas-peucker", "x"));
+        assertNull(RouteConverterCmdLine.parseSimplification("--douglas-peucker", "-1"));
+        assertNull(RouteConverterCmdLine.parseSimplification("--visvalingam-whyatt", "1.5"));
+        assertNull(RouteConverterCmdLine.parseSimplification("--unknown", "10"));
+    }
+
+    private static File temporaryFile(String extension, String content) throws IOException {
+        File file = Files.createTempFile("cmdline-test", extension).toFile();
+        file.deleteOnExit();
+        Files.writeString(file.toPath(), content);
+        return file;
+    }
+
+    @Test
+    public void streamingFormatIsFoundForGpx() throws IOException {
+        File source = temporaryFile(".gpx", "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+                "<gpx version=\"1.1\" creator=\"test\" xmlns=\"http://www.topografix.com/GPX/1/1\">" +
+                "<trk><name>t</name><trkseg><trkpt lat=\"3.0\" lon=\"4.0\"/></trkseg></trk></gpx>");
+        PositionStreamingFormat<?> format = RouteConverterCmdLine.findStreamingFormat(source,
+                new NavigationFormatRegistry().getReadFormatsPreferredByExtension(".gpx"));
+        assertTrue(String.valueOf(format), format instanceof Gpx11Format);
+    }
+
+    @Test
+    public void noStreamingFormatIsFoundForUnreadableContent() throws IOException {
+        File source = temporaryFile(".gpx", "no route");
+        assertNull(RouteConverterCmdLine.findStreamingFormat(source,
+                new NavigationFormatRegistry().getReadFormatsPreferredByExtension(".gpx")));
+    }
 }
@@ -167,6 +167,7 @@ public abstract class BaseRouteConverter extends SingleFrameApplication {
     private static final String SELECT_BY_DISTANCE_PREFERENCE = "selectByDistance";
     private static final String SELECT_BY_ORDER_PREFERENCE = "selectByOrder";
     private static final String SELECT_BY_SIGNIFICANCE_PREFERENCE = "selectBySignificance";
+    private static final String SELECT_BY_POSITION_COUNT_PREFERENCE = "selectByPositionCount";
     private static final String INSERT_STRAIGHT_LINE_INTERVAL_PREFERENCE = "insertStraightLineInterval";
     private static final String FIND_PLACE_PREFERENCE = "findPlace";
     private static final String PHOTO_TIMEZONE_PREFERENCE = "photoTimeZone";
@@ -514,6 +515,14 @@ public abstract class BaseRouteConverter extends SingleFrameApplication {
         preferences.putDouble(SELECT_BY_SIGNIFICANCE_PREFERENCE, selectBySignificancePreference);
     }
 
+    public int getSelectByPositionCountPreference() {
+        return preferences.getInt(SELECT_BY_POSITION_COUNT_PREFERENCE, 1000);
+    }
+
+    public void setSelectByPositionCountPreference(int selectByPositionCountPreference) {
+        preferences.putInt(SELECT_BY_POSITION_COUNT_PREFERENCE, selectByPositionCountPreference);
+    }
+
     public String getFindPlacePreference() {
         return preferences.get(FIND_PLACE_PREFERENCE, "");
     }
@@ -848,6 +857,10 @@ public abstract class BaseRouteConverter extends SingleFrameApplication {
         return getConvertPanel().selectInsignificantPositions(threshold);
     }
 
+    public int selectLeastSignificantPositions(int count) {
+        return getConvertPanel().selectLeastSignificantPositions(count);
+    }
+
     public void clearSelection() {
         getConvertPanel().clearSelection();
     }
@@ -66,9 +66,11 @@ public class DeletePositionsDialog extends SimpleDialog {
     private JTextField textFieldDistance;
     private JTextField textFieldOrder;
     private JTextField textFieldSignificance;
+    private JTextField textFieldPositionCount;
     private JButton buttonSelectByDistance;
     private JButton buttonSelectByOrder;
     private JButton buttonSelectBySignificance;
+    private JButton buttonSelectByPositionCount;
     private JButton buttonDeletePositions;
     private JButton buttonClearSelection;
     private JButton buttonHelp;
@@ -76,6 +78,7 @@ public class DeletePositionsDialog extends SimpleDialog {
     private final DoubleDocument distance;
     private final IntegerDocument order;
     private final DoubleDocument threshold;
+    private final IntegerDocument positionCount;
 
     public DeletePositionsDialog() {
         super(BaseRouteConverter.getInstance().getFrame(), "delete-positions");
@@ -111,6 +114,13 @@ public class DeletePositionsDialog extends SimpleDialog {
             }
         });
 
+        setMnemonic(buttonSelectByPositionCount, "select-mnemonic");
+        buttonSelectByPositionCount.addActionListener(new DialogAction(this) {
+            public void run() {
+                selectByPositionCount();
+            }
+        });
+
         setMnemonic(buttonClearSelection, "clear-selection-action-mnemonic");
         buttonClearSelection.addActionListener(new DialogAction(this) {
             public void run() {
@@ -144,6 +154,8 @@ public class DeletePositionsDialog extends SimpleDialog {
         textFieldOrder.setDocument(order);
         threshold = new DoubleDocument(r.getSelectBySignificancePreference());
         textFieldSignificance.setDocument(threshold);
+        positionCount = new IntegerDocument(r.getSelectByPositionCountPreference());
+        textFieldPositionCount.setDocument(positionCount);
 
         final PositionsModel positionsModel = r.getConvertPanel().getPositionsModel();
         r.getConvertPanel().getPositionsView().getSelectionModel().addListSelectionListener(new ListSelectionListener() {
@@ -202,6 +214,15 @@ public class DeletePositionsDialog extends SimpleDialog {
         }
     }
 
+    private void selectByPositionCount() {
+        int positionCount = this.positionCount.getInt();
+        if (positionCount >= 0) {
+            int selectedRowCount = BaseRouteConverter.getInstance().selectLeastSignificantPositions(positionCount);
+            labelSelection.setText(MessageFormat.format(BaseRouteConverter.getBundle().getString("delete-select-by-position-count-result"), selectedRowCount, positionCount));
+            savePreferences();
+        }
+    }
+
     private void clearSelection() {
         BaseRouteConverter.getInstance().clearSelection();
         handlePositionsUpdate();
@@ -217,6 +238,7 @@ public class DeletePositionsDialog extends SimpleDialog {
         r.setSelectByDistancePreference(distance.getDouble());
         r.setSelectByOrderPreference(order.getInt());
         r.setSelectBySignificancePreference(threshold.getDouble());
+        r.setSelectByPositionCountPreference(positionCount.getInt());
     }
 
     private void close() {
@@ -245,7 +267,7 @@ public class DeletePositionsDialog extends SimpleDialog {
         panel1.setLayout(new GridLayoutManager(3, 1, new Insets(0, 0, 0, 0), -1, -1));
         contentPane.add(panel1, new GridConstraints(0, 0, 1, 1, GridConstraints.ANCHOR_CENTER, GridConstraints.FILL_BOTH, GridConstraints.SIZEPOLICY_CAN_SHRINK | GridConstraints.SIZEPOLICY_CAN_GROW, GridConstraints.SIZEPOLICY_CAN_SHRINK | GridConstraints.SIZEPOLICY_CAN_GROW, null, null, null, 0, false));
         final JPanel panel2 = new JPanel();
-        panel2.setLayout(new GridLayoutManager(7, 4, new Insets(0, 0, 10, 0), -1, -1));
+        panel2.setLayout(new GridLayoutManager(9, 4, new Insets(0, 0, 10, 0), -1, -1));
         panel1.add(panel2, new GridConstraints(2, 0, 1, 1, GridConstraints.ANCHOR_CENTER, GridConstraints.FILL_BOTH, GridConstraints.SIZEPOLICY_CAN_SHRINK | GridConstraints.SIZEPOLICY_CAN_GROW, GridConstraints.SIZEPOLICY_CAN_SHRINK | GridConstraints.SIZEPOLICY_CAN_GROW, null, null, null, 1, false));
         final JPanel panel3 = new JPanel();
         panel3.setLayout(new FlowLayout(FlowLayout.LEFT, 5, 5));
@@ -308,16 +330,36 @@ public class DeletePositionsDialog extends SimpleDialog {
         panel2.add(panel8, new GridConstraints(5, 0, 1, 4, GridConstraints.ANCHOR_CENTER, GridConstraints.FILL_BOTH, GridConstraints.SIZEPOLICY_CAN_SHRINK | GridConstraints.SIZEPOLICY_CAN_GROW, GridConstraints.SIZEPOLICY_CAN_SHRINK | GridConstraints.SIZEPOLICY_CAN_GROW, new Dimension(-1, 10), null, null, 0, false));
         final JSeparator separator3 = new JSeparator();
         panel8.add(separator3, new GridConstraints(0, 0, 1, 1, GridConstraints.ANCHOR_CENTER, GridConstraints.FILL_HORIZONTAL, GridConstraints.SIZEPOLICY_WANT_GROW, GridConstraints.SIZEPOLICY_WANT_GROW, null, null, null, 0, false));
+        final JPanel panel11 = new JPanel();
+        panel11.setLayout(new FlowLayout(FlowLayout.LEFT, 5, 5));
+        panel2.add(panel11, new GridConstraints(6, 0, 1, 2, GridConstraints.ANCHOR_CENTER, GridConstraints.FILL_BOTH, GridConstraints.SIZEPOLICY_CAN_SHRINK | GridConstraints.SIZEPOLICY_CAN_GROW, GridConstraints.SIZEPOLICY_CAN_SHRINK | GridConstraints.SIZEPOLICY_CAN_GROW, null, null, null, 0, false));
+        final JLabel label7 = new JLabel();
+        this.$$$loadLabelText$$$(label7, this.$$$getMessageFromBundle$$$("slash/navigation/converter/gui/RouteConverter", "delete-select-by-position-count"));
+        panel11.add(label7);
+        textFieldPositionCount = new JTextField();
+        textFieldPositionCount.setColumns(5);
+        panel11.add(textFieldPositionCount);
+        final JLabel label8 = new JLabel();
+        this.$$$loadLabelText$$$(label8, this.$$$getMessageFromBundle$$$("slash/navigation/converter/gui/RouteConverter", "delete-select-by-position-count-positions"));
+        panel11.add(label8);
+        buttonSelectByPositionCount = new JButton();
+        this.$$$loadButtonText$$$(buttonSelectByPositionCount, this.$$$getMessageFromBundle$$$("slash/navigation/converter/gui/RouteConverter", "select"));
+        panel2.add(buttonSelectByPositionCount, new GridConstraints(6, 2, 1, 1, GridConstraints.ANCHOR_CENTER, GridConstraints.FILL_HORIZONTAL, GridConstraints.SIZEPOLICY_CAN_SHRINK | GridConstraints.SIZEPOLICY_CAN_GROW, GridConstraints.SIZEPOLICY_FIXED, null, null, null, 0, false));
+        final JPanel panel12 = new JPanel();
+        panel12.setLayout(new GridLayoutManager(1, 1, new Insets(0, 0, 0, 0), 5, -1));
+        panel2.add(panel12, new GridConstraints(7, 0, 1, 4, GridConstraints.ANCHOR_CENTER, GridConstraints.FILL_BOTH, GridConstraints.SIZEPOLICY_CAN_SHRINK | GridConstraints.SIZEPOLICY_CAN_GROW, GridConstraints.SIZEPOLICY_CAN_SHRINK | GridConstraints.SIZEPOLICY_CAN_GROW, new Dimension(-1, 10), null, null, 0, false));
+        final JSeparator separator4 = new JSeparator();
+        panel12.add(separator4, new GridConstraints(0, 0, 1, 1, GridConstraints.ANCHOR_CENTER, GridConstraints.FILL_HORIZONTAL, GridConstraints.SIZEPOLICY_WANT_GROW, GridConstraints.SIZEPOLICY_WANT_GROW, null, null, null, 0, false));
         buttonHelp = BaseRouteConverter.getInstance().getContext().getHelpManager().helpButton(contentPane);
-        panel2.add(buttonHelp, new GridConstraints(6, 0, 1, 1, GridConstraints.ANCHOR_WEST, GridConstraints.FILL_NONE, GridConstraints.SIZEPOLICY_FIXED, GridConstraints.SIZEPOLICY_FIXED, null, null, null, 0, false));
+        panel2.add(buttonHelp, new GridConstraints(8, 0, 1, 1, GridConstraints.ANCHOR_WEST, GridConstraints.FILL_NONE, GridConstraints.SIZEPOLICY_FIXED, GridConstraints.SIZEPOLICY_FIXED, null, null, null, 0, false));
         buttonDeletePositions = new JButton();
         this.$$$loadButtonText$$$(buttonDeletePositions, this.$$$getMessageFromBundle$$$("slash/navigation/converter/gui/RouteConverter", "delete-selected-positions"));
-        panel2.add(buttonDeletePositions, new GridConstraints(6, 1, 1, 1, GridConstraints.ANCHOR_WEST, GridConstraints.FILL_NONE, GridConstraints.SIZEPOLICY_CAN_SHRINK | GridConstraints.SIZEPOLICY_CAN_GROW, GridConstraints.SIZEPOLICY_FIXED, null, null, null, 0, false));
+        panel2.add(buttonDeletePositions, new GridConstraints(8, 1, 1, 1, GridConstraints.ANCHOR_WEST, GridConstraints.FILL_NONE, GridConstraints.SIZEPOLICY_CAN_SHRINK | GridConstraints.SIZEPOLICY_CAN_GROW, GridConstraints.SIZEPOLICY_FIXED, null, null, null, 0, false));
         final Spacer spacer1 = new Spacer();
-        panel2.add(spacer1, new GridConstraints(6, 2, 1, 1, GridConstraints.ANCHOR_CENTER, GridConstraints.FILL_HORIZONTAL, GridConstraints.SIZEPOLICY_WANT_GROW, 1, null, null, null, 0, false));
+        panel2.add(spacer1, new GridConstraints(8, 2, 1, 1, GridConstraints.ANCHOR_CENTER, GridConstraints.FILL_HORIZONTAL, GridConstraints.SIZEPOLICY_WANT_GROW, 1, null, null, null, 0, false));
         buttonClearSelection = new JButton();
         this.$$$loadButtonText$$$(buttonClearSelection, this.$$$getMessageFromBundle$$$("slash/navigation/converter/gui/RouteConverter", "clear-selection-action"));
-        panel2.add(buttonClearSelection, new GridConstraints(6, 3, 1, 1, GridConstraints.ANCHOR_CENTER, GridConstraints.FILL_HORIZONTAL, GridConstraints.SIZEPOLICY_CAN_SHRINK | GridConstraints.SIZEPOLICY_CAN_GROW, GridConstraints.SIZEPOLICY_FIXED, null, null, null, 0, false));
+        panel2.add(buttonClearSelection, new GridConstraints(8, 3, 1, 1, GridConstraints.ANCHOR_CENTER, GridConstraints.FILL_HORIZONTAL, GridConstraints.SIZEPOLICY_CAN_SHRINK | GridConstraints.SIZEPOLICY_CAN_GROW, GridConstraints.SIZEPOLICY_FIXED, null, null, null, 0, false));
         final JPanel panel9 = new JPanel();
         panel9.setLayout(new GridLayoutManager(1, 2, new Insets(0, 5, 0, 0), -1, -1));
         panel1.add(panel9, new GridConstraints(0, 0, 1, 1, GridConstraints.ANCHOR_CENTER, GridConstraints.FILL_BOTH, GridConstraints.SIZEPOLICY_CAN_SHRINK | GridConstraints.SIZEPOLICY_CAN_GROW, GridConstraints.SIZEPOLICY_CAN_SHRINK | GridConstraints.SIZEPOLICY_CAN_GROW, new Dimension(-1, 20), null, null, 0, false));
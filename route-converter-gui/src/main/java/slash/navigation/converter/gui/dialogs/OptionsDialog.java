@@ -520,7 +520,7 @@ public class OptionsDialog extends SimpleDialog {
             public void insertUpdate(DocumentEvent e) {
                 ElevationService service = r.getElevationServiceFacade().getElevationService();
                 if (service.isDownload()) {
-                    service.setPath(textFieldElevationServicePath.getText());
+                    r.getElevationServiceFacade().setElevationServicePath(service, textFieldElevationServicePath.getText());
                 }
             }
 
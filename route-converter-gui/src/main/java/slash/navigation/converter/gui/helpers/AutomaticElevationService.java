@@ -19,16 +19,22 @@
 */
 package slash.navigation.converter.gui.helpers;
 
+import slash.navigation.common.BoundingBox;
 import slash.navigation.common.LongitudeAndLatitude;
 import slash.navigation.common.MapDescriptor;
+import slash.navigation.elevation.ElevationCache;
 import slash.navigation.elevation.ElevationService;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 
+import static java.lang.Math.floor;
+import static java.lang.Math.min;
 import static java.util.Arrays.sort;
+import static java.util.Collections.singletonList;
 
 /**
  * An elevation service that tries to find the best available elevation service.
@@ -40,11 +46,21 @@ public class AutomaticElevationService implements ElevationService {
     private static final Logger log = Logger.getLogger(AutomaticElevationService.class.getName());
     private static final String AUTOMATIC_ELEVATION_SERVICE_NAME = "Automatic";
     private static final String JONATHAN_DE_FERRANTI_DEM_3 = "Jonathan de Ferranti DEM 3";
+    private static final ElevationServicePriorityComparator PRIORITY_COMPARATOR = new ElevationServicePriorityComparator();
 
     private final ElevationServiceFacade elevationServiceFacade;
+    private final ElevationCache elevationCache;
+    private volatile ServiceChain serviceChain;
+    private ServiceChain lastServiceChain;
 
     public AutomaticElevationService(ElevationServiceFacade elevationServiceFacade) {
+        this(elevationServiceFacade, null);
+    }
+
+    public AutomaticElevationService(ElevationServiceFacade elevationServiceFacade, ElevationCache elevationCache) {
         this.elevationServiceFacade = elevationServiceFacade;
+        this.elevationCache = elevationCache;
+        elevationServiceFacade.addChangeListener(e -> invalidateServiceChain());
     }
 
     public String getName() {
@@ -69,7 +85,7 @@ public class AutomaticElevationService implements ElevationService {
     }
 
     public File getDirectory() {
-        for (ElevationService service : sortByBestEffort(elevationServiceFacade.getElevationServices())) {
+        for (ElevationService service : getServiceChain().services) {
             if (!service.isDownload())
                 continue;
 
@@ -82,20 +98,40 @@ public class AutomaticElevationService implements ElevationService {
         return null;
     }
 
+    /**
+     * Asks the cache, then the service which answered before for the region of the position
+     * and then the other services in the order of their priority.
+     */
     public Double getElevationFor(double longitude, double latitude) throws IOException {
+        ServiceChain chain = getServiceChain();
+        int region = createRegionKey(longitude, latitude);
+        if (elevationCache != null) {
+            Double elevation = elevationCache.get(longitude, latitude, chain.getMaximumCachedPriority(region));
+            if (elevation != null)
+                return elevation;
+        }
+
+        Integer answeringServiceIndex = chain.answeringServiceIndices.get(region);
         IOException lastException = null;
 
-        for (ElevationService service : sortByBestEffort(elevationServiceFacade.getElevationServices())) {
+        if (answeringServiceIndex != null) {
             try {
-                if(service.isOverQueryLimit())
-                    continue;
-
-                Double elevation = service.getElevationFor(longitude, latitude);
-                if (elevation != null) {
-                    log.fine("Used " + service.getName() + " to retrieve elevation " + elevation + " for " + longitude + "/" + latitude);
+                Double elevation = getElevationFor(chain, answeringServiceIndex, region, longitude, latitude);
+                if (elevation != null)
                     return elevation;
-                }
+            } catch (IOException e) {
+                lastException = e;
+            }
+        }
 
+        for (int serviceIndex = 0; serviceIndex < chain.services.length; serviceIndex++) {
+            if (answeringServiceIndex != null && serviceIndex == answeringServiceIndex)
+                continue;
+
+            try {
+                Double elevation = getElevationFor(chain, serviceIndex, region, longitude, latitude);
+                if (elevation != null)
+                    return elevation;
             } catch (IOException e) {
                 lastException = e;
             }
@@ -107,23 +143,239 @@ public class AutomaticElevationService implements ElevationService {
             return null;
     }
 
+    private Double getElevationFor(ServiceChain chain, int serviceIndex, int region, double longitude, double latitude) throws IOException {
+        ElevationService service = chain.services[serviceIndex];
+        if (service.isOverQueryLimit())
+            return null;
+
+        Double elevation = service.getElevationFor(longitude, latitude);
+        if (elevation != null) {
+            log.fine("Used " + service.getName() + " to retrieve elevation " + elevation + " for " + longitude + "/" + latitude);
+            chain.answered(region, serviceIndex);
+            if (elevationCache != null)
+                elevationCache.put(longitude, latitude, elevation, chain.priorities[serviceIndex]);
+        }
+        return elevation;
+    }
+
+    /**
+     * Asks the cache, then the services which answered before for the regions of the positions
+     * and then the other services in the order of their priority for all the positions that could
+     * not be provided with an elevation before.
+     * Throws the last exception only if no elevation could be found at all.
+     */
+    public Double[] getElevationsFor(double[] longitudes, double[] latitudes) throws IOException {
+        Double[] elevations = new Double[longitudes.length];
+        int[] regions = new int[longitudes.length];
+        int[] answeringServiceIndices = new int[longitudes.length];
+        int[] missing = new int[longitudes.length];
+        int missingCount = 0;
+
+        ServiceChain chain = getServiceChain();
+        for (int i = 0; i < longitudes.length; i++) {
+            regions[i] = createRegionKey(longitudes[i], latitudes[i]);
+            if (elevationCache != null)
+                elevations[i] = elevationCache.get(longitudes[i], latitudes[i], chain.getMaximumCachedPriority(regions[i]));
+            if (elevations[i] == null) {
+                Integer answeringServiceIndex = chain.answeringServiceIndices.get(regions[i]);
+                answeringServiceIndices[i] = answeringServiceIndex != null ? answeringServiceIndex : -1;
+                missing[missingCount++] = i;
+            }
+        }
+
+        IOException lastException = null;
+        // first ask the services which answered before for the regions and then the others
+        for (boolean answeringService : new boolean[]{true, false}) {
+            for (int serviceIndex = 0; serviceIndex < chain.services.length && missingCount > 0; serviceIndex++) {
+                int[] selected = new int[missingCount];
+                int selectedCount = 0;
+                for (int i = 0; i < missingCount; i++) {
+                    if ((answeringServiceIndices[missing[i]] == serviceIndex) == answeringService)
+                        selected[selectedCount++] = missing[i];
+                }
+                if (selectedCount == 0)
+                    continue;
+
+                ElevationService service = chain.services[serviceIndex];
+                try {
+                    if (service.isOverQueryLimit())
+                        continue;
+
+                    double[] selectedLongitudes = new double[selectedCount], selectedLatitudes = new double[selectedCount];
+                    for (int i = 0; i < selectedCount; i++) {
+                        selectedLongitudes[i] = longitudes[selected[i]];
+                        selectedLatitudes[i] = latitudes[selected[i]];
+                    }
+                    Double[] serviceElevations = service.getElevationsFor(selectedLongitudes, selectedLatitudes);
+
+                    int foundCount = 0;
+                    for (int i = 0; i < selectedCount; i++) {
+                        Double elevation = serviceElevations[i];
+                        if (elevation != null) {
+                            elevations[selected[i]] = elevation;
+                            chain.answered(regions[selected[i]], serviceIndex);
+                            if (elevationCache != null)
+                                elevationCache.put(longitudes[selected[i]], latitudes[selected[i]], elevation, chain.priorities[serviceIndex]);
+                            foundCount++;
+                        }
+                    }
+                    log.fine("Used " + service.getName() + " to retrieve " + foundCount + " of " + selectedCount + " elevations");
+
+                } catch (IOException e) {
+                    lastException = e;
+                }
+
+                int stillMissingCount = 0;
+                for (int i = 0; i < missingCount; i++) {
+                    if (elevations[missing[i]] == null)
+                        missing[stillMissingCount++] = missing[i];
+                }
+                missingCount = stillMissingCount;
+            }
+        }
+
+        if (lastException != null && missingCount == elevations.length)
+            throw lastException;
+        return elevations;
+    }
+
+    private static int createRegionKey(double longitude, double latitude) {
+        // regions of one degree like the elevation tiles
+        return ((int) floor(latitude) + 91) * 362 + (int) floor(longitude) + 181;
+    }
+
+    private ServiceChain getServiceChain() {
+        ServiceChain chain = serviceChain;
+        if (chain != null)
+            return chain;
+
+        synchronized (this) {
+            if (serviceChain == null)
+                serviceChain = lastServiceChain = new ServiceChain(sortByBestEffort(elevationServiceFacade.getElevationServices()), lastServiceChain);
+            return serviceChain;
+        }
+    }
+
+    synchronized void invalidateServiceChain() {
+        serviceChain = null;
+    }
+
     private ElevationService[] sortByBestEffort(List<ElevationService> elevationServices) {
         List<ElevationService> toSort = new ArrayList<>(elevationServices);
         toSort.remove(this);
 
         ElevationService[] result = toSort.toArray(new ElevationService[0]);
-        sort(result, new ElevationServicePriorityComparator());
+        sort(result, PRIORITY_COMPARATOR);
         return result;
     }
 
+    /**
+     * The services in the order of their priority and the index of the service with the
+     * highest priority which answered for a region. The services which are new or changed
+     * since the last chain and the regions with downloaded elevation data are carried over.
+     */
+    private static class ServiceChain {
+        private final ElevationService[] services;
+        private final int[] priorities;
+        private final Map<Integer, Integer> answeringServiceIndices = new ConcurrentHashMap<>();
+        private final Map<String, String> paths = new HashMap<>();
+        private final int outdatingPriority;
+        private final Map<Integer, Integer> outdatedRegions;
+
+        private ServiceChain(ElevationService[] services, ServiceChain previous) {
+            this.services = services;
+            this.priorities = new int[services.length];
+            for (int i = 0; i < services.length; i++) {
+                priorities[i] = PRIORITY_COMPARATOR.getPriority(services[i]);
+                paths.put(services[i].getName(), services[i].isDownload() ? services[i].getPath() : "");
+            }
+
+            // the first chain has the services which filled the cache before
+            int outdatingPriority = previous != null ? previous.outdatingPriority : Integer.MAX_VALUE;
+            if (previous != null) {
+                for (int i = 0; i < services.length; i++) {
+                    String name = services[i].getName();
+                    if (!paths.get(name).equals(previous.paths.get(name)))
+                        outdatingPriority = min(outdatingPriority, priorities[i]);
+                }
+            }
+            this.outdatingPriority = outdatingPriority;
+            this.outdatedRegions = previous != null ? previous.outdatedRegions : new ConcurrentHashMap<>();
+        }
+
+        private void answered(int region, int serviceIndex) {
+            answeringServiceIndices.merge(region, serviceIndex, Math::min);
+        }
+
+        private void outdated(Set<Integer> regions, int priority) {
+            for (Integer region : regions) {
+                Integer answeringServiceIndex = answeringServiceIndices.get(region);
+                if (answeringServiceIndex != null && priorities[answeringServiceIndex] <= priority)
+                    continue;
+                outdatedRegions.merge(region, priority, Math::min);
+                answeringServiceIndices.remove(region);
+            }
+        }
+
+        /**
+         * Cached elevations of services with a lower priority than the service which answered for
+         * the region are outdated. Until a service answered for the region, the cached elevations of
+         * services with a lower priority than a service which was added or changed or which
+         * downloaded elevation data for the region are outdated.
+         */
+        private int getMaximumCachedPriority(int region) {
+            Integer answeringServiceIndex = answeringServiceIndices.get(region);
+            if (answeringServiceIndex != null)
+                return priorities[answeringServiceIndex];
+            Integer outdatedPriority = outdatedRegions.get(region);
+            return outdatedPriority != null ? min(outdatedPriority, outdatingPriority) : outdatingPriority;
+        }
+    }
+
     public String getPreferredDownloadName() {
         return JONATHAN_DE_FERRANTI_DEM_3;
     }
 
     public void downloadElevationDataFor(List<LongitudeAndLatitude> longitudeAndLatitudes, boolean waitForDownload) {
         ElevationService service = elevationServiceFacade.findElevationService(getPreferredDownloadName());
-        if (service != null)
-            service.downloadElevationDataFor(longitudeAndLatitudes, waitForDownload);
+        if (service == null)
+            return;
+
+        Set<Integer> regions = getRegionsWithMissingElevationData(service, longitudeAndLatitudes);
+        service.downloadElevationDataFor(longitudeAndLatitudes, waitForDownload);
+        // the downloaded elevation data may outdate the cached elevations of its regions
+        if (!regions.isEmpty())
+            getServiceChain().outdated(regions, PRIORITY_COMPARATOR.getPriority(service));
+    }
+
+    private Set<Integer> getRegionsWithMissingElevationData(ElevationService service, List<LongitudeAndLatitude> longitudeAndLatitudes) {
+        Set<Integer> regions = new HashSet<>();
+        if (!service.isDownload())
+            return regions;
+
+        Set<Integer> checked = new HashSet<>();
+        for (LongitudeAndLatitude longitudeAndLatitude : longitudeAndLatitudes) {
+            int region = createRegionKey(longitudeAndLatitude.longitude(), longitudeAndLatitude.latitude());
+            if (!checked.add(region))
+                continue;
+
+            // the center of the region is not on the border of two tiles
+            double longitude = floor(longitudeAndLatitude.longitude()) + 0.5, latitude = floor(longitudeAndLatitude.latitude()) + 0.5;
+            BoundingBox boundingBox = new BoundingBox(longitude + 0.5, latitude + 0.5, longitude, latitude);
+            if (service.calculateRemainingDownloadSize(singletonList(new RegionMapDescriptor(region, boundingBox))) > 0)
+                regions.add(region);
+        }
+        return regions;
+    }
+
+    private record RegionMapDescriptor(int region, BoundingBox boundingBox) implements MapDescriptor {
+        public String getIdentifier() {
+            return "Region " + region;
+        }
+
+        public BoundingBox getBoundingBox() {
+            return boundingBox;
+        }
     }
 
     public long calculateRemainingDownloadSize(List<MapDescriptor> mapDescriptors) {
@@ -135,6 +387,10 @@ public class AutomaticElevationService implements ElevationService {
         ElevationService service = elevationServiceFacade.findElevationService(getPreferredDownloadName());
         if (service != null)
             service.downloadElevationData(mapDescriptors);
+        // the downloaded elevation data may be better than the cached elevations
+        if (elevationCache != null)
+            elevationCache.clear();
+        invalidateServiceChain();
     }
 
     private static class ElevationServicePriorityComparator implements Comparator<ElevationService> {
@@ -23,6 +23,8 @@ package slash.navigation.converter.gui.helpers;
 import slash.navigation.common.LongitudeAndLatitude;
 import slash.navigation.elevation.ElevationService;
 
+import javax.swing.event.ChangeListener;
+import javax.swing.event.EventListenerList;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
@@ -30,7 +32,7 @@ import java.util.logging.Logger;
 import java.util.prefs.Preferences;
 
 import static java.lang.String.format;
-import static slash.navigation.common.NavigationConversion.formatElevation;
+import static slash.navigation.common.NavigationConversion.formatElevationAsDouble;
 
 /**
  * Helps to complement positions with elevation.
@@ -46,6 +48,7 @@ public class ElevationServiceFacade {
     private final List<ElevationService> elevationServices = new ArrayList<>();
     private ElevationService preferredElevationService;
     private boolean loggedFailedWarning;
+    private final EventListenerList listenerList = new EventListenerList();
 
     public void addElevationService(ElevationService elevationService) {
         ElevationService previous = findElevationService(elevationService.getName());
@@ -55,6 +58,7 @@ public class ElevationServiceFacade {
             elevationServices.add(elevationService);
             log.fine(format("Added elevation service '%s'", elevationService.getName()));
         }
+        fireChanged();
     }
 
     public void setPreferredElevationService(ElevationService preferredElevationService) {
@@ -89,11 +93,37 @@ public class ElevationServiceFacade {
 
     public void setElevationService(ElevationService service) {
         preferences.put(ELEVATION_SERVICE, service.getName());
+        fireChanged();
+    }
+
+    public void setElevationServicePath(ElevationService service, String path) {
+        service.setPath(path);
+        fireChanged();
+    }
+
+    protected void fireChanged() {
+        Object[] listeners = listenerList.getListenerList();
+        for (int i = listeners.length - 2; i >= 0; i -= 2) {
+            if (listeners[i] == ChangeListener.class) {
+                ((ChangeListener) listeners[i + 1]).stateChanged(null);
+            }
+        }
+    }
+
+    public void addChangeListener(ChangeListener l) {
+        listenerList.add(ChangeListener.class, l);
     }
 
     public Double getElevationFor(double longitude, double latitude) throws IOException {
         Double elevation = getElevationService().getElevationFor(longitude, latitude);
-        return elevation != null ? formatElevation(elevation).doubleValue() : null;
+        return formatElevationAsDouble(elevation);
+    }
+
+    public Double[] getElevationsFor(double[] longitudes, double[] latitudes) throws IOException {
+        Double[] elevations = getElevationService().getElevationsFor(longitudes, latitudes);
+        for (int i = 0; i < elevations.length; i++)
+            elevations[i] = formatElevationAsDouble(elevations[i]);
+        return elevations;
     }
 
     public boolean isDownload() {
@@ -40,16 +40,20 @@ import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
 import static java.lang.Math.*;
 import static java.lang.String.format;
 import static java.util.Arrays.asList;
+import static java.util.Arrays.copyOfRange;
 import static slash.navigation.gui.helpers.WindowHelper.showError;
 import static javax.swing.SwingUtilities.invokeLater;
 import static javax.swing.event.TableModelEvent.ALL_COLUMNS;
 import static slash.common.helpers.ExceptionHelper.*;
+import static slash.common.helpers.ThreadHelper.createDaemonThreadPool;
 import static slash.common.helpers.ThreadHelper.createSingleThreadExecutor;
 import static slash.common.io.Transfer.widthInDigits;
 import static slash.common.type.CompactCalendar.fromMillis;
@@ -75,7 +79,11 @@ public class PositionAugmenter {
     private final JTable positionsView;
     private final PositionsModel positionsModel;
 
+    private static final int ELEVATION_CHUNK_SIZE = 1000;
+
     private final ExecutorService executor = createSingleThreadExecutor("AugmentPositions");
+    private final ExecutorService chunkExecutor = createDaemonThreadPool("AugmentElevations",
+            max(1, min(4, Runtime.getRuntime().availableProcessors())));
     private final ElevationServiceFacade elevationServiceFacade;
     private final GeocodingServiceFacade geocodingServiceFacade;
     private static final Object notificationMutex = new Object();
@@ -100,6 +108,7 @@ public class PositionAugmenter {
     public void dispose() {
         interrupt();
         executor.shutdownNow();
+        chunkExecutor.shutdownNow();
     }
 
     private interface OverwritePredicate {
@@ -255,38 +264,144 @@ public class PositionAugmenter {
     }
 
 
+    private static class ElevationChunk {
+        private final int[] rows;
+        private final NavigationPosition[] positions;
+        private final Double[] elevations;
+
+        private ElevationChunk(int[] rows, NavigationPosition[] positions, Double[] elevations) {
+            this.rows = rows;
+            this.positions = positions;
+            this.elevations = elevations;
+        }
+    }
+
+    private ElevationChunk fetchElevations(PositionsModel positionsModel, int[] rows, OverwritePredicate predicate) throws IOException {
+        List<Integer> chunkRows = new ArrayList<>(rows.length);
+        List<NavigationPosition> positions = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            // avoid exceptions due to parallel deletions
+            if (row > positionsModel.getRowCount() - 1)
+                continue;
+
+            NavigationPosition position = positionsModel.getPosition(row);
+            if (position.hasCoordinates() && predicate.shouldOverwrite(position)) {
+                chunkRows.add(row);
+                positions.add(position);
+            }
+        }
+
+        double[] longitudes = new double[positions.size()], latitudes = new double[positions.size()];
+        for (int i = 0; i < positions.size(); i++) {
+            longitudes[i] = positions.get(i).getLongitude();
+            latitudes[i] = positions.get(i).getLatitude();
+        }
+        Double[] elevations = elevationServiceFacade.getElevationsFor(longitudes, latitudes);
+        return new ElevationChunk(chunkRows.stream().mapToInt(Integer::intValue).toArray(),
+                positions.toArray(new NavigationPosition[0]), elevations);
+    }
+
     private void processElevations(final JTable positionsTable,
                                    final PositionsModel positionsModel,
                                    final int[] rows,
                                    final OverwritePredicate predicate) {
-        executeOperation(positionsTable, positionsModel, rows, true, predicate,
-                new Operation() {
-                    public String getName() {
-                        return "ElevationPositionAugmenter";
+        synchronized (notificationMutex) {
+            this.running = true;
+        }
+
+        final CancelAction cancelAction = new CancelAction();
+        executor.execute(new Runnable() {
+            public void run() {
+                int count = 0;
+                Exception lastException = null;
+                List<Future<ElevationChunk>> futures = new ArrayList<>();
+
+                try {
+                    invokeLater(() -> {
+                        if (positionsTable != null && rows.length > 0)
+                            scrollToPosition(positionsTable, rows[0]);
+                    });
+                    downloadElevationData(rows, true);
+
+                    // fetch the chunks in parallel but write them into the positions in the order of the rows
+                    int[] sortedRows = Arrays.stream(rows).sorted().distinct().toArray();
+                    for (int from = 0; from < sortedRows.length; from += ELEVATION_CHUNK_SIZE) {
+                        int[] chunkRows = copyOfRange(sortedRows, from, min(from + ELEVATION_CHUNK_SIZE, sortedRows.length));
+                        futures.add(chunkExecutor.submit(() -> fetchElevations(positionsModel, chunkRows, predicate)));
                     }
 
-                    public int getColumnIndex() {
-                        return ELEVATION_COLUMN_INDEX;
+                    List<Integer> editedRows = new ArrayList<>();
+                    List<Double> previousElevations = new ArrayList<>(), nextElevations = new ArrayList<>();
+                    for (int i = 0; i < futures.size(); i++) {
+                        synchronized (notificationMutex) {
+                            if (cancelAction.isCanceled() || !running)
+                                break;
+                        }
+
+                        int chunkLength = min(ELEVATION_CHUNK_SIZE, sortedRows.length - i * ELEVATION_CHUNK_SIZE);
+                        try {
+                            ElevationChunk chunk = futures.get(i).get();
+                            int firstIndex = -1, lastIndex = -1;
+                            for (int j = 0; j < chunk.positions.length; j++) {
+                                NavigationPosition position = chunk.positions[j];
+                                Double previousElevation = position.getElevation();
+                                Double nextElevation = chunk.elevations[j];
+                                if (nextElevation != null && !nextElevation.equals(previousElevation)) {
+                                    position.setElevation(nextElevation);
+                                    editedRows.add(chunk.rows[j]);
+                                    previousElevations.add(previousElevation);
+                                    nextElevations.add(nextElevation);
+                                    if (firstIndex == -1)
+                                        firstIndex = chunk.rows[j];
+                                    lastIndex = chunk.rows[j];
+                                }
+                            }
+
+                            if (firstIndex != -1) {
+                                final int first = firstIndex, last = lastIndex;
+                                invokeLater(() -> {
+                                    positionsModel.fireTableRowsUpdated(first, last, ELEVATION_COLUMN_INDEX);
+                                    if (positionsTable != null)
+                                        scrollToPosition(positionsTable, min(last + ELEVATION_CHUNK_SIZE, positionsModel.getRowCount() - 1));
+                                });
+                            }
+                        } catch (ExecutionException e) {
+                            Throwable cause = e.getCause();
+                            log.warning(format("Error while adding elevation to %d positions: %s, %s", chunkLength, cause, printStackTrace(cause)));
+                            lastException = cause instanceof Exception ? (Exception) cause : e;
+                        }
+
+                        count += chunkLength;
+                        getNotificationManager().showNotification(MessageFormat.format(
+                                BaseRouteConverter.getBundle().getString("augmenting-progress"), count, rows.length), cancelAction);
                     }
 
-                    public void performOnStart() {
-                        downloadElevationData(rows, true);
+                    if (!editedRows.isEmpty()) {
+                        final int[] undoRows = editedRows.stream().mapToInt(Integer::intValue).toArray();
+                        final Double[] undoPreviousElevations = previousElevations.toArray(new Double[0]);
+                        final Double[] undoNextElevations = nextElevations.toArray(new Double[0]);
+                        invokeLater(() -> positionsModel.elevationsEdited(undoRows, undoPreviousElevations, undoNextElevations));
                     }
 
-                    public boolean run(int index, NavigationPosition position) throws Exception {
-                        String previousElevation = formatElevation(position.getElevation());
-                        String nextElevation = getElevationFor(position);
-                        boolean changed = nextElevation != null && !nextElevation.equals(previousElevation);
-                        if (changed)
-                            positionsModel.edit(index, new PositionColumnValues(ELEVATION_COLUMN_INDEX, nextElevation), false, true);
-                        return changed;
+                    if (lastException != null && !isComputerOffline(lastException)) {
+                        String errorMessage = BaseRouteConverter.getBundle().getString("add-elevation-error");
+                        showError(frame,
+                                MessageFormat.format(errorMessage, getLocalizedMessage(lastException)), frame.getTitle());
                     }
+                } catch (InterruptedException e) {
+                    log.info("Interrupted while adding elevation");
+                } finally {
+                    for (Future<ElevationChunk> future : futures)
+                        future.cancel(true);
 
-                    public String getMessagePrefix() {
-                        return "add-elevation-";
+                    if (lastException == null || !isComputerOffline(lastException)) {
+                        final int finalCount = count;
+                        invokeLater(() -> getNotificationManager().showNotification(MessageFormat.format(
+                                BaseRouteConverter.getBundle().getString("augmenting-finished"), finalCount), null));
                     }
                 }
-        );
+            }
+        });
     }
 
     private String getElevationFor(NavigationPosition position) throws IOException {
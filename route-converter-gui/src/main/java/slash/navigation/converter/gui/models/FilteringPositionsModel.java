@@ -104,6 +104,10 @@ public class FilteringPositionsModel<P extends NavigationPosition> extends Filte
         throw new UnsupportedOperationException();
     }
 
+    public int[] getLeastSignificantPositions(int count) {
+        throw new UnsupportedOperationException();
+    }
+
     public int getClosestPosition(double longitude, double latitude, double threshold) {
         throw new UnsupportedOperationException();
     }
@@ -116,6 +120,13 @@ public class FilteringPositionsModel<P extends NavigationPosition> extends Filte
         getDelegate().edit(mapRow(rowIndex), columnToValues, fireEvent, trackUndo);
     }
 
+    public void elevationsEdited(int[] rowIndices, Double[] previousElevations, Double[] nextElevations) {
+        int[] mappedRows = new int[rowIndices.length];
+        for (int i = 0; i < rowIndices.length; i++)
+            mappedRows[i] = mapRow(rowIndices[i]);
+        getDelegate().elevationsEdited(mappedRows, previousElevations, nextElevations);
+    }
+
     public void add(int rowIndex, Double longitude, Double latitude, Double elevation, Double speed, CompactCalendar time, String description) {
         throw new UnsupportedOperationException();
     }
@@ -35,6 +35,8 @@ import java.io.File;
 import java.io.IOException;
 import java.util.*;
 
+import static java.lang.Math.max;
+import static java.lang.Math.min;
 import static javax.swing.SwingUtilities.invokeLater;
 import static javax.swing.event.TableModelEvent.ALL_COLUMNS;
 import static slash.common.type.CompactCalendar.fromMillis;
@@ -135,6 +137,10 @@ public class OverlayPositionsModel implements PositionsModel {
         delegate.edit(rowIndex, columnToValues, fireEvent, trackUndo);
     }
 
+    public void elevationsEdited(int[] rowIndices, Double[] previousElevations, Double[] nextElevations) {
+        delegate.elevationsEdited(rowIndices, previousElevations, nextElevations);
+    }
+
     public void addTableModelListener(TableModelListener l) {
         delegate.addTableModelListener(l);
     }
@@ -178,15 +184,11 @@ public class OverlayPositionsModel implements PositionsModel {
             return null;
 
         double[] result = new double[endIndex - startIndex + 1];
-        int index = 0;
-        double distance = 0.0;
-        while (index <= endIndex) {
-            DistanceAndTime distanceAndTime = distanceAndTimeAggregator.getAbsoluteDistancesAndTimes().get(index);
+        int lastIndex = distanceAndTimeAggregator.getSize() - 1;
+        for (int index = max(startIndex, 0); index <= endIndex; index++) {
+            DistanceAndTime distanceAndTime = distanceAndTimeAggregator.getAbsoluteDistanceAndTime(min(index, lastIndex));
             if (distanceAndTime != null && distanceAndTime.distance() != null)
-                distance = distanceAndTime.distance();
-            if (index >= startIndex)
-                result[index - startIndex] = distance;
-            index++;
+                result[index - startIndex] = distanceAndTime.distance();
         }
         return result;
     }
@@ -199,7 +201,7 @@ public class OverlayPositionsModel implements PositionsModel {
         Arrays.sort(indices);
 
         for (int i = 0; i < indices.length; i++) {
-            DistanceAndTime distanceAndTime = distanceAndTimeAggregator.getAbsoluteDistancesAndTimes().get(indices[i]);
+            DistanceAndTime distanceAndTime = distanceAndTimeAggregator.getAbsoluteDistanceAndTime(indices[i]);
             if (distanceAndTime != null && distanceAndTime.distance() != null)
                 result[i] = distanceAndTime.distance();
         }
@@ -211,15 +213,11 @@ public class OverlayPositionsModel implements PositionsModel {
             return null;
 
         long[] result = new long[endIndex - startIndex + 1];
-        int index = 0;
-        long time = 0;
-        while (index <= endIndex) {
-            DistanceAndTime distanceAndTime = distanceAndTimeAggregator.getAbsoluteDistancesAndTimes().get(index);
+        int lastIndex = distanceAndTimeAggregator.getSize() - 1;
+        for (int index = max(startIndex, 0); index <= endIndex; index++) {
+            DistanceAndTime distanceAndTime = distanceAndTimeAggregator.getAbsoluteDistanceAndTime(min(index, lastIndex));
             if (distanceAndTime != null && distanceAndTime.timeInMillis() != null)
-                time = distanceAndTime.timeInMillis();
-            if (index >= startIndex)
-                result[index - startIndex] = time;
-            index++;
+                result[index - startIndex] = distanceAndTime.timeInMillis();
         }
         return result;
     }
@@ -232,7 +230,7 @@ public class OverlayPositionsModel implements PositionsModel {
         Arrays.sort(indices);
 
         for (int i = 0; i < indices.length; i++) {
-            DistanceAndTime distanceAndTime = distanceAndTimeAggregator.getAbsoluteDistancesAndTimes().get(indices[i]);
+            DistanceAndTime distanceAndTime = distanceAndTimeAggregator.getAbsoluteDistanceAndTime(indices[i]);
             if (distanceAndTime != null && distanceAndTime.timeInMillis() != null)
                 result[i] = distanceAndTime.timeInMillis();
         }
@@ -252,6 +250,10 @@ public class OverlayPositionsModel implements PositionsModel {
         return delegate.getInsignificantPositions(threshold);
     }
 
+    public int[] getLeastSignificantPositions(int count) {
+        return delegate.getLeastSignificantPositions(count);
+    }
+
     public int getClosestPosition(double longitude, double latitude, double threshold) {
         return delegate.getClosestPosition(longitude, latitude, threshold);
     }
@@ -367,7 +369,7 @@ public class OverlayPositionsModel implements PositionsModel {
         }
 
         if (getRoute().getCharacteristics().equals(Route)) {
-            DistanceAndTime distanceAndTime = distanceAndTimeAggregator.getRelativeDistancesAndTimes().get(rowIndex);
+            DistanceAndTime distanceAndTime = distanceAndTimeAggregator.getRelativeDistanceAndTime(rowIndex);
             if(distanceAndTime != null)
                 return distanceAndTime.distance();
         }
@@ -26,9 +26,7 @@ import slash.navigation.base.BaseRoute;
 import slash.navigation.common.BoundingBox;
 import slash.navigation.common.DistanceAndTimeAggregator;
 import slash.navigation.common.NavigationPosition;
-import slash.navigation.gui.events.ContinousRange;
 import slash.navigation.gui.events.Range;
-import slash.navigation.gui.events.RangeOperation;
 
 import javax.swing.event.TableModelEvent;
 import javax.swing.table.AbstractTableModel;
@@ -40,6 +38,9 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.logging.Logger;
 
+import static java.lang.Integer.MAX_VALUE;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
 import static java.util.Collections.singletonList;
 import static javax.swing.event.TableModelEvent.*;
 import static slash.navigation.base.NavigationFormatConverter.convertPositions;
@@ -147,6 +148,10 @@ public class PositionsModelImpl extends AbstractTableModel implements PositionsM
         return getRoute().getInsignificantPositions(threshold);
     }
 
+    public int[] getLeastSignificantPositions(int count) {
+        return getRoute().getLeastSignificantPositions(count);
+    }
+
     public int getClosestPosition(double longitude, double latitude, double threshold) {
         return getRoute().getClosestPosition(longitude, latitude, threshold);
     }
@@ -187,6 +192,26 @@ public class PositionsModelImpl extends AbstractTableModel implements PositionsM
         }
     }
 
+    public void elevationsEdited(int[] rowIndices, Double[] previousElevations, Double[] nextElevations) {
+        // the elevations are already set and there is no undo to track
+    }
+
+    public void setElevations(int[] rowIndices, Double[] elevations) {
+        int firstIndex = MAX_VALUE, lastIndex = -1;
+        for (int i = 0; i < rowIndices.length; i++) {
+            int rowIndex = rowIndices[i];
+            // avoid exceptions due to parallel deletions
+            if (rowIndex > getRowCount() - 1)
+                continue;
+
+            getPosition(rowIndex).setElevation(elevations[i]);
+            firstIndex = min(firstIndex, rowIndex);
+            lastIndex = max(lastIndex, rowIndex);
+        }
+        if (lastIndex != -1)
+            fireTableRowsUpdated(firstIndex, lastIndex, ELEVATION_COLUMN_INDEX);
+    }
+
     public void add(int rowIndex, Double longitude, Double latitude, Double elevation, Double speed, CompactCalendar time, String description) {
         BaseNavigationPosition position = getRoute().createPosition(longitude, latitude, elevation, speed, time, description);
         add(rowIndex, singletonList(position));
@@ -208,38 +233,53 @@ public class PositionsModelImpl extends AbstractTableModel implements PositionsM
     // already is the route's real position type -- convention, not checked.
     @SuppressWarnings({"unchecked"})
     public void add(int rowIndex, List<BaseNavigationPosition> positions) {
-        for (int i = positions.size() - 1; i >= 0; i--) {
-            BaseNavigationPosition position = positions.get(i);
-            ((BaseRoute) getRoute()).add(rowIndex, position);
-        }
+        ((BaseRoute) getRoute()).add(rowIndex, positions);
         fireTableRowsInserted(rowIndex, rowIndex - 1 + positions.size());
     }
 
     public void remove(int firstIndex, int lastIndex) {
-        int[] range = Range.asRange(firstIndex, lastIndex - 1);
-        int[] rows = Range.revert(range);
-        remove(rows);
+        remove(Range.asRange(firstIndex, lastIndex - 1));
     }
 
     public void remove(int[] rowIndices) {
         remove(rowIndices, true);
     }
 
-    public void remove(int[] rows, final boolean fireEvent) {
-        new ContinousRange(rows, new RangeOperation() {
-            public void performOnIndex(int index) {
-                getRoute().remove(index);
-            }
-
-            public void performOnRange(int firstIndex, int lastIndex) {
-                if (fireEvent)
-                    fireTableRowsDeleted(firstIndex, lastIndex);
-            }
+    public void remove(int[] rows, boolean fireEvent) {
+        int[] sorted = Arrays.stream(rows).sorted().distinct().toArray();
+        getRoute().remove(sorted);
+        if (fireEvent)
+            fireTableRowsDeleted(sorted);
+    }
+
+    /**
+     * Fires a deletion for every continous range of the given ascending rows, from the
+     * highest to the lowest range so that the rows of every event are still valid.
+     */
+    public/*for UndoPositionsModel*/ void fireTableRowsDeleted(int[] sortedRows) {
+        int last = sortedRows.length - 1;
+        while (last >= 0) {
+            int first = last;
+            while (first > 0 && sortedRows[first - 1] == sortedRows[first] - 1)
+                first--;
+            fireTableRowsDeleted(sortedRows[first], sortedRows[last]);
+            last = first - 1;
+        }
+    }
 
-            public boolean isInterrupted() {
-                return false;
-            }
-        }).performMonotonicallyDecreasing();
+    /**
+     * Fires an insertion for every continous range of the given ascending rows, from the
+     * lowest to the highest range so that the rows of every event are already valid.
+     */
+    public/*for UndoPositionsModel*/ void fireTableRowsInserted(int[] sortedRows) {
+        int first = 0;
+        while (first < sortedRows.length) {
+            int last = first;
+            while (last < sortedRows.length - 1 && sortedRows[last + 1] == sortedRows[last] + 1)
+                last++;
+            fireTableRowsInserted(sortedRows[first], sortedRows[last]);
+            first = last + 1;
+        }
     }
 
     // comparator only ever compares NavigationPosition state (coordinates,
@@ -275,20 +315,13 @@ public class PositionsModelImpl extends AbstractTableModel implements PositionsM
 
     public void top(int[] rowIndices) {
         Arrays.sort(rowIndices);
-        for (int i = 0; i < rowIndices.length; i++) {
-            getRoute().top(rowIndices[i], i);
-        }
+        getRoute().top(rowIndices);
         fireTableRowsUpdated(0, rowIndices[rowIndices.length - 1]);
     }
 
     public void topDown(int[] rowIndices) {
-        int[] reverted = Range.revert(rowIndices);
-        for (int row = 0; row < reverted.length; row++) {
-            // move largest index with largest distance to top first
-            for (int i = reverted.length - row - 1; i < reverted[row]; i++) {
-                getRoute().move(i, i + 1);
-            }
-        }
+        Arrays.sort(rowIndices);
+        getRoute().topDown(rowIndices);
         fireTableRowsUpdated(0, rowIndices[rowIndices.length - 1]);
     }
 
@@ -317,32 +350,35 @@ public class PositionsModelImpl extends AbstractTableModel implements PositionsM
     }
 
     public void bottom(int[] rowIndices) {
-        int[] reverted = Range.revert(rowIndices);
-        for (int i = 0; i < reverted.length; i++) {
-            getRoute().bottom(reverted[i], i);
-            fireTableRowsUpdated(reverted[i], getRowCount() - 1 - i);
-        }
+        Arrays.sort(rowIndices);
+        getRoute().bottom(rowIndices);
+        fireTableRowsUpdated(rowIndices[0], getRowCount() - 1);
     }
 
     public void bottomUp(int[] rows) {
         Arrays.sort(rows);
-        for (int row = 0; row < rows.length; row++) {
-            // move smallest index with largest distance to bottom first
-            for (int i = getRowCount() - rows.length + row; i > rows[row]; i--) {
-                getRoute().move(i, i - 1);
-            }
-        }
+        getRoute().bottomUp(rows);
         fireTableRowsUpdated(rows[0], getRowCount() - 1);
     }
 
     private TableModelEvent currentEvent;
 
     public void fireTableChanged(TableModelEvent e) {
+        updateRoute(e);
         this.currentEvent = e;
         super.fireTableChanged(e);
         this.currentEvent = null;
     }
 
+    private void updateRoute(TableModelEvent e) {
+        if (getRoute() == null)
+            return;
+        // insertions and removals are noticed by the route itself
+        if (e.getType() == UPDATE && (e.getColumn() == ALL_COLUMNS || e.getColumn() == LONGITUDE_COLUMN_INDEX || e.getColumn() == LATITUDE_COLUMN_INDEX ||
+                e.getColumn() == DATE_TIME_COLUMN_INDEX || e.getColumn() == DATE_COLUMN_INDEX || e.getColumn() == TIME_COLUMN_INDEX))
+            getRoute().positionsUpdated(e.getFirstRow(), e.getLastRow());
+    }
+
     public boolean isContinousRangeOperation() {
         return currentEvent instanceof ContinousRangeTableModelEvent;
     }
@@ -359,10 +395,6 @@ public class PositionsModelImpl extends AbstractTableModel implements PositionsM
         fireTableChanged(new ContinousRangeTableModelEvent(this, firstIndex, lastIndex, columnIndex, UPDATE));
     }
 
-    public void fireTableRowsDeletedInContinousRange(int firstRow, int lastRow) {
-        fireTableChanged(new ContinousRangeTableModelEvent(this, firstRow, lastRow, ALL_COLUMNS, DELETE));
-    }
-
     public void fireTableModified() {
         fireTableChanged(new FullTableModicationTableModelEvent(this, 0, Integer.MAX_VALUE, ALL_COLUMNS, UPDATE));
     }
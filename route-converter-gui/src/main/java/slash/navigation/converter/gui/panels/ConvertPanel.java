@@ -888,6 +888,12 @@ public class ConvertPanel implements PanelInTab {
         return indices.length;
     }
 
+    public int selectLeastSignificantPositions(int count) {
+        int[] indices = positionsModel.getLeastSignificantPositions(count);
+        selectPositions(indices);
+        return indices.length;
+    }
+
     public void clearSelection() {
         tablePositions.clearSelection();
     }
@@ -54,6 +54,7 @@ import static slash.common.helpers.ThreadHelper.createSingleThreadExecutor;
 import static slash.common.io.Files.*;
 import static slash.navigation.gui.helpers.DialogStrings.asDialogString;
 import static slash.navigation.base.NavigationFormatConverter.convertRoute;
+import static slash.navigation.base.NavigationFormatParser.DEFAULT_PROBE_THREADS;
 import static slash.navigation.base.NavigationFormatParser.getNumberOfFilesToWriteFor;
 import static slash.navigation.gui.helpers.UIHelper.startWaitCursor;
 import static slash.navigation.gui.helpers.UIHelper.stopWaitCursor;
@@ -109,7 +110,7 @@ class FileOperations {
 
         startWaitCursor(r.getFrame().getRootPane());
         openExecutor.execute(() -> {
-            NavigationFormatParser parser = new NavigationFormatParser(panel.getNavigationFormatRegistry());
+            NavigationFormatParser parser = new NavigationFormatParser(panel.getNavigationFormatRegistry(), DEFAULT_PROBE_THREADS);
             NavigationFormatParserListener listener = format -> invokeLater(() -> panel.formatAndRoutesModel.setFormat(format));
             parser.addNavigationFileParserListener(listener);
 
@@ -271,7 +272,7 @@ class FileOperations {
                 for (URL url : urls) {
                     String path = createReadablePath(url);
 
-                    NavigationFormatParser parser = new NavigationFormatParser(panel.getNavigationFormatRegistry());
+                    NavigationFormatParser parser = new NavigationFormatParser(panel.getNavigationFormatRegistry(), DEFAULT_PROBE_THREADS);
                     final ParserResult result = parser.read(url);
                     if (result.isSuccessful()) {
                         log.info("Appended: " + path);
@@ -31,18 +31,16 @@ import slash.navigation.converter.gui.models.PositionColumnValues;
 import slash.navigation.converter.gui.models.PositionsModel;
 import slash.navigation.converter.gui.models.PositionsModelImpl;
 import slash.navigation.converter.gui.models.PositionsModelCallback;
-import slash.navigation.gui.events.ContinousRange;
 import slash.navigation.gui.events.Range;
-import slash.navigation.gui.events.RangeOperation;
 import slash.navigation.gui.undo.UndoManager;
 
 import javax.swing.event.TableModelListener;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 
-import static java.lang.Integer.MAX_VALUE;
 import static java.util.Collections.singletonList;
 import static slash.common.io.Transfer.trim;
 
@@ -111,6 +109,14 @@ public class UndoPositionsModel implements PositionsModel {
             undoManager.addEdit(new EditPosition(this, rowIndex, columnToValues));
     }
 
+    public void elevationsEdited(int[] rowIndices, Double[] previousElevations, Double[] nextElevations) {
+        undoManager.addEdit(new EditElevations(this, rowIndices, previousElevations, nextElevations));
+    }
+
+    void setElevations(int[] rows, Double[] elevations) {
+        delegate.setElevations(rows, elevations);
+    }
+
     public void addTableModelListener(TableModelListener l) {
         delegate.addTableModelListener(l);
     }
@@ -119,8 +125,6 @@ public class UndoPositionsModel implements PositionsModel {
         delegate.removeTableModelListener(l);
     }
 
-    private static final int CONTINOUS_RANGE_FINAL_EVENT = -2;
-
     public boolean isContinousRangeOperation() {
         return delegate.isContinousRangeOperation();
     }
@@ -195,6 +199,10 @@ public class UndoPositionsModel implements PositionsModel {
         return delegate.getInsignificantPositions(threshold);
     }
 
+    public int[] getLeastSignificantPositions(int count) {
+        return delegate.getLeastSignificantPositions(count);
+    }
+
     public int getClosestPosition(double longitude, double latitude, double threshold) {
         return delegate.getClosestPosition(longitude, latitude, threshold);
     }
@@ -225,64 +233,43 @@ public class UndoPositionsModel implements PositionsModel {
     // construction (see createPositions()) -- cast bypasses the capture.
     @SuppressWarnings("unchecked")
     void add(int row, List<NavigationPosition> positions, boolean fireEvent, boolean trackUndo) {
-        for (int i = positions.size() - 1; i >= 0; i--) {
-            NavigationPosition position = positions.get(i);
-            ((BaseRoute) getRoute()).add(row, (BaseNavigationPosition) position);
-        }
+        ((BaseRoute) getRoute()).add(row, positions);
         if (fireEvent)
             delegate.fireTableRowsInserted(row, row - 1 + positions.size());
         if (trackUndo)
             undoManager.addEdit(new AddPositions(this, row, positions));
     }
 
+    // As above -- the positions were removed from getRoute() before.
+    @SuppressWarnings("unchecked")
+    void add(int[] rows, List<NavigationPosition> positions, boolean fireEvent) {
+        ((BaseRoute) getRoute()).add(rows, positions);
+        if (fireEvent)
+            delegate.fireTableRowsInserted(rows);
+    }
+
     public void remove(int firstIndex, int lastIndex) {
         remove(firstIndex, lastIndex, true, true);
     }
 
     public void remove(int[] rowIndices) {
-        // speed up deletion of positions in large tracks
-        if (rowIndices.length > 1000) {
-            int rowCountBeforeRemoval = getRowCount() - 1;
-            remove(rowIndices, false, true);
-            delegate.fireTableRowsDeletedInContinousRange(0, rowCountBeforeRemoval);
-            delegate.fireTableRowsInserted(0, getRowCount() - 1);
-        } else
-            remove(rowIndices, true, true);
+        remove(rowIndices, true, true);
     }
 
     void remove(int from, int to, boolean fireEvent, boolean trackUndo) {
-        int[] range = Range.asRange(from, to - 1);
-        int[] rows = Range.revert(range);
-        remove(rows, fireEvent, trackUndo);
+        remove(Range.asRange(from, to - 1), fireEvent, trackUndo);
     }
 
-    void remove(int[] rows, final boolean fireEvent, final boolean trackUndo) {
-        final RemovePositions edit = new RemovePositions(this);
-
-        new ContinousRange(rows, new RangeOperation() {
-            private List<NavigationPosition> removed = new ArrayList<>();
-
-            public void performOnIndex(int index) {
-                removed.add(0, getRoute().remove(index));
-            }
-
-            public void performOnRange(int firstIndex, int lastIndex) {
-                if (fireEvent)
-                    delegate.fireTableRowsDeletedInContinousRange(firstIndex, lastIndex);
-                if (trackUndo)
-                    edit.add(firstIndex, removed);
-                removed = new ArrayList<>();
-            }
-
-            public boolean isInterrupted() {
-                return false;
-            }
-        }).performMonotonicallyDecreasing();
-
+    // As above -- getRoute()'s elements are that route's real position
+    // type, a BaseNavigationPosition, hence a NavigationPosition.
+    @SuppressWarnings("unchecked")
+    void remove(int[] rows, boolean fireEvent, boolean trackUndo) {
+        int[] sorted = Arrays.stream(rows).sorted().distinct().toArray();
+        List<NavigationPosition> removed = (List<NavigationPosition>) (List) getRoute().remove(sorted);
         if (fireEvent)
-            fireTableRowsUpdated(0, MAX_VALUE, CONTINOUS_RANGE_FINAL_EVENT);
+            delegate.fireTableRowsDeleted(sorted);
         if (trackUndo)
-            undoManager.addEdit(edit);
+            undoManager.addEdit(new RemovePositions(this, sorted, removed));
     }
 
     public void sort(Comparator<NavigationPosition> comparator) {
@@ -22,12 +22,16 @@ package slash.navigation.converter.gui.helpers;
 import org.junit.Test;
 import slash.navigation.common.LongitudeAndLatitude;
 import slash.navigation.common.MapDescriptor;
+import slash.navigation.common.SimpleNavigationPosition;
+import slash.navigation.elevation.ElevationCache;
 import slash.navigation.elevation.ElevationService;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.List;
 
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
 import static org.junit.Assert.*;
 
 /**
@@ -146,7 +150,320 @@ public class AutomaticElevationServiceTest {
         assertEquals(55.0, result, 0.001);
     }
 
-    // ---- simple stub implementation ----
+    // ---- batches via getElevationsFor ----
+
+    @Test
+    public void testGetElevationsForAsksNextServiceForMissingElevations() throws IOException {
+        ElevationServiceFacade facade = newFacade();
+        AutomaticElevationService automatic = newAutomatic(facade);
+
+        // LiDAR only covers positive longitudes
+        StubElevationService lidarService = new StubElevationService("Sonny LiDAR DTM 0.5", 100.0) {
+            @Override public Double getElevationFor(double lon, double lat) { return lon > 0 ? 100.0 + lon : null; }
+        };
+        StubElevationService geoNamesService = new StubElevationService("GeoNames", 42.0);
+
+        facade.addElevationService(automatic);
+        facade.addElevationService(geoNamesService);
+        facade.addElevationService(lidarService);
+
+        Double[] result = automatic.getElevationsFor(new double[]{1.0, -1.0, 2.0, -2.0}, new double[]{50.0, 50.0, 50.0, 50.0});
+        assertArrayEquals(new Double[]{101.0, 42.0, 102.0, 42.0}, result);
+        for (int i = 0; i < result.length; i++) {
+            double longitude = new double[]{1.0, -1.0, 2.0, -2.0}[i];
+            assertEquals(automatic.getElevationFor(longitude, 50.0), result[i]);
+        }
+    }
+
+    @Test
+    public void testGetElevationsForKeepsElevationsDespiteFailingService() throws IOException {
+        ElevationServiceFacade facade = newFacade();
+        AutomaticElevationService automatic = newAutomatic(facade);
+
+        StubElevationService lidarService = new StubElevationService("Sonny LiDAR DTM 0.5", null) {
+            @Override public Double getElevationFor(double lon, double lat) { return lon > 0 ? 100.0 : null; }
+        };
+        StubElevationService failingService = new StubElevationService("GeoNames", null) {
+            @Override public Double getElevationFor(double lon, double lat) throws IOException { throw new IOException("offline"); }
+        };
+
+        facade.addElevationService(automatic);
+        facade.addElevationService(failingService);
+        facade.addElevationService(lidarService);
+
+        assertArrayEquals(new Double[]{100.0, null}, automatic.getElevationsFor(new double[]{1.0, -1.0}, new double[]{50.0, 50.0}));
+    }
+
+    @Test(expected = IOException.class)
+    public void testGetElevationsForThrowsIfNoElevationFound() throws IOException {
+        ElevationServiceFacade facade = newFacade();
+        AutomaticElevationService automatic = newAutomatic(facade);
+
+        StubElevationService failingService = new StubElevationService("GeoNames", null) {
+            @Override public Double getElevationFor(double lon, double lat) throws IOException { throw new IOException("offline"); }
+        };
+
+        facade.addElevationService(automatic);
+        facade.addElevationService(failingService);
+
+        automatic.getElevationsFor(new double[]{1.0, -1.0}, new double[]{50.0, 50.0});
+    }
+
+    // ---- elevation cache ----
+
+    @Test
+    public void testGetElevationsForConsultsCacheFirst() throws IOException {
+        File file = File.createTempFile("elevationcache", ".bin");
+        try (ElevationCache cache = new ElevationCache(file, 1024, 7200)) {
+            ElevationServiceFacade facade = newFacade();
+            AutomaticElevationService automatic = new AutomaticElevationService(facade, cache);
+
+            int[] lookups = new int[1];
+            StubElevationService geoNamesService = new StubElevationService("GeoNames", 42.0) {
+                @Override public Double getElevationFor(double lon, double lat) { lookups[0]++; return lon > 0 ? 42.0 : null; }
+            };
+            facade.addElevationService(automatic);
+            facade.addElevationService(geoNamesService);
+
+            assertArrayEquals(new Double[]{42.0, null}, automatic.getElevationsFor(new double[]{1.0, -1.0}, new double[]{50.0, 50.0}));
+            assertEquals(2, lookups[0]);
+            assertArrayEquals(new Double[]{42.0, null}, automatic.getElevationsFor(new double[]{1.0, -1.0}, new double[]{50.0, 50.0}));
+            assertEquals(42.0, automatic.getElevationFor(1.0, 50.0), 0.0);
+            // only the position without elevation is asked again
+            assertEquals(3, lookups[0]);
+        } finally {
+            if (!file.delete())
+                file.deleteOnExit();
+        }
+    }
+
+    @Test
+    public void testCachedElevationsAreOutdatedByServiceWithHigherPriority() throws IOException {
+        File file = File.createTempFile("elevationcache", ".bin");
+        try (ElevationCache cache = new ElevationCache(file, 1024, 7200)) {
+            ElevationServiceFacade facade = newFacade();
+            AutomaticElevationService automatic = new AutomaticElevationService(facade, cache);
+            facade.addElevationService(automatic);
+            facade.addElevationService(new StubElevationService("GeoNames", 42.0));
+            assertEquals(42.0, automatic.getElevationFor(10.0, 50.0), 0.0);
+
+            facade.addElevationService(new StubElevationService("Sonny LiDAR DTM 0.5", 100.0));
+            assertEquals(100.0, automatic.getElevationFor(10.0, 50.0), 0.0);
+            assertArrayEquals(new Double[]{100.0}, automatic.getElevationsFor(new double[]{10.0}, new double[]{50.0}));
+        } finally {
+            if (!file.delete())
+                file.deleteOnExit();
+        }
+    }
+
+    @Test
+    public void testCachedElevationsAreKeptIfServiceWithHigherPriorityHasNoElevations() throws IOException {
+        File file = File.createTempFile("elevationcache", ".bin");
+        try (ElevationCache cache = new ElevationCache(file, 1024, 7200)) {
+            ElevationServiceFacade facade = newFacade();
+            AutomaticElevationService automatic = new AutomaticElevationService(facade, cache);
+
+            int[] lookups = new int[1];
+            StubElevationService geoNamesService = new StubElevationService("GeoNames", 42.0) {
+                @Override public Double getElevationFor(double lon, double lat) { lookups[0]++; return 42.0; }
+            };
+            facade.addElevationService(automatic);
+            facade.addElevationService(geoNamesService);
+            assertArrayEquals(new Double[]{42.0, 42.0}, automatic.getElevationsFor(new double[]{10.1, 10.2}, new double[]{50.0, 50.0}));
+            assertEquals(2, lookups[0]);
+
+            facade.addElevationService(new StubElevationService("Jonathan de Ferranti DEM 1", null));
+            // the first position finds out that only the service with the lower priority answers for the region
+            assertEquals(42.0, automatic.getElevationFor(10.1, 50.0), 0.0);
+            assertEquals(3, lookups[0]);
+            assertEquals(42.0, automatic.getElevationFor(10.2, 50.0), 0.0);
+            assertEquals(3, lookups[0]);
+        } finally {
+            if (!file.delete())
+                file.deleteOnExit();
+        }
+    }
+
+    @Test
+    public void testCachedElevationsAreKeptIfNoElevationDataIsDownloaded() throws IOException {
+        File file = File.createTempFile("elevationcache", ".bin");
+        try (ElevationCache cache = new ElevationCache(file, 1024, 7200)) {
+            // cached by the service with the lower priority before the restart
+            cache.put(10.1, 50.1, 42.0, 8);
+
+            ElevationServiceFacade facade = newFacade();
+            AutomaticElevationService automatic = new AutomaticElevationService(facade, cache);
+            DownloadingElevationService dem3Service = new DownloadingElevationService(false);
+            CountingElevationService geoNamesService = new CountingElevationService("GeoNames", 42.0);
+            facade.addElevationService(automatic);
+            facade.addElevationService(geoNamesService);
+            facade.addElevationService(dem3Service);
+
+            automatic.downloadElevationDataFor(singletonList(new LongitudeAndLatitude(10.1, 50.1)), true);
+            assertEquals(42.0, automatic.getElevationFor(10.1, 50.1), 0.0);
+            assertArrayEquals(new Double[]{42.0}, automatic.getElevationsFor(new double[]{10.1}, new double[]{50.1}));
+            assertEquals(0, dem3Service.lookups);
+            assertEquals(0, geoNamesService.lookups);
+        } finally {
+            if (!file.delete())
+                file.deleteOnExit();
+        }
+    }
+
+    @Test
+    public void testCachedElevationsAreOutdatedByDownloadedElevationDataOfRegion() throws IOException {
+        File file = File.createTempFile("elevationcache", ".bin");
+        try (ElevationCache cache = new ElevationCache(file, 1024, 7200)) {
+            cache.put(10.1, 50.1, 42.0, 8);
+            cache.put(10.2, 50.2, 42.0, 8);
+            cache.put(20.1, 50.1, 42.0, 8);
+
+            ElevationServiceFacade facade = newFacade();
+            AutomaticElevationService automatic = new AutomaticElevationService(facade, cache);
+            DownloadingElevationService dem3Service = new DownloadingElevationService(true);
+            CountingElevationService geoNamesService = new CountingElevationService("GeoNames", 42.0);
+            facade.addElevationService(automatic);
+            facade.addElevationService(geoNamesService);
+            facade.addElevationService(dem3Service);
+
+            automatic.downloadElevationDataFor(singletonList(new LongitudeAndLatitude(10.1, 50.1)), true);
+            assertEquals(500.0, automatic.getElevationFor(10.1, 50.1), 0.0);
+            assertEquals(1, dem3Service.lookups);
+            assertEquals(500.0, automatic.getElevationFor(10.2, 50.2), 0.0);
+            assertEquals(2, dem3Service.lookups);
+
+            // the other region has no new elevation data
+            assertEquals(42.0, automatic.getElevationFor(20.1, 50.1), 0.0);
+            assertEquals(2, dem3Service.lookups);
+            assertEquals(0, geoNamesService.lookups);
+        } finally {
+            if (!file.delete())
+                file.deleteOnExit();
+        }
+    }
+
+    // ---- service chain ----
+
+    @Test
+    public void testAddingServiceInvalidatesServiceChain() throws IOException {
+        ElevationServiceFacade facade = newFacade();
+        AutomaticElevationService automatic = newAutomatic(facade);
+
+        facade.addElevationService(automatic);
+        facade.addElevationService(new StubElevationService("Google Maps", 50.0));
+        assertEquals(50.0, automatic.getElevationFor(10.0, 50.0), 0.001);
+
+        facade.addElevationService(new StubElevationService("Sonny LiDAR DTM 0.5", 100.0));
+        assertEquals(100.0, automatic.getElevationFor(10.0, 50.0), 0.001);
+    }
+
+    @Test
+    public void testGetElevationForStaysOnAnsweringServiceOfRegion() throws IOException {
+        ElevationServiceFacade facade = newFacade();
+        AutomaticElevationService automatic = newAutomatic(facade);
+
+        // LiDAR only covers latitudes from 50 degrees
+        int[] lidarLookups = new int[1];
+        StubElevationService lidarService = new StubElevationService("Sonny LiDAR DTM 0.5", null) {
+            @Override public Double getElevationFor(double lon, double lat) { lidarLookups[0]++; return lat >= 50.0 ? 100.0 : null; }
+        };
+        facade.addElevationService(automatic);
+        facade.addElevationService(new StubElevationService("GeoNames", 42.0));
+        facade.addElevationService(lidarService);
+
+        assertEquals(42.0, automatic.getElevationFor(10.1, 49.1), 0.001);
+        assertEquals(1, lidarLookups[0]);
+        assertEquals(42.0, automatic.getElevationFor(10.2, 49.2), 0.001);
+        assertEquals(42.0, automatic.getElevationFor(10.3, 49.3), 0.001);
+        assertEquals(1, lidarLookups[0]);
+
+        assertEquals(100.0, automatic.getElevationFor(10.1, 50.1), 0.001);
+        assertEquals(100.0, automatic.getElevationFor(10.2, 50.2), 0.001);
+        assertEquals(3, lidarLookups[0]);
+
+        // no elevation data is missing for the region
+        automatic.downloadElevationDataFor(emptyList(), false);
+        assertEquals(42.0, automatic.getElevationFor(10.2, 49.2), 0.001);
+        assertEquals(3, lidarLookups[0]);
+    }
+
+    @Test
+    public void testGetElevationForAsksOtherServicesIfAnsweringServiceHasNoElevation() throws IOException {
+        ElevationServiceFacade facade = newFacade();
+        AutomaticElevationService automatic = newAutomatic(facade);
+
+        // LiDAR has a void at 10.5/50.5
+        StubElevationService lidarService = new StubElevationService("Sonny LiDAR DTM 0.5", null) {
+            @Override public Double getElevationFor(double lon, double lat) { return lon == 10.5 ? null : 100.0; }
+        };
+        facade.addElevationService(automatic);
+        facade.addElevationService(new StubElevationService("GeoNames", 42.0));
+        facade.addElevationService(lidarService);
+
+        assertEquals(100.0, automatic.getElevationFor(10.1, 50.1), 0.001);
+        assertEquals(42.0, automatic.getElevationFor(10.5, 50.5), 0.001);
+        assertEquals(100.0, automatic.getElevationFor(10.6, 50.6), 0.001);
+    }
+
+    @Test
+    public void testGetElevationsForStaysOnAnsweringServiceOfRegion() throws IOException {
+        ElevationServiceFacade facade = newFacade();
+        AutomaticElevationService automatic = newAutomatic(facade);
+
+        int[] lidarLookups = new int[1];
+        StubElevationService lidarService = new StubElevationService("Sonny LiDAR DTM 0.5", null) {
+            @Override public Double getElevationFor(double lon, double lat) { lidarLookups[0]++; return lat >= 50.0 ? 100.0 : null; }
+        };
+        facade.addElevationService(automatic);
+        facade.addElevationService(new StubElevationService("GeoNames", 42.0));
+        facade.addElevationService(lidarService);
+
+        double[] longitudes = {10.1, 10.2, 10.3}, latitudes = {49.1, 50.2, 49.3};
+        assertArrayEquals(new Double[]{42.0, 100.0, 42.0}, automatic.getElevationsFor(longitudes, latitudes));
+        assertEquals(3, lidarLookups[0]);
+        assertArrayEquals(new Double[]{42.0, 100.0, 42.0}, automatic.getElevationsFor(longitudes, latitudes));
+        assertEquals(4, lidarLookups[0]);
+    }
+
+    // ---- simple stub implementations ----
+
+    private static class CountingElevationService extends StubElevationService {
+        int lookups;
+
+        CountingElevationService(String name, Double elevation) {
+            super(name, elevation);
+        }
+
+        public Double getElevationFor(double lon, double lat) throws IOException {
+            lookups++;
+            return super.getElevationFor(lon, lat);
+        }
+    }
+
+    // has elevation data for 10/50 once it is downloaded
+    private static class DownloadingElevationService extends CountingElevationService {
+        private boolean missing;
+
+        DownloadingElevationService(boolean missing) {
+            super("Jonathan de Ferranti DEM 3", null);
+            this.missing = missing;
+        }
+
+        public boolean isDownload() { return true; }
+
+        public Double getElevationFor(double lon, double lat) throws IOException {
+            super.getElevationFor(lon, lat);
+            return !missing && (int) lon == 10 && (int) lat == 50 ? 500.0 : null;
+        }
+
+        public void downloadElevationDataFor(List<LongitudeAndLatitude> ll, boolean wait) {
+            missing = false;
+        }
+
+        public long calculateRemainingDownloadSize(List<MapDescriptor> m) {
+            return missing && m.get(0).getBoundingBox().contains(new SimpleNavigationPosition(10.75, 50.75)) ? 1 : 0;
+        }
+    }
 
     private static class StubElevationService implements ElevationService {
         private final String name;
@@ -164,7 +481,7 @@ public class AutomaticElevationServiceTest {
         public void setPath(String path)     {}
         public File getDirectory()           { return null; }
 
-        public Double getElevationFor(double lon, double lat) { return elevation; }
+        public Double getElevationFor(double lon, double lat) throws IOException { return elevation; }
 
         public void downloadElevationDataFor(List<LongitudeAndLatitude> ll, boolean wait) {}
         public long calculateRemainingDownloadSize(List<MapDescriptor> m) { return 0; }
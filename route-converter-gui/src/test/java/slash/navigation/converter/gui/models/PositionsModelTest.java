@@ -27,9 +27,11 @@ import slash.navigation.bcr.BcrRoute;
 import slash.navigation.bcr.MTP0607Format;
 import slash.navigation.converter.gui.panels.PositionsModelCallbackImpl;
 
+import javax.swing.event.TableModelEvent;
 import java.util.ArrayList;
 import java.util.List;
 
+import static javax.swing.event.TableModelEvent.DELETE;
 import static org.junit.Assert.assertEquals;
 
 public class PositionsModelTest {
@@ -83,4 +85,38 @@ public class PositionsModelTest {
         assertEquals("a", model.getPosition(0).getDescription());
         assertEquals("e", model.getPosition(1).getDescription());
     }
+
+    @Test
+    public void testRemoveWithArrayFiresAnEventPerRange() {
+        initialize();
+        List<TableModelEvent> events = new ArrayList<>();
+        model.addTableModelListener(events::add);
+        model.remove(new int[]{3, 0, 1});
+        assertEquals(2, model.getRowCount());
+        assertEquals("c", model.getPosition(0).getDescription());
+        assertEquals("e", model.getPosition(1).getDescription());
+        assertEquals(2, events.size());
+        assertDeleted(3, 3, events.get(0));
+        assertDeleted(0, 1, events.get(1));
+    }
+
+    private static void assertDeleted(int firstRow, int lastRow, TableModelEvent event) {
+        assertEquals(DELETE, event.getType());
+        assertEquals(firstRow, event.getFirstRow());
+        assertEquals(lastRow, event.getLastRow());
+    }
+
+    @Test
+    public void testTopAndBottom() {
+        initialize();
+        model.top(new int[]{3, 1});
+        assertEquals("b", model.getPosition(0).getDescription());
+        assertEquals("d", model.getPosition(1).getDescription());
+        assertEquals("a", model.getPosition(2).getDescription());
+
+        model.bottom(new int[]{0, 1});
+        assertEquals("a", model.getPosition(0).getDescription());
+        assertEquals("b", model.getPosition(3).getDescription());
+        assertEquals("d", model.getPosition(4).getDescription());
+    }
 }
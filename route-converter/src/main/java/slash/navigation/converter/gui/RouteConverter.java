@@ -28,6 +28,7 @@ import slash.navigation.converter.gui.helpers.AutomaticGeocodingService;
 import slash.navigation.converter.gui.helpers.MapViewImplementation;
 import slash.navigation.converter.gui.helpers.OverlaysMenu;
 import slash.navigation.datasources.DataSource;
+import slash.navigation.elevation.ElevationCache;
 import slash.navigation.geonames.GeoNamesService;
 import slash.navigation.googlemaps.GoogleService;
 import slash.navigation.graphhopper.GraphHopper;
@@ -70,6 +71,7 @@ import static slash.navigation.gui.helpers.JMenuHelper.*;
 
 public class RouteConverter extends BaseRouteConverter {
     private HgtFilesService hgtFilesService;
+    private ElevationCache elevationCache;
     private MapsforgeMapManager mapsforgeMapManager;
     private MapsforgePoiLookup mapsforgePoiLookup;
     private LocalMap mapAfterStart;
@@ -139,7 +141,12 @@ public class RouteConverter extends BaseRouteConverter {
     }
 
     protected void initializeElevationServices() {
-        AutomaticElevationService service = new AutomaticElevationService(getElevationServiceFacade());
+        try {
+            elevationCache = new ElevationCache(new File(getApplicationDirectory("elevation"), "elevation-cache.bin"));
+        } catch (IOException e) {
+            log.warning("Could not open elevation cache: " + e);
+        }
+        AutomaticElevationService service = new AutomaticElevationService(getElevationServiceFacade(), elevationCache);
         getElevationServiceFacade().addElevationService(service);
         getElevationServiceFacade().setPreferredElevationService(service);
 
@@ -289,5 +296,12 @@ public class RouteConverter extends BaseRouteConverter {
         super.shutdown();
         getHgtFilesService().dispose();
         getMapsforgeMapManager().dispose();
+        if (elevationCache != null) {
+            try {
+                elevationCache.close();
+            } catch (IOException e) {
+                log.warning("Could not close elevation cache: " + e);
+            }
+        }
     }
 }